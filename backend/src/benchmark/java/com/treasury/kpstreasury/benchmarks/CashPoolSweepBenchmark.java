@@ -0,0 +1,146 @@
+package com.treasury.kpstreasury.benchmarks;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.models.dto.CashPoolDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.services.BalanceSlotService;
+import com.treasury.kpstreasury.services.CashPoolService;
+import com.treasury.kpstreasury.services.CashPoolSweepService;
+import com.treasury.kpstreasury.services.LedgerService;
+import com.treasury.kpstreasury.services.LedgerWatermarkService;
+import com.treasury.kpstreasury.services.TransferEngine;
+import com.treasury.kpstreasury.utils.CashPoolMapper;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A zero-balance sweep of 50k participant accounts into one header account, as one netted, batched
+ * CashPoolSweepService run and as one TransferEngine transfer per participant, against in-memory H2.
+ * Balances are reset before every run, e.g.
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark="CashPoolSweepBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CashPoolSweepBenchmark {
+
+    private static final int ACCOUNTS = 50_000;
+
+    @Param({"sweep", "transfers"})
+    public String apply;
+
+    private ConfigurableApplicationContext context;
+    private CashPoolSweepService cashPoolSweepService;
+    private TransferEngine transferEngine;
+    private TreasuryRepository treasuryRepository;
+    private JdbcTemplate jdbcTemplate;
+    private Long headerId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:sweeps;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+        cashPoolSweepService = context.getBean(CashPoolSweepService.class);
+        transferEngine = context.getBean(TransferEngine.class);
+        treasuryRepository = context.getBean(TreasuryRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        List<TreasuryEntity> accounts = new ArrayList<>();
+        for (int i = 0; i <= ACCOUNTS; i++) {
+            accounts.add(TreasuryEntity.builder()
+                    .accountNumber("BENCH-" + i)
+                    .currency("EUR")
+                    .balance(BigDecimal.ZERO)
+                    .availableBalance(BigDecimal.ZERO)
+                    .accountType(AccountType.CHECKING)
+                    .status(AccountStatus.ACTIVE)
+                    .bankName("Bench Bank")
+                    .branchCode("BB001")
+                    .build());
+        }
+        headerId = treasuryRepository.saveAll(accounts).get(0).getId();
+        context.getBean(CashPoolService.class).createPool(CashPoolDto.builder()
+                .name("Bench pool")
+                .headerAccountId(headerId)
+                .build());
+    }
+
+    // every participant gets a surplus, so both runs move the same 50k amounts
+    @Setup(Level.Invocation)
+    public void resetBalances() {
+        jdbcTemplate.update("UPDATE treasurys SET balance = 1 + MOD(id, 1000), available_balance = 1 + MOD(id, 1000) "
+                + "WHERE id <> ?", headerId);
+        jdbcTemplate.update("UPDATE treasurys SET balance = 0, available_balance = 0 WHERE id = ?", headerId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int sweepIntoHeader() {
+        if ("sweep".equals(apply)) {
+            return cashPoolSweepService.sweep().getPostings();
+        }
+        int postings = 0;
+        for (TreasuryEntity account : treasuryRepository.findAll()) {
+            if (!account.getId().equals(headerId) && account.getAvailableBalance().signum() > 0) {
+                transferEngine.transfer(account.getId(), headerId, account.getAvailableBalance());
+                postings += 2;
+            }
+        }
+        return postings;
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {KafkaAutoConfiguration.class, SecurityAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class})
+    @EntityScan("com.treasury.kpstreasury.models.entity")
+    @EnableJpaRepositories("com.treasury.kpstreasury.repositories")
+    @Import({CashPoolSweepService.class, CashPoolService.class, CashPoolMapper.class, TransferEngine.class,
+            BalanceSlotService.class, LedgerService.class, LedgerWatermarkService.class,
+            LedgerMapper.class})
+    static class BenchmarkApplication {
+    }
+}
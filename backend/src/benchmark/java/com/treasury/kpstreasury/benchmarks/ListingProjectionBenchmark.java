@@ -0,0 +1,120 @@
+package com.treasury.kpstreasury.benchmarks;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.TreasuryMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full listing of 50k treasury accounts, read as managed entities and mapped (the listings before
+ * the DTO projections) and read straight into DTOs by a constructor expression, against in-memory H2.
+ * Run with the allocation profiler, e.g.
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark="ListingProjectionBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ListingProjectionBenchmark {
+
+    private static final int ACCOUNTS = 50_000;
+
+    @Param({"entities", "projection"})
+    public String read;
+
+    private ConfigurableApplicationContext context;
+    private TreasuryRepository treasuryRepository;
+    private TreasuryMapper treasuryMapper;
+    private TransactionTemplate readTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:listings;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+        treasuryRepository = context.getBean(TreasuryRepository.class);
+        treasuryMapper = context.getBean(TreasuryMapper.class);
+        readTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readTransaction.setReadOnly(true);
+
+        List<TreasuryEntity> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(TreasuryEntity.builder()
+                    .accountNumber("BENCH-" + i)
+                    .currency(i % 3 == 0 ? "USD" : "EUR")
+                    .balance(BigDecimal.valueOf(1_000_000L + i, 2))
+                    .availableBalance(BigDecimal.valueOf(1_000_000L + i, 2))
+                    .accountType(AccountType.CHECKING)
+                    .status(AccountStatus.ACTIVE)
+                    .bankName("Bench Bank")
+                    .branchCode("BB001")
+                    .build());
+        }
+        treasuryRepository.saveAll(accounts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TreasuryDto> listAll() {
+        if ("entities".equals(read)) {
+            return readTransaction.execute(status -> treasuryRepository.findAll()
+                    .stream()
+                    .map(treasuryMapper::toDto)
+                    .toList());
+        }
+        return readTransaction.execute(status -> treasuryRepository.findAllDtos());
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {KafkaAutoConfiguration.class, SecurityAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class})
+    @EntityScan("com.treasury.kpstreasury.models.entity")
+    @EnableJpaRepositories("com.treasury.kpstreasury.repositories")
+    @Import(TreasuryMapper.class)
+    static class BenchmarkApplication {
+    }
+}
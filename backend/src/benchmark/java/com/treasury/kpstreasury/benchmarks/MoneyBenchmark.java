@@ -0,0 +1,137 @@
+package com.treasury.kpstreasury.benchmarks;
+
+import com.treasury.kpstreasury.utils.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Money versus BigDecimal on the three hot paths that moved to minor units: applying batch transfer
+ * legs, the collateral eligible-value (haircut) calculation and the risk exposure sum.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=MoneyBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int ACCOUNTS = 200;
+    private static final int ITEMS = 10_000;
+
+    private BigDecimal[] decimalBalances;
+    private Money[] moneyBalances;
+    private int[] legFrom;
+    private int[] legTo;
+    private BigDecimal[] legAmounts;
+
+    private BigDecimal[] marketValues;
+    private BigDecimal[] haircuts;
+    private BigDecimal[] eligibleValues;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        decimalBalances = new BigDecimal[ACCOUNTS];
+        moneyBalances = new Money[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            decimalBalances[i] = new BigDecimal("1000000.00");
+            moneyBalances[i] = Money.of(decimalBalances[i], "EUR");
+        }
+
+        legFrom = new int[ITEMS];
+        legTo = new int[ITEMS];
+        legAmounts = new BigDecimal[ITEMS];
+        marketValues = new BigDecimal[ITEMS];
+        haircuts = new BigDecimal[ITEMS];
+        eligibleValues = new BigDecimal[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            legFrom[i] = random.nextInt(ACCOUNTS);
+            legTo[i] = (legFrom[i] + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            legAmounts[i] = BigDecimal.valueOf(random.nextInt(1, 500_000), 2);
+            marketValues[i] = BigDecimal.valueOf(random.nextLong(1, 10_000_000_000L), 2);
+            haircuts[i] = BigDecimal.valueOf(random.nextInt(0, 5_000), 4);
+            eligibleValues[i] = marketValues[i].multiply(BigDecimal.ONE.subtract(haircuts[i]))
+                    .setScale(2, RoundingMode.HALF_UP);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal[] transferLegsBigDecimal() {
+        BigDecimal[] balances = decimalBalances.clone();
+        for (int i = 0; i < ITEMS; i++) {
+            BigDecimal amount = legAmounts[i];
+            if (balances[legFrom[i]].compareTo(amount) >= 0) {
+                balances[legFrom[i]] = balances[legFrom[i]].subtract(amount);
+                balances[legTo[i]] = balances[legTo[i]].add(amount);
+            }
+        }
+        return balances;
+    }
+
+    @Benchmark
+    public Money[] transferLegsMoney() {
+        Money[] balances = moneyBalances.clone();
+        for (int i = 0; i < ITEMS; i++) {
+            Money amount = Money.of(legAmounts[i], "EUR");
+            if (!balances[legFrom[i]].isLessThan(amount)) {
+                balances[legFrom[i]] = balances[legFrom[i]].minus(amount);
+                balances[legTo[i]] = balances[legTo[i]].plus(amount);
+            }
+        }
+        return balances;
+    }
+
+    @Benchmark
+    public BigDecimal eligibleValueBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < ITEMS; i++) {
+            total = total.add(marketValues[i].multiply(BigDecimal.ONE.subtract(haircuts[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long eligibleValueMoney() {
+        long total = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            total += Money.of(marketValues[i], null).afterHaircut(haircuts[i]).minorUnits();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal riskExposureBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < ITEMS; i++) {
+            total = total.add(marketValues[i].subtract(eligibleValues[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long riskExposureMoney() {
+        long total = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            total = Math.addExact(total, Money.rounded(marketValues[i], null)
+                    .minus(Money.rounded(eligibleValues[i], null))
+                    .minorUnits());
+        }
+        return total;
+    }
+}
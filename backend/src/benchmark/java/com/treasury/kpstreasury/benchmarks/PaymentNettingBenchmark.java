@@ -0,0 +1,88 @@
+package com.treasury.kpstreasury.benchmarks;
+
+import com.treasury.kpstreasury.utils.PaymentNetting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Netting one cycle of 100k instructions between 2k accounts into net positions and bilateral nets,
+ * with boxed HashMap&lt;Long, Long&gt; maps and with PaymentNetting's primitive long-keyed tables.
+ * Run with the allocation profiler, e.g.
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark="PaymentNettingBenchmark -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentNettingBenchmark {
+
+    private static final int ACCOUNTS = 2_000;
+    private static final int INSTRUCTIONS = 100_000;
+
+    private long[] from;
+    private long[] to;
+    private long[] amounts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        from = new long[INSTRUCTIONS];
+        to = new long[INSTRUCTIONS];
+        amounts = new long[INSTRUCTIONS];
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            from[i] = 1_000_000L + random.nextInt(ACCOUNTS);
+            to[i] = 1_000_000L + (from[i] - 1_000_000L + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            amounts[i] = 1 + random.nextInt(1_000_000);
+        }
+    }
+
+    @Benchmark
+    public int boxedMaps() {
+        Map<Long, Long> nets = new HashMap<>();
+        Map<Long, Map<Long, Long>> bilateral = new HashMap<>();
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            nets.merge(from[i], -amounts[i], Long::sum);
+            nets.merge(to[i], amounts[i], Long::sum);
+            boolean lowPays = from[i] < to[i];
+            long low = lowPays ? from[i] : to[i];
+            long high = lowPays ? to[i] : from[i];
+            bilateral.computeIfAbsent(low, key -> new HashMap<>())
+                    .merge(high, lowPays ? -amounts[i] : amounts[i], Long::sum);
+        }
+        return nets.size() + bilateral.size();
+    }
+
+    @Benchmark
+    public int primitiveTables() {
+        PaymentNetting netting = new PaymentNetting(INSTRUCTIONS);
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            netting.add(from[i], to[i], amounts[i], "EUR");
+        }
+        return netting.accountCount();
+    }
+
+    @Benchmark
+    public List<PaymentNetting.Leg> primitiveTablesWithLegs() {
+        PaymentNetting netting = new PaymentNetting(INSTRUCTIONS);
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            netting.add(from[i], to[i], amounts[i], "EUR");
+        }
+        return netting.residualLegs();
+    }
+}
@@ -0,0 +1,151 @@
+package com.treasury.kpstreasury.benchmarks;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.enums.TransferStatus;
+import com.treasury.kpstreasury.models.dto.TransferLegResultDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.services.BalanceSlotService;
+import com.treasury.kpstreasury.services.LedgerService;
+import com.treasury.kpstreasury.services.LedgerWatermarkService;
+import com.treasury.kpstreasury.services.TransferEngine;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A file of 5k or 10k transfer legs between 1k accounts, posted as one TransferEngine batch and as one
+ * transfer per leg, against in-memory H2. Balances are reset before every run, e.g.
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark="TransferBatchBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransferBatchBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+
+    @Param({"5000", "10000"})
+    public int legCount;
+
+    @Param({"batch", "transfers"})
+    public String apply;
+
+    private ConfigurableApplicationContext context;
+    private TransferEngine transferEngine;
+    private JdbcTemplate jdbcTemplate;
+    private List<TransferRequestDto> legs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:transfers;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        // the test application.properties shadows the main one, restore its JDBC batching
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=100",
+                        "--spring.jpa.properties.hibernate.order_updates=true",
+                        "--spring.jpa.properties.hibernate.order_inserts=true",
+                        "--logging.level.root=WARN");
+        transferEngine = context.getBean(TransferEngine.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        List<TreasuryEntity> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(TreasuryEntity.builder()
+                    .accountNumber("BENCH-" + i)
+                    .currency("EUR")
+                    .balance(BigDecimal.ZERO)
+                    .availableBalance(BigDecimal.ZERO)
+                    .accountType(AccountType.CHECKING)
+                    .status(AccountStatus.ACTIVE)
+                    .bankName("Bench Bank")
+                    .branchCode("BB001")
+                    .build());
+        }
+        List<Long> ids = context.getBean(TreasuryRepository.class).saveAll(accounts).stream()
+                .map(TreasuryEntity::getId)
+                .toList();
+
+        // fixed pairs and amounts, so both runs post the same legs; 7i + 1 and i never meet modulo 1000
+        legs = new ArrayList<>(legCount);
+        for (int i = 0; i < legCount; i++) {
+            legs.add(new TransferRequestDto(ids.get(i % ACCOUNTS), ids.get((i * 7 + 1) % ACCOUNTS),
+                    BigDecimal.valueOf(1 + i % 500, 2)));
+        }
+    }
+
+    // every account can cover all of its legs, so no leg is rejected
+    @Setup(Level.Invocation)
+    public void resetBalances() {
+        jdbcTemplate.update("UPDATE treasurys SET balance = 1000000, available_balance = 1000000");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int postLegs() {
+        if ("batch".equals(apply)) {
+            int posted = 0;
+            for (TransferLegResultDto result : transferEngine.transferBatch(legs)) {
+                if (result.getStatus() == TransferStatus.POSTED) {
+                    posted++;
+                }
+            }
+            return posted;
+        }
+        for (TransferRequestDto leg : legs) {
+            transferEngine.transfer(leg.getFromAccountId(), leg.getToAccountId(), leg.getAmount());
+        }
+        return legs.size();
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {KafkaAutoConfiguration.class, SecurityAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class})
+    @EntityScan("com.treasury.kpstreasury.models.entity")
+    @EnableJpaRepositories("com.treasury.kpstreasury.repositories")
+    @Import({TransferEngine.class, BalanceSlotService.class, LedgerService.class, LedgerWatermarkService.class,
+            LedgerMapper.class})
+    static class BenchmarkApplication {
+    }
+}
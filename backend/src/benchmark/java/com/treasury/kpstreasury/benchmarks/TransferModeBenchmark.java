@@ -0,0 +1,118 @@
+package com.treasury.kpstreasury.benchmarks;
+
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.services.BalanceSlotService;
+import com.treasury.kpstreasury.services.LedgerService;
+import com.treasury.kpstreasury.services.LedgerWatermarkService;
+import com.treasury.kpstreasury.services.ShardedTransferPipeline;
+import com.treasury.kpstreasury.services.TransferEngine;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-transfer throughput of the synchronous (striped locks, one transaction per transfer) and
+ * the sharded (single-writer shards, group commit) execution modes. Runs against in-memory H2 unless
+ * BENCHMARK_DB_URL, BENCHMARK_DB_USER and BENCHMARK_DB_PASSWORD point it at a real database, which is
+ * the only setup whose numbers say anything about group commit. Run once per thread count, e.g.
+ * {@code BENCHMARK_DB_URL=jdbc:postgresql://localhost/bench mvn -Pbenchmark test-compile exec:exec -Dbenchmark="TransferModeBenchmark -t 16"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class TransferModeBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+
+    @Param({"sync", "sharded"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private TransferEngine transferEngine;
+    private ShardedTransferPipeline pipeline;
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + Objects.requireNonNullElse(System.getenv("BENCHMARK_DB_URL"),
+                                "jdbc:h2:mem:transfers;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"),
+                        "--spring.datasource.username=" + Objects.requireNonNullElse(System.getenv("BENCHMARK_DB_USER"), "sa"),
+                        "--spring.datasource.password=" + Objects.requireNonNullElse(System.getenv("BENCHMARK_DB_PASSWORD"), ""),
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN",
+                        "--treasury.transfer.mode=" + mode);
+        transferEngine = context.getBean(TransferEngine.class);
+        pipeline = context.getBeanProvider(ShardedTransferPipeline.class).getIfAvailable();
+
+        TreasuryRepository treasuryRepository = context.getBean(TreasuryRepository.class);
+        List<TreasuryEntity> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(TestsUtil.account("BENCH-" + i, "1000000000.00").build());
+        }
+        ids = treasuryRepository.saveAll(accounts).stream().map(TreasuryEntity::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ACCOUNTS);
+        int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 10_000), 2);
+        if (pipeline != null && pipeline.tryTransfer(ids.get(from), ids.get(to), amount)) {
+            return true;
+        }
+        transferEngine.transfer(ids.get(from), ids.get(to), amount);
+        return false;
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {KafkaAutoConfiguration.class, SecurityAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class})
+    @EntityScan("com.treasury.kpstreasury.models.entity")
+    @EnableJpaRepositories("com.treasury.kpstreasury.repositories")
+    @Import({TransferEngine.class, ShardedTransferPipeline.class, BalanceSlotService.class,
+            LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class})
+    static class BenchmarkApplication {
+    }
+}
@@ -0,0 +1,34 @@
+package com.treasury.kpstreasury.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prefix searches (LIKE 'abc%') can only use a plain PostgreSQL btree index when the database
+ * collation is "C". The schema is generated from the entities, which cannot declare an operator
+ * class, so the pattern index behind the bank name search is created here.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PatternIndexInitializer {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createPatternIndexes() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_treasurys_bank_name_pattern "
+                + "ON treasurys (bank_name varchar_pattern_ops)");
+        log.info("Pattern indexes for prefix searches are in place");
+    }
+}
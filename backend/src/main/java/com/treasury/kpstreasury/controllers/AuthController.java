@@ -70,23 +70,14 @@ public class AuthController {
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody CreateUserDto createUserDto) {
         try {
-            // Check if username exists
-            if (!userService.isUsernameAvailable(createUserDto.getUsername())) {
-                return ResponseEntity.badRequest()
-                        .body("Username is already taken!");
-            }
-
-            // Check if email exists
-            if (!userService.isEmailAvailable(createUserDto.getEmail())) {
-                return ResponseEntity.badRequest()
-                        .body("Email is already in use!");
-            }
-
-            // Create new user
+            // Create new user, which rejects a taken username or email
             UserDto user = userService.createUser(createUserDto);
 
             return ResponseEntity.ok("User registered successfully");
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Registration failed: " + e.getMessage());
@@ -0,0 +1,33 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.AvailabilityFilterStatsDto;
+import com.treasury.kpstreasury.services.AvailabilityFilterService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/availability-filters")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class AvailabilityFilterController {
+
+    private final AvailabilityFilterService availabilityFilterService;
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<AvailabilityFilterStatsDto>> getStats() {
+        List<AvailabilityFilterStatsDto> stats = availabilityFilterService.getStats();
+        return ResponseEntity.ok(stats);
+    }
+
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<AvailabilityFilterStatsDto>> rebuild() {
+        availabilityFilterService.rebuild();
+        return ResponseEntity.ok(availabilityFilterService.getStats());
+    }
+}
@@ -0,0 +1,88 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.BalanceHoldDto;
+import com.treasury.kpstreasury.models.dto.HoldRequestDto;
+import com.treasury.kpstreasury.services.BalanceHoldService;
+import com.treasury.kpstreasury.services.IdempotencyService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/treasury")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class BalanceHoldController {
+
+    private final BalanceHoldService balanceHoldService;
+    private final IdempotencyService idempotencyService;
+
+    @PostMapping("/{id}/holds")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<BalanceHoldDto> placeHold(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id,
+            @Valid @RequestBody HoldRequestDto request) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("place-hold", id, request), BalanceHoldDto.class, () -> {
+            try {
+                BalanceHoldDto hold = balanceHoldService.placeHold(id, request);
+                return new ResponseEntity<>(hold, HttpStatus.CREATED);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    @GetMapping("/{id}/holds")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<BalanceHoldDto>> getActiveHolds(@PathVariable Long id) {
+        List<BalanceHoldDto> holds = balanceHoldService.getActiveHolds(id);
+        return ResponseEntity.ok(holds);
+    }
+
+    @GetMapping("/holds/{holdId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<BalanceHoldDto> getHold(@PathVariable Long holdId) {
+        return balanceHoldService.getHold(holdId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/holds/{holdId}/release")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<BalanceHoldDto> releaseHold(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable Long holdId) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("release-hold", holdId), BalanceHoldDto.class, () -> {
+            try {
+                BalanceHoldDto hold = balanceHoldService.releaseHold(holdId);
+                return ResponseEntity.ok(hold);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    @PostMapping("/holds/{holdId}/capture")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<BalanceHoldDto> captureHold(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable Long holdId) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("capture-hold", holdId), BalanceHoldDto.class, () -> {
+            try {
+                BalanceHoldDto hold = balanceHoldService.captureHold(holdId);
+                return ResponseEntity.ok(hold);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+}
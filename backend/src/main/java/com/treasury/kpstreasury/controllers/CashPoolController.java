@@ -0,0 +1,86 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.CashPoolDto;
+import com.treasury.kpstreasury.models.dto.SweepReportDto;
+import com.treasury.kpstreasury.services.CashPoolService;
+import com.treasury.kpstreasury.services.CashPoolSweepService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/treasury/cash-pools")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class CashPoolController {
+
+    private final CashPoolService cashPoolService;
+    private final CashPoolSweepService cashPoolSweepService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<CashPoolDto>> getPools() {
+        List<CashPoolDto> pools = cashPoolService.getPools();
+        return ResponseEntity.ok(pools);
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<CashPoolDto> getPool(@PathVariable Long id) {
+        return cashPoolService.getPool(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<CashPoolDto> createPool(@Valid @RequestBody CashPoolDto poolDto) {
+        try {
+            CashPoolDto pool = cashPoolService.createPool(poolDto);
+            return new ResponseEntity<>(pool, HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<CashPoolDto> updatePool(@PathVariable Long id, @Valid @RequestBody CashPoolDto poolDto) {
+        try {
+            CashPoolDto pool = cashPoolService.updatePool(id, poolDto);
+            return ResponseEntity.ok(pool);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<Void> deletePool(@PathVariable Long id) {
+        try {
+            cashPoolService.deletePool(id);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/sweep/preview")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<SweepReportDto> previewSweep() {
+        SweepReportDto report = cashPoolSweepService.preview();
+        return ResponseEntity.ok(report);
+    }
+
+    @PostMapping("/sweep")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<SweepReportDto> sweep() {
+        SweepReportDto report = cashPoolSweepService.sweep();
+        return ResponseEntity.ok(report);
+    }
+}
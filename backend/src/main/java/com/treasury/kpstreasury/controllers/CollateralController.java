@@ -1,20 +1,30 @@
 package com.treasury.kpstreasury.controllers;
 
+import com.treasury.kpstreasury.enums.CollateralSortKey;
 import com.treasury.kpstreasury.enums.CollateralStatus;
 import com.treasury.kpstreasury.enums.CollateralType;
+import com.treasury.kpstreasury.enums.ExportFormat;
 import com.treasury.kpstreasury.enums.Rating;
 import com.treasury.kpstreasury.models.dto.CollateralDto;
+import com.treasury.kpstreasury.models.dto.CollateralStatusChangeDto;
 import com.treasury.kpstreasury.models.dto.CollateralSummaryDto;
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
 import com.treasury.kpstreasury.services.CollateralService;
+import com.treasury.kpstreasury.services.ExportService;
+import com.treasury.kpstreasury.services.IdempotencyService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -28,12 +38,29 @@ import java.util.Optional;
 public class CollateralController {
 
     private final CollateralService collateralService;
+    private final IdempotencyService idempotencyService;
+    private final ExportService exportService;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('COLLATERAL_MANAGER')")
-    public ResponseEntity<CollateralDto> createCollateral(@Valid @RequestBody CollateralDto collateralDto) {
-        CollateralDto createdCollateral = collateralService.createCollateral(collateralDto);
-        return new ResponseEntity<>(createdCollateral, HttpStatus.CREATED);
+    public ResponseEntity<CollateralDto> createCollateral(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody CollateralDto collateralDto) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("create-collateral", collateralDto), CollateralDto.class, () -> {
+            CollateralDto createdCollateral = collateralService.createCollateral(collateralDto);
+            return new ResponseEntity<>(createdCollateral, HttpStatus.CREATED);
+        });
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('COLLATERAL_MANAGER') or hasRole('COLLATERAL_VIEWER')")
+    public ResponseEntity<StreamingResponseBody> exportCollaterals(@RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"collaterals." + format.name().toLowerCase() + "\"")
+                .body(out -> exportService.exportCollaterals(format, out));
     }
 
     @GetMapping("/{id}")
@@ -51,6 +78,24 @@ public class CollateralController {
         return ResponseEntity.ok(collaterals);
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('COLLATERAL_MANAGER') or hasRole('COLLATERAL_VIEWER')")
+    public ResponseEntity<CursorPageDto<CollateralDto>> getCollateralsPage(
+            @RequestParam(required = false) CollateralType collateralType,
+            @RequestParam(required = false) CollateralStatus status,
+            @RequestParam(required = false) Rating rating,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) String counterparty,
+            @RequestParam(defaultValue = "ID") CollateralSortKey sort,
+            CursorPageRequest pageRequest) {
+        try {
+            return ResponseEntity.ok(collateralService.getCollateralsPage(
+                    collateralType, status, rating, currency, counterparty, sort, pageRequest));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('COLLATERAL_MANAGER') or hasRole('COLLATERAL_VIEWER')")
     public ResponseEntity<List<CollateralDto>> getCollateralsByStatus(@PathVariable CollateralStatus status) {
@@ -147,13 +192,19 @@ public class CollateralController {
 
     @PutMapping("/{id}/market-value")
     @PreAuthorize("hasRole('ADMIN') or hasRole('COLLATERAL_MANAGER')")
-    public ResponseEntity<CollateralDto> updateMarketValue(@PathVariable Long id, @RequestBody BigDecimal newMarketValue) {
-        try {
-            CollateralDto updatedCollateral = collateralService.updateMarketValue(id, newMarketValue);
-            return ResponseEntity.ok(updatedCollateral);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<CollateralDto> updateMarketValue(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id,
+            @RequestBody BigDecimal newMarketValue) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("update-market-value", id, newMarketValue), CollateralDto.class, () -> {
+            try {
+                CollateralDto updatedCollateral = collateralService.updateMarketValue(id, newMarketValue);
+                return ResponseEntity.ok(updatedCollateral);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.notFound().build();
+            }
+        });
     }
 
     @PutMapping("/{id}/status")
@@ -200,6 +251,19 @@ public class CollateralController {
         }
     }
 
+    @PutMapping("/bulk/status")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('COLLATERAL_MANAGER')")
+    public ResponseEntity<StreamingResponseBody> changeStatus(@Valid @RequestBody CollateralStatusChangeDto change) {
+        try {
+            List<Long> changedIds = collateralService.changeStatus(change);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(ExportFormat.NDJSON.getContentType()))
+                    .body(out -> exportService.writeIds(changedIds, out));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/reports/total-eligible-value")
     @PreAuthorize("hasRole('ADMIN') or hasRole('COLLATERAL_MANAGER') or hasRole('COLLATERAL_VIEWER')")
     public ResponseEntity<BigDecimal> getTotalEligibleValue() {
@@ -236,15 +300,19 @@ public class CollateralController {
     @PutMapping("/{id}/revalue")
     @PreAuthorize("hasRole('ADMIN') or hasRole('COLLATERAL_MANAGER')")
     public ResponseEntity<CollateralDto> revalueCollateral(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @PathVariable Long id,
             @RequestParam BigDecimal newMarketValue,
             @RequestParam BigDecimal newHaircut) {
-        try {
-            CollateralDto updatedCollateral = collateralService.revalueCollateral(id, newMarketValue, newHaircut);
-            return ResponseEntity.ok(updatedCollateral);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.notFound().build();
-        }
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("revalue-collateral", id, newMarketValue, newHaircut), CollateralDto.class, () -> {
+            try {
+                CollateralDto updatedCollateral = collateralService.revalueCollateral(id, newMarketValue, newHaircut);
+                return ResponseEntity.ok(updatedCollateral);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.notFound().build();
+            }
+        });
     }
 
     @GetMapping("/reports/total-risk-exposure")
@@ -3,14 +3,16 @@ package com.treasury.kpstreasury.controllers;
 import com.treasury.kpstreasury.models.dto.UserDto;
 import com.treasury.kpstreasury.models.dto.TreasuryDto;
 import com.treasury.kpstreasury.models.dto.CollateralDto;
+import com.treasury.kpstreasury.models.dto.ConsolidatedTotalsDto;
 import com.treasury.kpstreasury.services.UserService;
 import com.treasury.kpstreasury.services.TreasuryService;
 import com.treasury.kpstreasury.services.CollateralService;
+import com.treasury.kpstreasury.services.ConsolidationService;
+import com.treasury.kpstreasury.services.FxRateService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -24,6 +26,8 @@ public class DemoController {
     private final UserService userService;
     private final TreasuryService treasuryService;
     private final CollateralService collateralService;
+    private final ConsolidationService consolidationService;
+    private final FxRateService fxRateService;
 
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
@@ -53,28 +57,42 @@ public class DemoController {
     }
 
     @GetMapping("/reports/treasury-summary")
-    public ResponseEntity<Map<String, Object>> getTreasurySummary() {
+    public ResponseEntity<Map<String, Object>> getTreasurySummary(@RequestParam(required = false) String currency) {
         Map<String, Object> summary = new HashMap<>();
-        
-        BigDecimal totalAvailableBalance = treasuryService.getTotalAvailableBalance();
+        String baseCurrency = currency != null ? currency : fxRateService.getPivotCurrency();
+
+        ConsolidatedTotalsDto totals;
+        try {
+            totals = consolidationService.getConsolidatedTotals(baseCurrency);
+        } catch (IllegalArgumentException e) {
+            // names the currency without a rate
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         long totalAccounts = treasuryService.getAllTreasuryAccounts().size();
         
-        summary.put("totalAvailableBalance", totalAvailableBalance);
+        summary.put("totalAvailableBalance", totals.getTotalAvailableBalance());
         summary.put("totalAccounts", totalAccounts);
-        summary.put("currency", "EUR");
+        summary.put("currency", baseCurrency);
         
         return ResponseEntity.ok(summary);
     }
 
     @GetMapping("/reports/collateral-summary")
-    public ResponseEntity<Map<String, Object>> getCollateralSummary() {
+    public ResponseEntity<Map<String, Object>> getCollateralSummary(@RequestParam(required = false) String currency) {
         Map<String, Object> summary = new HashMap<>();
-        
-        BigDecimal totalEligibleValue = collateralService.getTotalEligibleValue();
+        String baseCurrency = currency != null ? currency : fxRateService.getPivotCurrency();
+
+        ConsolidatedTotalsDto totals;
+        try {
+            totals = consolidationService.getConsolidatedTotals(baseCurrency);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         long totalCollaterals = collateralService.getAllCollaterals().size();
         
-        summary.put("totalEligibleValue", totalEligibleValue);
+        summary.put("totalEligibleValue", totals.getTotalCollateralEligibleValue());
         summary.put("totalCollaterals", totalCollaterals);
+        summary.put("currency", baseCurrency);
         
         return ResponseEntity.ok(summary);
     }
@@ -82,13 +100,23 @@ public class DemoController {
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getSystemStats() {
         Map<String, Object> stats = new HashMap<>();
-        
+        String baseCurrency = fxRateService.getPivotCurrency();
+
+        // the amounts are in several currencies, so they are only added up after conversion
+        ConsolidatedTotalsDto totals;
+        try {
+            totals = consolidationService.getConsolidatedTotals(baseCurrency);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
         stats.put("totalUsers", userService.getAllUsers().size());
         stats.put("totalTreasuryAccounts", treasuryService.getAllTreasuryAccounts().size());
         stats.put("totalCollaterals", collateralService.getAllCollaterals().size());
-        stats.put("totalAvailableBalance", treasuryService.getTotalAvailableBalance());
-        stats.put("totalEligibleValue", collateralService.getTotalEligibleValue());
-        
+        stats.put("totalAvailableBalance", totals.getTotalAvailableBalance());
+        stats.put("totalEligibleValue", totals.getTotalCollateralEligibleValue());
+        stats.put("currency", baseCurrency);
+
         return ResponseEntity.ok(stats);
     }
 }
\ No newline at end of file
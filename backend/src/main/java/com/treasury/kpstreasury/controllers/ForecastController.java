@@ -0,0 +1,74 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.CashFlowForecastDto;
+import com.treasury.kpstreasury.models.dto.ScheduledFlowDto;
+import com.treasury.kpstreasury.services.CashFlowForecastService;
+import com.treasury.kpstreasury.services.IdempotencyService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/treasury/forecast")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ForecastController {
+
+    private final CashFlowForecastService cashFlowForecastService;
+    private final IdempotencyService idempotencyService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<CashFlowForecastDto>> getForecast(
+            @RequestParam(required = false) Long accountId,
+            @RequestParam(required = false) String currency) {
+        if (accountId == null) {
+            return ResponseEntity.ok(cashFlowForecastService.getCurrencyForecasts(currency));
+        }
+        try {
+            CashFlowForecastDto forecast = cashFlowForecastService.getAccountForecast(accountId);
+            return ResponseEntity.ok(List.of(forecast));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/scheduled-flows")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<ScheduledFlowDto> createScheduledFlow(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody ScheduledFlowDto flowDto) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("create-scheduled-flow", flowDto), ScheduledFlowDto.class, () -> {
+            try {
+                ScheduledFlowDto createdFlow = cashFlowForecastService.createScheduledFlow(flowDto);
+                return new ResponseEntity<>(createdFlow, HttpStatus.CREATED);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    @GetMapping("/scheduled-flows")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<ScheduledFlowDto>> getScheduledFlows(@RequestParam Long accountId) {
+        List<ScheduledFlowDto> flows = cashFlowForecastService.getScheduledFlows(accountId);
+        return ResponseEntity.ok(flows);
+    }
+
+    @DeleteMapping("/scheduled-flows/{id}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<Void> deleteScheduledFlow(@PathVariable Long id) {
+        try {
+            cashFlowForecastService.deleteScheduledFlow(id);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
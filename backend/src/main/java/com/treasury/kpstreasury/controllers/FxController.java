@@ -0,0 +1,65 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.FxRateDto;
+import com.treasury.kpstreasury.services.FxRateService;
+import com.treasury.kpstreasury.services.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/fx")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class FxController {
+
+    private final FxRateService fxRateService;
+    private final IdempotencyService idempotencyService;
+
+    @GetMapping("/rates")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<FxRateDto>> getRates() {
+        List<FxRateDto> rates = fxRateService.getRates();
+        return ResponseEntity.ok(rates);
+    }
+
+    @PutMapping("/rates/{currency}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<FxRateDto> updateRate(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable String currency,
+            @RequestParam BigDecimal unitsPerPivot) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("update-fx-rate", currency, unitsPerPivot), FxRateDto.class, () -> {
+            try {
+                FxRateDto rate = fxRateService.updateRate(currency, unitsPerPivot);
+                return ResponseEntity.ok(rate);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    @PostMapping("/rates/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<FxRateDto>> reloadRates() {
+        fxRateService.reload();
+        return ResponseEntity.ok(fxRateService.getRates());
+    }
+
+    @GetMapping("/convert")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<BigDecimal> convert(@RequestParam BigDecimal amount,
+                                              @RequestParam String from,
+                                              @RequestParam String to) {
+        try {
+            return ResponseEntity.ok(fxRateService.convert(amount, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
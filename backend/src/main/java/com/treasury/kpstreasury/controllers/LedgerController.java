@@ -0,0 +1,78 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.AccountBalanceDto;
+import com.treasury.kpstreasury.models.dto.LedgerEntryDto;
+import com.treasury.kpstreasury.models.dto.LedgerVerificationDto;
+import com.treasury.kpstreasury.services.BalanceSnapshotService;
+import com.treasury.kpstreasury.services.LedgerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/treasury")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    @GetMapping("/{id}/ledger")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<Page<LedgerEntryDto>> getLedgerEntries(@PathVariable Long id, Pageable pageable) {
+        Page<LedgerEntryDto> entries = ledgerService.getEntries(id, pageable);
+        return ResponseEntity.ok(entries);
+    }
+
+    @GetMapping("/{id}/ledger/balance")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<BigDecimal> rebuildBalance(@PathVariable Long id) {
+        BigDecimal balance = ledgerService.rebuildBalance(id);
+        return ResponseEntity.ok(balance);
+    }
+
+    @GetMapping("/{id}/balance")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<AccountBalanceDto> getBalanceAsOf(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        LocalDateTime instant = asOf != null ? asOf : LocalDateTime.now();
+        try {
+            BigDecimal balance = balanceSnapshotService.getBalanceAsOf(id, instant);
+            return ResponseEntity.ok(new AccountBalanceDto(id, instant, balance));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/reports/balances-as-of")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<AccountBalanceDto>> getBalancesAsOf(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        List<AccountBalanceDto> balances = balanceSnapshotService.getBalancesAsOf(asOf);
+        return ResponseEntity.ok(balances);
+    }
+
+    @PostMapping("/ledger/checkpoint")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> checkpointLedger() {
+        ledgerService.checkpointAll();
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/ledger/verify")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<LedgerVerificationDto> verifyLedger() {
+        LedgerVerificationDto verification = ledgerService.verifyAll();
+        return ResponseEntity.ok(verification);
+    }
+}
@@ -0,0 +1,34 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.LiquidityPositionDto;
+import com.treasury.kpstreasury.services.IntradayLiquidityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/treasury/liquidity")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class LiquidityController {
+
+    private final IntradayLiquidityService intradayLiquidityService;
+
+    @GetMapping("/intraday")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<LiquidityPositionDto>> getIntradayPositions(
+            @RequestParam(required = false) String currency) {
+        List<LiquidityPositionDto> positions = intradayLiquidityService.getPositions(currency);
+        return ResponseEntity.ok(positions);
+    }
+
+    @PostMapping("/intraday/rebuild")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<List<LiquidityPositionDto>> rebuildIntradayPositions() {
+        intradayLiquidityService.rebuild();
+        return ResponseEntity.ok(intradayLiquidityService.getPositions(null));
+    }
+}
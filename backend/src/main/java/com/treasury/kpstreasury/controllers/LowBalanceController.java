@@ -0,0 +1,57 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.LowBalanceThresholdDto;
+import com.treasury.kpstreasury.services.LowBalanceAlertService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/treasury/low-balance")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class LowBalanceController {
+
+    private final LowBalanceAlertService lowBalanceAlertService;
+
+    @GetMapping("/thresholds")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<LowBalanceThresholdDto>> getThresholds() {
+        List<LowBalanceThresholdDto> thresholds = lowBalanceAlertService.getThresholds();
+        return ResponseEntity.ok(thresholds);
+    }
+
+    @PutMapping("/thresholds/{accountId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<LowBalanceThresholdDto> setThreshold(@PathVariable Long accountId,
+                                                               @Valid @RequestBody LowBalanceThresholdDto thresholdDto) {
+        try {
+            LowBalanceThresholdDto threshold = lowBalanceAlertService.setThreshold(accountId, thresholdDto);
+            return ResponseEntity.ok(threshold);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/thresholds/{accountId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<Void> removeThreshold(@PathVariable Long accountId) {
+        try {
+            lowBalanceAlertService.removeThreshold(accountId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/below-threshold")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<LowBalanceThresholdDto>> getAccountsBelowThreshold() {
+        List<LowBalanceThresholdDto> accounts = lowBalanceAlertService.getAccountsBelowThreshold();
+        return ResponseEntity.ok(accounts);
+    }
+}
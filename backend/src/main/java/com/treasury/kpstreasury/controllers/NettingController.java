@@ -0,0 +1,69 @@
+package com.treasury.kpstreasury.controllers;
+
+import com.treasury.kpstreasury.models.dto.NettingCycleDto;
+import com.treasury.kpstreasury.models.dto.NettingInstructionDto;
+import com.treasury.kpstreasury.models.dto.NettingReportDto;
+import com.treasury.kpstreasury.models.dto.NettingSubmissionDto;
+import com.treasury.kpstreasury.services.NettingService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/treasury/netting")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class NettingController {
+
+    private final NettingService nettingService;
+
+    @PostMapping("/instructions")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<List<NettingInstructionDto>> submit(@Valid @RequestBody NettingSubmissionDto submission) {
+        try {
+            List<NettingInstructionDto> instructions = nettingService.submit(submission.getInstructions());
+            return new ResponseEntity<>(instructions, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/instructions/{id}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<NettingInstructionDto> getInstruction(@PathVariable Long id) {
+        return nettingService.getInstruction(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/cycles")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<NettingReportDto> runCycle() {
+        return nettingService.runCycle()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    @GetMapping("/cycles")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<List<NettingCycleDto>> getCycles() {
+        List<NettingCycleDto> cycles = nettingService.getCycles();
+        return ResponseEntity.ok(cycles);
+    }
+
+    @GetMapping("/cycles/{id}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<NettingReportDto> getReport(@PathVariable Long id) {
+        try {
+            NettingReportDto report = nettingService.getReport(id);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -2,18 +2,37 @@ package com.treasury.kpstreasury.controllers;
 
 import com.treasury.kpstreasury.enums.AccountStatus;
 import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.enums.ExportFormat;
+import com.treasury.kpstreasury.enums.TreasurySortKey;
+import com.treasury.kpstreasury.models.dto.BatchTransferRequestDto;
+import com.treasury.kpstreasury.models.dto.BatchTransferResultDto;
+import com.treasury.kpstreasury.models.dto.ConsolidatedTotalsDto;
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
+import com.treasury.kpstreasury.models.dto.ImportReportDto;
 import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.dto.TreasuryStatusChangeDto;
 import com.treasury.kpstreasury.models.dto.TreasurySummaryDto;
+import com.treasury.kpstreasury.services.ConsolidationService;
+import com.treasury.kpstreasury.services.ExportService;
+import com.treasury.kpstreasury.services.IdempotencyService;
+import com.treasury.kpstreasury.services.TreasuryImportService;
 import com.treasury.kpstreasury.services.TreasuryService;
+import com.treasury.kpstreasury.services.TreasurySummaryService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
@@ -25,18 +44,52 @@ import java.util.Optional;
 public class TreasuryController {
 
     private final TreasuryService treasuryService;
+    private final IdempotencyService idempotencyService;
+    private final ConsolidationService consolidationService;
+    private final TreasurySummaryService treasurySummaryService;
+    private final TreasuryImportService treasuryImportService;
+    private final ExportService exportService;
+
+    @Value("${treasury.transfer.batch.max-legs:5000}")
+    private int maxBatchLegs;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
-    public ResponseEntity<TreasuryDto> createTreasuryAccount(@Valid @RequestBody TreasuryDto treasuryDto) {
+    public ResponseEntity<TreasuryDto> createTreasuryAccount(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody TreasuryDto treasuryDto) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("create-treasury-account", treasuryDto), TreasuryDto.class, () -> {
+            try {
+                TreasuryDto createdAccount = treasuryService.createTreasuryAccount(treasuryDto);
+                return new ResponseEntity<>(createdAccount, HttpStatus.CREATED);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    @PostMapping(value = "/import", consumes = {"text/csv", "text/plain"})
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<ImportReportDto> importTreasuryAccounts(InputStream csv) {
         try {
-            TreasuryDto createdAccount = treasuryService.createTreasuryAccount(treasuryDto);
-            return new ResponseEntity<>(createdAccount, HttpStatus.CREATED);
+            ImportReportDto report = treasuryImportService.importAccounts(csv);
+            return ResponseEntity.ok(report);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<StreamingResponseBody> exportTreasuryAccounts(@RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"treasury-accounts." + format.name().toLowerCase() + "\"")
+                .body(out -> exportService.exportTreasuryAccounts(format, out));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
     public ResponseEntity<TreasuryDto> getTreasuryById(@PathVariable Long id) {
@@ -60,6 +113,23 @@ public class TreasuryController {
         return ResponseEntity.ok(treasuries);
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<CursorPageDto<TreasuryDto>> getTreasuryAccountsPage(
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) String bankName,
+            @RequestParam(required = false) AccountStatus status,
+            @RequestParam(required = false) AccountType accountType,
+            @RequestParam(defaultValue = "ID") TreasurySortKey sort,
+            CursorPageRequest pageRequest) {
+        try {
+            return ResponseEntity.ok(treasuryService.getTreasuryAccountsPage(
+                    currency, bankName, status, accountType, sort, pageRequest));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
     public ResponseEntity<List<TreasuryDto>> getTreasuryAccountsByStatus(@PathVariable AccountStatus status) {
@@ -124,20 +194,43 @@ public class TreasuryController {
 
     @PutMapping("/{id}/balance")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
-    public ResponseEntity<TreasuryDto> updateBalance(@PathVariable Long id, @RequestBody BigDecimal newBalance) {
-        try {
-            TreasuryDto updatedTreasury = treasuryService.updateBalance(id, newBalance);
-            return ResponseEntity.ok(updatedTreasury);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<TreasuryDto> updateBalance(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id,
+            @RequestBody BigDecimal newBalance) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("update-balance", id, newBalance), TreasuryDto.class, () -> {
+            try {
+                TreasuryDto updatedTreasury = treasuryService.updateBalance(id, newBalance);
+                return ResponseEntity.ok(updatedTreasury);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.notFound().build();
+            }
+        });
     }
 
     @PutMapping("/{id}/available-balance")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
-    public ResponseEntity<TreasuryDto> updateAvailableBalance(@PathVariable Long id, @RequestBody BigDecimal newAvailableBalance) {
+    public ResponseEntity<TreasuryDto> updateAvailableBalance(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id,
+            @RequestBody BigDecimal newAvailableBalance) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("update-available-balance", id, newAvailableBalance), TreasuryDto.class, () -> {
+            try {
+                TreasuryDto updatedTreasury = treasuryService.updateAvailableBalance(id, newAvailableBalance);
+                return ResponseEntity.ok(updatedTreasury);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    @PutMapping("/{id}/balance-slots")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<TreasuryDto> setBalanceSlots(@PathVariable Long id, @RequestBody Integer slots) {
         try {
-            TreasuryDto updatedTreasury = treasuryService.updateAvailableBalance(id, newAvailableBalance);
+            TreasuryDto updatedTreasury = treasuryService.setBalanceSlots(id, slots);
             return ResponseEntity.ok(updatedTreasury);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
@@ -177,6 +270,19 @@ public class TreasuryController {
         }
     }
 
+    @PutMapping("/bulk/status")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<StreamingResponseBody> changeStatus(@Valid @RequestBody TreasuryStatusChangeDto change) {
+        try {
+            List<Long> changedIds = treasuryService.changeStatus(change);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(ExportFormat.NDJSON.getContentType()))
+                    .body(out -> exportService.writeIds(changedIds, out));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/reports/total-balance")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
     public ResponseEntity<BigDecimal> getTotalBalanceByCurrencyAndStatus(
@@ -200,6 +306,24 @@ public class TreasuryController {
         return ResponseEntity.ok(summary);
     }
 
+    @PostMapping("/reports/summary/rebuild")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<List<TreasurySummaryDto>> rebuildTreasurySummary() {
+        treasurySummaryService.rebuild();
+        return ResponseEntity.ok(treasuryService.getTreasurySummaryByCurrency());
+    }
+
+    @GetMapping("/reports/consolidated")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
+    public ResponseEntity<ConsolidatedTotalsDto> getConsolidatedTotals(@RequestParam String baseCurrency) {
+        try {
+            ConsolidatedTotalsDto totals = consolidationService.getConsolidatedTotals(baseCurrency);
+            return ResponseEntity.ok(totals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/reports/low-balance")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER') or hasRole('TREASURY_VIEWER')")
     public ResponseEntity<List<TreasuryDto>> getLowBalanceAccounts(@RequestParam BigDecimal threshold) {
@@ -217,14 +341,33 @@ public class TreasuryController {
     @PostMapping("/transfer")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
     public ResponseEntity<TreasuryDto> transferFunds(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestParam Long fromAccountId,
             @RequestParam Long toAccountId,
             @RequestParam BigDecimal amount) {
-        try {
-            TreasuryDto result = treasuryService.transferFunds(fromAccountId, toAccountId, amount);
-            return ResponseEntity.ok(result);
-        } catch (IllegalArgumentException e) {
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("transfer", fromAccountId, toAccountId, amount), TreasuryDto.class, () -> {
+            try {
+                TreasuryDto result = treasuryService.transferFunds(fromAccountId, toAccountId, amount);
+                return ResponseEntity.ok(result);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    @PostMapping("/transfers/batch")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('TREASURY_MANAGER')")
+    public ResponseEntity<BatchTransferResultDto> transferFundsBatch(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody BatchTransferRequestDto batchRequest) {
+        if (batchRequest.getTransfers().size() > maxBatchLegs) {
             return ResponseEntity.badRequest().build();
         }
+        return idempotencyService.execute(idempotencyKey,
+                idempotencyService.fingerprint("transfer-batch", batchRequest), BatchTransferResultDto.class, () -> {
+            BatchTransferResultDto result = treasuryService.transferFundsBatch(batchRequest.getTransfers());
+            return ResponseEntity.ok(result);
+        });
     }
-}
\ No newline at end of file
+}
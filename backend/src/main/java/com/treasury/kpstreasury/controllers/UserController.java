@@ -1,17 +1,25 @@
 package com.treasury.kpstreasury.controllers;
 
+import com.treasury.kpstreasury.enums.ExportFormat;
 import com.treasury.kpstreasury.enums.Role;
+import com.treasury.kpstreasury.enums.UserSortKey;
 import com.treasury.kpstreasury.models.dto.CreateUserDto;
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
 import com.treasury.kpstreasury.models.dto.UserDto;
+import com.treasury.kpstreasury.services.ExportService;
 import com.treasury.kpstreasury.services.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +31,7 @@ import java.util.Optional;
 public class UserController {
 
     private final UserService userService;
+    private final ExportService exportService;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -35,6 +44,16 @@ public class UserController {
         }
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"users." + format.name().toLowerCase() + "\"")
+                .body(out -> exportService.exportUsers(format, out));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or #id == authentication.principal.id")
     public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
@@ -66,6 +85,20 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageDto<UserDto>> getUsersPage(
+            @RequestParam(required = false) Role role,
+            @RequestParam(required = false) Boolean enabled,
+            @RequestParam(defaultValue = "ID") UserSortKey sort,
+            CursorPageRequest pageRequest) {
+        try {
+            return ResponseEntity.ok(userService.getUsersPage(role, enabled, sort, pageRequest));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/role/{role}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<UserDto>> getUsersByRole(@PathVariable Role role) {
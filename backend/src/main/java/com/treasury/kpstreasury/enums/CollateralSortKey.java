@@ -0,0 +1,32 @@
+package com.treasury.kpstreasury.enums;
+
+import com.treasury.kpstreasury.utils.KeysetSortKey;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+public enum CollateralSortKey implements KeysetSortKey {
+    ID("id", Long::valueOf),
+    MARKET_VALUE("marketValue", BigDecimal::new),
+    ELIGIBLE_VALUE("eligibleValue", BigDecimal::new),
+    CREATED_AT("createdAt", LocalDateTime::parse);
+
+    private final String property;
+    private final Function<String, Comparable<?>> parser;
+
+    CollateralSortKey(String property, Function<String, Comparable<?>> parser) {
+        this.property = property;
+        this.parser = parser;
+    }
+
+    @Override
+    public String property() {
+        return property;
+    }
+
+    @Override
+    public Comparable<?> parse(String value) {
+        return parser.apply(value);
+    }
+}
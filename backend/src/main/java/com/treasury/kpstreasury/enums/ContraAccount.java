@@ -0,0 +1,20 @@
+package com.treasury.kpstreasury.enums;
+
+/**
+ * Journal accounts that take the other side of postings without a treasury counterparty.
+ * Their ids are negative, so they never collide with a treasury account id.
+ */
+public enum ContraAccount {
+    OPENING_EQUITY(-1L),
+    SUSPENSE(-2L);
+
+    private final long accountId;
+
+    ContraAccount(long accountId) {
+        this.accountId = accountId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+}
@@ -0,0 +1,8 @@
+package com.treasury.kpstreasury.enums;
+
+public enum FlowRecurrence {
+    NONE,
+    DAILY,
+    WEEKLY,
+    MONTHLY
+}
@@ -0,0 +1,8 @@
+package com.treasury.kpstreasury.enums;
+
+public enum HoldStatus {
+    ACTIVE,
+    RELEASED,
+    CAPTURED,
+    EXPIRED
+}
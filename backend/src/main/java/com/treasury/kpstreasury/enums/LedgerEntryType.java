@@ -0,0 +1,6 @@
+package com.treasury.kpstreasury.enums;
+
+public enum LedgerEntryType {
+    DEBIT,
+    CREDIT
+}
@@ -0,0 +1,7 @@
+package com.treasury.kpstreasury.enums;
+
+public enum NettingStatus {
+    PENDING,
+    SETTLED,
+    REJECTED
+}
@@ -0,0 +1,30 @@
+package com.treasury.kpstreasury.enums;
+
+import com.treasury.kpstreasury.utils.KeysetSortKey;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+public enum UserSortKey implements KeysetSortKey {
+    ID("id", Long::valueOf),
+    USERNAME("username", value -> value),
+    CREATED_AT("createdAt", LocalDateTime::parse);
+
+    private final String property;
+    private final Function<String, Comparable<?>> parser;
+
+    UserSortKey(String property, Function<String, Comparable<?>> parser) {
+        this.property = property;
+        this.parser = parser;
+    }
+
+    @Override
+    public String property() {
+        return property;
+    }
+
+    @Override
+    public Comparable<?> parse(String value) {
+        return parser.apply(value);
+    }
+}
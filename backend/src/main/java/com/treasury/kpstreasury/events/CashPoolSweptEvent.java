@@ -0,0 +1,15 @@
+package com.treasury.kpstreasury.events;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * In-process application event for a cash pool sweep, whose journal entries are written set-wise
+ * instead of with one LedgerPostedEvent each. Each posting is the signed amount (credits positive)
+ * of one account in the journal of its pool. Not published to Kafka.
+ */
+public record CashPoolSweptEvent(List<Posting> postings) {
+
+    public record Posting(String journalId, Long accountId, BigDecimal amount) {
+    }
+}
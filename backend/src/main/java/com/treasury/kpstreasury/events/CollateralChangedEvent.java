@@ -0,0 +1,7 @@
+package com.treasury.kpstreasury.events;
+
+/**
+ * In-process application event for a created, changed or deleted collateral; not published to Kafka.
+ */
+public record CollateralChangedEvent(Long collateralId) {
+}
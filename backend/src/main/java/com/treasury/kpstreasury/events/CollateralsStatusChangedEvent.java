@@ -0,0 +1,12 @@
+package com.treasury.kpstreasury.events;
+
+import com.treasury.kpstreasury.enums.CollateralStatus;
+
+import java.util.List;
+
+/**
+ * In-process application event for a bulk status change of collaterals, written with set-wise updates
+ * instead of one CollateralChangedEvent per collateral. Not published to Kafka.
+ */
+public record CollateralsStatusChangedEvent(List<Long> collateralIds, CollateralStatus status) {
+}
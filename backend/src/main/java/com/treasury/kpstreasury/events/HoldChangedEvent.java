@@ -0,0 +1,12 @@
+package com.treasury.kpstreasury.events;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * In-process application event for a change of the amount on hold on an account; positive when a
+ * hold is placed, negative when holds are released, captured or expired. The holds it came from
+ * were all changed in the same transaction. Not published to Kafka.
+ */
+public record HoldChangedEvent(List<Long> holdIds, Long accountId, BigDecimal heldDelta) {
+}
@@ -0,0 +1,17 @@
+package com.treasury.kpstreasury.events;
+
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * In-process application event for the treasury account postings of one journal call: the two legs
+ * of a transfer, every leg of a transfer batch, or the account side of an opening or adjustment.
+ * Not published to Kafka.
+ */
+public record LedgerPostedEvent(List<Posting> postings) {
+
+    public record Posting(String journalId, Long accountId, LedgerEntryType entryType, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.treasury.kpstreasury.events;
+
+/**
+ * In-process application event for a created, edited or deleted treasury account; balance
+ * movements are LedgerPostedEvents. Not published to Kafka.
+ */
+public record TreasuryAccountChangedEvent(Long accountId) {
+}
@@ -0,0 +1,9 @@
+package com.treasury.kpstreasury.events;
+
+/**
+ * In-process application event for a bulk import of treasury accounts. The accounts and their
+ * opening journal entries are written set-wise, so no per-account events are published for them;
+ * in-memory views rebuild instead. Not published to Kafka.
+ */
+public record TreasuryAccountsImportedEvent(int importedAccounts) {
+}
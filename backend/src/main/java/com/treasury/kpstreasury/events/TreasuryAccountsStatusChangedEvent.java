@@ -0,0 +1,12 @@
+package com.treasury.kpstreasury.events;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+
+import java.util.List;
+
+/**
+ * In-process application event for a bulk status change of treasury accounts, written with set-wise
+ * updates instead of one TreasuryAccountChangedEvent per account. Not published to Kafka.
+ */
+public record TreasuryAccountsStatusChangedEvent(List<Long> accountIds, AccountStatus status) {
+}
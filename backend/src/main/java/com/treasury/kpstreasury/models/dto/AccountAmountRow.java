@@ -0,0 +1,9 @@
+package com.treasury.kpstreasury.models.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One amount per account, as read or summed by SQL.
+ */
+public record AccountAmountRow(Long accountId, BigDecimal amount) {
+}
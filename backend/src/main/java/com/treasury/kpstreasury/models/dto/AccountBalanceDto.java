@@ -0,0 +1,18 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalanceDto {
+
+    private Long accountId;
+    private LocalDateTime asOf;
+    private BigDecimal balance;
+}
@@ -0,0 +1,7 @@
+package com.treasury.kpstreasury.models.dto;
+
+/**
+ * Currency and bank of one account, which together key its intraday liquidity position.
+ */
+public record AccountBankRow(Long accountId, String currency, String bankName) {
+}
@@ -0,0 +1,31 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.IdentifierSpace;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityFilterStatsDto {
+
+    private IdentifierSpace space;
+    private boolean loaded;
+    private long loadedValues;
+    private long expectedInsertions;
+    private long bitCount;
+    private int hashFunctions;
+    private double fillRatio;
+    // answered "absent" by the filter alone, without a query
+    private long misses;
+    // "maybe" answers the database confirmed
+    private long hits;
+    // "maybe" answers the database did not confirm
+    private long falsePositives;
+    // checks that went straight to the database before the filter was loaded
+    private long bypassed;
+    private LocalDateTime lastRebuiltAt;
+}
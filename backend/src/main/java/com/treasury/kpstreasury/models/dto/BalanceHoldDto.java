@@ -0,0 +1,26 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.HoldStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceHoldDto {
+
+    private Long id;
+    private Long accountId;
+    private BigDecimal amount;
+    private HoldStatus status;
+    private String reference;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime resolvedAt;
+}
@@ -0,0 +1,23 @@
+package com.treasury.kpstreasury.models.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferRequestDto {
+
+    // hard ceiling; the limit a deployment accepts is treasury.transfer.batch.max-legs, checked by the controller
+    public static final int MAX_LEGS = 10_000;
+
+    @NotEmpty(message = "At least one transfer is required")
+    @Size(max = MAX_LEGS, message = "A batch cannot have more than " + MAX_LEGS + " transfers")
+    private List<@Valid TransferRequestDto> transfers;
+}
@@ -0,0 +1,18 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResultDto {
+
+    private int totalLegs;
+    private int postedLegs;
+    private int rejectedLegs;
+    private List<TransferLegResultDto> legs;
+}
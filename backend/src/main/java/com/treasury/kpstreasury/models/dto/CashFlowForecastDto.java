@@ -0,0 +1,25 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Daily projection of the balance of one account, or of all accounts of a currency when accountId
+ * is null. The first bucket is today; the opening balance is the current balance.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CashFlowForecastDto {
+
+    private Long accountId;
+    private String currency;
+    private LocalDate fromDate;
+    private BigDecimal openingBalance;
+    private List<ForecastBucketDto> buckets;
+}
@@ -0,0 +1,50 @@
+package com.treasury.kpstreasury.models.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CashPoolDto {
+
+    private Long id;
+
+    @NotBlank(message = "Pool name is required")
+    @Size(max = 60, message = "Pool name cannot exceed 60 characters")
+    private String name;
+
+    @NotNull(message = "Header account is required")
+    private Long headerAccountId;
+
+    // taken from the header account
+    private String currency;
+    private String bankName;
+
+    // optional, defaults to zero (a zero-balance pool)
+    @DecimalMin(value = "0.00", message = "Target balance must not be negative")
+    @Digits(integer = 17, fraction = 2, message = "Target balance must have at most 17 integer digits and 2 decimals")
+    private BigDecimal targetBalance;
+
+    // optional, defaults to the configured minimum
+    @DecimalMin(value = "0.00", message = "Minimum sweep must not be negative")
+    @Digits(integer = 17, fraction = 2, message = "Minimum sweep must have at most 17 integer digits and 2 decimals")
+    private BigDecimal minimumSweep;
+
+    // optional, defaults to true
+    private Boolean enabled;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
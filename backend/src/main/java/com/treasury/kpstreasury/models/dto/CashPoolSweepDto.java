@@ -0,0 +1,40 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * The sweep of one cash pool. sweptIn is what the participants moved into the header, fundedOut
+ * what the header moved out to them; the header is posted once with the difference.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CashPoolSweepDto {
+
+    private Long poolId;
+    private String poolName;
+    private Long headerAccountId;
+    private String currency;
+    private String bankName;
+    // null when nothing was posted
+    private String journalId;
+    private int participants;
+    private int postings;
+    private BigDecimal sweptIn;
+    private BigDecimal fundedOut;
+    private BigDecimal headerNet;
+    // deficits the header could not cover, left for the next sweep
+    private int unfundedDeficits;
+    // legs whose account changed between the scan and the posting
+    private int rejectedLegs;
+    // sharded accounts are left out of sweeps
+    private int skippedAccounts;
+    // why the pool was not swept at all
+    private String skippedReason;
+}
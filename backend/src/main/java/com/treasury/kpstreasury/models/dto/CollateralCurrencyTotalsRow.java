@@ -0,0 +1,7 @@
+package com.treasury.kpstreasury.models.dto;
+
+import java.math.BigDecimal;
+
+public record CollateralCurrencyTotalsRow(String currency, BigDecimal totalMarketValue,
+                                          BigDecimal totalEligibleValue, Long count) {
+}
@@ -28,6 +28,7 @@ public class CollateralDto {
 
     @NotNull(message = "Market value is required")
     @DecimalMin(value = "0.01", message = "Market value must be greater than zero")
+    @DecimalMax(value = "92233720368547758.07", message = "Market value cannot exceed 92233720368547758.07")
     @Digits(integer = 17, fraction = 2, message = "Market value must have at most 17 integer digits and 2 decimals")
     private BigDecimal marketValue;
 
@@ -0,0 +1,8 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.Rating;
+
+import java.math.BigDecimal;
+
+public record CollateralRatingTotalsRow(Rating rating, Long count, BigDecimal totalMarketValue) {
+}
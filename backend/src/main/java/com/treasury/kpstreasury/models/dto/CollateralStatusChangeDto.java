@@ -0,0 +1,32 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.CollateralStatus;
+import com.treasury.kpstreasury.enums.Rating;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A bulk status change: either the ids of the collaterals, or a filter on counterparty, rating and currency.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CollateralStatusChangeDto {
+
+    @NotNull(message = "Status is required")
+    private CollateralStatus status;
+
+    private List<Long> ids;
+
+    private String counterparty;
+
+    private Rating rating;
+
+    private String currency;
+}
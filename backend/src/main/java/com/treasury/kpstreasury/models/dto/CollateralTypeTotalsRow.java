@@ -0,0 +1,9 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.CollateralType;
+
+import java.math.BigDecimal;
+
+public record CollateralTypeTotalsRow(CollateralType collateralType, BigDecimal totalMarketValue,
+                                      BigDecimal totalEligibleValue) {
+}
@@ -0,0 +1,25 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Treasury and collateral totals of all currencies converted into one base currency.
+ * Only ACTIVE accounts and ELIGIBLE collateral are included, as in the per-currency reports.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsolidatedTotalsDto {
+
+    private String baseCurrency;
+    private BigDecimal totalBalance;
+    private BigDecimal totalAvailableBalance;
+    private Long accountCount;
+    private BigDecimal totalCollateralMarketValue;
+    private BigDecimal totalCollateralEligibleValue;
+    private Long collateralCount;
+}
@@ -0,0 +1,9 @@
+package com.treasury.kpstreasury.models.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One amount per currency, as summed by SQL.
+ */
+public record CurrencyAmountRow(String currency, BigDecimal amount) {
+}
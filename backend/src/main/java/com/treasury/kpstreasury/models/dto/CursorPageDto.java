@@ -0,0 +1,25 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDto<T> {
+
+    private List<T> items;
+    // pass back as ?cursor= for the next page, null on the last one
+    private String nextCursor;
+    private boolean hasMore;
+    // only counted when asked for
+    private Long totalCount;
+
+    public <R> CursorPageDto<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPageDto<>(items.stream().<R>map(mapper).toList(), nextCursor, hasMore, totalCount);
+    }
+}
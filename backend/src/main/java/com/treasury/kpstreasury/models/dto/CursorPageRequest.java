@@ -0,0 +1,21 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Query parameters of a keyset-paginated listing, bound from the request without an annotation.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageRequest {
+
+    // the nextCursor of the previous page, none for the first one
+    private String cursor;
+    private int size = 50;
+    private boolean descending;
+    // adds a COUNT(*) of the whole filtered listing, which costs as much as the listing is long
+    private boolean count;
+}
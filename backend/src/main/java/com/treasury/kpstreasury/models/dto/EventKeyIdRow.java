@@ -0,0 +1,7 @@
+package com.treasury.kpstreasury.models.dto;
+
+/**
+ * An outbox event id of one event key, as read or aggregated by SQL.
+ */
+public record EventKeyIdRow(String eventKey, Long id) {
+}
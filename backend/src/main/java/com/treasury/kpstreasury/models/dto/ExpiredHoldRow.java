@@ -0,0 +1,9 @@
+package com.treasury.kpstreasury.models.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * A due hold claimed by the expiry sweep.
+ */
+public record ExpiredHoldRow(Long id, Long treasuryId, BigDecimal amount) {
+}
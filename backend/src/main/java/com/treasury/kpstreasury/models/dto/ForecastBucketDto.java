@@ -0,0 +1,19 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastBucketDto {
+
+    private LocalDate date;
+    private BigDecimal inflows;
+    private BigDecimal outflows;
+    private BigDecimal closingBalance;
+}
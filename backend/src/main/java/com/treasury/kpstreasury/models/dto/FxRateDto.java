@@ -0,0 +1,17 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRateDto {
+
+    private String currency;
+    private String pivotCurrency;
+    private BigDecimal unitsPerPivot;
+}
@@ -0,0 +1,33 @@
+package com.treasury.kpstreasury.models.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HoldRequestDto {
+
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be greater than zero")
+    @Digits(integer = 17, fraction = 2, message = "Amount must have at most 17 integer digits and 2 decimals")
+    private BigDecimal amount;
+
+    // optional, the configured default TTL applies when missing
+    @Future(message = "Expiry must be in the future")
+    private LocalDateTime expiresAt;
+
+    @Size(max = 100, message = "Reference must not exceed 100 characters")
+    private String reference;
+}
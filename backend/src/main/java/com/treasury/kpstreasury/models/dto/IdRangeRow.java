@@ -0,0 +1,7 @@
+package com.treasury.kpstreasury.models.dto;
+
+/**
+ * Lowest and highest id of a table; both are null when it is empty.
+ */
+public record IdRangeRow(Long minId, Long maxId) {
+}
@@ -0,0 +1,18 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Why one line of an import was rejected; lines are numbered from 1, the header included.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportLineErrorDto {
+
+    private int line;
+    private String accountNumber;
+    private String message;
+}
@@ -0,0 +1,19 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReportDto {
+
+    private int totalRows;
+    private int importedRows;
+    private int rejectedRows;
+    private long elapsedMillis;
+    private List<ImportLineErrorDto> errors;
+}
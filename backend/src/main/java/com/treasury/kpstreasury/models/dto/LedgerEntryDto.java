@@ -0,0 +1,25 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerEntryDto {
+
+    private Long sequence;
+    private String journalId;
+    private Long accountId;
+    private LedgerEntryType entryType;
+    private BigDecimal amount;
+    private String description;
+    private LocalDateTime postedAt;
+}
@@ -0,0 +1,17 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerMismatchDto {
+
+    private Long accountId;
+    private BigDecimal projectedBalance;
+    private BigDecimal journalBalance;
+}
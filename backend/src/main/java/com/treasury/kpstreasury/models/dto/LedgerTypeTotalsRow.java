@@ -0,0 +1,11 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+
+import java.math.BigDecimal;
+
+/**
+ * Gross amount of the credits or of the debits of one account, as summed by SQL.
+ */
+public record LedgerTypeTotalsRow(Long accountId, LedgerEntryType entryType, BigDecimal amount) {
+}
@@ -0,0 +1,20 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of comparing every account's stored balance with the sum of its journal entries.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerVerificationDto {
+
+    private long accountsChecked;
+    private int mismatchCount;
+    private List<LedgerMismatchDto> mismatches;
+}
@@ -0,0 +1,29 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Intraday liquidity of the accounts of one currency at one bank.
+ * currentBalance = openingBalance + inflows - outflows; projectedBalance also takes out the
+ * scheduled outflows, the funds on hold for payments that have not been executed yet.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiquidityPositionDto {
+
+    private LocalDate businessDate;
+    private String currency;
+    private String bankName;
+    private BigDecimal openingBalance;
+    private BigDecimal inflows;
+    private BigDecimal outflows;
+    private BigDecimal currentBalance;
+    private BigDecimal scheduledOutflows;
+    private BigDecimal projectedBalance;
+}
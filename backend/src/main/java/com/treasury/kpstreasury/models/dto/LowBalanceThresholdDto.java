@@ -0,0 +1,43 @@
+package com.treasury.kpstreasury.models.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LowBalanceThresholdDto {
+
+    private Long accountId;
+
+    private String accountNumber;
+
+    @NotNull(message = "Threshold is required")
+    @DecimalMin(value = "0.00", message = "Threshold must not be negative")
+    @Digits(integer = 17, fraction = 2, message = "Threshold must have at most 17 integer digits and 2 decimals")
+    private BigDecimal threshold;
+
+    // optional, defaults to a share of the threshold
+    @DecimalMin(value = "0.00", message = "Hysteresis must not be negative")
+    @Digits(integer = 17, fraction = 2, message = "Hysteresis must have at most 17 integer digits and 2 decimals")
+    private BigDecimal hysteresis;
+
+    // optional, defaults to the configured recipient
+    @Size(max = 100, message = "Recipient must not exceed 100 characters")
+    private String recipient;
+
+    // current state from the in-memory index
+    private boolean belowThreshold;
+    private LocalDateTime lastAlertAt;
+    private long suppressedAlerts;
+}
@@ -0,0 +1,24 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NettingCycleDto {
+
+    private Long id;
+    private LocalDateTime cutoffAt;
+    private LocalDateTime settledAt;
+    private int instructionCount;
+    private int settledCount;
+    private int rejectedCount;
+    private int accountCount;
+    private int legCount;
+}
@@ -0,0 +1,45 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.NettingStatus;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NettingInstructionDto {
+
+    private Long id;
+
+    @NotNull(message = "Source account is required")
+    private Long fromAccountId;
+
+    @NotNull(message = "Destination account is required")
+    private Long toAccountId;
+
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be greater than zero")
+    @Digits(integer = 17, fraction = 2, message = "Amount must have at most 17 integer digits and 2 decimals")
+    private BigDecimal amount;
+
+    @Size(max = 100, message = "Reference must not exceed 100 characters")
+    private String reference;
+
+    // set when the instruction is accepted, from the source account
+    private String currency;
+
+    private NettingStatus status;
+    private String rejectionReason;
+    private Long cycleId;
+    private LocalDateTime submittedAt;
+}
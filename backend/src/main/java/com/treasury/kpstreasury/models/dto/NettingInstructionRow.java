@@ -0,0 +1,10 @@
+package com.treasury.kpstreasury.models.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The columns of one claimed instruction that a netting cycle nets.
+ */
+public record NettingInstructionRow(Long id, Long fromAccountId, Long toAccountId, BigDecimal amount,
+                                    String currency) {
+}
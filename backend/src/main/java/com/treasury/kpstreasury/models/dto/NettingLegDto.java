@@ -0,0 +1,24 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * An amount one account owes another: a residual leg that was posted, with its journal, or the
+ * bilateral net of a pair.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NettingLegDto {
+
+    private Long fromAccountId;
+    private Long toAccountId;
+    private BigDecimal amount;
+    private String currency;
+    // null for a bilateral net
+    private String journalId;
+}
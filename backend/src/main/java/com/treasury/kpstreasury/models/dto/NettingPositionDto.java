@@ -0,0 +1,23 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * The gross amounts an account paid and received in a netting cycle, and their difference.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NettingPositionDto {
+
+    private Long accountId;
+    private String currency;
+    private BigDecimal paid;
+    private BigDecimal received;
+    // positive for a net receiver
+    private BigDecimal net;
+}
@@ -0,0 +1,29 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Audit report of one netting cycle, rebuilt from its stored instructions and legs. grossPostings
+ * is what settling every instruction on its own would have posted, settlementPostings what the
+ * residual legs posted; balanced tells whether the legs move every account by exactly its net.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NettingReportDto {
+
+    private NettingCycleDto cycle;
+    private int grossPostings;
+    private int settlementPostings;
+    private boolean balanced;
+    private List<NettingPositionDto> positions;
+    private List<NettingLegDto> bilateralNets;
+    private List<NettingLegDto> legs;
+    private List<NettingInstructionDto> rejected;
+}
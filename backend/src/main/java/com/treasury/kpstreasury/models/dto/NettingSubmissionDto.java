@@ -0,0 +1,18 @@
+package com.treasury.kpstreasury.models.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NettingSubmissionDto {
+
+    @NotEmpty(message = "At least one instruction is required")
+    private List<@Valid NettingInstructionDto> instructions;
+}
@@ -0,0 +1,45 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.FlowRecurrence;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduledFlowDto {
+
+    private Long id;
+
+    @NotNull(message = "Account id is required")
+    private Long accountId;
+
+    // positive for inflows, negative for outflows
+    @NotNull(message = "Amount is required")
+    @Digits(integer = 17, fraction = 2, message = "Amount must have at most 17 integer digits and 2 decimals")
+    private BigDecimal amount;
+
+    @NotNull(message = "Start date is required")
+    private LocalDate startDate;
+
+    @NotNull(message = "Recurrence is required")
+    private FlowRecurrence recurrence;
+
+    // optional, recurring flows without an end date run past any horizon
+    private LocalDate endDate;
+
+    @Size(max = 255, message = "Description must not exceed 255 characters")
+    private String description;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,13 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.FlowRecurrence;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The columns of one scheduled flow that the cash-flow forecast projects, with the currency of its account.
+ */
+public record ScheduledFlowRow(Long accountId, String currency, BigDecimal amount, LocalDate startDate,
+                               FlowRecurrence recurrence, LocalDate endDate) {
+}
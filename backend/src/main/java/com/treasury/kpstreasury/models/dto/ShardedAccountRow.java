@@ -0,0 +1,7 @@
+package com.treasury.kpstreasury.models.dto;
+
+/**
+ * An account whose balance is split over sub-balance slots, with its slot count.
+ */
+public record ShardedAccountRow(Long accountId, int balanceSlots) {
+}
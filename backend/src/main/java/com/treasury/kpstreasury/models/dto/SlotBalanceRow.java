@@ -0,0 +1,9 @@
+package com.treasury.kpstreasury.models.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Balances of one sub-balance slot, as read under its row lock.
+ */
+public record SlotBalanceRow(int slotIndex, BigDecimal balance, BigDecimal availableBalance) {
+}
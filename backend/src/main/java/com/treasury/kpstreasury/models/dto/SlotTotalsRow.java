@@ -0,0 +1,9 @@
+package com.treasury.kpstreasury.models.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance and available balance summed over the slots of one account; both are null when it has none.
+ */
+public record SlotTotalsRow(BigDecimal balance, BigDecimal availableBalance) {
+}
@@ -0,0 +1,10 @@
+package com.treasury.kpstreasury.models.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The columns of one active account that a cash pool sweep reads.
+ */
+public record SweepPositionRow(Long id, String currency, String bankName, int balanceSlots,
+                               BigDecimal availableBalance) {
+}
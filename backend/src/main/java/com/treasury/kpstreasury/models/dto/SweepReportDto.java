@@ -0,0 +1,20 @@
+package com.treasury.kpstreasury.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SweepReportDto {
+
+    // false for a preview, which computes the legs without posting them
+    private boolean applied;
+    private int scannedAccounts;
+    private int postings;
+    private long elapsedMillis;
+    private List<CashPoolSweepDto> pools;
+}
@@ -0,0 +1,13 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.models.entity.LowBalanceThresholdEntity;
+
+import java.math.BigDecimal;
+
+/**
+ * A low-balance threshold with the account columns its watch needs.
+ */
+public record ThresholdAccountRow(LowBalanceThresholdEntity threshold, String accountNumber,
+                                  BigDecimal availableBalance, AccountStatus status, int balanceSlots) {
+}
@@ -0,0 +1,24 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.TransferStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one leg of a batch transfer, reported at the same index it was submitted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferLegResultDto {
+
+    private int index;
+    private Long fromAccountId;
+    private Long toAccountId;
+    private BigDecimal amount;
+    private TransferStatus status;
+    private String message;
+}
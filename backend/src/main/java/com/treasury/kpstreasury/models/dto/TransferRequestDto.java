@@ -0,0 +1,29 @@
+package com.treasury.kpstreasury.models.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferRequestDto {
+
+    @NotNull(message = "Source account is required")
+    private Long fromAccountId;
+
+    @NotNull(message = "Destination account is required")
+    private Long toAccountId;
+
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be greater than zero")
+    @Digits(integer = 17, fraction = 2, message = "Amount must have at most 17 integer digits and 2 decimals")
+    private BigDecimal amount;
+}
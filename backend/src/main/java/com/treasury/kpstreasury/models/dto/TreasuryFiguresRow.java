@@ -0,0 +1,12 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * The columns of one account that the in-memory treasury summary counts.
+ */
+public record TreasuryFiguresRow(Long id, String currency, AccountStatus status, BigDecimal balance,
+                                 BigDecimal availableBalance, Long version) {
+}
@@ -0,0 +1,29 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A bulk status change: either the ids of the accounts, or a filter on bank and currency.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TreasuryStatusChangeDto {
+
+    @NotNull(message = "Status is required")
+    private AccountStatus status;
+
+    private List<Long> ids;
+
+    private String bankName;
+
+    private String currency;
+}
@@ -0,0 +1,12 @@
+package com.treasury.kpstreasury.models.dto;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance, available balance and account count of one currency and status, as summed by SQL.
+ */
+public record TreasuryTotalsRow(String currency, AccountStatus status, BigDecimal balance,
+                                BigDecimal availableBalance, Long accountCount) {
+}
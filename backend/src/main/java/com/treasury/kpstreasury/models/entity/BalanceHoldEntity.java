@@ -0,0 +1,55 @@
+package com.treasury.kpstreasury.models.entity;
+
+import com.treasury.kpstreasury.enums.HoldStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Funds reserved on a treasury account until they are released, captured or expire.
+ * The account's available balance is its balance minus the amounts of its ACTIVE holds; it is kept
+ * incrementally, each status change away from ACTIVE gives the amount back or debits it.
+ */
+@Entity
+@Table(name = "balance_holds", indexes = {
+        @Index(name = "idx_balance_holds_account_status", columnList = "treasuryId, status"),
+        @Index(name = "idx_balance_holds_status_expires", columnList = "status, expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceHoldEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long treasuryId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private HoldStatus status;
+
+    @Column(length = 100)
+    private String reference;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime resolvedAt;
+}
@@ -0,0 +1,39 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Journal balance of an account over the entries up to the throughEntryId of the run taken at
+ * snapshotAt. A snapshot is only written for accounts that had postings since the previous snapshot
+ * run, so the latest snapshot of an account at or before a run is its balance at that run.
+ */
+@Entity
+@Table(name = "balance_snapshots",
+        uniqueConstraints = @UniqueConstraint(name = "uk_balance_snapshot", columnNames = {"accountId", "snapshotAt"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceSnapshotEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "balance_snapshot_seq")
+    @SequenceGenerator(name = "balance_snapshot_seq", sequenceName = "balance_snapshot_seq", allocationSize = 50)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false)
+    private LocalDateTime snapshotAt;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+}
@@ -0,0 +1,40 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One snapshot run, taken at snapshotAt and covering the journal entries above the previous run's
+ * throughEntryId up to its own. Every entry up to throughEntryId had committed by snapshotAt.
+ * previousSnapshotAt is unique, so when two instances snapshot the same window one of them fails
+ * to commit instead of counting the window twice.
+ */
+@Entity
+@Table(name = "balance_snapshot_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceSnapshotRunEntity {
+    @Id
+    @Column(nullable = false)
+    private LocalDateTime snapshotAt;
+
+    @Column(nullable = false, unique = true)
+    private LocalDateTime previousSnapshotAt;
+
+    @Column(nullable = false)
+    private Long throughEntryId;
+
+    @Column(nullable = false)
+    private int accountCount;
+
+    // a null version makes save() persist instead of merge
+    @Version
+    private Long version;
+}
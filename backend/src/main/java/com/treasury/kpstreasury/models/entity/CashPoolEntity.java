@@ -0,0 +1,62 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A cash pool: the header account that concentrates the cash of every other active account of its
+ * currency and bank. A sweep brings each participant's available balance to targetBalance (zero for
+ * a zero-balance pool), moving surpluses into the header and funding deficits out of it; movements
+ * smaller than minimumSweep are left alone. The currency and bank are copied from the header account
+ * when the pool is saved, and there is at most one pool per currency and bank.
+ */
+@Entity
+@Table(name = "cash_pools", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cash_pools_currency_bank", columnNames = {"currency", "bankName"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CashPoolEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 60)
+    private String name;
+
+    @Column(nullable = false)
+    private Long headerAccountId;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(nullable = false, length = 100)
+    private String bankName;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal targetBalance;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal minimumSweep;
+
+    @Column(nullable = false)
+    private boolean enabled;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
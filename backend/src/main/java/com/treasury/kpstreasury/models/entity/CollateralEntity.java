@@ -4,6 +4,7 @@ package com.treasury.kpstreasury.models.entity;
 import com.treasury.kpstreasury.enums.CollateralStatus;
 import com.treasury.kpstreasury.enums.CollateralType;
 import com.treasury.kpstreasury.enums.Rating;
+import com.treasury.kpstreasury.utils.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,11 +14,19 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name="collaterals")
+@Table(name = "collaterals", indexes = {
+        @Index(name = "idx_collaterals_market_value_id", columnList = "marketValue, id"),
+        @Index(name = "idx_collaterals_eligible_value_id", columnList = "eligibleValue, id"),
+        @Index(name = "idx_collaterals_created_at_id", columnList = "createdAt, id"),
+        @Index(name = "idx_collaterals_currency_status", columnList = "currency, status"),
+        @Index(name = "idx_collaterals_type_status", columnList = "collateralType, status"),
+        @Index(name = "idx_collaterals_status_rating", columnList = "status, rating")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -75,7 +84,14 @@ public class CollateralEntity {
     @PreUpdate
     public void calculateEligibleValue() {
         if (marketValue != null && haircut != null) {
-            this.eligibleValue = marketValue.multiply(BigDecimal.ONE.subtract(haircut));
+            try {
+                this.eligibleValue = Money.rounded(marketValue, currency).afterHaircut(haircut).toBigDecimal();
+            } catch (ArithmeticException e) {
+                // beyond a long of minor units: the same half-up rounding, in BigDecimal
+                this.eligibleValue = marketValue.setScale(2, RoundingMode.HALF_UP)
+                        .multiply(BigDecimal.ONE.subtract(haircut.setScale(4, RoundingMode.HALF_UP)))
+                        .setScale(2, RoundingMode.HALF_UP);
+            }
         }
     }
 
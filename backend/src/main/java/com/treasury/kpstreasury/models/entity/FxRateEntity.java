@@ -0,0 +1,32 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Exchange rate of one currency, as units of it per one unit of the configured pivot currency.
+ */
+@Entity
+@Table(name = "fx_rates")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FxRateEntity {
+    @Id
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(nullable = false, precision = 19, scale = 10)
+    private BigDecimal unitsPerPivot;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,50 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a request sent with an Idempotency-Key header, kept until expiresAt so a retry gets
+ * the original response instead of executing again. The key is scoped to the user who sent it.
+ * responseStatus is null while the first execution is still running, which it claims until
+ * leaseExpiresAt.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_expires", columnList = "expiresAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyKeyEntity {
+    @Id
+    // the user name (at most 50 characters), a colon and the client's key (at most 100)
+    @Column(nullable = false, length = 151)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 64)
+    private String requestFingerprint;
+
+    private Integer responseStatus;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime leaseExpiresAt;
+
+    // a null version makes save() persist instead of merge, so a second claim of the same key fails
+    @Version
+    private Long version;
+}
@@ -0,0 +1,34 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance of an account folded from every journal entry with an id up to checkpointedThroughId.
+ * Rebuilding a balance only has to replay the entries above that id.
+ */
+@Entity
+@Table(name = "ledger_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerCheckpointEntity {
+    @Id
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Column(nullable = false)
+    private Long checkpointedThroughId;
+
+    @Version
+    private Long version;
+}
@@ -0,0 +1,62 @@
+package com.treasury.kpstreasury.models.entity;
+
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One posting of the append-only treasury journal.
+ * Rows are never updated or deleted; the id is drawn from a pooled sequence so inserts are
+ * batched and don't contend on the account row. The entries of one journal share its journalId and
+ * net to zero; postings without a treasury counterparty take their other side on a ContraAccount.
+ */
+@Entity
+@Immutable
+@Table(name = "ledger_entries", indexes = {
+        @Index(name = "idx_ledger_entries_account", columnList = "accountId, id"),
+        @Index(name = "idx_ledger_entries_journal", columnList = "journalId"),
+        @Index(name = "idx_ledger_entries_posted", columnList = "postedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerEntryEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entry_seq")
+    @SequenceGenerator(name = "ledger_entry_seq", sequenceName = "ledger_entry_seq", allocationSize = 50)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String journalId;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private LedgerEntryType entryType;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(length = 100)
+    private String description;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime postedAt;
+
+    public BigDecimal signedAmount() {
+        return entryType == LedgerEntryType.CREDIT ? amount : amount.negate();
+    }
+}
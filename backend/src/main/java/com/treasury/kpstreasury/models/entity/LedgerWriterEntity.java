@@ -0,0 +1,30 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lowest journal entry id an application instance may still commit, as last reported by that instance.
+ */
+@Entity
+@Table(name = "ledger_writers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerWriterEntity {
+    @Id
+    @Column(nullable = false, length = 36)
+    private String instanceId;
+
+    @Column(nullable = false)
+    private Long lowWaterId;
+
+    @Column(nullable = false)
+    private LocalDateTime reportedAt;
+}
@@ -0,0 +1,40 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Low-balance alerting of one treasury account. An alert is raised when the available balance drops
+ * below threshold, and the account is only alerted again once the balance has climbed back to
+ * threshold plus hysteresis.
+ */
+@Entity
+@Table(name = "low_balance_thresholds")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LowBalanceThresholdEntity {
+    @Id
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal threshold;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal hysteresis;
+
+    @Column(nullable = false, length = 100)
+    private String recipient;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
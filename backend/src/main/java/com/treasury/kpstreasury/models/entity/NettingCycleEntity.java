@@ -0,0 +1,46 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One netting cycle: the instructions submitted up to cutoffAt, netted and settled at settledAt.
+ * The counts are kept for the cycle listing; the report is rebuilt from the instructions and legs.
+ */
+@Entity
+@Table(name = "netting_cycles")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NettingCycleEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime cutoffAt;
+
+    private LocalDateTime settledAt;
+
+    @Column(nullable = false)
+    private int instructionCount;
+
+    @Column(nullable = false)
+    private int settledCount;
+
+    @Column(nullable = false)
+    private int rejectedCount;
+
+    @Column(nullable = false)
+    private int accountCount;
+
+    @Column(nullable = false)
+    private int legCount;
+}
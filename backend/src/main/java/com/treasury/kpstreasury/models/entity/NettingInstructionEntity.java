@@ -0,0 +1,62 @@
+package com.treasury.kpstreasury.models.entity;
+
+import com.treasury.kpstreasury.enums.NettingStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A transfer submitted for netting. It waits PENDING until a netting cycle claims it (cycleId) and
+ * is then either SETTLED as part of the cycle's residual legs or REJECTED with the reason. The id
+ * is drawn from a pooled sequence so a submitted file is inserted in batches.
+ */
+@Entity
+@Table(name = "netting_instructions", indexes = {
+        @Index(name = "idx_netting_instructions_status_submitted", columnList = "status, submittedAt"),
+        @Index(name = "idx_netting_instructions_cycle", columnList = "cycleId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NettingInstructionEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "netting_instruction_seq")
+    @SequenceGenerator(name = "netting_instruction_seq", sequenceName = "netting_instruction_seq", allocationSize = 50)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long fromAccountId;
+
+    @Column(nullable = false)
+    private Long toAccountId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(length = 100)
+    private String reference;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private NettingStatus status;
+
+    @Column(length = 100)
+    private String rejectionReason;
+
+    private Long cycleId;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime submittedAt;
+}
@@ -0,0 +1,45 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A residual leg posted to settle a netting cycle, with the journal of its transfer.
+ */
+@Entity
+@Table(name = "netting_legs", indexes = {
+        @Index(name = "idx_netting_legs_cycle", columnList = "cycleId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NettingLegEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long cycleId;
+
+    @Column(nullable = false)
+    private Long fromAccountId;
+
+    @Column(nullable = false)
+    private Long toAccountId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(nullable = false, length = 36)
+    private String journalId;
+}
@@ -0,0 +1,57 @@
+package com.treasury.kpstreasury.models.entity;
+
+import com.treasury.kpstreasury.enums.FlowRecurrence;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * An expected cash flow of a treasury account: a one-off scheduled transfer (recurrence NONE) or a
+ * recurring flow from startDate until endDate, or open-ended. Positive amounts are inflows, negative
+ * amounts outflows. Scheduled flows only feed the cash-flow forecast; nothing is posted when they
+ * fall due.
+ */
+@Entity
+@Table(name = "scheduled_flows", indexes = {
+        @Index(name = "idx_scheduled_flows_account", columnList = "accountId"),
+        @Index(name = "idx_scheduled_flows_dates", columnList = "startDate, endDate")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduledFlowEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private LocalDate startDate;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private FlowRecurrence recurrence;
+
+    private LocalDate endDate;
+
+    @Column(length = 255)
+    private String description;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,50 @@
+package com.treasury.kpstreasury.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One of the K sub-balances of a sharded treasury account. The balance of the account is the sum
+ * of its slots; while slots exist the balance columns on treasurys only hold the last roll-up.
+ */
+@Entity
+@Table(name = "treasury_balance_slots",
+        uniqueConstraints = @UniqueConstraint(name = "uk_balance_slot", columnNames = {"treasuryId", "slotIndex"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TreasuryBalanceSlotEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long treasuryId;
+
+    @Column(nullable = false)
+    private int slotIndex;
+
+    @Column(nullable = false, length = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Column(nullable = false, length = 19, scale = 2)
+    private BigDecimal availableBalance;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
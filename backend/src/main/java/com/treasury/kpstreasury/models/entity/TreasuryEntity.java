@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -14,7 +15,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name="treasurys")
+@Table(name = "treasurys", indexes = {
+        @Index(name = "idx_treasurys_balance_id", columnList = "balance, id"),
+        @Index(name = "idx_treasurys_available_balance_id", columnList = "availableBalance, id"),
+        @Index(name = "idx_treasurys_created_at_id", columnList = "createdAt, id"),
+        @Index(name = "idx_treasurys_currency_status", columnList = "currency, status"),
+        @Index(name = "idx_treasurys_status", columnList = "status"),
+        @Index(name = "idx_treasurys_bank_name", columnList = "bankName")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -51,6 +59,16 @@ public class TreasuryEntity {
     @Column(nullable = false, length= 20)
     private  String branchCode;
 
+    // number of sub-balance slots the balance is split across, 0 when the account is not sharded
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int balanceSlots;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime  createdAt;
@@ -18,7 +18,7 @@ import java.util.Collections;
 
 
 @Entity
-@Table(name= "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_created_at_id", columnList = "createdAt, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,7 +35,7 @@ public class UserEntity implements UserDetails {
     @Column(nullable = false, length = 100)
     private  String password;
 
-    @Column(nullable = false, length = 100)
+    @Column(nullable = false, unique = true, length = 100)
     private  String email;
 
     @Column(nullable = false, length = 50)
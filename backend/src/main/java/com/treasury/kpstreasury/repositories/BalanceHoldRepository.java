@@ -0,0 +1,57 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.enums.HoldStatus;
+import com.treasury.kpstreasury.models.dto.AccountAmountRow;
+import com.treasury.kpstreasury.models.dto.ExpiredHoldRow;
+import com.treasury.kpstreasury.models.entity.BalanceHoldEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceHoldRepository extends JpaRepository<BalanceHoldEntity, Long> {
+
+    List<BalanceHoldEntity> findByTreasuryIdAndStatusOrderByExpiresAt(Long treasuryId, HoldStatus status);
+
+    //Moves an ACTIVE hold to its final status, returns 0 when it is not active (any more)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE BalanceHoldEntity h SET h.status = :status, h.resolvedAt = :now " +
+            "WHERE h.id = :id AND h.status = 'ACTIVE'")
+    int resolveIfActive(@Param("id") Long id, @Param("status") HoldStatus status, @Param("now") LocalDateTime now);
+
+    //Expiry sweep: claims a batch of due holds, skipping the ones another sweep or a release has locked
+    //(a lock timeout of -2 is Hibernate's SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.ExpiredHoldRow(h.id, h.treasuryId, h.amount) " +
+            "FROM BalanceHoldEntity h WHERE h.status = 'ACTIVE' AND h.expiresAt <= :now ORDER BY h.id")
+    List<ExpiredHoldRow> lockExpired(@Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE BalanceHoldEntity h SET h.status = :status, h.resolvedAt = :now WHERE h.id IN :ids")
+    int resolveAll(@Param("ids") Collection<Long> ids, @Param("status") HoldStatus status, @Param("now") LocalDateTime now);
+
+    //Amount on active holds per account
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountAmountRow(h.treasuryId, SUM(h.amount)) " +
+            "FROM BalanceHoldEntity h WHERE h.status = 'ACTIVE' GROUP BY h.treasuryId")
+    List<AccountAmountRow> sumActiveByTreasury();
+
+    //Amount on active holds of one account, empty when it has none
+    @Query("SELECT SUM(h.amount) FROM BalanceHoldEntity h " +
+            "WHERE h.treasuryId = :treasuryId AND h.status = 'ACTIVE' GROUP BY h.treasuryId")
+    Optional<BigDecimal> findActiveHoldTotal(@Param("treasuryId") Long treasuryId);
+}
@@ -0,0 +1,25 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.dto.AccountAmountRow;
+import com.treasury.kpstreasury.models.entity.BalanceSnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshotEntity, Long> {
+
+    Optional<BalanceSnapshotEntity> findFirstByAccountIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(
+            Long accountId, LocalDateTime asOf);
+
+    //Latest snapshot of every account at or before the given instant
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountAmountRow(s.accountId, s.balance) " +
+            "FROM BalanceSnapshotEntity s WHERE s.snapshotAt = (SELECT MAX(l.snapshotAt) FROM BalanceSnapshotEntity l " +
+            "WHERE l.accountId = s.accountId AND l.snapshotAt <= :asOf)")
+    List<AccountAmountRow> findLatestBalances(@Param("asOf") LocalDateTime asOf);
+}
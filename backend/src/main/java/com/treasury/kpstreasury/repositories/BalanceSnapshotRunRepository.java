@@ -0,0 +1,16 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.entity.BalanceSnapshotRunEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRunRepository extends JpaRepository<BalanceSnapshotRunEntity, LocalDateTime> {
+
+    Optional<BalanceSnapshotRunEntity> findFirstByOrderBySnapshotAtDesc();
+
+    Optional<BalanceSnapshotRunEntity> findFirstBySnapshotAtLessThanEqualOrderBySnapshotAtDesc(LocalDateTime asOf);
+}
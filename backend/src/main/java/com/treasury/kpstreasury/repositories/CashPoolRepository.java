@@ -0,0 +1,25 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.entity.CashPoolEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CashPoolRepository extends JpaRepository<CashPoolEntity, Long> {
+
+    List<CashPoolEntity> findByEnabledTrueOrderById();
+
+    //Sweep: the enabled pools, locked so that a sweep on another instance waits for this one to commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM CashPoolEntity p WHERE p.enabled = true ORDER BY p.id")
+    List<CashPoolEntity> lockEnabledPools();
+
+    boolean existsByName(String name);
+
+    boolean existsByCurrencyAndBankName(String currency, String bankName);
+}
@@ -4,22 +4,34 @@ import com.treasury.kpstreasury.enums.AccountStatus;
 import com.treasury.kpstreasury.enums.CollateralStatus;
 import com.treasury.kpstreasury.enums.CollateralType;
 import com.treasury.kpstreasury.enums.Rating;
+import com.treasury.kpstreasury.models.dto.CollateralCurrencyTotalsRow;
+import com.treasury.kpstreasury.models.dto.CollateralDto;
+import com.treasury.kpstreasury.models.dto.CollateralRatingTotalsRow;
+import com.treasury.kpstreasury.models.dto.CollateralTypeTotalsRow;
 import com.treasury.kpstreasury.models.entity.CollateralEntity;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.treasury.kpstreasury.utils.DtoProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.swing.text.AttributeSet;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CollateralRepository extends JpaRepository<CollateralEntity, Long> {
+public interface CollateralRepository extends JpaRepository<CollateralEntity, Long>,
+        JpaSpecificationExecutor<CollateralEntity> {
 
         List<CollateralEntity> findByStatus(CollateralStatus status);
         List<CollateralEntity> findByCollateralType(CollateralType collateralType);
@@ -40,35 +52,84 @@ public interface CollateralRepository extends JpaRepository<CollateralEntity, Lo
 
 
         //  Total Value by Collateral Type
-        @Query("SELECT c.collateralType, SUM(c.marketValue), SUM(c.eligibleValue) FROM CollateralEntity c " +
+        @Query("SELECT new com.treasury.kpstreasury.models.dto.CollateralTypeTotalsRow(c.collateralType, " +
+                "SUM(c.marketValue), SUM(c.eligibleValue)) FROM CollateralEntity c " +
                 "WHERE c.status = 'ELIGIBLE' GROUP BY c.collateralType")
-        List<Object[]> getCollateralSummaryByType();
+        List<CollateralTypeTotalsRow> getCollateralSummaryByType();
+
+        //  Total Value by Currency
+        @Query("SELECT new com.treasury.kpstreasury.models.dto.CollateralCurrencyTotalsRow(c.currency, " +
+                "SUM(c.marketValue), SUM(c.eligibleValue), COUNT(c)) FROM CollateralEntity c " +
+                "WHERE c.status = 'ELIGIBLE' GROUP BY c.currency")
+        List<CollateralCurrencyTotalsRow> getCollateralSummaryByCurrency();
 
 
         //  Repport bu rating
-        @Query("SELECT c.rating, COUNT(c), SUM(c.marketValue) FROM CollateralEntity c " +
+        @Query("SELECT new com.treasury.kpstreasury.models.dto.CollateralRatingTotalsRow(c.rating, COUNT(c), " +
+                "SUM(c.marketValue)) FROM CollateralEntity c " +
                 "WHERE c.status = 'ELIGIBLE' GROUP BY c.rating ORDER BY c.rating")
-        List<Object[]> getCollateralConcentrationByRating();
+        List<CollateralRatingTotalsRow> getCollateralConcentrationByRating();
 
         //  Collateral with hier Haircut.
         @Query("SELECT c FROM CollateralEntity c WHERE c.haircut > :haircutThreshold AND c.status = 'ELIGIBLE'")
         List<CollateralEntity> findHighRiskCollateral(@Param("haircutThreshold") BigDecimal haircutThreshold);
 
 
-        //  search with multiple filtrs
+        //Streaming export: read-only rows from a server-side cursor, 500 at a time
+        @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                     @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+        @Query("SELECT c FROM CollateralEntity c ORDER BY c.id")
+        Stream<CollateralEntity> streamAllOrderById();
+
+        //Row locks taken in id order, so bulk status changes cannot deadlock each other
+        @Query(value = "SELECT id FROM collaterals WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+        List<Long> lockInIdOrder(@Param("ids") Collection<Long> ids);
+
+        //Bulk status change, one statement for a chunk of ids
+        @Modifying(flushAutomatically = true)
+        @Query("UPDATE CollateralEntity c SET c.status = :status, c.updatedAt = :now WHERE c.id IN :ids")
+        int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") CollateralStatus status,
+                         @Param("now") LocalDateTime now);
+
+        //Read-only listings: rows are read straight into CollateralDto, no entity enters the persistence context.
+        //DTO and PROJECTION list the same constructor arguments, for JPQL and for Specification queries
+        String DTO = "new com.treasury.kpstreasury.models.dto.CollateralDto(c.id, c.collateralType, c.description, " +
+                "c.marketValue, c.haircut, c.eligibleValue, c.currency, c.rating, c.maturityDate, c.status, " +
+                "c.counterparty, c.location, c.createdAt, c.updatedAt)";
+
+        DtoProjection<CollateralEntity, CollateralDto> PROJECTION = DtoProjection.of(CollateralEntity.class,
+                CollateralDto.class, "id", "collateralType", "description", "marketValue", "haircut", "eligibleValue",
+                "currency", "rating", "maturityDate", "status", "counterparty", "location", "createdAt", "updatedAt");
+
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.id = :id")
+        Optional<CollateralDto> findDtoById(@Param("id") Long id);
+
+        @Query("SELECT " + DTO + " FROM CollateralEntity c")
+        List<CollateralDto> findAllDtos();
+
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.status = :status")
+        List<CollateralDto> findDtosByStatus(@Param("status") CollateralStatus status);
+
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.collateralType = :collateralType")
+        List<CollateralDto> findDtosByCollateralType(@Param("collateralType") CollateralType collateralType);
+
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.rating = :rating")
+        List<CollateralDto> findDtosByRating(@Param("rating") Rating rating);
+
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.currency = :currency")
+        List<CollateralDto> findDtosByCurrency(@Param("currency") String currency);
+
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.counterparty = :counterparty")
+        List<CollateralDto> findDtosByCounterparty(@Param("counterparty") String counterparty);
 
-        @Query("SELECT c FROM CollateralEntity c WHERE " +
-                "(:type IS NULL OR c.collateralType = :type) AND " +
-                "(:minRating IS NULL OR c.rating >= :minRating) AND " +
-                "(:currency IS NULL OR c.currency = :currency) AND " +
-                "(:status IS NULL OR c.status = :status) AND " +
-                "(:minValue IS NULL OR c.marketValue >= :minValue)")
-        Page<CollateralEntity> findWithAdvancedFilters(@Param("type") CollateralType type,
-                                                       @Param("minRating") Rating minRating,
-                                                       @Param("currency") String currency,
-                                                       @Param("status") CollateralStatus status,
-                                                       @Param("minValue") BigDecimal minValue,
-                                                       Pageable pageable);
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.status = :status AND c.rating IN :ratings")
+        List<CollateralDto> findDtosByStatusAndRatingIn(@Param("status") CollateralStatus status,
+                                                        @Param("ratings") List<Rating> ratings);
 
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.maturityDate BETWEEN :startDate AND :endDate")
+        List<CollateralDto> findDtosByMaturityDateBetween(@Param("startDate") LocalDate startDate,
+                                                          @Param("endDate") LocalDate endDate);
 
+        @Query("SELECT " + DTO + " FROM CollateralEntity c WHERE c.haircut > :haircutThreshold AND c.status = 'ELIGIBLE'")
+        List<CollateralDto> findHighRiskDtos(@Param("haircutThreshold") BigDecimal haircutThreshold);
 }
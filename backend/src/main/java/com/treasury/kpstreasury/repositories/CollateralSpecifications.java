@@ -0,0 +1,46 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.enums.CollateralStatus;
+import com.treasury.kpstreasury.enums.CollateralType;
+import com.treasury.kpstreasury.enums.Rating;
+import com.treasury.kpstreasury.models.entity.CollateralEntity;
+import com.treasury.kpstreasury.utils.FilterSpecifications;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collateral search filters, for CollateralRepository's JpaSpecificationExecutor methods. Missing
+ * filters add no predicate.
+ */
+public final class CollateralSpecifications {
+
+    private CollateralSpecifications() {
+    }
+
+    public static Specification<CollateralEntity> advancedFilters(CollateralType type, Rating minRating,
+                                                                  String currency, CollateralStatus status,
+                                                                  BigDecimal minValue) {
+        return Specification.<CollateralEntity>where(FilterSpecifications.equalTo("collateralType", type))
+                .and(FilterSpecifications.equalTo("currency", currency))
+                .and(FilterSpecifications.equalTo("status", status))
+                .and(ratedAtLeast(minRating))
+                .and(FilterSpecifications.atLeast("marketValue", minValue));
+    }
+
+    /**
+     * Ratings as good as the given one or better. Ratings are stored by name, so comparing the column
+     * would order them alphabetically; they are matched as an IN list of the qualifying names instead.
+     */
+    public static Specification<CollateralEntity> ratedAtLeast(Rating minRating) {
+        if (minRating == null) {
+            return null;
+        }
+        List<Rating> qualifying = Arrays.stream(Rating.values())
+                .filter(rating -> rating.ordinal() <= minRating.ordinal())
+                .toList();
+        return FilterSpecifications.in("rating", qualifying);
+    }
+}
@@ -0,0 +1,9 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.entity.FxRateEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FxRateRepository extends JpaRepository<FxRateEntity, String> {
+}
@@ -0,0 +1,28 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.entity.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    //Extends the lease of a claim that is still unanswered, keeping its version so the holder still owns it
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyKeyEntity k SET k.leaseExpiresAt = :leaseExpiresAt " +
+            "WHERE k.idempotencyKey = :key AND k.version = :version AND k.responseStatus IS NULL")
+    int renewLease(@Param("key") String key, @Param("version") Long version,
+                   @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+}
@@ -0,0 +1,13 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.entity.LedgerCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpointEntity, Long> {
+
+    @Query("SELECT MIN(c.checkpointedThroughId) FROM LedgerCheckpointEntity c")
+    Long findOldestCheckpoint();
+}
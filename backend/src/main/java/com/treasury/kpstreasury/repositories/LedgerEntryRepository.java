@@ -0,0 +1,68 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.dto.AccountAmountRow;
+import com.treasury.kpstreasury.models.dto.LedgerTypeTotalsRow;
+import com.treasury.kpstreasury.models.entity.LedgerEntryEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntryEntity, Long> {
+
+    Page<LedgerEntryEntity> findByAccountIdOrderByIdDesc(Long accountId, Pageable pageable);
+
+    List<LedgerEntryEntity> findByJournalId(String journalId);
+
+    boolean existsByAccountId(Long accountId);
+
+    //Replay of the postings after a checkpoint
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.entryType = 'CREDIT' THEN e.amount ELSE -e.amount END), 0) " +
+            "FROM LedgerEntryEntity e WHERE e.accountId = :accountId AND e.id > :afterId")
+    BigDecimal sumPostingsAfter(@Param("accountId") Long accountId, @Param("afterId") Long afterId);
+
+    //Net movement of one account after a snapshot up to an instant, used by as-of balance queries
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.entryType = 'CREDIT' THEN e.amount ELSE -e.amount END), 0) " +
+            "FROM LedgerEntryEntity e WHERE e.accountId = :accountId AND e.id > :afterId AND e.postedAt <= :until")
+    BigDecimal sumPostingsAfterUntil(@Param("accountId") Long accountId,
+                                     @Param("afterId") Long afterId,
+                                     @Param("until") LocalDateTime until);
+
+    //Net movement per account inside an entry id window, used by checkpointing and balance snapshots
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountAmountRow(e.accountId, " +
+            "SUM(CASE WHEN e.entryType = 'CREDIT' THEN e.amount ELSE -e.amount END)) " +
+            "FROM LedgerEntryEntity e WHERE e.id > :afterId AND e.id <= :throughId GROUP BY e.accountId")
+    List<AccountAmountRow> sumPostingsByAccountBetween(@Param("afterId") Long afterId, @Param("throughId") Long throughId);
+
+    //Net movement per account after a snapshot up to an instant, used by as-of balance queries
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountAmountRow(e.accountId, " +
+            "SUM(CASE WHEN e.entryType = 'CREDIT' THEN e.amount ELSE -e.amount END)) " +
+            "FROM LedgerEntryEntity e WHERE e.id > :afterId AND e.postedAt <= :until GROUP BY e.accountId")
+    List<AccountAmountRow> sumPostingsByAccountAfterUntil(@Param("afterId") Long afterId, @Param("until") LocalDateTime until);
+
+    @Query("SELECT MAX(e.id) FROM LedgerEntryEntity e")
+    Long findMaxId();
+
+    //Gross credits and debits per account posted after an instant, used by the intraday liquidity view
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.LedgerTypeTotalsRow(e.accountId, e.entryType, SUM(e.amount)) " +
+            "FROM LedgerEntryEntity e WHERE e.postedAt > :after GROUP BY e.accountId, e.entryType")
+    List<LedgerTypeTotalsRow> sumPostingsByAccountAndTypeAfter(@Param("after") LocalDateTime after);
+
+    //Which of the given journals are visible to the reading transaction
+    @Query("SELECT DISTINCT e.journalId FROM LedgerEntryEntity e WHERE e.journalId IN :journalIds")
+    List<String> findJournalIdsIn(@Param("journalIds") Collection<String> journalIds);
+
+    //Full journal balance per account for an id range, used by the verifier
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountAmountRow(e.accountId, " +
+            "SUM(CASE WHEN e.entryType = 'CREDIT' THEN e.amount ELSE -e.amount END)) " +
+            "FROM LedgerEntryEntity e WHERE e.accountId BETWEEN :fromId AND :toId GROUP BY e.accountId")
+    List<AccountAmountRow> sumPostingsByAccountInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
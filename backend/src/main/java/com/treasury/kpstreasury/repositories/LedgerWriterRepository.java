@@ -0,0 +1,23 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.entity.LedgerWriterEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface LedgerWriterRepository extends JpaRepository<LedgerWriterEntity, String> {
+
+    //Lowest id the other live instances may still commit
+    @Query("SELECT MIN(w.lowWaterId) FROM LedgerWriterEntity w WHERE w.reportedAt > :since AND w.instanceId <> :instanceId")
+    Long findLowestWaterSince(@Param("since") LocalDateTime since, @Param("instanceId") String instanceId);
+
+    //Instances that stopped reporting
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM LedgerWriterEntity w WHERE w.reportedAt <= :before")
+    int deleteReportedBefore(@Param("before") LocalDateTime before);
+}
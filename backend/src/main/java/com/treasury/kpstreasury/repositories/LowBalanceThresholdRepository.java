@@ -0,0 +1,18 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.dto.ThresholdAccountRow;
+import com.treasury.kpstreasury.models.entity.LowBalanceThresholdEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LowBalanceThresholdRepository extends JpaRepository<LowBalanceThresholdEntity, Long> {
+
+    //Low-balance index rebuild: every threshold with the account number and balance of its account
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.ThresholdAccountRow(l, t.accountNumber, t.availableBalance, " +
+            "t.status, t.balanceSlots) FROM LowBalanceThresholdEntity l JOIN TreasuryEntity t ON t.id = l.accountId")
+    List<ThresholdAccountRow> findAllWithAccounts();
+}
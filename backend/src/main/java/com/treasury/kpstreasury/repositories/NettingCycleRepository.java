@@ -0,0 +1,13 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.entity.NettingCycleEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NettingCycleRepository extends JpaRepository<NettingCycleEntity, Long> {
+
+    List<NettingCycleEntity> findTop50ByOrderByIdDesc();
+}
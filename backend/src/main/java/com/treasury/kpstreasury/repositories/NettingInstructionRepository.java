@@ -0,0 +1,46 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.enums.NettingStatus;
+import com.treasury.kpstreasury.models.dto.NettingInstructionRow;
+import com.treasury.kpstreasury.models.entity.NettingInstructionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NettingInstructionRepository extends JpaRepository<NettingInstructionEntity, Long> {
+
+    boolean existsByStatusAndCycleIdIsNullAndSubmittedAtLessThanEqual(NettingStatus status, LocalDateTime cutoff);
+
+    //Netting cycle: claims every instruction submitted up to the cutoff that no cycle has claimed yet
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE NettingInstructionEntity i SET i.cycleId = :cycleId " +
+            "WHERE i.status = 'PENDING' AND i.cycleId IS NULL AND i.submittedAt <= :cutoff")
+    int claimPending(@Param("cycleId") Long cycleId, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.NettingInstructionRow(i.id, i.fromAccountId, " +
+            "i.toAccountId, i.amount, i.currency) FROM NettingInstructionEntity i " +
+            "WHERE i.cycleId = :cycleId AND i.status = :status ORDER BY i.id")
+    List<NettingInstructionRow> findRowsByCycleIdAndStatus(@Param("cycleId") Long cycleId,
+                                                          @Param("status") NettingStatus status);
+
+    //Rejects a chunk of claimed instructions with one statement
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE NettingInstructionEntity i SET i.status = 'REJECTED', i.rejectionReason = :reason " +
+            "WHERE i.id IN :ids AND i.status = 'PENDING'")
+    int reject(@Param("ids") Collection<Long> ids, @Param("reason") String reason);
+
+    //Settles what is left of a cycle once its residual legs are posted
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE NettingInstructionEntity i SET i.status = 'SETTLED' " +
+            "WHERE i.cycleId = :cycleId AND i.status = 'PENDING'")
+    int settleCycle(@Param("cycleId") Long cycleId);
+
+    List<NettingInstructionEntity> findByCycleIdAndStatusOrderById(Long cycleId, NettingStatus status);
+}
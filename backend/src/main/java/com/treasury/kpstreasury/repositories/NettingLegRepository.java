@@ -0,0 +1,13 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.entity.NettingLegEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NettingLegRepository extends JpaRepository<NettingLegEntity, Long> {
+
+    List<NettingLegEntity> findByCycleIdOrderById(Long cycleId);
+}
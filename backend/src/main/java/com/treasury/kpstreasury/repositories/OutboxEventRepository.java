@@ -0,0 +1,44 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.dto.EventKeyIdRow;
+import com.treasury.kpstreasury.models.entity.OutboxEventEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    long countBySentAtIsNull();
+
+    //Relay: claims the oldest unsent events, skipping the ones another relay has claimed
+    @Query(value = "SELECT * FROM outbox_events WHERE sent_at IS NULL AND attempts < :maxAttempts " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEventEntity> claimUnsent(@Param("maxAttempts") int maxAttempts, @Param("limit") int limit);
+
+    //Relay: per key of a claim, the oldest event still to publish that the claim does not hold
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.EventKeyIdRow(e.eventKey, MIN(e.id)) " +
+            "FROM OutboxEventEntity e WHERE e.sentAt IS NULL AND e.attempts < :maxAttempts " +
+            "AND e.eventKey IN :keys AND e.id NOT IN :claimedIds GROUP BY e.eventKey")
+    List<EventKeyIdRow> findOldestUnclaimedByKey(@Param("keys") Collection<String> keys,
+                                                 @Param("claimedIds") Collection<Long> claimedIds,
+                                                 @Param("maxAttempts") int maxAttempts);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OutboxEventEntity e SET e.sentAt = :now WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OutboxEventEntity e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int markFailed(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM OutboxEventEntity e WHERE e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
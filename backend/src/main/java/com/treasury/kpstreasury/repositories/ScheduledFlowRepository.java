@@ -0,0 +1,30 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.dto.ScheduledFlowRow;
+import com.treasury.kpstreasury.models.entity.ScheduledFlowEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ScheduledFlowRepository extends JpaRepository<ScheduledFlowEntity, Long> {
+
+    List<ScheduledFlowEntity> findByAccountIdOrderByStartDate(Long accountId);
+
+    //Cash-flow forecast: flows of one account with an occurrence that can fall inside the window
+    @Query("SELECT f FROM ScheduledFlowEntity f WHERE f.accountId = :accountId " +
+            "AND f.startDate <= :until AND (f.endDate IS NULL OR f.endDate >= :from)")
+    List<ScheduledFlowEntity> findInWindowByAccountId(@Param("accountId") Long accountId,
+                                                      @Param("from") LocalDate from,
+                                                      @Param("until") LocalDate until);
+
+    //Cash-flow forecast: every such flow with the currency of its account, flows of deleted accounts drop out
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.ScheduledFlowRow(f.accountId, t.currency, f.amount, " +
+            "f.startDate, f.recurrence, f.endDate) FROM ScheduledFlowEntity f, TreasuryEntity t WHERE t.id = f.accountId " +
+            "AND f.startDate <= :until AND (f.endDate IS NULL OR f.endDate >= :from)")
+    List<ScheduledFlowRow> findInWindowWithCurrency(@Param("from") LocalDate from, @Param("until") LocalDate until);
+}
@@ -0,0 +1,96 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.models.dto.AccountAmountRow;
+import com.treasury.kpstreasury.models.dto.SlotBalanceRow;
+import com.treasury.kpstreasury.models.dto.SlotTotalsRow;
+import com.treasury.kpstreasury.models.entity.TreasuryBalanceSlotEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface TreasuryBalanceSlotRepository extends JpaRepository<TreasuryBalanceSlotEntity, Long> {
+
+    //Atomic conditional slot updates, each returns the number of rows it changed (0 or 1)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasury_balance_slots SET balance = balance + :amount, " +
+            "available_balance = available_balance + :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE treasury_id = :treasuryId AND slot_index = :slotIndex " +
+            "AND EXISTS (SELECT 1 FROM treasurys t WHERE t.id = :treasuryId AND t.status = 'ACTIVE')", nativeQuery = true)
+    int creditIfActive(@Param("treasuryId") Long treasuryId,
+                       @Param("slotIndex") int slotIndex,
+                       @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasury_balance_slots SET balance = balance - :amount, " +
+            "available_balance = available_balance - :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE treasury_id = :treasuryId AND slot_index = :slotIndex AND available_balance >= :amount " +
+            "AND EXISTS (SELECT 1 FROM treasurys t WHERE t.id = :treasuryId AND t.status = 'ACTIVE')", nativeQuery = true)
+    int debitIfAvailable(@Param("treasuryId") Long treasuryId,
+                         @Param("slotIndex") int slotIndex,
+                         @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasury_balance_slots SET available_balance = available_balance - :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE treasury_id = :treasuryId AND slot_index = :slotIndex AND available_balance >= :amount " +
+            "AND EXISTS (SELECT 1 FROM treasurys t WHERE t.id = :treasuryId AND t.status = 'ACTIVE')", nativeQuery = true)
+    int holdIfAvailable(@Param("treasuryId") Long treasuryId,
+                        @Param("slotIndex") int slotIndex,
+                        @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasury_balance_slots SET available_balance = available_balance + :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE treasury_id = :treasuryId AND slot_index = :slotIndex " +
+            "AND available_balance + :amount <= balance", nativeQuery = true)
+    int releaseHoldIfHeld(@Param("treasuryId") Long treasuryId,
+                          @Param("slotIndex") int slotIndex,
+                          @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasury_balance_slots SET balance = balance - :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE treasury_id = :treasuryId AND slot_index = :slotIndex " +
+            "AND balance - :amount >= available_balance", nativeQuery = true)
+    int captureHoldIfHeld(@Param("treasuryId") Long treasuryId,
+                          @Param("slotIndex") int slotIndex,
+                          @Param("amount") BigDecimal amount);
+
+    //Whole-account operations: lock every slot in slot order, then rewrite them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.SlotBalanceRow(s.slotIndex, s.balance, s.availableBalance) " +
+            "FROM TreasuryBalanceSlotEntity s WHERE s.treasuryId = :treasuryId ORDER BY s.slotIndex")
+    List<SlotBalanceRow> lockSlots(@Param("treasuryId") Long treasuryId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasury_balance_slots SET balance = :balance, available_balance = :availableBalance, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE treasury_id = :treasuryId AND slot_index = :slotIndex", nativeQuery = true)
+    int setBalances(@Param("treasuryId") Long treasuryId,
+                    @Param("slotIndex") int slotIndex,
+                    @Param("balance") BigDecimal balance,
+                    @Param("availableBalance") BigDecimal availableBalance);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM TreasuryBalanceSlotEntity s WHERE s.treasuryId = :treasuryId")
+    int deleteByTreasuryId(@Param("treasuryId") Long treasuryId);
+
+    //Slot totals
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.SlotTotalsRow(SUM(s.balance), SUM(s.availableBalance)) " +
+            "FROM TreasuryBalanceSlotEntity s WHERE s.treasuryId = :treasuryId")
+    SlotTotalsRow sumBalances(@Param("treasuryId") Long treasuryId);
+
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountAmountRow(s.treasuryId, SUM(s.balance)) " +
+            "FROM TreasuryBalanceSlotEntity s WHERE s.treasuryId BETWEEN :fromId AND :toId GROUP BY s.treasuryId")
+    List<AccountAmountRow> sumBalancesInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
@@ -2,20 +2,37 @@ package com.treasury.kpstreasury.repositories;
 
 import com.treasury.kpstreasury.enums.AccountStatus;
 import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.models.dto.AccountAmountRow;
+import com.treasury.kpstreasury.models.dto.AccountBankRow;
+import com.treasury.kpstreasury.models.dto.CurrencyAmountRow;
+import com.treasury.kpstreasury.models.dto.IdRangeRow;
+import com.treasury.kpstreasury.models.dto.ShardedAccountRow;
+import com.treasury.kpstreasury.models.dto.SweepPositionRow;
+import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.dto.TreasuryFiguresRow;
+import com.treasury.kpstreasury.models.dto.TreasuryTotalsRow;
 import com.treasury.kpstreasury.models.entity.TreasuryEntity;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.treasury.kpstreasury.utils.DtoProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TreasuryRepository extends JpaRepository<TreasuryEntity, Long> {
+public interface TreasuryRepository extends JpaRepository<TreasuryEntity, Long>,
+        JpaSpecificationExecutor<TreasuryEntity> {
 
     Optional<TreasuryEntity> findByAccountNumber(String accountNumber);
 
@@ -29,6 +46,21 @@ public interface TreasuryRepository extends JpaRepository<TreasuryEntity, Long>
 
     boolean existsByAccountNumber(String accountNumber);
 
+    //Bulk import: duplicate check against every existing account number
+    @Query("SELECT t.accountNumber FROM TreasuryEntity t")
+    List<String> findAllAccountNumbers();
+
+    //Streaming export: read-only rows from a server-side cursor, 500 at a time
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT t FROM TreasuryEntity t ORDER BY t.id")
+    Stream<TreasuryEntity> streamAllOrderById();
+
+    //Availability filter: every account number, read from a server-side cursor
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT t.accountNumber FROM TreasuryEntity t")
+    Stream<String> streamAllAccountNumbers();
+
     //Finance Dashboard
     @Query("SELECT SUM(t.balance) FROM TreasuryEntity t WHERE t.currency = :currency AND t.status = :status")
     BigDecimal getTotalBalanceByCurrencyAndStatus(@Param("currency") String currency, @Param("status") AccountStatus status);
@@ -37,20 +69,166 @@ public interface TreasuryRepository extends JpaRepository<TreasuryEntity, Long>
     BigDecimal getTotalAvailableBalance();
 
     //Agregated Reports Queries
-    @Query("SELECT t.currency, SUM(t.balance), COUNT(t) FROM TreasuryEntity t WHERE t.status = 'ACTIVE' GROUP BY t.currency ")
-    List<Object[]> getTreasurySummaryByCurrency();
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.TreasuryTotalsRow(t.currency, t.status, SUM(t.balance), " +
+            "SUM(t.availableBalance), COUNT(t)) FROM TreasuryEntity t GROUP BY t.currency, t.status")
+    List<TreasuryTotalsRow> getTreasuryTotalsByCurrencyAndStatus();
+
+    //In-memory currency summary: every account on a rebuild, or the accounts a transaction changed
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.TreasuryFiguresRow(t.id, t.currency, t.status, t.balance, " +
+            "t.availableBalance, t.version) FROM TreasuryEntity t")
+    List<TreasuryFiguresRow> findSummaryFigures();
+
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.TreasuryFiguresRow(t.id, t.currency, t.status, t.balance, " +
+            "t.availableBalance, t.version) FROM TreasuryEntity t WHERE t.id IN :ids")
+    List<TreasuryFiguresRow> findSummaryFiguresByIds(@Param("ids") Collection<Long> ids);
 
     @Query("SELECT t FROM TreasuryEntity t WHERE t.availableBalance < :threshold AND t.status = 'ACTIVE' ")
     List<TreasuryEntity> findLowBalanceAccounts(@Param("threshold") BigDecimal threshold);
 
-    //Search Accounts with the multi filter option
-    @Query("SELECT t FROM TreasuryEntity t WHERE " +
-            "(:currency IS NULL OR t.currency = :currency) AND " +
-            "(:bankName IS NULL OR t.bankName LIKE %:bankName%) AND " +
-            "(:status IS NULL OR t.status = :status)")
-    Page<TreasuryEntity> findWithFilters(@Param("currency") String currency,
-                                         @Param("bankName") String bankName,
-                                         @Param("status") AccountStatus status,
-                                         Pageable pageable);
+    //Read-only listings: rows are read straight into TreasuryDto, no entity enters the persistence context.
+    //DTO and PROJECTION list the same constructor arguments, for JPQL and for Specification queries
+    String DTO = "new com.treasury.kpstreasury.models.dto.TreasuryDto(t.id, t.accountNumber, t.currency, t.balance, " +
+            "t.availableBalance, t.accountType, t.status, t.bankName, t.branchCode, t.createdAt, t.updatedAt)";
+
+    DtoProjection<TreasuryEntity, TreasuryDto> PROJECTION = DtoProjection.of(TreasuryEntity.class, TreasuryDto.class,
+            "id", "accountNumber", "currency", "balance", "availableBalance", "accountType", "status", "bankName",
+            "branchCode", "createdAt", "updatedAt");
+
+    @Query("SELECT " + DTO + " FROM TreasuryEntity t WHERE t.id = :id")
+    Optional<TreasuryDto> findDtoById(@Param("id") Long id);
+
+    @Query("SELECT " + DTO + " FROM TreasuryEntity t WHERE t.accountNumber = :accountNumber")
+    Optional<TreasuryDto> findDtoByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    @Query("SELECT " + DTO + " FROM TreasuryEntity t")
+    List<TreasuryDto> findAllDtos();
+
+    @Query("SELECT " + DTO + " FROM TreasuryEntity t WHERE t.status = :status")
+    List<TreasuryDto> findDtosByStatus(@Param("status") AccountStatus status);
+
+    @Query("SELECT " + DTO + " FROM TreasuryEntity t WHERE t.accountType = :accountType")
+    List<TreasuryDto> findDtosByAccountType(@Param("accountType") AccountType accountType);
+
+    @Query("SELECT " + DTO + " FROM TreasuryEntity t WHERE t.currency = :currency")
+    List<TreasuryDto> findDtosByCurrency(@Param("currency") String currency);
+
+    @Query("SELECT " + DTO + " FROM TreasuryEntity t WHERE t.bankName = :bankName")
+    List<TreasuryDto> findDtosByBankName(@Param("bankName") String bankName);
+
+    @Query("SELECT " + DTO + " FROM TreasuryEntity t WHERE t.availableBalance < :threshold AND t.status = 'ACTIVE'")
+    List<TreasuryDto> findLowBalanceDtos(@Param("threshold") BigDecimal threshold);
+
+    //Cash-flow forecast: opening balance per currency over all accounts
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.CurrencyAmountRow(t.currency, SUM(t.balance)) " +
+            "FROM TreasuryEntity t GROUP BY t.currency")
+    List<CurrencyAmountRow> sumBalanceByCurrency();
+
+    //Intraday liquidity: currency and bank of every account
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountBankRow(t.id, t.currency, t.bankName) " +
+            "FROM TreasuryEntity t")
+    List<AccountBankRow> findCurrencyAndBank();
+
+    //Atomic conditional balance updates, each returns the number of rows it changed (0 or 1).
+    //They never apply to sharded accounts, whose balance lives in treasury_balance_slots
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasurys SET balance = balance - :amount, " +
+            "available_balance = available_balance - :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND available_balance >= :amount AND status = 'ACTIVE' AND balance_slots = 0", nativeQuery = true)
+    int debitIfAvailable(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasurys SET balance = balance + :amount, " +
+            "available_balance = available_balance + :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND status = 'ACTIVE' AND balance_slots = 0", nativeQuery = true)
+    int creditIfActive(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasurys SET available_balance = available_balance - :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND available_balance >= :amount AND status = 'ACTIVE' AND balance_slots = 0", nativeQuery = true)
+    int holdIfAvailable(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasurys SET available_balance = available_balance + :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND available_balance + :amount <= balance AND balance_slots = 0", nativeQuery = true)
+    int releaseHoldIfHeld(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasurys SET balance = balance - :amount, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND balance - :amount >= available_balance AND balance_slots = 0", nativeQuery = true)
+    int captureHoldIfHeld(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasurys SET available_balance = :availableBalance, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND :availableBalance <= balance AND balance_slots = 0", nativeQuery = true)
+    int setAvailableBalanceIfWithinBalance(@Param("id") Long id,
+                                           @Param("availableBalance") BigDecimal availableBalance);
+
+    //Sharded (sub-balance) accounts
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.ShardedAccountRow(t.id, t.balanceSlots) " +
+            "FROM TreasuryEntity t WHERE t.balanceSlots > 0")
+    List<ShardedAccountRow> findShardedAccounts();
+
+    @Query("SELECT t.balanceSlots FROM TreasuryEntity t WHERE t.id = :id")
+    Optional<Integer> findBalanceSlotsById(@Param("id") Long id);
+
+    boolean existsByIdAndStatus(Long id, AccountStatus status);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE treasurys SET balance = :balance, available_balance = :availableBalance, " +
+            "version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND balance_slots > 0 " +
+            "AND (balance <> :balance OR available_balance <> :availableBalance)", nativeQuery = true)
+    int rollUpSlotBalances(@Param("id") Long id,
+                           @Param("balance") BigDecimal balance,
+                           @Param("availableBalance") BigDecimal availableBalance);
+
+    //Bulk status change, one statement for a chunk of ids; the version moves like on an entity update
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE TreasuryEntity t SET t.status = :status, t.version = t.version + 1, t.updatedAt = :now " +
+            "WHERE t.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") AccountStatus status,
+                     @Param("now") LocalDateTime now);
+
+    //Row locks taken in id order, so transactions touching several accounts cannot deadlock each other
+    @Query(value = "SELECT id FROM treasurys WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockInIdOrder(@Param("ids") Collection<Long> ids);
+
+    //Cash pool sweep: the active accounts of the pooled banks, read from a server-side cursor
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.SweepPositionRow(t.id, t.currency, t.bankName, " +
+            "t.balanceSlots, t.availableBalance) FROM TreasuryEntity t " +
+            "WHERE t.status = 'ACTIVE' AND t.bankName IN :bankNames")
+    Stream<SweepPositionRow> streamSweepPositions(@Param("bankNames") Collection<String> bankNames);
+
+    //Cash pool sweep: the positions of accounts locked by lockInIdOrder, read again under the lock
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.SweepPositionRow(t.id, t.currency, t.bankName, " +
+            "t.balanceSlots, t.availableBalance) FROM TreasuryEntity t " +
+            "WHERE t.status = 'ACTIVE' AND t.id IN :ids ORDER BY t.id")
+    List<SweepPositionRow> findSweepPositionsByIds(@Param("ids") Collection<Long> ids);
+
+    //Ledger support
+    @Query("SELECT t.id FROM TreasuryEntity t WHERE NOT EXISTS " +
+            "(SELECT 1 FROM LedgerEntryEntity e WHERE e.accountId = t.id) ORDER BY t.id")
+    List<Long> findIdsWithoutLedgerEntries();
+
+    //Ledger support: the balances of accounts locked by lockInIdOrder, read again under the lock
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountAmountRow(t.id, t.balance) " +
+            "FROM TreasuryEntity t WHERE t.id IN :ids AND NOT EXISTS " +
+            "(SELECT 1 FROM LedgerEntryEntity e WHERE e.accountId = t.id) ORDER BY t.id")
+    List<AccountAmountRow> findBalancesWithoutLedgerEntries(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.IdRangeRow(MIN(t.id), MAX(t.id)) FROM TreasuryEntity t")
+    IdRangeRow findIdRange();
+
+    @Query("SELECT new com.treasury.kpstreasury.models.dto.AccountAmountRow(t.id, t.balance) " +
+            "FROM TreasuryEntity t WHERE t.id BETWEEN :fromId AND :toId")
+    List<AccountAmountRow> findBalancesInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
 }
 
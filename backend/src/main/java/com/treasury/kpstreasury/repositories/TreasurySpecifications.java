@@ -0,0 +1,26 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.utils.FilterSpecifications;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Account search filters, for TreasuryRepository's JpaSpecificationExecutor methods. Missing filters
+ * add no predicate; currency and status are served by idx_treasurys_currency_status, the bank name
+ * prefix by idx_treasurys_bank_name.
+ */
+public final class TreasurySpecifications {
+
+    private TreasurySpecifications() {
+    }
+
+    public static Specification<TreasuryEntity> matching(String currency, String bankNamePrefix,
+                                                         AccountStatus status, AccountType accountType) {
+        return Specification.<TreasuryEntity>where(FilterSpecifications.equalTo("currency", currency))
+                .and(FilterSpecifications.equalTo("status", status))
+                .and(FilterSpecifications.startsWith("bankName", bankNamePrefix))
+                .and(FilterSpecifications.equalTo("accountType", accountType));
+    }
+}
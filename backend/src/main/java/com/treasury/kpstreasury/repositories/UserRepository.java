@@ -1,15 +1,21 @@
 package com.treasury.kpstreasury.repositories;
 
 import com.treasury.kpstreasury.enums.Role;
+import com.treasury.kpstreasury.models.dto.UserDto;
 import com.treasury.kpstreasury.models.entity.UserEntity;
+import com.treasury.kpstreasury.utils.DtoProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
 
@@ -39,6 +45,51 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
     @Query("SELECT COUNT(u) FROM UserEntity u WHERE u.role = :role")
     long countByRole(@Param("role") Role role);
 
+    //Streaming export: read-only rows from a server-side cursor, 500 at a time
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM UserEntity u ORDER BY u.id")
+    Stream<UserEntity> streamAllOrderById();
 
+    //Read-only listings: rows are read straight into UserDto, no entity enters the persistence context.
+    //DTO and PROJECTION list the same constructor arguments, for JPQL and for Specification queries
+    String DTO = "new com.treasury.kpstreasury.models.dto.UserDto(u.id, u.username, u.email, u.firstName, " +
+            "u.lastName, u.role, u.enabled, u.createdAt)";
 
+    DtoProjection<UserEntity, UserDto> PROJECTION = DtoProjection.of(UserEntity.class, UserDto.class,
+            "id", "username", "email", "firstName", "lastName", "role", "enabled", "createdAt");
+
+    @Query("SELECT " + DTO + " FROM UserEntity u WHERE u.id = :id")
+    Optional<UserDto> findDtoById(@Param("id") Long id);
+
+    @Query("SELECT " + DTO + " FROM UserEntity u WHERE u.username = :username")
+    Optional<UserDto> findDtoByUsername(@Param("username") String username);
+
+    @Query("SELECT " + DTO + " FROM UserEntity u WHERE u.email = :email")
+    Optional<UserDto> findDtoByEmail(@Param("email") String email);
+
+    @Query("SELECT " + DTO + " FROM UserEntity u")
+    List<UserDto> findAllDtos();
+
+    @Query("SELECT " + DTO + " FROM UserEntity u WHERE u.role = :role")
+    List<UserDto> findDtosByRole(@Param("role") Role role);
+
+    @Query("SELECT " + DTO + " FROM UserEntity u WHERE u.enabled = true")
+    List<UserDto> findEnabledDtos();
+
+    @Query("SELECT " + DTO + " FROM UserEntity u WHERE u.firstName LIKE %:name% OR u.lastName LIKE %:name%")
+    List<UserDto> findDtosByNameContaining(@Param("name") String name);
+
+    @Query(value = "SELECT " + DTO + " FROM UserEntity u WHERE u.role = :role AND u.enabled = true",
+           countQuery = "SELECT COUNT(u) FROM UserEntity u WHERE u.role = :role AND u.enabled = true")
+    Page<UserDto> findActiveDtosByRole(@Param("role") Role role, Pageable pageable);
+
+    //Availability filters: every username and email, read from a server-side cursor
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.username FROM UserEntity u")
+    Stream<String> streamAllUsernames();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.email FROM UserEntity u")
+    Stream<String> streamAllEmails();
 }
@@ -0,0 +1,219 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.IdentifierSpace;
+import com.treasury.kpstreasury.models.dto.AvailabilityFilterStatsDto;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.repositories.UserRepository;
+import com.treasury.kpstreasury.utils.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filters in front of the "does this account number / username / email exist"
+ * checks, one per identifier space. A value the filter has never seen is answered as absent
+ * without a query; only a "maybe" goes to the database, which then has the final word.
+ *
+ * A filter is loaded by streaming the key column once, and every value this instance inserts is
+ * put into it before its transaction commits, so an insert of this instance is never answered as absent.
+ * Values inserted by other instances or straight into the database are only seen after the next
+ * scheduled rebuild, which also drops deleted values and resizes the filter to the table. Values
+ * put since the previous rebuild started are replayed onto the new filter when it is swapped in,
+ * which covers inserts whose transaction had not committed yet when the column was read.
+ *
+ * Until the next rebuild another instance's insert can be answered as absent, so the filter only
+ * answers the availability lookups; the insert paths check the database themselves, and account
+ * numbers, usernames and emails are unique columns for inserts racing each other. Until the first
+ * load finishes every check goes to the database.
+ */
+@Service
+@Slf4j
+public class AvailabilityFilterService {
+
+    private final TreasuryRepository treasuryRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate readTransaction;
+    private final double falsePositiveProbability;
+    private final double capacityFactor;
+    private final long minCapacity;
+    private final Map<IdentifierSpace, Space> spaces = new EnumMap<>(IdentifierSpace.class);
+
+    public AvailabilityFilterService(TreasuryRepository treasuryRepository,
+                                     UserRepository userRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${treasury.availability-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                                     @Value("${treasury.availability-filter.capacity-factor:2.0}") double capacityFactor,
+                                     @Value("${treasury.availability-filter.min-capacity:10000}") long minCapacity) {
+        this.treasuryRepository = treasuryRepository;
+        this.userRepository = userRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.capacityFactor = capacityFactor;
+        this.minCapacity = minCapacity;
+        for (IdentifierSpace space : IdentifierSpace.values()) {
+            spaces.put(space, new Space());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.availability-filter.rebuild-interval-ms:600000}",
+               initialDelayString = "${treasury.availability-filter.rebuild-interval-ms:600000}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        for (IdentifierSpace space : IdentifierSpace.values()) {
+            rebuild(space);
+        }
+    }
+
+    /**
+     * Whether the value exists: false straight from the filter when it has never seen the value,
+     * otherwise whatever the lookup reads from the database.
+     */
+    public boolean exists(IdentifierSpace space, String value, Predicate<String> lookup) {
+        Space filter = spaces.get(space);
+        BloomFilter current = filter.filter;
+        if (value == null || current == null) {
+            filter.bypassed.increment();
+            return lookup.test(value);
+        }
+        if (!current.mightContain(value)) {
+            filter.misses.increment();
+            return false;
+        }
+        boolean exists = lookup.test(value);
+        (exists ? filter.hits : filter.falsePositives).increment();
+        return exists;
+    }
+
+    /**
+     * Records a value being inserted. Call it before the inserting transaction commits; a rolled back
+     * insert only leaves a value the database answers for.
+     */
+    public void add(IdentifierSpace space, String value) {
+        if (value != null) {
+            spaces.get(space).add(value);
+        }
+    }
+
+    public List<AvailabilityFilterStatsDto> getStats() {
+        List<AvailabilityFilterStatsDto> stats = new ArrayList<>();
+        for (Map.Entry<IdentifierSpace, Space> entry : spaces.entrySet()) {
+            Space space = entry.getValue();
+            BloomFilter current = space.filter;
+            stats.add(new AvailabilityFilterStatsDto(entry.getKey(), current != null, space.loadedValues,
+                    current != null ? current.getExpectedInsertions() : 0,
+                    current != null ? current.getBitCount() : 0,
+                    current != null ? current.getHashFunctions() : 0,
+                    current != null ? current.fillRatio() : 0,
+                    space.misses.sum(), space.hits.sum(), space.falsePositives.sum(), space.bypassed.sum(),
+                    space.lastRebuiltAt));
+        }
+        return stats;
+    }
+
+    private void rebuild(IdentifierSpace identifierSpace) {
+        long started = System.nanoTime();
+        Space space = spaces.get(identifierSpace);
+        Set<String> replay = space.startRebuild();
+
+        BloomFilter fresh;
+        long loaded;
+        try {
+            long rows = readTransaction.execute(status -> count(identifierSpace));
+            fresh = new BloomFilter(Math.max(minCapacity, (long) Math.ceil(rows * capacityFactor)),
+                    falsePositiveProbability);
+            loaded = readTransaction.execute(status -> {
+                try (Stream<String> values = stream(identifierSpace)) {
+                    long count = 0;
+                    for (String value : (Iterable<String>) values::iterator) {
+                        fresh.put(value);
+                        count++;
+                    }
+                    return count;
+                }
+            });
+        } catch (RuntimeException e) {
+            space.abortRebuild(replay);
+            throw e;
+        }
+
+        space.finishRebuild(fresh, replay, loaded);
+        log.info("Loaded {} {} values into an availability filter of {} bits in {} ms", loaded, identifierSpace,
+                fresh.getBitCount(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long count(IdentifierSpace space) {
+        return space == IdentifierSpace.ACCOUNT_NUMBER ? treasuryRepository.count() : userRepository.count();
+    }
+
+    private Stream<String> stream(IdentifierSpace space) {
+        return switch (space) {
+            case ACCOUNT_NUMBER -> treasuryRepository.streamAllAccountNumbers();
+            case USERNAME -> userRepository.streamAllUsernames();
+            case EMAIL -> userRepository.streamAllEmails();
+        };
+    }
+
+    private static final class Space {
+        private volatile BloomFilter filter;
+        // values put since the last rebuild started, replayed onto the next filter
+        private Set<String> recent = new HashSet<>();
+        private volatile long loadedValues;
+        private volatile LocalDateTime lastRebuiltAt;
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder falsePositives = new LongAdder();
+        private final LongAdder bypassed = new LongAdder();
+
+        private synchronized void add(String value) {
+            if (filter != null) {
+                filter.put(value);
+            }
+            recent.add(value);
+        }
+
+        private synchronized Set<String> startRebuild() {
+            Set<String> replay = recent;
+            recent = new HashSet<>();
+            return replay;
+        }
+
+        private synchronized void abortRebuild(Set<String> replay) {
+            recent.addAll(replay);
+        }
+
+        private synchronized void finishRebuild(BloomFilter fresh, Set<String> replay, long loaded) {
+            replay.forEach(fresh::put);
+            recent.forEach(fresh::put);
+            filter = fresh;
+            loadedValues = loaded;
+            lastRebuiltAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.HoldStatus;
+import com.treasury.kpstreasury.events.HoldChangedEvent;
+import com.treasury.kpstreasury.models.dto.BalanceHoldDto;
+import com.treasury.kpstreasury.models.dto.ExpiredHoldRow;
+import com.treasury.kpstreasury.models.dto.HoldRequestDto;
+import com.treasury.kpstreasury.models.entity.BalanceHoldEntity;
+import com.treasury.kpstreasury.repositories.BalanceHoldRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.BalanceHoldMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Holds (reservations) on treasury accounts.
+ * Placing a hold is a single conditional update of the available balance plus an insert into
+ * balance_holds; nothing is read and written back, so the account row is only locked for the
+ * duration of that statement's short transaction, and on an account sharded into balance slots only
+ * a slot row is touched. Releasing gives the amount back to the available balance, capturing
+ * debits it from the balance. Each hold leaves ACTIVE exactly once: the status change is a
+ * conditional update and the balance change happens in the same transaction.
+ *
+ * Expired holds are swept in batches by a scheduled job that claims due rows with SKIP LOCKED, so
+ * several instances can sweep at once, and gives the amounts back with one update per account.
+ */
+@Service
+@Slf4j
+public class BalanceHoldService {
+
+    private final BalanceHoldRepository balanceHoldRepository;
+    private final TreasuryRepository treasuryRepository;
+    private final BalanceSlotService balanceSlotService;
+    private final LedgerService ledgerService;
+    private final BalanceHoldMapper balanceHoldMapper;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration defaultTtl;
+    private final int sweepBatchSize;
+
+    public BalanceHoldService(BalanceHoldRepository balanceHoldRepository,
+                              TreasuryRepository treasuryRepository,
+                              BalanceSlotService balanceSlotService,
+                              LedgerService ledgerService,
+                              BalanceHoldMapper balanceHoldMapper,
+                              ApplicationEventPublisher applicationEventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${treasury.holds.default-ttl-minutes:1440}") long defaultTtlMinutes,
+                              @Value("${treasury.holds.sweep-batch-size:500}") int sweepBatchSize) {
+        this.balanceHoldRepository = balanceHoldRepository;
+        this.treasuryRepository = treasuryRepository;
+        this.balanceSlotService = balanceSlotService;
+        this.ledgerService = ledgerService;
+        this.balanceHoldMapper = balanceHoldMapper;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultTtl = Duration.ofMinutes(defaultTtlMinutes);
+        this.sweepBatchSize = Math.max(1, sweepBatchSize);
+    }
+
+    @Transactional
+    public BalanceHoldDto placeHold(Long accountId, HoldRequestDto request) {
+        BigDecimal amount = request.getAmount();
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = request.getExpiresAt() != null ? request.getExpiresAt() : now.plus(defaultTtl);
+        if (!expiresAt.isAfter(now)) {
+            throw new IllegalArgumentException("Expiry must be in the future");
+        }
+
+        if (treasuryRepository.holdIfAvailable(accountId, amount) == 0 && !balanceSlotService.hold(accountId, amount)) {
+            if (!treasuryRepository.existsById(accountId)) {
+                throw new IllegalArgumentException("Treasury account not found with id: " + accountId);
+            }
+            throw new IllegalArgumentException("Insufficient available balance or inactive account");
+        }
+
+        BalanceHoldEntity hold = BalanceHoldEntity.builder()
+                .treasuryId(accountId)
+                .amount(amount)
+                .status(HoldStatus.ACTIVE)
+                .reference(request.getReference())
+                .expiresAt(expiresAt)
+                .build();
+        hold = balanceHoldRepository.save(hold);
+        applicationEventPublisher.publishEvent(new HoldChangedEvent(List.of(hold.getId()), accountId, amount));
+        return balanceHoldMapper.toDto(hold);
+    }
+
+    @Transactional
+    public BalanceHoldDto releaseHold(Long holdId) {
+        BalanceHoldEntity hold = resolve(holdId, HoldStatus.RELEASED);
+        if (!giveBack(hold.getTreasuryId(), hold.getAmount())) {
+            throw new IllegalArgumentException("Funds of hold " + holdId + " are no longer on hold");
+        }
+        applicationEventPublisher.publishEvent(
+                new HoldChangedEvent(List.of(holdId), hold.getTreasuryId(), hold.getAmount().negate()));
+        return balanceHoldMapper.toDto(hold);
+    }
+
+    @Transactional
+    public BalanceHoldDto captureHold(Long holdId) {
+        BalanceHoldEntity hold = resolve(holdId, HoldStatus.CAPTURED);
+        Long accountId = hold.getTreasuryId();
+        if (treasuryRepository.captureHoldIfHeld(accountId, hold.getAmount()) == 0
+                && !balanceSlotService.capture(accountId, hold.getAmount())) {
+            throw new IllegalArgumentException("Funds of hold " + holdId + " are no longer on hold");
+        }
+        ledgerService.recordAdjustment(accountId, hold.getAmount().negate(), "Hold capture " + holdId);
+        applicationEventPublisher.publishEvent(
+                new HoldChangedEvent(List.of(holdId), accountId, hold.getAmount().negate()));
+        return balanceHoldMapper.toDto(hold);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<BalanceHoldDto> getHold(Long holdId) {
+        return balanceHoldRepository.findById(holdId)
+                .map(balanceHoldMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public List<BalanceHoldDto> getActiveHolds(Long accountId) {
+        return balanceHoldRepository.findByTreasuryIdAndStatusOrderByExpiresAt(accountId, HoldStatus.ACTIVE)
+                .stream()
+                .map(balanceHoldMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.holds.sweep-interval-ms:10000}")
+    public void sweepExpiredHolds() {
+        int expired = expireDue(LocalDateTime.now());
+        if (expired > 0) {
+            log.info("Expired {} balance holds", expired);
+        }
+    }
+
+    /**
+     * Expires every hold that is due at the given time, one transaction per batch, and returns how
+     * many were expired.
+     */
+    int expireDue(LocalDateTime now) {
+        int total = 0;
+        int expired;
+        do {
+            expired = transactionTemplate.execute(status -> expireBatch(now));
+            total += expired;
+        } while (expired == sweepBatchSize);
+        return total;
+    }
+
+    private int expireBatch(LocalDateTime now) {
+        List<ExpiredHoldRow> due = balanceHoldRepository.lockExpired(now, Limit.of(sweepBatchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> holdIds = new ArrayList<>(due.size());
+        // per account in id order, so concurrent sweeps take the account locks in the same order
+        Map<Long, BigDecimal> amountsByAccount = new TreeMap<>();
+        Map<Long, List<Long>> holdIdsByAccount = new HashMap<>();
+        for (ExpiredHoldRow row : due) {
+            holdIds.add(row.id());
+            amountsByAccount.merge(row.treasuryId(), row.amount(), BigDecimal::add);
+            holdIdsByAccount.computeIfAbsent(row.treasuryId(), id -> new ArrayList<>()).add(row.id());
+        }
+        balanceHoldRepository.resolveAll(holdIds, HoldStatus.EXPIRED, now);
+
+        amountsByAccount.forEach((accountId, amount) -> {
+            if (!giveBack(accountId, amount)) {
+                log.warn("Could not return {} of expired holds to account {}", amount, accountId);
+            }
+            applicationEventPublisher.publishEvent(
+                    new HoldChangedEvent(holdIdsByAccount.get(accountId), accountId, amount.negate()));
+        });
+        return due.size();
+    }
+
+    private BalanceHoldEntity resolve(Long holdId, HoldStatus status) {
+        if (balanceHoldRepository.resolveIfActive(holdId, status, LocalDateTime.now()) == 0) {
+            BalanceHoldEntity hold = balanceHoldRepository.findById(holdId)
+                    .orElseThrow(() -> new IllegalArgumentException("Hold not found with id: " + holdId));
+            throw new IllegalArgumentException("Hold " + holdId + " is already " + hold.getStatus());
+        }
+        return balanceHoldRepository.findById(holdId)
+                .orElseThrow(() -> new IllegalArgumentException("Hold not found with id: " + holdId));
+    }
+
+    private boolean giveBack(Long accountId, BigDecimal amount) {
+        return treasuryRepository.releaseHoldIfHeld(accountId, amount) == 1
+                || balanceSlotService.release(accountId, amount);
+    }
+}
@@ -0,0 +1,396 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.events.TreasuryAccountChangedEvent;
+import com.treasury.kpstreasury.models.dto.ShardedAccountRow;
+import com.treasury.kpstreasury.models.dto.SlotBalanceRow;
+import com.treasury.kpstreasury.models.dto.SlotTotalsRow;
+import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.entity.TreasuryBalanceSlotEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryBalanceSlotRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sub-balance sharding for hot accounts.
+ * A sharded account keeps its balance in K rows of treasury_balance_slots instead of its own row, so
+ * concurrent transfers on it update different rows: a credit goes to a random slot and a debit to
+ * the first slot, probing from a random one, that can cover it. Only when no single slot can, all
+ * slots are locked and the amount is taken from several of them. Reads sum the slots.
+ *
+ * A scheduled job spreads the balance evenly over the slots again, so single-slot debits keep
+ * succeeding, and rolls the total up into the treasurys row; aggregate reports over treasurys lag
+ * by at most one rebalance interval. The conditional updates on treasurys never apply to a sharded
+ * account, so an instance with a stale view of which accounts are sharded cannot write there.
+ */
+@Service
+@Slf4j
+public class BalanceSlotService {
+
+    private final TreasuryRepository treasuryRepository;
+    private final TreasuryBalanceSlotRepository slotRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxSlots;
+    private final Map<Long, Integer> slotCounts = new ConcurrentHashMap<>();
+
+    public BalanceSlotService(TreasuryRepository treasuryRepository,
+                              TreasuryBalanceSlotRepository slotRepository,
+                              PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher applicationEventPublisher,
+                              @Value("${treasury.balance-slots.max-slots:64}") int maxSlots) {
+        this.treasuryRepository = treasuryRepository;
+        this.slotRepository = slotRepository;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxSlots = maxSlots;
+    }
+
+    /**
+     * Whether the account is known to be sharded. The answer may be stale for up to one rebalance
+     * interval when another instance changed it; callers fall back to the other representation when
+     * an update does not apply.
+     */
+    public boolean isSharded(Long accountId) {
+        return slotCounts.containsKey(accountId);
+    }
+
+    /**
+     * Splits the account balance across the given number of slots, or folds the slots back into the
+     * account row when slots is 0 or 1.
+     */
+    public TreasuryEntity setSlotCount(Long accountId, int slots) {
+        if (slots < 0 || slots > maxSlots) {
+            throw new IllegalArgumentException("Balance slots must be between 0 and " + maxSlots);
+        }
+        int target = slots == 1 ? 0 : slots;
+
+        TreasuryEntity account = transactionTemplate.execute(status -> reshard(accountId, target));
+        if (target > 0) {
+            slotCounts.put(accountId, target);
+        } else {
+            slotCounts.remove(accountId);
+        }
+        return account;
+    }
+
+    /**
+     * Credits a random slot of the account, in the caller's transaction.
+     * Returns false when the account has no slots or is not active.
+     */
+    public boolean credit(Long accountId, BigDecimal amount) {
+        int slots = slotCount(accountId);
+        if (slots == 0) {
+            return false;
+        }
+        if (slotRepository.creditIfActive(accountId, ThreadLocalRandom.current().nextInt(slots), amount) == 1) {
+            return true;
+        }
+        slotCounts.remove(accountId);
+        return false;
+    }
+
+    /**
+     * Debits the account, in the caller's transaction.
+     * Returns false when the account has no slots, is not active or cannot cover the amount.
+     */
+    public boolean debit(Long accountId, BigDecimal amount) {
+        int slots = slotCount(accountId);
+        if (slots == 0) {
+            return false;
+        }
+        int start = ThreadLocalRandom.current().nextInt(slots);
+        for (int i = 0; i < slots; i++) {
+            if (slotRepository.debitIfAvailable(accountId, (start + i) % slots, amount) == 1) {
+                return true;
+            }
+        }
+        return takeAcrossSlots(accountId, amount, true, slot -> slot.available, (slot, take) -> {
+            slot.balance -= take;
+            slot.available -= take;
+        });
+    }
+
+    public boolean hold(Long accountId, BigDecimal amount) {
+        int slots = slotCount(accountId);
+        if (slots == 0) {
+            return false;
+        }
+        int start = ThreadLocalRandom.current().nextInt(slots);
+        for (int i = 0; i < slots; i++) {
+            if (slotRepository.holdIfAvailable(accountId, (start + i) % slots, amount) == 1) {
+                return true;
+            }
+        }
+        return takeAcrossSlots(accountId, amount, true, slot -> slot.available,
+                (slot, take) -> slot.available -= take);
+    }
+
+    public boolean release(Long accountId, BigDecimal amount) {
+        int slots = slotCount(accountId);
+        if (slots == 0) {
+            return false;
+        }
+        int start = ThreadLocalRandom.current().nextInt(slots);
+        for (int i = 0; i < slots; i++) {
+            if (slotRepository.releaseHoldIfHeld(accountId, (start + i) % slots, amount) == 1) {
+                return true;
+            }
+        }
+        return takeAcrossSlots(accountId, amount, false, slot -> slot.balance - slot.available,
+                (slot, take) -> slot.available += take);
+    }
+
+    /**
+     * Debits funds that are on hold, leaving the available balance as it is.
+     */
+    public boolean capture(Long accountId, BigDecimal amount) {
+        int slots = slotCount(accountId);
+        if (slots == 0) {
+            return false;
+        }
+        int start = ThreadLocalRandom.current().nextInt(slots);
+        for (int i = 0; i < slots; i++) {
+            if (slotRepository.captureHoldIfHeld(accountId, (start + i) % slots, amount) == 1) {
+                return true;
+            }
+        }
+        return takeAcrossSlots(accountId, amount, false, slot -> slot.balance - slot.available,
+                (slot, take) -> slot.balance -= take);
+    }
+
+    /**
+     * Locks every slot of the account and returns their totals, or null when the account has no slots.
+     * The locks are held until the caller's transaction ends, so the totals stay exact for
+     * {@link #redistribute}.
+     */
+    public Totals lockTotals(Long accountId) {
+        List<SlotBalance> slots = lockSlots(accountId);
+        if (slots.isEmpty()) {
+            return null;
+        }
+        return new Totals(toDecimal(sum(slots, slot -> slot.balance)), toDecimal(sum(slots, slot -> slot.available)));
+    }
+
+    /**
+     * Replaces the slot balances with an even split of the given totals, in the caller's transaction.
+     */
+    public void redistribute(Long accountId, BigDecimal balance, BigDecimal availableBalance) {
+        distribute(accountId, lockSlots(accountId), toMinor(balance), toMinor(availableBalance));
+    }
+
+    public BigDecimal balance(Long accountId) {
+        SlotTotalsRow totals = slotRepository.sumBalances(accountId);
+        return totals.balance() != null ? totals.balance() : BigDecimal.ZERO;
+    }
+
+    public BigDecimal availableBalance(Long accountId) {
+        SlotTotalsRow totals = slotRepository.sumBalances(accountId);
+        return totals.availableBalance() != null ? totals.availableBalance() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Replaces the rolled-up balances of a sharded account's DTO with the current slot totals.
+     */
+    public TreasuryDto withLiveBalances(TreasuryDto dto) {
+        SlotTotalsRow totals = slotRepository.sumBalances(dto.getId());
+        if (totals.balance() != null) {
+            dto.setBalance(totals.balance());
+            dto.setAvailableBalance(totals.availableBalance());
+        }
+        return dto;
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.balance-slots.rebalance-interval-ms:1000}")
+    public void rebalanceAll() {
+        Map<Long, Integer> sharded = new HashMap<>();
+        for (ShardedAccountRow row : treasuryRepository.findShardedAccounts()) {
+            sharded.put(row.accountId(), row.balanceSlots());
+        }
+        slotCounts.keySet().retainAll(sharded.keySet());
+        slotCounts.putAll(sharded);
+
+        for (Long accountId : sharded.keySet()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebalance(accountId));
+            } catch (RuntimeException e) {
+                log.warn("Rebalancing balance slots of account {} failed: {}", accountId, e.getMessage());
+            }
+        }
+    }
+
+    // takes the account row lock before the slot locks, in the same order as reshard, as it writes both
+    void rebalance(Long accountId) {
+        if (treasuryRepository.lockInIdOrder(List.of(accountId)).isEmpty()) {
+            return;
+        }
+        List<SlotBalance> slots = lockSlots(accountId);
+        if (slots.isEmpty()) {
+            return;
+        }
+        long balance = sum(slots, slot -> slot.balance);
+        long available = sum(slots, slot -> slot.available);
+        distribute(accountId, slots, balance, available);
+        if (treasuryRepository.rollUpSlotBalances(accountId, toDecimal(balance), toDecimal(available)) == 1) {
+            applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(accountId));
+        }
+    }
+
+    private TreasuryEntity reshard(Long accountId, int slots) {
+        if (treasuryRepository.lockInIdOrder(List.of(accountId)).isEmpty()) {
+            throw new IllegalArgumentException("Treasury account not found with id: " + accountId);
+        }
+        TreasuryEntity account = treasuryRepository.findById(accountId)
+                .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + accountId));
+
+        long balance = toMinor(account.getBalance());
+        long available = toMinor(account.getAvailableBalance());
+        if (account.getBalanceSlots() > 0) {
+            List<SlotBalance> current = lockSlots(accountId);
+            balance = sum(current, slot -> slot.balance);
+            available = sum(current, slot -> slot.available);
+            slotRepository.deleteByTreasuryId(accountId);
+        }
+
+        List<TreasuryBalanceSlotEntity> created = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            created.add(TreasuryBalanceSlotEntity.builder()
+                    .treasuryId(accountId)
+                    .slotIndex(i)
+                    .balance(toDecimal(share(balance, slots, i)))
+                    .availableBalance(toDecimal(share(available, slots, i)))
+                    .build());
+        }
+        slotRepository.saveAll(created);
+
+        account.setBalanceSlots(slots);
+        account.setBalance(toDecimal(balance));
+        account.setAvailableBalance(toDecimal(available));
+        return treasuryRepository.save(account);
+    }
+
+    /**
+     * Takes the amount from as many slots as needed, with all slots locked. Returns false, changing
+     * nothing, when their combined capacity is too small or the account is not active.
+     */
+    private boolean takeAcrossSlots(Long accountId, BigDecimal amount, boolean requireActive,
+                                    ToLongFunction<SlotBalance> capacity, SlotChange change) {
+        List<SlotBalance> slots = lockSlots(accountId);
+        if (slots.isEmpty()) {
+            slotCounts.remove(accountId);
+            return false;
+        }
+        long remaining = toMinor(amount);
+        if (sum(slots, capacity) < remaining
+                || requireActive && !treasuryRepository.existsByIdAndStatus(accountId, AccountStatus.ACTIVE)) {
+            return false;
+        }
+
+        for (SlotBalance slot : slots) {
+            long take = Math.min(capacity.applyAsLong(slot), remaining);
+            if (take <= 0) {
+                continue;
+            }
+            change.apply(slot, take);
+            slotRepository.setBalances(accountId, slot.index, toDecimal(slot.balance), toDecimal(slot.available));
+            remaining -= take;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private void distribute(Long accountId, List<SlotBalance> slots, long balance, long available) {
+        for (int i = 0; i < slots.size(); i++) {
+            SlotBalance slot = slots.get(i);
+            long targetBalance = share(balance, slots.size(), i);
+            long targetAvailable = share(available, slots.size(), i);
+            if (slot.balance != targetBalance || slot.available != targetAvailable) {
+                slotRepository.setBalances(accountId, slot.index, toDecimal(targetBalance), toDecimal(targetAvailable));
+            }
+        }
+    }
+
+    private int slotCount(Long accountId) {
+        Integer cached = slotCounts.get(accountId);
+        if (cached != null) {
+            return cached;
+        }
+        int slots = treasuryRepository.findBalanceSlotsById(accountId).orElse(0);
+        if (slots > 0) {
+            slotCounts.put(accountId, slots);
+        }
+        return slots;
+    }
+
+    private List<SlotBalance> lockSlots(Long accountId) {
+        List<SlotBalanceRow> rows = slotRepository.lockSlots(accountId);
+        List<SlotBalance> slots = new ArrayList<>(rows.size());
+        for (SlotBalanceRow row : rows) {
+            slots.add(new SlotBalance(row.slotIndex(), toMinor(row.balance()), toMinor(row.availableBalance())));
+        }
+        return slots;
+    }
+
+    // even split in minor units; the first (total mod slots) slots get one unit more
+    private static long share(long total, int slots, int index) {
+        return Math.floorDiv(total, slots) + (index < Math.floorMod(total, slots) ? 1 : 0);
+    }
+
+    private static long sum(List<SlotBalance> slots, ToLongFunction<SlotBalance> value) {
+        long total = 0;
+        for (SlotBalance slot : slots) {
+            total = Math.addExact(total, value.applyAsLong(slot));
+        }
+        return total;
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return Money.rounded(amount, null).minorUnits();
+    }
+
+    private static BigDecimal toDecimal(long minorUnits) {
+        return Money.ofMinor(minorUnits, null).toBigDecimal();
+    }
+
+    public record Totals(BigDecimal balance, BigDecimal availableBalance) {
+    }
+
+    @FunctionalInterface
+    private interface SlotChange {
+        void apply(SlotBalance slot, long take);
+    }
+
+    private static final class SlotBalance {
+
+        private final int index;
+        private long balance;
+        private long available;
+
+        private SlotBalance(int index, long balance, long available) {
+            this.index = index;
+            this.balance = balance;
+            this.available = available;
+        }
+    }
+}
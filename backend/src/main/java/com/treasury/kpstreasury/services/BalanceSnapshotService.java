@@ -0,0 +1,145 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.dto.AccountAmountRow;
+import com.treasury.kpstreasury.models.dto.AccountBalanceDto;
+import com.treasury.kpstreasury.models.entity.BalanceSnapshotEntity;
+import com.treasury.kpstreasury.models.entity.BalanceSnapshotRunEntity;
+import com.treasury.kpstreasury.repositories.BalanceSnapshotRepository;
+import com.treasury.kpstreasury.repositories.BalanceSnapshotRunRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Point-in-time balances.
+ * A scheduled run snapshots the journal balance of every account that had postings since the
+ * previous run. A run covers the entries up to the ledger watermark, which had all committed when
+ * it was taken, and the next run starts right above it, so no entry falls between two runs however
+ * late it commits. The balance of an account as of any instant is its latest snapshot before that
+ * instant plus the entries above the snapshot's watermark posted up to the instant, which never
+ * spans much more than one snapshot interval for accounts that moved, whatever the length of the
+ * history.
+ */
+@Service
+@Transactional
+@Slf4j
+public class BalanceSnapshotService {
+
+    private static final LocalDateTime JOURNAL_START = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final BalanceSnapshotRunRepository balanceSnapshotRunRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerWatermarkService ledgerWatermarkService;
+    private final TreasuryRepository treasuryRepository;
+
+    public BalanceSnapshotService(BalanceSnapshotRepository balanceSnapshotRepository,
+                                  BalanceSnapshotRunRepository balanceSnapshotRunRepository,
+                                  LedgerEntryRepository ledgerEntryRepository,
+                                  LedgerWatermarkService ledgerWatermarkService,
+                                  TreasuryRepository treasuryRepository) {
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.balanceSnapshotRunRepository = balanceSnapshotRunRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerWatermarkService = ledgerWatermarkService;
+        this.treasuryRepository = treasuryRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.snapshots.interval-ms:3600000}",
+               initialDelayString = "${treasury.snapshots.interval-ms:3600000}")
+    public void takeSnapshots() {
+        takeSnapshot(LocalDateTime.now());
+    }
+
+    /**
+     * Snapshots every account with postings between the previous run and the ledger watermark, and
+     * returns how many snapshots were written. The run is dated at the given instant, which must not
+     * be earlier than the postedAt of the entries it folds.
+     */
+    int takeSnapshot(LocalDateTime at) {
+        // timestamp columns keep microseconds; a finer instant would not read back equal
+        LocalDateTime snapshotAt = at.truncatedTo(ChronoUnit.MICROS);
+        long through = ledgerWatermarkService.foldableThrough();
+        Optional<BalanceSnapshotRunEntity> previousRun = balanceSnapshotRunRepository.findFirstByOrderBySnapshotAtDesc();
+        LocalDateTime previous = previousRun.map(BalanceSnapshotRunEntity::getSnapshotAt).orElse(JOURNAL_START);
+        long previousThrough = previousRun.map(BalanceSnapshotRunEntity::getThroughEntryId).orElse(0L);
+        if (!snapshotAt.isAfter(previous) || through <= previousThrough) {
+            return 0;
+        }
+
+        Map<Long, BigDecimal> balances = latestBalances(previous);
+        List<BalanceSnapshotEntity> snapshots = new ArrayList<>();
+        for (AccountAmountRow row : ledgerEntryRepository.sumPostingsByAccountBetween(previousThrough, through)) {
+            snapshots.add(BalanceSnapshotEntity.builder()
+                    .accountId(row.accountId())
+                    .snapshotAt(snapshotAt)
+                    .balance(balances.getOrDefault(row.accountId(), BigDecimal.ZERO).add(row.amount()))
+                    .build());
+        }
+        balanceSnapshotRepository.saveAll(snapshots);
+        balanceSnapshotRunRepository.save(BalanceSnapshotRunEntity.builder()
+                .snapshotAt(snapshotAt)
+                .previousSnapshotAt(previous)
+                .throughEntryId(through)
+                .accountCount(snapshots.size())
+                .build());
+
+        log.info("Snapshotted balances of {} accounts as of {} through entry {}", snapshots.size(), snapshotAt, through);
+        return snapshots.size();
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAsOf(Long accountId, LocalDateTime asOf) {
+        if (!treasuryRepository.existsById(accountId)) {
+            throw new IllegalArgumentException("Treasury account not found with id: " + accountId);
+        }
+        Optional<BalanceSnapshotEntity> snapshot = balanceSnapshotRepository
+                .findFirstByAccountIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(accountId, asOf);
+        BigDecimal base = snapshot.map(BalanceSnapshotEntity::getBalance).orElse(BigDecimal.ZERO);
+        long afterId = snapshot.flatMap(found -> balanceSnapshotRunRepository.findById(found.getSnapshotAt()))
+                .map(BalanceSnapshotRunEntity::getThroughEntryId)
+                .orElse(0L);
+        return base.add(ledgerEntryRepository.sumPostingsAfterUntil(accountId, afterId, asOf));
+    }
+
+    /**
+     * Balances of all accounts with journal history as of the given instant: the balances at the
+     * latest run before it plus one aggregate over the entries above that run's watermark.
+     */
+    @Transactional(readOnly = true)
+    public List<AccountBalanceDto> getBalancesAsOf(LocalDateTime asOf) {
+        Optional<BalanceSnapshotRunEntity> run = balanceSnapshotRunRepository
+                .findFirstBySnapshotAtLessThanEqualOrderBySnapshotAtDesc(asOf);
+        LocalDateTime snapshotAt = run.map(BalanceSnapshotRunEntity::getSnapshotAt).orElse(JOURNAL_START);
+        long afterId = run.map(BalanceSnapshotRunEntity::getThroughEntryId).orElse(0L);
+
+        Map<Long, BigDecimal> balances = latestBalances(snapshotAt);
+        for (AccountAmountRow row : ledgerEntryRepository.sumPostingsByAccountAfterUntil(afterId, asOf)) {
+            balances.merge(row.accountId(), row.amount(), BigDecimal::add);
+        }
+
+        List<AccountBalanceDto> result = new ArrayList<>(balances.size());
+        balances.forEach((accountId, balance) -> result.add(new AccountBalanceDto(accountId, asOf, balance)));
+        return result;
+    }
+
+    private Map<Long, BigDecimal> latestBalances(LocalDateTime asOf) {
+        Map<Long, BigDecimal> balances = new TreeMap<>();
+        for (AccountAmountRow row : balanceSnapshotRepository.findLatestBalances(asOf)) {
+            balances.put(row.accountId(), row.amount());
+        }
+        return balances;
+    }
+}
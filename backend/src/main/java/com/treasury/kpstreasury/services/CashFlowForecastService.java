@@ -0,0 +1,396 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.CollateralStatus;
+import com.treasury.kpstreasury.enums.FlowRecurrence;
+import com.treasury.kpstreasury.events.CollateralChangedEvent;
+import com.treasury.kpstreasury.events.CollateralsStatusChangedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountChangedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountsImportedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountsStatusChangedEvent;
+import com.treasury.kpstreasury.models.dto.CashFlowForecastDto;
+import com.treasury.kpstreasury.models.dto.CurrencyAmountRow;
+import com.treasury.kpstreasury.models.dto.ForecastBucketDto;
+import com.treasury.kpstreasury.models.dto.ScheduledFlowDto;
+import com.treasury.kpstreasury.models.dto.ScheduledFlowRow;
+import com.treasury.kpstreasury.models.entity.CollateralEntity;
+import com.treasury.kpstreasury.models.entity.ScheduledFlowEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.CollateralRepository;
+import com.treasury.kpstreasury.repositories.ScheduledFlowRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.Money;
+import com.treasury.kpstreasury.utils.ScheduledFlowMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Daily cash-flow forecasts over a fixed horizon, per account and per currency.
+ * Scheduled flows (one-off and recurring) are expanded into primitive arrays of inflows and
+ * outflows indexed by day; the currency forecasts also take the maturities of the collateral still
+ * held. The portfolio projection splits the flows of all accounts across the fork-join pool and
+ * merges the per-currency arrays of the subtasks.
+ *
+ * Projections are cached until a scheduled flow, a collateral or an account changes, or the day
+ * rolls over. Balances are not part of the cache: the opening balance is read when the forecast is
+ * served, so postings never invalidate it.
+ */
+@Service
+@Slf4j
+public class CashFlowForecastService {
+
+    private final ScheduledFlowRepository scheduledFlowRepository;
+    private final TreasuryRepository treasuryRepository;
+    private final CollateralRepository collateralRepository;
+    private final BalanceSlotService balanceSlotService;
+    private final ScheduledFlowMapper scheduledFlowMapper;
+    private final TransactionTemplate readTransaction;
+    private final int horizonDays;
+    private final int parallelThreshold;
+    private final int maxCachedAccounts;
+
+    // bumped by every invalidation; a projection computed under an older generation is not served
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Cached<Map<String, Projection>> portfolio;
+    private final Map<Long, Cached<Projection>> accounts = new ConcurrentHashMap<>();
+
+    public CashFlowForecastService(ScheduledFlowRepository scheduledFlowRepository,
+                                   TreasuryRepository treasuryRepository,
+                                   CollateralRepository collateralRepository,
+                                   BalanceSlotService balanceSlotService,
+                                   ScheduledFlowMapper scheduledFlowMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${treasury.forecast.horizon-days:90}") int horizonDays,
+                                   @Value("${treasury.forecast.parallel-threshold:2048}") int parallelThreshold,
+                                   @Value("${treasury.forecast.max-cached-accounts:10000}") int maxCachedAccounts) {
+        this.scheduledFlowRepository = scheduledFlowRepository;
+        this.treasuryRepository = treasuryRepository;
+        this.collateralRepository = collateralRepository;
+        this.balanceSlotService = balanceSlotService;
+        this.scheduledFlowMapper = scheduledFlowMapper;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.horizonDays = Math.max(1, horizonDays);
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+        this.maxCachedAccounts = maxCachedAccounts;
+    }
+
+    @Transactional
+    public ScheduledFlowDto createScheduledFlow(ScheduledFlowDto flowDto) {
+        if (flowDto.getAmount() == null || flowDto.getAmount().signum() == 0) {
+            throw new IllegalArgumentException("Amount must not be zero");
+        }
+        if (flowDto.getEndDate() != null && flowDto.getEndDate().isBefore(flowDto.getStartDate())) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        if (!treasuryRepository.existsById(flowDto.getAccountId())) {
+            throw new IllegalArgumentException("Treasury account not found with id: " + flowDto.getAccountId());
+        }
+
+        ScheduledFlowEntity savedFlow = scheduledFlowRepository.save(scheduledFlowMapper.toEntity(flowDto));
+        invalidateAfterCommit();
+        return scheduledFlowMapper.toDto(savedFlow);
+    }
+
+    @Transactional
+    public void deleteScheduledFlow(Long id) {
+        if (!scheduledFlowRepository.existsById(id)) {
+            throw new IllegalArgumentException("Scheduled flow not found with id: " + id);
+        }
+        scheduledFlowRepository.deleteById(id);
+        invalidateAfterCommit();
+    }
+
+    @Transactional(readOnly = true)
+    public List<ScheduledFlowDto> getScheduledFlows(Long accountId) {
+        return scheduledFlowRepository.findByAccountIdOrderByStartDate(accountId)
+                .stream()
+                .map(scheduledFlowMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public CashFlowForecastDto getAccountForecast(Long accountId) {
+        TreasuryEntity account = treasuryRepository.findById(accountId)
+                .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + accountId));
+        BigDecimal balance = account.getBalanceSlots() > 0 ? balanceSlotService.balance(accountId) : account.getBalance();
+
+        LocalDate today = LocalDate.now();
+        long current = generation.get();
+        Cached<Projection> cached = accounts.get(accountId);
+        Projection projection;
+        if (cached != null && cached.isValid(current, today)) {
+            projection = cached.value();
+        } else {
+            projection = new Projection(horizonDays);
+            for (ScheduledFlowEntity flow : scheduledFlowRepository
+                    .findInWindowByAccountId(accountId, today, today.plusDays(horizonDays - 1))) {
+                project(projection, today, minorUnits(flow.getAmount()), flow.getStartDate(),
+                        flow.getRecurrence(), flow.getEndDate());
+            }
+            if (accounts.size() < maxCachedAccounts) {
+                accounts.put(accountId, new Cached<>(current, today, projection));
+            }
+        }
+        return toDto(accountId, account.getCurrency(), today, balance, projection);
+    }
+
+    /**
+     * Forecasts of every currency, or of the given one, over all accounts plus collateral maturities.
+     */
+    public List<CashFlowForecastDto> getCurrencyForecasts(String currency) {
+        LocalDate today = LocalDate.now();
+        long current = generation.get();
+        Cached<Map<String, Projection>> cached = portfolio;
+        Map<String, BigDecimal> balances = new HashMap<>();
+        Map<String, Projection> projections;
+        if (cached != null && cached.isValid(current, today)) {
+            projections = cached.value();
+            readTransaction.executeWithoutResult(status -> loadBalances(balances));
+        } else {
+            projections = readTransaction.execute(status -> {
+                loadBalances(balances);
+                return projectPortfolio(today);
+            });
+            portfolio = new Cached<>(current, today, projections);
+        }
+
+        Set<String> currencies = new TreeSet<>(balances.keySet());
+        currencies.addAll(projections.keySet());
+        List<CashFlowForecastDto> result = new ArrayList<>();
+        for (String code : currencies) {
+            if (currency == null || currency.equals(code)) {
+                Projection projection = projections.getOrDefault(code, new Projection(horizonDays));
+                result.add(toDto(null, code, today, balances.getOrDefault(code, BigDecimal.ZERO), projection));
+            }
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTreasuryAccountChanged(TreasuryAccountChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener
+    public void onTreasuryAccountsImported(TreasuryAccountsImportedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener
+    public void onTreasuryAccountsStatusChanged(TreasuryAccountsStatusChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCollateralChanged(CollateralChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener
+    public void onCollateralsStatusChanged(CollateralsStatusChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        accounts.clear();
+        portfolio = null;
+    }
+
+    // invalidating before the commit would let a concurrent read cache the old flows again
+    private void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate();
+            }
+        });
+    }
+
+    private void loadBalances(Map<String, BigDecimal> balances) {
+        for (CurrencyAmountRow row : treasuryRepository.sumBalanceByCurrency()) {
+            balances.put(row.currency(), row.amount());
+        }
+    }
+
+    private Map<String, Projection> projectPortfolio(LocalDate from) {
+        LocalDate until = from.plusDays(horizonDays - 1);
+        List<ScheduledFlowRow> flows = scheduledFlowRepository.findInWindowWithCurrency(from, until);
+        Map<String, Projection> projections = ForkJoinPool.commonPool()
+                .invoke(new ProjectionTask(flows, 0, flows.size(), from));
+
+        for (CollateralEntity collateral : collateralRepository.findByMaturityDateBetween(from, until)) {
+            if (collateral.getStatus() == CollateralStatus.RETURNED || collateral.getStatus() == CollateralStatus.MATURED) {
+                continue;
+            }
+            projections.computeIfAbsent(collateral.getCurrency(), code -> new Projection(horizonDays))
+                    .add(dayIndex(from, collateral.getMaturityDate()), minorUnits(collateral.getMarketValue()));
+        }
+        log.debug("Projected {} scheduled flows over {} days", flows.size(), horizonDays);
+        return projections;
+    }
+
+    /**
+     * Adds every occurrence of a flow that falls inside the horizon starting at from.
+     */
+    private void project(Projection projection, LocalDate from, long amount, LocalDate startDate,
+                         FlowRecurrence recurrence, LocalDate endDate) {
+        LocalDate until = from.plusDays(horizonDays - 1);
+        if (endDate != null && endDate.isBefore(until)) {
+            until = endDate;
+        }
+        switch (recurrence) {
+            case NONE -> {
+                if (!startDate.isBefore(from) && !startDate.isAfter(until)) {
+                    projection.add(dayIndex(from, startDate), amount);
+                }
+            }
+            case DAILY, WEEKLY -> {
+                int step = recurrence == FlowRecurrence.DAILY ? 1 : 7;
+                long first = dayIndex(from, startDate);
+                if (first < 0) {
+                    // first occurrence on or after the start of the horizon
+                    first += (-first + step - 1) / step * step;
+                }
+                for (long day = first; day <= dayIndex(from, until); day += step) {
+                    projection.add((int) day, amount);
+                }
+            }
+            case MONTHLY -> {
+                // plusMonths from the start date keeps the day of month, clamped to short months
+                long months = Math.max(0, ChronoUnit.MONTHS.between(startDate, from) - 1);
+                for (LocalDate date = startDate.plusMonths(months); !date.isAfter(until);
+                     date = startDate.plusMonths(++months)) {
+                    if (!date.isBefore(from)) {
+                        projection.add(dayIndex(from, date), amount);
+                    }
+                }
+            }
+        }
+    }
+
+    private CashFlowForecastDto toDto(Long accountId, String currency, LocalDate from,
+                                      BigDecimal openingBalance, Projection projection) {
+        long balance = minorUnits(openingBalance);
+        List<ForecastBucketDto> buckets = new ArrayList<>(horizonDays);
+        for (int day = 0; day < horizonDays; day++) {
+            balance = Math.addExact(balance, projection.inflows[day] - projection.outflows[day]);
+            buckets.add(new ForecastBucketDto(from.plusDays(day), amount(projection.inflows[day]),
+                    amount(projection.outflows[day]), amount(balance)));
+        }
+        return new CashFlowForecastDto(accountId, currency, from, openingBalance, buckets);
+    }
+
+    private static int dayIndex(LocalDate from, LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(from, date);
+    }
+
+    private static long minorUnits(BigDecimal amount) {
+        return Money.rounded(amount, null).minorUnits();
+    }
+
+    private static BigDecimal amount(long minorUnits) {
+        return Money.ofMinor(minorUnits, null).toBigDecimal();
+    }
+
+    private record Cached<T>(long generation, LocalDate fromDate, T value) {
+
+        boolean isValid(long currentGeneration, LocalDate today) {
+            return generation == currentGeneration && fromDate.equals(today);
+        }
+    }
+
+    /**
+     * Inflows and outflows in minor units, one slot per day of the horizon.
+     */
+    private static final class Projection {
+        private final long[] inflows;
+        private final long[] outflows;
+
+        private Projection(int days) {
+            this.inflows = new long[days];
+            this.outflows = new long[days];
+        }
+
+        private void add(int day, long amount) {
+            if (amount > 0) {
+                inflows[day] = Math.addExact(inflows[day], amount);
+            } else {
+                outflows[day] = Math.subtractExact(outflows[day], amount);
+            }
+        }
+
+        private void merge(Projection other) {
+            for (int day = 0; day < inflows.length; day++) {
+                inflows[day] = Math.addExact(inflows[day], other.inflows[day]);
+                outflows[day] = Math.addExact(outflows[day], other.outflows[day]);
+            }
+        }
+    }
+
+    /**
+     * Projects a range of the flow rows into per-currency arrays, splitting the range in halves until it is below the threshold.
+     */
+    private final class ProjectionTask extends RecursiveTask<Map<String, Projection>> {
+        private final List<ScheduledFlowRow> flows;
+        private final int fromIndex;
+        private final int toIndex;
+        private final LocalDate from;
+
+        private ProjectionTask(List<ScheduledFlowRow> flows, int fromIndex, int toIndex, LocalDate from) {
+            this.flows = flows;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.from = from;
+        }
+
+        @Override
+        protected Map<String, Projection> compute() {
+            if (toIndex - fromIndex <= parallelThreshold) {
+                Map<String, Projection> projections = new HashMap<>();
+                for (int i = fromIndex; i < toIndex; i++) {
+                    ScheduledFlowRow flow = flows.get(i);
+                    Projection projection = projections.computeIfAbsent(flow.currency(), code -> new Projection(horizonDays));
+                    project(projection, from, minorUnits(flow.amount()), flow.startDate(), flow.recurrence(), flow.endDate());
+                }
+                return projections;
+            }
+
+            int middle = (fromIndex + toIndex) >>> 1;
+            ProjectionTask left = new ProjectionTask(flows, fromIndex, middle, from);
+            left.fork();
+            Map<String, Projection> projections = new ProjectionTask(flows, middle, toIndex, from).compute();
+            left.join().forEach((code, projection) -> projections.merge(code, projection, (mine, theirs) -> {
+                mine.merge(theirs);
+                return mine;
+            }));
+            return projections;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.dto.CashPoolDto;
+import com.treasury.kpstreasury.models.entity.CashPoolEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.CashPoolRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.CashPoolMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * The cash pool definitions that CashPoolSweepService sweeps.
+ */
+@Service
+@Transactional
+public class CashPoolService {
+
+    private final CashPoolRepository cashPoolRepository;
+    private final TreasuryRepository treasuryRepository;
+    private final CashPoolMapper cashPoolMapper;
+    private final BigDecimal defaultMinimumSweep;
+
+    public CashPoolService(CashPoolRepository cashPoolRepository,
+                           TreasuryRepository treasuryRepository,
+                           CashPoolMapper cashPoolMapper,
+                           @Value("${treasury.cash-pool.default-minimum-sweep:0.01}") BigDecimal defaultMinimumSweep) {
+        this.cashPoolRepository = cashPoolRepository;
+        this.treasuryRepository = treasuryRepository;
+        this.cashPoolMapper = cashPoolMapper;
+        this.defaultMinimumSweep = defaultMinimumSweep;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CashPoolDto> getPools() {
+        return cashPoolRepository.findAll(Sort.by("id"))
+                .stream()
+                .map(cashPoolMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<CashPoolDto> getPool(Long id) {
+        return cashPoolRepository.findById(id).map(cashPoolMapper::toDto);
+    }
+
+    public CashPoolDto createPool(CashPoolDto poolDto) {
+        if (cashPoolRepository.existsByName(poolDto.getName())) {
+            throw new IllegalArgumentException("Cash pool name already exists: " + poolDto.getName());
+        }
+        CashPoolEntity pool = CashPoolEntity.builder()
+                .name(poolDto.getName())
+                .targetBalance(poolDto.getTargetBalance() != null ? poolDto.getTargetBalance() : BigDecimal.ZERO)
+                .minimumSweep(poolDto.getMinimumSweep() != null ? poolDto.getMinimumSweep() : defaultMinimumSweep)
+                .enabled(poolDto.getEnabled() == null || poolDto.getEnabled())
+                .build();
+        assignHeader(pool, poolDto.getHeaderAccountId());
+        return cashPoolMapper.toDto(cashPoolRepository.save(pool));
+    }
+
+    public CashPoolDto updatePool(Long id, CashPoolDto poolDto) {
+        CashPoolEntity pool = cashPoolRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Cash pool not found with id: " + id));
+        if (!pool.getName().equals(poolDto.getName()) && cashPoolRepository.existsByName(poolDto.getName())) {
+            throw new IllegalArgumentException("Cash pool name already exists: " + poolDto.getName());
+        }
+        pool.setName(poolDto.getName());
+        if (poolDto.getTargetBalance() != null) {
+            pool.setTargetBalance(poolDto.getTargetBalance());
+        }
+        if (poolDto.getMinimumSweep() != null) {
+            pool.setMinimumSweep(poolDto.getMinimumSweep());
+        }
+        if (poolDto.getEnabled() != null) {
+            pool.setEnabled(poolDto.getEnabled());
+        }
+        if (!Objects.equals(pool.getHeaderAccountId(), poolDto.getHeaderAccountId())) {
+            assignHeader(pool, poolDto.getHeaderAccountId());
+        }
+        return cashPoolMapper.toDto(cashPoolRepository.save(pool));
+    }
+
+    public void deletePool(Long id) {
+        if (!cashPoolRepository.existsById(id)) {
+            throw new IllegalArgumentException("Cash pool not found with id: " + id);
+        }
+        cashPoolRepository.deleteById(id);
+    }
+
+    // the pool takes the currency and bank of its header, and there is one pool per currency and bank
+    private void assignHeader(CashPoolEntity pool, Long headerAccountId) {
+        TreasuryEntity header = treasuryRepository.findById(headerAccountId).orElseThrow(
+                () -> new IllegalArgumentException("Treasury account not found with id: " + headerAccountId));
+        if (header.getBalanceSlots() > 0) {
+            throw new IllegalArgumentException("A sharded account cannot be the header of a cash pool");
+        }
+        boolean samePool = header.getCurrency().equals(pool.getCurrency())
+                && header.getBankName().equals(pool.getBankName());
+        if (!samePool && cashPoolRepository.existsByCurrencyAndBankName(header.getCurrency(), header.getBankName())) {
+            throw new IllegalArgumentException("A cash pool already exists for " + header.getCurrency()
+                    + " at " + header.getBankName());
+        }
+        pool.setHeaderAccountId(headerAccountId);
+        pool.setCurrency(header.getCurrency());
+        pool.setBankName(header.getBankName());
+    }
+}
@@ -0,0 +1,452 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+import com.treasury.kpstreasury.events.CashPoolSweptEvent;
+import com.treasury.kpstreasury.models.dto.CashPoolSweepDto;
+import com.treasury.kpstreasury.models.dto.SweepPositionRow;
+import com.treasury.kpstreasury.models.dto.SweepReportDto;
+import com.treasury.kpstreasury.models.entity.CashPoolEntity;
+import com.treasury.kpstreasury.repositories.CashPoolRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cash pool sweeps: every participant of an enabled pool is brought to the pool's target balance,
+ * surpluses moving into the header account and deficits funded out of it.
+ * The legs of all pools are computed in memory from one scan of the active accounts of the pooled
+ * banks and netted per pool, so each participant is posted once and the header once with the
+ * difference. They are then applied in one transaction: the touched rows are locked in id order,
+ * balances move with JDBC batches of conditional updates and the journal entries (one journal per
+ * pool) go in with a batch insert, followed by one CashPoolSweptEvent instead of a LedgerPostedEvent
+ * per entry.
+ *
+ * The scan takes no locks, so it only picks the accounts to lock: once their rows are locked the
+ * legs are computed again from the balances read under the lock, and an account that a transfer
+ * moved in between is swept by what it holds now (or not at all when it is back on target). A sweep
+ * first locks the enabled pool rows, so sweeps started on several instances at once run one after
+ * the other and each one sees the balances the previous one left.
+ *
+ * Only available balance is swept, held funds stay where they are. Deficits are funded in account id
+ * order while the header, with the surpluses swept into it, can cover them; the rest are reported as
+ * unfunded. When the header cannot take its posting the pool is rolled back to a savepoint and the
+ * other pools still go through. Sharded accounts are not swept.
+ */
+@Service
+@Slf4j
+public class CashPoolSweepService {
+
+    // accounts locked per statement before the postings
+    private static final int LOCK_CHUNK = 1000;
+
+    private static final String POSTING_SQL = "UPDATE treasurys SET balance = balance + ?, "
+            + "available_balance = available_balance + ?, version = version + 1, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE id = ? AND status = 'ACTIVE' AND balance_slots = 0 AND available_balance + ? >= 0";
+    private static final String ENTRY_SQL = "INSERT INTO ledger_entries "
+            + "(id, journal_id, account_id, entry_type, amount, description, posted_at) "
+            + "VALUES (nextval('ledger_entry_seq'), ?, ?, ?, ?, ?, ?)";
+
+    private final CashPoolRepository cashPoolRepository;
+    private final TreasuryRepository treasuryRepository;
+    private final LedgerWatermarkService ledgerWatermarkService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final TransactionTemplate sweepTransaction;
+    private final TransactionTemplate readTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CashPoolSweepService(CashPoolRepository cashPoolRepository,
+                                TreasuryRepository treasuryRepository,
+                                LedgerWatermarkService ledgerWatermarkService,
+                                ApplicationEventPublisher applicationEventPublisher,
+                                PlatformTransactionManager transactionManager) {
+        this.cashPoolRepository = cashPoolRepository;
+        this.treasuryRepository = treasuryRepository;
+        this.ledgerWatermarkService = ledgerWatermarkService;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.sweepTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    @Scheduled(cron = "${treasury.cash-pool.nightly-cron:0 0 22 * * *}")
+    public void nightlySweep() {
+        sweep();
+    }
+
+    @Scheduled(cron = "${treasury.cash-pool.intraday-cron:-}")
+    public void intradaySweep() {
+        sweep();
+    }
+
+    /**
+     * Sweeps every enabled pool and returns what was posted.
+     */
+    public synchronized SweepReportDto sweep() {
+        long started = System.nanoTime();
+        SweepReportDto report = sweepTransaction.execute(status -> {
+            Plan plan = lock(plan(cashPoolRepository.lockEnabledPools()));
+            apply(plan);
+            List<CashPoolSweptEvent.Posting> postings = new ArrayList<>();
+            for (PoolSweep sweep : plan.pools()) {
+                sweep.collectPostings(postings);
+            }
+            if (!postings.isEmpty()) {
+                applicationEventPublisher.publishEvent(new CashPoolSweptEvent(postings));
+            }
+            return report(plan, true, started);
+        });
+        log.info("Swept {} cash pools with {} postings in {} ms", report.getPools().size(), report.getPostings(),
+                report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * The legs a sweep would post now, computed the same way without posting them.
+     */
+    public SweepReportDto preview() {
+        long started = System.nanoTime();
+        return readTransaction.execute(status -> report(plan(cashPoolRepository.findByEnabledTrueOrderById()),
+                false, started));
+    }
+
+    private Plan plan(List<CashPoolEntity> pools) {
+        List<PoolSweep> sweeps = new ArrayList<>();
+        Map<PoolKey, PoolSweep> byKey = new HashMap<>();
+        for (CashPoolEntity pool : pools) {
+            PoolSweep sweep = new PoolSweep(pool);
+            sweeps.add(sweep);
+            byKey.put(new PoolKey(pool.getCurrency(), pool.getBankName()), sweep);
+        }
+        if (sweeps.isEmpty()) {
+            return new Plan(sweeps, 0);
+        }
+
+        Set<String> bankNames = sweeps.stream().map(sweep -> sweep.pool.getBankName()).collect(Collectors.toSet());
+        int scanned = 0;
+        try (Stream<SweepPositionRow> rows = treasuryRepository.streamSweepPositions(bankNames)) {
+            Iterator<SweepPositionRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                SweepPositionRow row = iterator.next();
+                scanned++;
+                PoolSweep sweep = byKey.get(new PoolKey(row.currency(), row.bankName()));
+                if (sweep != null) {
+                    sweep.add(row);
+                }
+            }
+        }
+        for (PoolSweep sweep : sweeps) {
+            sweep.net();
+        }
+        return new Plan(sweeps, scanned);
+    }
+
+    // locks the accounts the scan found off target, with their headers, and plans those pools again
+    // from the balances the locked rows hold
+    private Plan lock(Plan scanned) {
+        List<Long> accountIds = new ArrayList<>();
+        List<PoolSweep> sweeps = new ArrayList<>(scanned.pools().size());
+        Map<PoolKey, PoolSweep> byKey = new HashMap<>();
+        for (PoolSweep sweep : scanned.pools()) {
+            if (sweep.legs.isEmpty()) {
+                sweeps.add(sweep);
+                continue;
+            }
+            sweep.legs.forEach(leg -> accountIds.add(leg.accountId()));
+            sweep.unfunded.forEach(leg -> accountIds.add(leg.accountId()));
+            accountIds.add(sweep.pool.getHeaderAccountId());
+            PoolSweep locked = new PoolSweep(sweep.pool);
+            sweeps.add(locked);
+            byKey.put(new PoolKey(sweep.pool.getCurrency(), sweep.pool.getBankName()), locked);
+        }
+        if (accountIds.isEmpty()) {
+            return scanned;
+        }
+
+        accountIds.sort(Comparator.naturalOrder());
+        for (int from = 0; from < accountIds.size(); from += LOCK_CHUNK) {
+            List<Long> chunk = accountIds.subList(from, Math.min(from + LOCK_CHUNK, accountIds.size()));
+            treasuryRepository.lockInIdOrder(chunk);
+            for (SweepPositionRow row : treasuryRepository.findSweepPositionsByIds(chunk)) {
+                PoolSweep sweep = byKey.get(new PoolKey(row.currency(), row.bankName()));
+                if (sweep != null) {
+                    sweep.add(row);
+                }
+            }
+        }
+        for (int i = 0; i < sweeps.size(); i++) {
+            PoolSweep sweep = sweeps.get(i);
+            if (sweep != scanned.pools().get(i)) {
+                sweep.net();
+                sweep.countedAs(scanned.pools().get(i));
+            }
+        }
+        return new Plan(sweeps, scanned.scannedAccounts());
+    }
+
+    private void apply(Plan plan) {
+        if (plan.pools().stream().allMatch(sweep -> sweep.legs.isEmpty())) {
+            return;
+        }
+
+        entityManager.flush();
+        ledgerWatermarkService.beforePosting();
+        Timestamp postedAt = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement posting = connection.prepareStatement(POSTING_SQL);
+                 PreparedStatement entry = connection.prepareStatement(ENTRY_SQL)) {
+                for (PoolSweep sweep : plan.pools()) {
+                    if (!sweep.legs.isEmpty()) {
+                        apply(connection, posting, entry, sweep, postedAt);
+                    }
+                }
+            }
+        });
+        // the rows changed underneath the persistence context
+        entityManager.clear();
+    }
+
+    private void apply(Connection connection, PreparedStatement posting, PreparedStatement entry,
+                       PoolSweep sweep, Timestamp postedAt) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        for (Leg leg : sweep.legs) {
+            bind(posting, leg.accountId(), leg.amount());
+            posting.addBatch();
+        }
+        int[] counts = posting.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 1) {
+                sweep.posted.add(sweep.legs.get(i));
+            } else {
+                sweep.rejectedLegs++;
+            }
+        }
+        if (sweep.posted.isEmpty()) {
+            connection.releaseSavepoint(savepoint);
+            return;
+        }
+
+        Money headerNet = sweep.headerNet(sweep.posted);
+        if (headerNet.signum() != 0) {
+            bind(posting, sweep.pool.getHeaderAccountId(), headerNet);
+            if (posting.executeUpdate() != 1) {
+                connection.rollback(savepoint);
+                sweep.abandon("Header account could not take the sweep");
+                return;
+            }
+        }
+
+        sweep.journalId = UUID.randomUUID().toString();
+        String description = "Cash pool sweep " + sweep.pool.getName();
+        for (Leg leg : sweep.posted) {
+            bind(entry, sweep.journalId, leg.accountId(), leg.amount(), description, postedAt);
+            entry.addBatch();
+        }
+        if (headerNet.signum() != 0) {
+            bind(entry, sweep.journalId, sweep.pool.getHeaderAccountId(), headerNet, description, postedAt);
+            entry.addBatch();
+        }
+        entry.executeBatch();
+        connection.releaseSavepoint(savepoint);
+    }
+
+    private static void bind(PreparedStatement posting, Long accountId, Money amount) throws SQLException {
+        posting.setBigDecimal(1, amount.toBigDecimal());
+        posting.setBigDecimal(2, amount.toBigDecimal());
+        posting.setLong(3, accountId);
+        posting.setBigDecimal(4, amount.toBigDecimal());
+    }
+
+    private static void bind(PreparedStatement entry, String journalId, Long accountId, Money amount,
+                             String description, Timestamp postedAt) throws SQLException {
+        entry.setString(1, journalId);
+        entry.setLong(2, accountId);
+        entry.setString(3, (amount.signum() > 0 ? LedgerEntryType.CREDIT : LedgerEntryType.DEBIT).name());
+        entry.setBigDecimal(4, amount.signum() > 0 ? amount.toBigDecimal() : amount.negate().toBigDecimal());
+        entry.setString(5, description);
+        entry.setTimestamp(6, postedAt);
+    }
+
+    private static SweepReportDto report(Plan plan, boolean applied, long started) {
+        List<CashPoolSweepDto> pools = new ArrayList<>(plan.pools().size());
+        int postings = 0;
+        for (PoolSweep sweep : plan.pools()) {
+            CashPoolSweepDto dto = sweep.toDto(applied);
+            postings += dto.getPostings();
+            pools.add(dto);
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        return new SweepReportDto(applied, plan.scannedAccounts(), postings, elapsedMillis, pools);
+    }
+
+    private record PoolKey(String currency, String bankName) {
+    }
+
+    private record Plan(List<PoolSweep> pools, int scannedAccounts) {
+    }
+
+    // amount is signed from the participant's side: positive funds it, negative sweeps it
+    private record Leg(Long accountId, Money amount) {
+    }
+
+    private static final class PoolSweep {
+        private final CashPoolEntity pool;
+        private final Money target;
+        private final Money minimum;
+        private final List<Leg> legs = new ArrayList<>();
+        private final List<Leg> deficits = new ArrayList<>();
+        private final List<Leg> unfunded = new ArrayList<>();
+        private final List<Leg> posted = new ArrayList<>();
+        private SweepPositionRow header;
+        private int participants;
+        private int skippedAccounts;
+        private int unfundedDeficits;
+        private int rejectedLegs;
+        private String skippedReason;
+        private String journalId;
+
+        private PoolSweep(CashPoolEntity pool) {
+            this.pool = pool;
+            this.target = Money.of(pool.getTargetBalance(), pool.getCurrency());
+            this.minimum = Money.of(pool.getMinimumSweep(), pool.getCurrency());
+        }
+
+        private void add(SweepPositionRow row) {
+            if (row.id().equals(pool.getHeaderAccountId())) {
+                header = row;
+                return;
+            }
+            participants++;
+            if (row.balanceSlots() > 0) {
+                skippedAccounts++;
+                return;
+            }
+            Money amount = target.minus(Money.of(row.availableBalance(), pool.getCurrency()));
+            Money size = amount.signum() < 0 ? amount.negate() : amount;
+            if (amount.signum() == 0 || size.isLessThan(minimum)) {
+                return;
+            }
+            (amount.signum() < 0 ? legs : deficits).add(new Leg(row.id(), amount));
+        }
+
+        // the surpluses go in first, the deficits are funded from the header and what was swept into it
+        private void net() {
+            if (header == null) {
+                abandon("Header account is not an active account of the pool's currency and bank");
+                return;
+            }
+            if (header.balanceSlots() > 0) {
+                abandon("Header account is sharded");
+                return;
+            }
+            Money capacity = Money.of(header.availableBalance(), pool.getCurrency()).plus(headerNet(legs));
+            deficits.sort(Comparator.comparing(Leg::accountId));
+            for (Leg deficit : deficits) {
+                if (deficit.amount().compareTo(capacity) <= 0) {
+                    capacity = capacity.minus(deficit.amount());
+                    legs.add(deficit);
+                } else {
+                    unfunded.add(deficit);
+                    unfundedDeficits++;
+                }
+            }
+            deficits.clear();
+        }
+
+        // the participants are counted by the scan, a locked re-plan only sees the accounts with legs
+        private void countedAs(PoolSweep scanned) {
+            participants = scanned.participants;
+            skippedAccounts = scanned.skippedAccounts;
+        }
+
+        private void abandon(String reason) {
+            skippedReason = reason;
+            legs.clear();
+            deficits.clear();
+            unfunded.clear();
+            posted.clear();
+            journalId = null;
+        }
+
+        private Money headerNet(List<Leg> from) {
+            Money net = Money.zero(pool.getCurrency());
+            for (Leg leg : from) {
+                net = net.minus(leg.amount());
+            }
+            return net;
+        }
+
+        private void collectPostings(List<CashPoolSweptEvent.Posting> postings) {
+            if (posted.isEmpty()) {
+                return;
+            }
+            for (Leg leg : posted) {
+                postings.add(new CashPoolSweptEvent.Posting(journalId, leg.accountId(), leg.amount().toBigDecimal()));
+            }
+            Money headerNet = headerNet(posted);
+            if (headerNet.signum() != 0) {
+                postings.add(new CashPoolSweptEvent.Posting(journalId, pool.getHeaderAccountId(),
+                        headerNet.toBigDecimal()));
+            }
+        }
+
+        private CashPoolSweepDto toDto(boolean applied) {
+            List<Leg> moved = applied ? posted : legs;
+            Money sweptIn = Money.zero(pool.getCurrency());
+            Money fundedOut = Money.zero(pool.getCurrency());
+            for (Leg leg : moved) {
+                if (leg.amount().signum() < 0) {
+                    sweptIn = sweptIn.minus(leg.amount());
+                } else {
+                    fundedOut = fundedOut.plus(leg.amount());
+                }
+            }
+            Money headerNet = headerNet(moved);
+            int postings = moved.isEmpty() ? 0 : moved.size() + (headerNet.signum() != 0 ? 1 : 0);
+            return CashPoolSweepDto.builder()
+                    .poolId(pool.getId())
+                    .poolName(pool.getName())
+                    .headerAccountId(pool.getHeaderAccountId())
+                    .currency(pool.getCurrency())
+                    .bankName(pool.getBankName())
+                    .journalId(journalId)
+                    .participants(participants)
+                    .postings(postings)
+                    .sweptIn(sweptIn.toBigDecimal())
+                    .fundedOut(fundedOut.toBigDecimal())
+                    .headerNet(headerNet.toBigDecimal())
+                    .unfundedDeficits(unfundedDeficits)
+                    .rejectedLegs(rejectedLegs)
+                    .skippedAccounts(skippedAccounts)
+                    .skippedReason(skippedReason)
+                    .build();
+        }
+    }
+}
@@ -1,22 +1,36 @@
 package com.treasury.kpstreasury.services;
 
+import com.treasury.kpstreasury.enums.CollateralSortKey;
 import com.treasury.kpstreasury.enums.CollateralStatus;
 import com.treasury.kpstreasury.enums.CollateralType;
 import com.treasury.kpstreasury.enums.Rating;
+import com.treasury.kpstreasury.events.CollateralChangedEvent;
+import com.treasury.kpstreasury.events.CollateralsStatusChangedEvent;
 import com.treasury.kpstreasury.models.dto.CollateralDto;
+import com.treasury.kpstreasury.models.dto.CollateralStatusChangeDto;
 import com.treasury.kpstreasury.models.dto.CollateralSummaryDto;
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
 import com.treasury.kpstreasury.models.entity.CollateralEntity;
 import com.treasury.kpstreasury.repositories.CollateralRepository;
+import com.treasury.kpstreasury.repositories.CollateralSpecifications;
 import com.treasury.kpstreasury.utils.CollateralMapper;
+import com.treasury.kpstreasury.utils.FilterSpecifications;
+import com.treasury.kpstreasury.utils.KeysetPager;
+import com.treasury.kpstreasury.utils.Money;
+import com.treasury.kpstreasury.utils.ProjectionQueries;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -26,83 +40,76 @@ import java.util.stream.Collectors;
 @Transactional
 public class CollateralService {
 
+    // ids per bulk status read and UPDATE, well below the bind parameter limit of the drivers
+    private static final int STATUS_CHANGE_CHUNK = 1000;
+
     private final CollateralRepository collateralRepository;
     private final CollateralMapper collateralMapper;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final KeysetPager keysetPager;
+    private final ProjectionQueries projectionQueries;
 
     public CollateralDto createCollateral(CollateralDto collateralDto) {
         CollateralEntity collateralEntity = collateralMapper.toEntity(collateralDto);
         CollateralEntity savedCollateral = collateralRepository.save(collateralEntity);
+        applicationEventPublisher.publishEvent(new CollateralChangedEvent(savedCollateral.getId()));
         return collateralMapper.toDto(savedCollateral);
     }
 
     @Transactional(readOnly = true)
     public Optional<CollateralDto> getCollateralById(Long id) {
-        return collateralRepository.findById(id)
-                .map(collateralMapper::toDto);
+        return collateralRepository.findDtoById(id);
     }
 
     @Transactional(readOnly = true)
     public List<CollateralDto> getAllCollaterals() {
-        return collateralRepository.findAll()
-                .stream()
-                .map(collateralMapper::toDto)
-                .collect(Collectors.toList());
+        return collateralRepository.findAllDtos();
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<CollateralDto> getCollateralsPage(CollateralType collateralType, CollateralStatus status,
+                                                          Rating rating, String currency, String counterparty,
+                                                          CollateralSortKey sort, CursorPageRequest request) {
+        Specification<CollateralEntity> filter = CollateralSpecifications
+                .advancedFilters(collateralType, null, currency, status, null)
+                .and(FilterSpecifications.equalTo("rating", rating))
+                .and(FilterSpecifications.equalTo("counterparty", counterparty));
+        return keysetPager.page(CollateralRepository.PROJECTION, filter, sort, request);
     }
 
     @Transactional(readOnly = true)
     public List<CollateralDto> getCollateralsByStatus(CollateralStatus status) {
-        return collateralRepository.findByStatus(status)
-                .stream()
-                .map(collateralMapper::toDto)
-                .collect(Collectors.toList());
+        return collateralRepository.findDtosByStatus(status);
     }
 
     @Transactional(readOnly = true)
     public List<CollateralDto> getCollateralsByType(CollateralType collateralType) {
-        return collateralRepository.findByCollateralType(collateralType)
-                .stream()
-                .map(collateralMapper::toDto)
-                .collect(Collectors.toList());
+        return collateralRepository.findDtosByCollateralType(collateralType);
     }
 
     @Transactional(readOnly = true)
     public List<CollateralDto> getCollateralsByRating(Rating rating) {
-        return collateralRepository.findByRating(rating)
-                .stream()
-                .map(collateralMapper::toDto)
-                .collect(Collectors.toList());
+        return collateralRepository.findDtosByRating(rating);
     }
 
     @Transactional(readOnly = true)
     public List<CollateralDto> getCollateralsByCurrency(String currency) {
-        return collateralRepository.findByCurrency(currency)
-                .stream()
-                .map(collateralMapper::toDto)
-                .collect(Collectors.toList());
+        return collateralRepository.findDtosByCurrency(currency);
     }
 
     @Transactional(readOnly = true)
     public List<CollateralDto> getCollateralsByCounterparty(String counterparty) {
-        return collateralRepository.findByCounterparty(counterparty)
-                .stream()
-                .map(collateralMapper::toDto)
-                .collect(Collectors.toList());
+        return collateralRepository.findDtosByCounterparty(counterparty);
     }
 
     @Transactional(readOnly = true)
     public List<CollateralDto> getEligibleCollateralsByRating(List<Rating> acceptableRatings) {
-        return collateralRepository.findByStatusAndRatingIn(CollateralStatus.ELIGIBLE, acceptableRatings)
-                .stream()
-                .map(collateralMapper::toDto)
-                .collect(Collectors.toList());
+        return collateralRepository.findDtosByStatusAndRatingIn(CollateralStatus.ELIGIBLE, acceptableRatings);
     }
 
     @Transactional(readOnly = true)
     public List<CollateralDto> getCollateralsExpiringBetween(LocalDate startDate, LocalDate endDate) {
-        return collateralRepository.findByMaturityDateBetween(startDate, endDate)
-                .stream()
-                .map(collateralMapper::toDto)
-                .collect(Collectors.toList());
+        return collateralRepository.findDtosByMaturityDateBetween(startDate, endDate);
     }
 
     @Transactional(readOnly = true)
@@ -116,8 +123,8 @@ public class CollateralService {
     public Page<CollateralDto> getCollateralsWithAdvancedFilters(CollateralType type, Rating minRating, 
                                                                String currency, CollateralStatus status, 
                                                                BigDecimal minValue, Pageable pageable) {
-        return collateralRepository.findWithAdvancedFilters(type, minRating, currency, status, minValue, pageable)
-                .map(collateralMapper::toDto);
+        return projectionQueries.page(CollateralRepository.PROJECTION,
+                CollateralSpecifications.advancedFilters(type, minRating, currency, status, minValue), pageable);
     }
 
     public CollateralDto updateCollateral(Long id, CollateralDto collateralDto) {
@@ -126,6 +133,7 @@ public class CollateralService {
 
         CollateralEntity updatedCollateral = collateralMapper.updateEntity(existingCollateral, collateralDto);
         CollateralEntity savedCollateral = collateralRepository.save(updatedCollateral);
+        applicationEventPublisher.publishEvent(new CollateralChangedEvent(id));
         return collateralMapper.toDto(savedCollateral);
     }
 
@@ -134,6 +142,7 @@ public class CollateralService {
             throw new IllegalArgumentException("Collateral not found with id: " + id);
         }
         collateralRepository.deleteById(id);
+        applicationEventPublisher.publishEvent(new CollateralChangedEvent(id));
     }
 
     public CollateralDto updateMarketValue(Long id, BigDecimal newMarketValue) {
@@ -142,6 +151,7 @@ public class CollateralService {
 
         collateral.setMarketValue(newMarketValue);
         CollateralEntity savedCollateral = collateralRepository.save(collateral);
+        applicationEventPublisher.publishEvent(new CollateralChangedEvent(id));
         return collateralMapper.toDto(savedCollateral);
     }
 
@@ -151,6 +161,7 @@ public class CollateralService {
 
         collateral.setStatus(newStatus);
         CollateralEntity savedCollateral = collateralRepository.save(collateral);
+        applicationEventPublisher.publishEvent(new CollateralChangedEvent(id));
         return collateralMapper.toDto(savedCollateral);
     }
 
@@ -166,6 +177,40 @@ public class CollateralService {
         updateStatus(id, CollateralStatus.MATURED);
     }
 
+    /**
+     * Moves the collaterals given by id, or all collaterals matching the counterparty, rating and
+     * currency filter, to the status with set-wise updates and publishes one event for all of them.
+     * Returns the ids of the collaterals that changed, in id order.
+     */
+    public List<Long> changeStatus(CollateralStatusChangeDto change) {
+        boolean byIds = change.getIds() != null && !change.getIds().isEmpty();
+        boolean byFilter = change.getCounterparty() != null || change.getRating() != null
+                || change.getCurrency() != null;
+        if (byIds == byFilter) {
+            throw new IllegalArgumentException("Give either collateral ids or a filter");
+        }
+        Specification<CollateralEntity> changing =
+                Specification.where(FilterSpecifications.notEqualTo("status", change.getStatus()));
+        List<Long> ids = byIds
+                ? projectionQueries.idsIn(CollateralEntity.class, change.getIds(), changing, STATUS_CHANGE_CHUNK)
+                : projectionQueries.ids(CollateralEntity.class, changing
+                        .and(FilterSpecifications.equalTo("counterparty", change.getCounterparty()))
+                        .and(FilterSpecifications.equalTo("rating", change.getRating()))
+                        .and(FilterSpecifications.equalTo("currency", change.getCurrency())));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < ids.size(); from += STATUS_CHANGE_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + STATUS_CHANGE_CHUNK, ids.size()));
+            // an UPDATE ... IN locks rows in scan order, two overlapping changes could deadlock on it
+            collateralRepository.lockInIdOrder(chunk);
+            collateralRepository.updateStatus(chunk, change.getStatus(), now);
+        }
+        if (!ids.isEmpty()) {
+            applicationEventPublisher.publishEvent(new CollateralsStatusChangedEvent(ids, change.getStatus()));
+        }
+        return ids;
+    }
+
     @Transactional(readOnly = true)
     public BigDecimal getTotalEligibleValue() {
         BigDecimal total = collateralRepository.getTotalEligibleValue();
@@ -174,50 +219,52 @@ public class CollateralService {
 
     @Transactional(readOnly = true)
     public List<CollateralSummaryDto> getCollateralSummaryByType() {
-        List<Object[]> results = collateralRepository.getCollateralSummaryByType();
-        return results.stream()
+        return collateralRepository.getCollateralSummaryByType()
+                .stream()
                 .map(row -> {
-                    CollateralType type = (CollateralType) row[0];
-                    BigDecimal totalMarketValue = (BigDecimal) row[1];
-                    BigDecimal totalEligibleValue = (BigDecimal) row[2];
-                    
                     CollateralSummaryDto summary = new CollateralSummaryDto();
-                    summary.setCollateralType(type);
-                    summary.setTotalMarketValue(totalMarketValue);
-                    summary.setTotalEligibleValue(totalEligibleValue);
-                    
+                    summary.setCollateralType(row.collateralType());
+                    summary.setTotalMarketValue(row.totalMarketValue());
+                    summary.setTotalEligibleValue(row.totalEligibleValue());
                     return summary;
                 })
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
-    public List<CollateralSummaryDto> getCollateralConcentrationByRating() {
-        List<Object[]> results = collateralRepository.getCollateralConcentrationByRating();
-        return results.stream()
+    public List<CollateralSummaryDto> getCollateralSummaryByCurrency() {
+        return collateralRepository.getCollateralSummaryByCurrency()
+                .stream()
                 .map(row -> {
-                    Rating rating = (Rating) row[0];
-                    Long count = (Long) row[1];
-                    BigDecimal totalMarketValue = (BigDecimal) row[2];
-                    
                     CollateralSummaryDto summary = new CollateralSummaryDto();
-                    summary.setRating(rating);
-                    summary.setCount(count);
-                    summary.setTotalMarketValue(totalMarketValue);
-                    
+                    summary.setCurrency(row.currency());
+                    summary.setTotalMarketValue(row.totalMarketValue());
+                    summary.setTotalEligibleValue(row.totalEligibleValue());
+                    summary.setCount(row.count());
                     return summary;
                 })
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
-    public List<CollateralDto> getHighRiskCollaterals(BigDecimal haircutThreshold) {
-        return collateralRepository.findHighRiskCollateral(haircutThreshold)
+    public List<CollateralSummaryDto> getCollateralConcentrationByRating() {
+        return collateralRepository.getCollateralConcentrationByRating()
                 .stream()
-                .map(collateralMapper::toDto)
+                .map(row -> {
+                    CollateralSummaryDto summary = new CollateralSummaryDto();
+                    summary.setRating(row.rating());
+                    summary.setCount(row.count());
+                    summary.setTotalMarketValue(row.totalMarketValue());
+                    return summary;
+                })
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public List<CollateralDto> getHighRiskCollaterals(BigDecimal haircutThreshold) {
+        return collateralRepository.findHighRiskDtos(haircutThreshold);
+    }
+
     @Transactional(readOnly = true)
     public List<CollateralDto> getHighRiskCollaterals() {
         BigDecimal defaultThreshold = new BigDecimal("0.15"); // 15%
@@ -232,6 +279,7 @@ public class CollateralService {
         collateral.setHaircut(newHaircut);
         
         CollateralEntity savedCollateral = collateralRepository.save(collateral);
+        applicationEventPublisher.publishEvent(new CollateralChangedEvent(id));
         return collateralMapper.toDto(savedCollateral);
     }
 
@@ -239,12 +287,12 @@ public class CollateralService {
     public BigDecimal calculateTotalRiskExposure() {
         List<CollateralEntity> eligibleCollaterals = collateralRepository.findByStatus(CollateralStatus.ELIGIBLE);
         
-        return eligibleCollaterals.stream()
-                .map(collateral -> {
-                    BigDecimal riskValue = collateral.getMarketValue().subtract(collateral.getEligibleValue());
-                    return riskValue;
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalRisk = eligibleCollaterals.stream()
+                .mapToLong(collateral -> Money.rounded(collateral.getMarketValue(), null)
+                        .minus(Money.rounded(collateral.getEligibleValue(), null))
+                        .minorUnits())
+                .reduce(0L, Math::addExact);
+        return Money.ofMinor(totalRisk, null).toBigDecimal();
     }
 
     @Transactional(readOnly = true)
@@ -271,6 +319,7 @@ public class CollateralService {
             if (!collateral.getStatus().equals(CollateralStatus.MATURED)) {
                 collateral.setStatus(CollateralStatus.MATURED);
                 collateralRepository.save(collateral);
+                applicationEventPublisher.publishEvent(new CollateralChangedEvent(collateral.getId()));
             }
         });
     }
@@ -0,0 +1,58 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.dto.CollateralSummaryDto;
+import com.treasury.kpstreasury.models.dto.ConsolidatedTotalsDto;
+import com.treasury.kpstreasury.models.dto.TreasurySummaryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+/**
+ * Multi-currency totals in one base currency. Each per-currency aggregate is converted with the
+ * current FX rates and rounded before the totals are summed.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConsolidationService {
+
+    private final TreasuryService treasuryService;
+    private final CollateralService collateralService;
+    private final FxRateService fxRateService;
+
+    /**
+     * @throws IllegalArgumentException when there is no rate for the base currency or for a currency held
+     */
+    public ConsolidatedTotalsDto getConsolidatedTotals(String baseCurrency) {
+        if (!fxRateService.getMatrix().contains(baseCurrency)) {
+            throw new IllegalArgumentException("No FX rate for base currency " + baseCurrency);
+        }
+
+        BigDecimal totalBalance = BigDecimal.ZERO;
+        BigDecimal totalAvailableBalance = BigDecimal.ZERO;
+        long accountCount = 0;
+        for (TreasurySummaryDto summary : treasuryService.getTreasuryTotalsByCurrency()) {
+            totalBalance = totalBalance.add(convert(summary.getTotalBalance(), summary.getCurrency(), baseCurrency));
+            totalAvailableBalance = totalAvailableBalance.add(
+                    convert(summary.getTotalAvailableBalance(), summary.getCurrency(), baseCurrency));
+            accountCount += summary.getAccountCount();
+        }
+
+        BigDecimal totalMarketValue = BigDecimal.ZERO;
+        BigDecimal totalEligibleValue = BigDecimal.ZERO;
+        long collateralCount = 0;
+        for (CollateralSummaryDto summary : collateralService.getCollateralSummaryByCurrency()) {
+            totalMarketValue = totalMarketValue.add(convert(summary.getTotalMarketValue(), summary.getCurrency(), baseCurrency));
+            totalEligibleValue = totalEligibleValue.add(
+                    convert(summary.getTotalEligibleValue(), summary.getCurrency(), baseCurrency));
+            collateralCount += summary.getCount();
+        }
+
+        return new ConsolidatedTotalsDto(baseCurrency, totalBalance, totalAvailableBalance, accountCount,
+                totalMarketValue, totalEligibleValue, collateralCount);
+    }
+
+    private BigDecimal convert(BigDecimal amount, String currency, String baseCurrency) {
+        return fxRateService.convert(amount != null ? amount : BigDecimal.ZERO, currency, baseCurrency);
+    }
+}
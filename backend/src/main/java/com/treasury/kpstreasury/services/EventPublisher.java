@@ -1,20 +1,26 @@
 package com.treasury.kpstreasury.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.treasury.kpstreasury.events.*;
+import com.treasury.kpstreasury.models.entity.OutboxEventEntity;
+import com.treasury.kpstreasury.repositories.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.CompletableFuture;
-
+/**
+ * Records domain events in the outbox_events table, in the caller's transaction when there is one.
+ * Nothing is sent to Kafka here; {@link OutboxRelay} publishes the events once they are committed,
+ * so an event is never lost after its change commits and never published for a rolled back one.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EventPublisher {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
 
     private static final String USER_EVENTS_TOPIC = "user-events";
     private static final String TREASURY_EVENTS_TOPIC = "treasury-events";
@@ -48,21 +54,19 @@ public class EventPublisher {
     }
 
     private void publishEvent(String topic, String key, BaseEvent event) {
+        String payload;
         try {
-            CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(topic, key, event);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info("Event published successfully to topic [{}] with key [{}]: {}", 
-                            topic, key, event.getEventType());
-                } else {
-                    log.error("Failed to publish event to topic [{}] with key [{}]: {}", 
-                            topic, key, ex.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            log.error("Error publishing event to topic [{}]: {}", topic, e.getMessage());
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing event for topic [{}]: {}", topic, e.getMessage());
+            return;
         }
+        outboxEventRepository.save(OutboxEventEntity.builder()
+                .topic(topic)
+                .eventKey(key)
+                .eventType(event.getEventType())
+                .payload(payload)
+                .build());
     }
 
     // Utility methods for common events
@@ -0,0 +1,199 @@
+package com.treasury.kpstreasury.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.treasury.kpstreasury.enums.ExportFormat;
+import com.treasury.kpstreasury.models.dto.CollateralDto;
+import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.dto.UserDto;
+import com.treasury.kpstreasury.models.entity.CollateralEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.models.entity.UserEntity;
+import com.treasury.kpstreasury.repositories.CollateralRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.repositories.UserRepository;
+import com.treasury.kpstreasury.utils.CollateralMapper;
+import com.treasury.kpstreasury.utils.TreasuryMapper;
+import com.treasury.kpstreasury.utils.UserMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes whole listings straight to a response body, one row at a time, as NDJSON or CSV.
+ * Rows come from a read-only server-side cursor and each entity is detached once it is written,
+ * so neither the persistence context nor a result list grows with the table. The writer is flushed
+ * after the first row and then once per cursor fetch, which gets the first bytes out right away; a
+ * slow client blocks the flush and with it the cursor, so reading never runs ahead of the network.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+
+    // rows per flush, the fetch size of the streaming queries
+    private static final int FLUSH_EVERY = 500;
+
+    private static final List<Column<TreasuryDto>> TREASURY_COLUMNS = List.of(
+            new Column<>("id", TreasuryDto::getId),
+            new Column<>("accountNumber", TreasuryDto::getAccountNumber),
+            new Column<>("currency", TreasuryDto::getCurrency),
+            new Column<>("balance", TreasuryDto::getBalance),
+            new Column<>("availableBalance", TreasuryDto::getAvailableBalance),
+            new Column<>("accountType", TreasuryDto::getAccountType),
+            new Column<>("status", TreasuryDto::getStatus),
+            new Column<>("bankName", TreasuryDto::getBankName),
+            new Column<>("branchCode", TreasuryDto::getBranchCode),
+            new Column<>("createdAt", TreasuryDto::getCreatedAt),
+            new Column<>("updatedAt", TreasuryDto::getUpdatedAt));
+
+    private static final List<Column<CollateralDto>> COLLATERAL_COLUMNS = List.of(
+            new Column<>("id", CollateralDto::getId),
+            new Column<>("collateralType", CollateralDto::getCollateralType),
+            new Column<>("description", CollateralDto::getDescription),
+            new Column<>("marketValue", CollateralDto::getMarketValue),
+            new Column<>("haircut", CollateralDto::getHaircut),
+            new Column<>("eligibleValue", CollateralDto::getEligibleValue),
+            new Column<>("currency", CollateralDto::getCurrency),
+            new Column<>("rating", CollateralDto::getRating),
+            new Column<>("maturityDate", CollateralDto::getMaturityDate),
+            new Column<>("status", CollateralDto::getStatus),
+            new Column<>("counterparty", CollateralDto::getCounterparty),
+            new Column<>("location", CollateralDto::getLocation),
+            new Column<>("createdAt", CollateralDto::getCreatedAt),
+            new Column<>("updatedAt", CollateralDto::getUpdatedAt));
+
+    private static final List<Column<UserDto>> USER_COLUMNS = List.of(
+            new Column<>("id", UserDto::getId),
+            new Column<>("username", UserDto::getUsername),
+            new Column<>("email", UserDto::getEmail),
+            new Column<>("firstName", UserDto::getFirstName),
+            new Column<>("lastName", UserDto::getLastName),
+            new Column<>("role", UserDto::getRole),
+            new Column<>("enabled", UserDto::isEnabled),
+            new Column<>("createdAt", UserDto::getCreatedAt));
+
+    private final TreasuryRepository treasuryRepository;
+    private final CollateralRepository collateralRepository;
+    private final UserRepository userRepository;
+    private final TreasuryMapper treasuryMapper;
+    private final CollateralMapper collateralMapper;
+    private final UserMapper userMapper;
+    private final BalanceSlotService balanceSlotService;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public long exportTreasuryAccounts(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<TreasuryEntity> rows = treasuryRepository.streamAllOrderById()) {
+            return write(rows, this::toTreasuryDto, TREASURY_COLUMNS, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportCollaterals(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<CollateralEntity> rows = collateralRepository.streamAllOrderById()) {
+            return write(rows, collateralMapper::toDto, COLLATERAL_COLUMNS, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportUsers(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<UserEntity> rows = userRepository.streamAllOrderById()) {
+            return write(rows, userMapper::toDto, USER_COLUMNS, format, out);
+        }
+    }
+
+    /**
+     * Writes ids already read, such as the ones a bulk change touched, one per line.
+     */
+    public long writeIds(List<Long> ids, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long count = 0;
+        for (Long id : ids) {
+            writer.write(id.toString());
+            writer.write('\n');
+            if (count++ % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private TreasuryDto toTreasuryDto(TreasuryEntity treasury) {
+        TreasuryDto dto = treasuryMapper.toDto(treasury);
+        return treasury.getBalanceSlots() > 0 ? balanceSlotService.withLiveBalances(dto) : dto;
+    }
+
+    private <E, D> long write(Stream<E> rows, Function<E, D> toDto, List<Column<D>> columns,
+                              ExportFormat format, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writeCsvLine(writer, columns.stream().map(Column::name).toList());
+        }
+
+        long count = 0;
+        Iterator<E> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            E entity = iterator.next();
+            D dto = toDto.apply(entity);
+            entityManager.detach(entity);
+            if (format == ExportFormat.CSV) {
+                writeCsvLine(writer, columns.stream().map(column -> column.value().apply(dto)).toList());
+            } else {
+                writer.write(objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+            }
+            if (count++ % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        log.info("Exported {} rows as {} in {} ms", count, format, System.currentTimeMillis() - started);
+        return count;
+    }
+
+    private static void writeCsvLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                writer.write(csvField(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    // quoted only when needed, the way the import reads it back; a line break comes back as \n
+    static String csvField(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    private record Column<D>(String name, Function<D, Object> value) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.dto.FxRateDto;
+import com.treasury.kpstreasury.models.entity.FxRateEntity;
+import com.treasury.kpstreasury.repositories.FxRateRepository;
+import com.treasury.kpstreasury.utils.FxRateMatrix;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exchange rates for converting amounts between currencies.
+ * Rates are loaded from a CSV file (currency,unitsPerPivot per line) when one is configured, from
+ * the fx_rates table otherwise, into an immutable FxRateMatrix. A reload builds a new matrix and
+ * swaps it in with a single volatile write, so conversions never wait for a reload and never see
+ * a half-updated set of rates.
+ *
+ * When the rates come from the table and it is empty on startup, it is seeded with the configured
+ * default rates, so that a fresh database can convert the usual currencies until real rates are
+ * stored. The defaults are indicative only.
+ */
+@Service
+@Slf4j
+public class FxRateService {
+
+    private final FxRateRepository fxRateRepository;
+    private final String pivotCurrency;
+    private final String ratesFile;
+    private final String defaultRates;
+
+    private volatile FxRateMatrix matrix;
+
+    public FxRateService(FxRateRepository fxRateRepository,
+                         @Value("${treasury.fx.pivot-currency:EUR}") String pivotCurrency,
+                         @Value("${treasury.fx.rates-file:}") String ratesFile,
+                         @Value("${treasury.fx.default-rates:}") String defaultRates) {
+        this.fxRateRepository = fxRateRepository;
+        this.pivotCurrency = pivotCurrency;
+        this.ratesFile = ratesFile;
+        this.defaultRates = defaultRates;
+        this.matrix = FxRateMatrix.of(pivotCurrency, Map.of());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (ratesFile.isBlank() && !defaultRates.isBlank()) {
+            seedDefaultRates();
+        }
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.fx.refresh-interval-ms:60000}",
+               initialDelayString = "${treasury.fx.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Reloading FX rates failed, keeping the current ones: {}", e.getMessage());
+        }
+    }
+
+    public void reload() {
+        Map<String, BigDecimal> rates = ratesFile.isBlank() ? loadFromTable() : loadFromFile(Path.of(ratesFile));
+        matrix = FxRateMatrix.of(pivotCurrency, rates);
+        log.info("Loaded FX rates of {} currencies against {}", rates.size(), pivotCurrency);
+    }
+
+    public FxRateMatrix getMatrix() {
+        return matrix;
+    }
+
+    public String getPivotCurrency() {
+        return pivotCurrency;
+    }
+
+    public List<FxRateDto> getRates() {
+        FxRateMatrix current = matrix;
+        List<FxRateDto> rates = new ArrayList<>(current.size());
+        for (String currency : current.currencies()) {
+            rates.add(new FxRateDto(currency, pivotCurrency, current.unitsPerPivot(currency)));
+        }
+        return rates;
+    }
+
+    /**
+     * Stores the rate of a currency; the matrix is rebuilt once the change is committed.
+     */
+    @Transactional
+    public FxRateDto updateRate(String currency, BigDecimal unitsPerPivot) {
+        if (!ratesFile.isBlank()) {
+            throw new IllegalArgumentException("FX rates are loaded from " + ratesFile + " and cannot be updated");
+        }
+        if (currency.equals(pivotCurrency)) {
+            throw new IllegalArgumentException("The rate of the pivot currency is always 1");
+        }
+        // validates the code and the rate before anything is stored
+        FxRateMatrix.of(pivotCurrency, Map.of(currency, unitsPerPivot));
+
+        fxRateRepository.save(FxRateEntity.builder().currency(currency).unitsPerPivot(unitsPerPivot).build());
+        reloadAfterCommit();
+        return new FxRateDto(currency, pivotCurrency, unitsPerPivot);
+    }
+
+    /**
+     * Converts an amount and rounds it half-up to two decimals.
+     * @throws IllegalArgumentException when there is no rate for either currency
+     */
+    public BigDecimal convert(BigDecimal amount, String from, String to) {
+        BigDecimal rate = matrix.rate(from, to);
+        if (rate == null) {
+            throw new IllegalArgumentException("No FX rate from " + from + " to " + to);
+        }
+        return amount.multiply(rate).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload();
+            }
+        });
+    }
+
+    private void seedDefaultRates() {
+        if (fxRateRepository.count() > 0) {
+            return;
+        }
+        Map<String, BigDecimal> rates = parse(List.of(defaultRates.split(";")));
+        // validates every default before anything is stored
+        FxRateMatrix.of(pivotCurrency, rates);
+        try {
+            fxRateRepository.saveAll(rates.entrySet().stream()
+                    .map(rate -> FxRateEntity.builder().currency(rate.getKey()).unitsPerPivot(rate.getValue()).build())
+                    .toList());
+            log.info("Seeded the empty FX rate table with {} default rates", rates.size());
+        } catch (DataIntegrityViolationException e) {
+            log.info("FX rate table was seeded concurrently, keeping its rates");
+        }
+    }
+
+    private Map<String, BigDecimal> loadFromTable() {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (FxRateEntity rate : fxRateRepository.findAll()) {
+            rates.put(rate.getCurrency(), rate.getUnitsPerPivot());
+        }
+        return rates;
+    }
+
+    private Map<String, BigDecimal> loadFromFile(Path path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read FX rates from " + path, e);
+        }
+        return parse(lines);
+    }
+
+    // currency,unitsPerPivot per line; blank lines and # comments are skipped
+    private static Map<String, BigDecimal> parse(List<String> lines) {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split(",");
+            if (fields.length != 2) {
+                throw new IllegalArgumentException("Invalid FX rate line: " + line);
+            }
+            rates.put(fields[0].trim(), new BigDecimal(fields[1].trim()));
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,376 @@
+package com.treasury.kpstreasury.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.treasury.kpstreasury.models.entity.IdempotencyKeyEntity;
+import com.treasury.kpstreasury.repositories.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Executes mutating requests at most once per Idempotency-Key.
+ * Responses are kept in a bounded in-memory map with a TTL and in the idempotency_keys table, so a
+ * retry, even after a restart, gets the original response without running the request again.
+ * Concurrent requests with the same key collapse onto the first one: the others wait for its
+ * response. The table row is claimed before executing, with a short lease that is renewed while the
+ * request runs, so a duplicate arriving on another instance meanwhile gets 409 Conflict instead of
+ * a second execution. The request runs in a transaction that also stores its response in the
+ * claimed row, so a claim without a response never has a committed mutation behind it. If the
+ * lease runs out without a response (the instance died mid-request) a retry takes the claim over
+ * and executes; should the first request still be running, its response no longer matches the
+ * row's version and its transaction rolls back. Keys are scoped to the authenticated user, so two
+ * users picking the same key don't see each other's responses.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate requestTransaction;
+    private final Duration ttl;
+    private final Duration lease;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // version of each claim this instance is executing, whose lease it keeps renewing
+    private final Map<String, Long> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${treasury.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${treasury.idempotency.lease-seconds:60}") long leaseSeconds,
+                              @Value("${treasury.idempotency.max-entries:100000}") int maxEntries) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.requestTransaction = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Runs the action unless a response for the key is already known. Without a key the action simply
+     * runs. Reusing a key for a different request (another operation or other arguments) is rejected
+     * with 422. 5xx responses and exceptions are not remembered, so the client can retry them; their
+     * transaction is rolled back, so the retry does not repeat a mutation that already committed.
+     */
+    public <T> ResponseEntity<T> execute(String clientKey, String fingerprint, Class<T> bodyType,
+                                         Supplier<ResponseEntity<T>> action) {
+        if (clientKey == null || clientKey.isBlank()) {
+            return action.get();
+        }
+        if (clientKey.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        String key = scoped(clientKey);
+
+        while (true) {
+            Entry existing = entries.get(key);
+            if (existing != null && existing.isExpired(LocalDateTime.now())) {
+                entries.remove(key, existing);
+                continue;
+            }
+            if (existing == null) {
+                Entry claimed = new Entry(fingerprint, LocalDateTime.now().plus(ttl));
+                if (entries.putIfAbsent(key, claimed) == null) {
+                    return executeClaimed(key, claimed, bodyType, action);
+                }
+                continue;
+            }
+
+            if (!existing.fingerprint.equals(fingerprint)) {
+                return ResponseEntity.unprocessableEntity().build();
+            }
+            try {
+                return replayed(existing.response.join());
+            } catch (CompletionException e) {
+                // the first execution failed and released the key; try to run it ourselves
+            }
+        }
+    }
+
+    public String fingerprint(String operation, Object... arguments) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(arguments));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint request", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+        int deleted = idempotencyKeyRepository.deleteExpired(now);
+        if (deleted > 0) {
+            log.debug("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    /**
+     * Pushes the lease of every claim still executing here further out, so a long request (a large
+     * transfer batch) is not taken over by a retry. A claim whose version moved on is no longer ours.
+     */
+    @Scheduled(fixedDelayString = "${treasury.idempotency.renew-interval-ms:20000}")
+    public void renewLeases() {
+        LocalDateTime leaseExpiresAt = LocalDateTime.now().plus(lease);
+        inFlight.forEach((key, version) -> {
+            if (idempotencyKeyRepository.renewLease(key, version, leaseExpiresAt) == 0) {
+                log.debug("Idempotency key {} was answered or taken over before its lease was renewed", key);
+            }
+        });
+    }
+
+    private <T> ResponseEntity<T> executeClaimed(String key, Entry entry, Class<T> bodyType,
+                                                 Supplier<ResponseEntity<T>> action) {
+        IdempotencyKeyEntity record = null;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Optional<IdempotencyKeyEntity> existing = idempotencyKeyRepository.findById(key);
+            if (existing.isPresent() && existing.get().getExpiresAt().isAfter(now)
+                    && !isAbandoned(existing.get(), entry, now)) {
+                return answerFromStore(key, entry, existing.get(), bodyType);
+            }
+
+            try {
+                record = idempotencyKeyRepository.saveAndFlush(claim(key, entry, existing.orElse(null), now));
+            } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+                return release(key, entry, ResponseEntity.status(HttpStatus.CONFLICT).build());
+            }
+
+            ResponseEntity<T> response;
+            inFlight.put(key, record.getVersion());
+            try {
+                response = executeAndStore(record, action);
+            } catch (ClaimLostException e) {
+                log.warn("Request with idempotency key {} outlived its lease and was rolled back", key);
+                return release(key, entry, ResponseEntity.status(HttpStatus.CONFLICT).build());
+            } finally {
+                inFlight.remove(key);
+            }
+            if (response.getStatusCode().is5xxServerError()) {
+                forget(record);
+                return release(key, entry, response);
+            }
+            entry.response.complete(response);
+            evictIfFull();
+            return response;
+        } catch (RuntimeException e) {
+            entries.remove(key, entry);
+            if (record != null) {
+                forget(record);
+            }
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the action and stores its response in the claimed row, in one transaction that the
+     * action's service calls join. A response produced after a service call failed (the transaction
+     * is rollback-only, so nothing was changed) is stored separately once that has rolled back.
+     */
+    private <T> ResponseEntity<T> executeAndStore(IdempotencyKeyEntity record, Supplier<ResponseEntity<T>> action) {
+        boolean[] rolledBack = new boolean[1];
+        ResponseEntity<T> response = requestTransaction.execute(status -> {
+            ResponseEntity<T> result = action.get();
+            if (result.getStatusCode().is5xxServerError() || status.isRollbackOnly()) {
+                status.setRollbackOnly();
+                rolledBack[0] = true;
+                return result;
+            }
+            answer(record, result);
+            return result;
+        });
+        if (rolledBack[0] && !response.getStatusCode().is5xxServerError()) {
+            answer(record, response);
+        }
+        return response;
+    }
+
+    // fails when a retry took the claim over after the lease ran out, which rolls this execution back
+    private void answer(IdempotencyKeyEntity record, ResponseEntity<?> response) {
+        record.setResponseStatus(response.getStatusCode().value());
+        record.setResponseBody(serialize(response.getBody()));
+        record.setLeaseExpiresAt(null);
+        try {
+            idempotencyKeyRepository.saveAndFlush(record);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ClaimLostException(e);
+        }
+    }
+
+    // a claim without a response whose lease ran out belongs to a request that will not answer any more
+    private boolean isAbandoned(IdempotencyKeyEntity record, Entry entry, LocalDateTime now) {
+        return record.getResponseStatus() == null
+                && record.getRequestFingerprint().equals(entry.fingerprint)
+                && (record.getLeaseExpiresAt() == null || !record.getLeaseExpiresAt().isAfter(now));
+    }
+
+    /**
+     * A new row for the key, or the expired or abandoned one taken over. Taking over keeps the row's
+     * version, so when two retries race for it only one of them saves.
+     */
+    private IdempotencyKeyEntity claim(String key, Entry entry, IdempotencyKeyEntity existing, LocalDateTime now) {
+        if (existing == null) {
+            return IdempotencyKeyEntity.builder()
+                    .idempotencyKey(key)
+                    .requestFingerprint(entry.fingerprint)
+                    .expiresAt(entry.expiresAt)
+                    .leaseExpiresAt(now.plus(lease))
+                    .build();
+        }
+        existing.setRequestFingerprint(entry.fingerprint);
+        existing.setResponseStatus(null);
+        existing.setResponseBody(null);
+        existing.setExpiresAt(entry.expiresAt);
+        existing.setLeaseExpiresAt(now.plus(lease));
+        return existing;
+    }
+
+    // gives the key back, unless a retry has taken the claim over in the meantime
+    private void forget(IdempotencyKeyEntity record) {
+        try {
+            idempotencyKeyRepository.delete(record);
+        } catch (OptimisticLockingFailureException e) {
+            log.debug("Idempotency key {} was taken over before it could be released", record.getIdempotencyKey());
+        }
+    }
+
+    private static String scoped(String clientKey) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return clientKey;
+        }
+        return authentication.getName() + ":" + clientKey;
+    }
+
+    private <T> ResponseEntity<T> answerFromStore(String key, Entry entry, IdempotencyKeyEntity record,
+                                                  Class<T> bodyType) {
+        if (!record.getRequestFingerprint().equals(entry.fingerprint)) {
+            return release(key, entry, ResponseEntity.unprocessableEntity().build());
+        }
+        if (record.getResponseStatus() == null) {
+            // claimed by a request that is still running, most likely on another instance
+            return release(key, entry, ResponseEntity.status(HttpStatus.CONFLICT).build());
+        }
+        ResponseEntity<T> response = ResponseEntity.status(record.getResponseStatus())
+                .body(deserialize(record.getResponseBody(), bodyType));
+        entry.response.complete(response);
+        return replayed(response);
+    }
+
+    private <T> ResponseEntity<T> release(String key, Entry entry, ResponseEntity<T> response) {
+        entries.remove(key, entry);
+        entry.response.complete(response);
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> replayed(ResponseEntity<?> response) {
+        return (ResponseEntity<T>) ResponseEntity.status(response.getStatusCode())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    /**
+     * Keeps the map bounded. Expired entries go first; if that is not enough the completed entries
+     * closest to expiry are dropped. They are still answered from the table.
+     */
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+        int excess = entries.size() - maxEntries + maxEntries / 10;
+        if (excess <= 0) {
+            return;
+        }
+        entries.entrySet().stream()
+                .filter(entry -> entry.getValue().response.isDone())
+                .sorted(Comparator.comparing(entry -> entry.getValue().expiresAt))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(entries::remove);
+    }
+
+    private String serialize(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response for idempotent replay", e);
+        }
+    }
+
+    private <T> T deserialize(String body, Class<T> bodyType) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(body, bodyType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored response for idempotent replay", e);
+        }
+    }
+
+    private static final class ClaimLostException extends RuntimeException {
+
+        private ClaimLostException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private static final class Entry {
+
+        private final String fingerprint;
+        private final LocalDateTime expiresAt;
+        private final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+
+        private Entry(String fingerprint, LocalDateTime expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(LocalDateTime now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.HoldStatus;
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+import com.treasury.kpstreasury.events.CashPoolSweptEvent;
+import com.treasury.kpstreasury.events.HoldChangedEvent;
+import com.treasury.kpstreasury.events.LedgerPostedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountsImportedEvent;
+import com.treasury.kpstreasury.models.dto.AccountAmountRow;
+import com.treasury.kpstreasury.models.dto.AccountBalanceDto;
+import com.treasury.kpstreasury.models.dto.AccountBankRow;
+import com.treasury.kpstreasury.models.dto.LedgerTypeTotalsRow;
+import com.treasury.kpstreasury.models.dto.LiquidityPositionDto;
+import com.treasury.kpstreasury.models.entity.BalanceHoldEntity;
+import com.treasury.kpstreasury.repositories.BalanceHoldRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Live intraday liquidity per currency and bank, kept in memory.
+ * A rebuild reads the opening balances (the journal as of the start of the day), the gross credits
+ * and debits posted since and the amounts on active holds, and groups them by the currency and
+ * bank of their account. After that every committed journal posting and hold change is added to its
+ * position as it happens, so reading the view costs one pass over the positions, not a scan of
+ * the accounts.
+ *
+ * Movements are applied after their transaction commits, and only the ones committed on this
+ * instance are seen; the scheduled rebuild folds in what other instances did, account edits
+ * (currency or bank changes, deletions) and the change of business day. A rebuild reads in one
+ * snapshot. Movements that commit while it reads are queued, and before the new view is swapped in
+ * the same snapshot tells which of them it already saw (by journal, or by hold and its status), so
+ * only the others are replayed onto it.
+ */
+@Service
+@Slf4j
+public class IntradayLiquidityService {
+
+    // journals and holds looked up per statement when replaying the movements queued by a rebuild
+    private static final int REPLAY_CHUNK = 1000;
+
+    private static final Comparator<PositionKey> POSITION_ORDER =
+            Comparator.comparing(PositionKey::currency).thenComparing(PositionKey::bankName);
+
+    private final TreasuryRepository treasuryRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceHoldRepository balanceHoldRepository;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate lookupTransaction;
+
+    // movements take the read lock, swapping in a rebuilt view takes the write lock
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile View view;
+    private Queue<Movement> duringRebuild;
+
+    public IntradayLiquidityService(TreasuryRepository treasuryRepository,
+                                    LedgerEntryRepository ledgerEntryRepository,
+                                    BalanceHoldRepository balanceHoldRepository,
+                                    BalanceSnapshotService balanceSnapshotService,
+                                    PlatformTransactionManager transactionManager) {
+        this.treasuryRepository = treasuryRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceHoldRepository = balanceHoldRepository;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        // listeners run after the commit of the posting transaction, lookups need their own
+        this.lookupTransaction = new TransactionTemplate(transactionManager);
+        this.lookupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lookupTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.liquidity.rebuild-interval-ms:300000}",
+               initialDelayString = "${treasury.liquidity.rebuild-interval-ms:300000}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        LocalDate businessDate = LocalDate.now();
+        withWriteLock(() -> duringRebuild = new ConcurrentLinkedQueue<>());
+
+        View fresh;
+        try {
+            fresh = readTransaction.execute(status -> {
+                View loaded = load(businessDate);
+                // movements wait for the swap, so the queue is complete when it is checked
+                withWriteLock(() -> swapIn(loaded));
+                return loaded;
+            });
+        } catch (RuntimeException e) {
+            withWriteLock(() -> duringRebuild = null);
+            throw e;
+        }
+        log.info("Rebuilt intraday liquidity of {} accounts in {} positions for {}",
+                fresh.accounts.size(), fresh.positions.size(), businessDate);
+    }
+
+    public List<LiquidityPositionDto> getPositions(String currency) {
+        View current = view;
+        if (current == null || !current.businessDate.equals(LocalDate.now())) {
+            rebuild();
+            current = view;
+        }
+
+        List<Map.Entry<PositionKey, Position>> entries = new ArrayList<>(current.positions.entrySet());
+        entries.sort(Map.Entry.comparingByKey(POSITION_ORDER));
+        List<LiquidityPositionDto> result = new ArrayList<>(entries.size());
+        for (Map.Entry<PositionKey, Position> entry : entries) {
+            if (currency == null || currency.equals(entry.getKey().currency())) {
+                result.add(toDto(current.businessDate, entry.getKey(), entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    @TransactionalEventListener
+    public void onLedgerPosted(LedgerPostedEvent event) {
+        for (LedgerPostedEvent.Posting posting : event.postings()) {
+            Flow flow = posting.entryType() == LedgerEntryType.CREDIT ? Flow.INFLOW : Flow.OUTFLOW;
+            record(posting.accountId(), flow, minorUnits(posting.amount()), posting.journalId(), null);
+        }
+    }
+
+    // imported accounts and their opening entries are written set-wise, without a LedgerPostedEvent each
+    @TransactionalEventListener
+    public void onTreasuryAccountsImported(TreasuryAccountsImportedEvent event) {
+        rebuild();
+    }
+
+    // sweep entries are written set-wise too, but the event carries every posting
+    @TransactionalEventListener
+    public void onCashPoolSwept(CashPoolSweptEvent event) {
+        for (CashPoolSweptEvent.Posting posting : event.postings()) {
+            Flow flow = posting.amount().signum() > 0 ? Flow.INFLOW : Flow.OUTFLOW;
+            record(posting.accountId(), flow, minorUnits(posting.amount().abs()), posting.journalId(), null);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onHoldChanged(HoldChangedEvent event) {
+        // the holds of one change are changed in one transaction, so any of them tells whether a read saw it
+        record(event.accountId(), Flow.SCHEDULED_OUTFLOW, minorUnits(event.heldDelta()), null,
+                event.holdIds().get(0));
+    }
+
+    private void record(Long accountId, Flow flow, long minorUnits, String journalId, Long holdId) {
+        Movement movement = new Movement(accountId, keyOf(accountId), flow, minorUnits, journalId, holdId);
+        swapLock.readLock().lock();
+        try {
+            if (duringRebuild != null) {
+                duringRebuild.add(movement);
+            }
+            View current = view;
+            if (current != null) {
+                current.apply(movement);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // runs in the transaction of the load, so the lookups see the journals and holds it saw
+    private void swapIn(View fresh) {
+        List<Movement> queued = new ArrayList<>(duringRebuild);
+        Set<String> journalIds = new HashSet<>();
+        Set<Long> holdIds = new HashSet<>();
+        for (Movement movement : queued) {
+            if (movement.journalId() != null) {
+                journalIds.add(movement.journalId());
+            } else if (movement.holdId() != null) {
+                holdIds.add(movement.holdId());
+            }
+        }
+
+        Set<String> seenJournals = new HashSet<>();
+        for (List<String> chunk : chunks(new ArrayList<>(journalIds))) {
+            seenJournals.addAll(ledgerEntryRepository.findJournalIdsIn(chunk));
+        }
+        Map<Long, HoldStatus> seenHolds = new HashMap<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(holdIds))) {
+            for (BalanceHoldEntity hold : balanceHoldRepository.findAllById(chunk)) {
+                seenHolds.put(hold.getId(), hold.getStatus());
+            }
+        }
+
+        for (Movement movement : queued) {
+            if (!movement.seenBy(seenJournals, seenHolds)) {
+                fresh.apply(movement);
+            }
+        }
+        duringRebuild = null;
+        view = fresh;
+    }
+
+    private View load(LocalDate businessDate) {
+        LocalDateTime startOfDay = businessDate.atStartOfDay();
+        View fresh = new View(businessDate);
+        for (AccountBankRow row : treasuryRepository.findCurrencyAndBank()) {
+            PositionKey key = new PositionKey(row.currency(), row.bankName());
+            fresh.accounts.put(row.accountId(), key);
+            fresh.positions.computeIfAbsent(key, k -> new Position());
+        }
+
+        for (AccountBalanceDto opening : balanceSnapshotService.getBalancesAsOf(startOfDay)) {
+            Position position = fresh.positionOf(opening.getAccountId());
+            if (position != null) {
+                position.opening.add(minorUnits(opening.getBalance()));
+            }
+        }
+        for (LedgerTypeTotalsRow row : ledgerEntryRepository.sumPostingsByAccountAndTypeAfter(startOfDay)) {
+            Position position = fresh.positionOf(row.accountId());
+            if (position != null) {
+                LongAdder flow = row.entryType() == LedgerEntryType.CREDIT ? position.inflows : position.outflows;
+                flow.add(minorUnits(row.amount()));
+            }
+        }
+        for (AccountAmountRow row : balanceHoldRepository.sumActiveByTreasury()) {
+            Position position = fresh.positionOf(row.accountId());
+            if (position != null) {
+                position.scheduledOutflows.add(minorUnits(row.amount()));
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * The currency and bank of the account, from the current view or, for an account created since
+     * the last rebuild, read in a transaction of its own. This runs before record takes the lock: a
+     * rebuild holds the write lock inside its read transaction, so a lookup under the lock could
+     * wait for a pooled connection while the rebuild waits for the lock.
+     */
+    private PositionKey keyOf(Long accountId) {
+        View current = view;
+        PositionKey key = current != null ? current.accounts.get(accountId) : null;
+        return key != null ? key : lookUp(accountId);
+    }
+
+    private PositionKey lookUp(Long accountId) {
+        return lookupTransaction.execute(status -> treasuryRepository.findById(accountId)
+                .map(account -> new PositionKey(account.getCurrency(), account.getBankName()))
+                .orElse(null));
+    }
+
+    private LiquidityPositionDto toDto(LocalDate businessDate, PositionKey key, Position position) {
+        long opening = position.opening.sum();
+        long inflows = position.inflows.sum();
+        long outflows = position.outflows.sum();
+        long scheduled = position.scheduledOutflows.sum();
+        long current = opening + inflows - outflows;
+        return new LiquidityPositionDto(businessDate, key.currency(), key.bankName(),
+                amount(opening), amount(inflows), amount(outflows), amount(current),
+                amount(scheduled), amount(current - scheduled));
+    }
+
+    private void withWriteLock(Runnable action) {
+        swapLock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    // journal amounts are written to scale 2 columns, which round half-up
+    private static <T> List<List<T>> chunks(List<T> values) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += REPLAY_CHUNK) {
+            chunks.add(values.subList(from, Math.min(from + REPLAY_CHUNK, values.size())));
+        }
+        return chunks;
+    }
+
+    private static long minorUnits(BigDecimal amount) {
+        return Money.rounded(amount, null).minorUnits();
+    }
+
+    private static BigDecimal amount(long minorUnits) {
+        return Money.ofMinor(minorUnits, null).toBigDecimal();
+    }
+
+    private enum Flow {
+        INFLOW, OUTFLOW, SCHEDULED_OUTFLOW
+    }
+
+    // a posting names its journal, a hold change one of its holds; key is null for an unknown account
+    private record Movement(Long accountId, PositionKey key, Flow flow, long minorUnits, String journalId,
+                            Long holdId) {
+
+        // a placed hold was seen once the hold exists, a released one once it is no longer active
+        private boolean seenBy(Set<String> seenJournals, Map<Long, HoldStatus> seenHolds) {
+            if (journalId != null) {
+                return seenJournals.contains(journalId);
+            }
+            HoldStatus status = seenHolds.get(holdId);
+            return status != null && (minorUnits > 0 || status != HoldStatus.ACTIVE);
+        }
+    }
+
+    private record PositionKey(String currency, String bankName) {
+    }
+
+    private static final class Position {
+        private final LongAdder opening = new LongAdder();
+        private final LongAdder inflows = new LongAdder();
+        private final LongAdder outflows = new LongAdder();
+        private final LongAdder scheduledOutflows = new LongAdder();
+    }
+
+    private final class View {
+        private final LocalDate businessDate;
+        private final Map<Long, PositionKey> accounts = new ConcurrentHashMap<>();
+        private final Map<PositionKey, Position> positions = new ConcurrentHashMap<>();
+
+        private View(LocalDate businessDate) {
+            this.businessDate = businessDate;
+        }
+
+        private Position positionOf(Long accountId) {
+            PositionKey key = accounts.get(accountId);
+            return key != null ? positions.get(key) : null;
+        }
+
+        // accounts created after the rebuild take the key their first movement was resolved to
+        private void apply(Movement movement) {
+            PositionKey key = accounts.get(movement.accountId());
+            if (key == null) {
+                key = movement.key();
+                if (key == null) {
+                    return;
+                }
+                accounts.putIfAbsent(movement.accountId(), key);
+            }
+            Position position = positions.computeIfAbsent(key, k -> new Position());
+            switch (movement.flow()) {
+                case INFLOW -> position.inflows.add(movement.minorUnits());
+                case OUTFLOW -> position.outflows.add(movement.minorUnits());
+                case SCHEDULED_OUTFLOW -> position.scheduledOutflows.add(movement.minorUnits());
+            }
+        }
+    }
+}
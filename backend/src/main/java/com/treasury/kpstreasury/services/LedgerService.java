@@ -0,0 +1,293 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.ContraAccount;
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+import com.treasury.kpstreasury.events.LedgerPostedEvent;
+import com.treasury.kpstreasury.models.dto.AccountAmountRow;
+import com.treasury.kpstreasury.models.dto.IdRangeRow;
+import com.treasury.kpstreasury.models.dto.LedgerEntryDto;
+import com.treasury.kpstreasury.models.dto.LedgerMismatchDto;
+import com.treasury.kpstreasury.models.dto.LedgerVerificationDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
+import com.treasury.kpstreasury.models.entity.LedgerCheckpointEntity;
+import com.treasury.kpstreasury.models.entity.LedgerEntryEntity;
+import com.treasury.kpstreasury.repositories.LedgerCheckpointRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryBalanceSlotRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only double-entry journal behind the treasury balances.
+ * Every balance movement is posted as journal entries in the caller's transaction; the balance on
+ * TreasuryEntity is the projection of those entries. Each journal nets to zero: openings and
+ * adjustments, which have no treasury counterparty, take their other side on a ContraAccount.
+ * Checkpoints fold old entries into a per-account balance so a rebuild only replays what was posted
+ * since the last checkpoint. The postings to treasury accounts of each call are announced together
+ * in one LedgerPostedEvent for in-memory views that follow the balances.
+ */
+@Service
+@Transactional
+@Slf4j
+public class LedgerService {
+
+    // the journal id TreasuryImportService also gives the openings it journals in SQL
+    private static final String OPENING_JOURNAL_PREFIX = "opening-";
+    private static final int BACKFILL_CHUNK = 1000;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerCheckpointRepository ledgerCheckpointRepository;
+    private final LedgerWatermarkService ledgerWatermarkService;
+    private final TreasuryRepository treasuryRepository;
+    private final TreasuryBalanceSlotRepository treasuryBalanceSlotRepository;
+    private final LedgerMapper ledgerMapper;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int verifyChunkSize;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository,
+                         LedgerCheckpointRepository ledgerCheckpointRepository,
+                         LedgerWatermarkService ledgerWatermarkService,
+                         TreasuryRepository treasuryRepository,
+                         TreasuryBalanceSlotRepository treasuryBalanceSlotRepository,
+                         LedgerMapper ledgerMapper,
+                         ApplicationEventPublisher applicationEventPublisher,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${treasury.ledger.verify-chunk-size:10000}") int verifyChunkSize) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerCheckpointRepository = ledgerCheckpointRepository;
+        this.ledgerWatermarkService = ledgerWatermarkService;
+        this.treasuryRepository = treasuryRepository;
+        this.treasuryBalanceSlotRepository = treasuryBalanceSlotRepository;
+        this.ledgerMapper = ledgerMapper;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.verifyChunkSize = Math.max(1, verifyChunkSize);
+    }
+
+    public String recordTransfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        return recordTransfers(List.of(new TransferRequestDto(fromAccountId, toAccountId, amount))).get(0);
+    }
+
+    /**
+     * Journals each transfer under a journal of its own, inserting all entries together and
+     * announcing them in a single event. Returns the journal ids in transfer order.
+     */
+    public List<String> recordTransfers(List<TransferRequestDto> transfers) {
+        List<String> journalIds = new ArrayList<>(transfers.size());
+        List<LedgerEntryEntity> entries = new ArrayList<>(transfers.size() * 2);
+        for (TransferRequestDto transfer : transfers) {
+            String journalId = UUID.randomUUID().toString();
+            String description = "Transfer " + transfer.getFromAccountId() + " -> " + transfer.getToAccountId();
+            entries.add(entry(journalId, transfer.getFromAccountId(), LedgerEntryType.DEBIT, transfer.getAmount(),
+                    description));
+            entries.add(entry(journalId, transfer.getToAccountId(), LedgerEntryType.CREDIT, transfer.getAmount(),
+                    description));
+            journalIds.add(journalId);
+        }
+        post(entries);
+        return journalIds;
+    }
+
+    public void recordOpeningBalance(Long accountId, BigDecimal balance) {
+        recordAgainst(OPENING_JOURNAL_PREFIX + accountId, ContraAccount.OPENING_EQUITY, accountId, balance,
+                "Opening balance");
+    }
+
+    public void recordAdjustment(Long accountId, BigDecimal delta, String description) {
+        recordAgainst(UUID.randomUUID().toString(), ContraAccount.SUSPENSE, accountId, delta, description);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<LedgerEntryDto> getEntries(Long accountId, Pageable pageable) {
+        return ledgerEntryRepository.findByAccountIdOrderByIdDesc(accountId, pageable)
+                .map(ledgerMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal rebuildBalance(Long accountId) {
+        return ledgerCheckpointRepository.findById(accountId)
+                .map(checkpoint -> checkpoint.getBalance()
+                        .add(ledgerEntryRepository.sumPostingsAfter(accountId, checkpoint.getCheckpointedThroughId())))
+                .orElseGet(() -> ledgerEntryRepository.sumPostingsAfter(accountId, 0L));
+    }
+
+    /**
+     * Folds every entry above the previous checkpoint and up to the ledger watermark into the
+     * per-account checkpoints. Entries at or below the watermark can no longer commit, so none is
+     * left behind by a checkpoint that has passed it. Checkpoints are versioned, so when two
+     * instances race the loser rolls back and the next run picks up from the winner.
+     */
+    @Scheduled(fixedDelayString = "${treasury.ledger.checkpoint-interval-ms:300000}",
+               initialDelayString = "${treasury.ledger.checkpoint-interval-ms:300000}")
+    public void checkpointAll() {
+        backfillOpeningEntries();
+
+        long through = ledgerWatermarkService.foldableThrough();
+        Long previous = ledgerCheckpointRepository.findOldestCheckpoint();
+        if (previous == null) {
+            previous = 0L;
+        }
+        if (through <= previous) {
+            return;
+        }
+
+        Map<Long, LedgerCheckpointEntity> checkpoints = ledgerCheckpointRepository.findAll().stream()
+                .collect(Collectors.toMap(LedgerCheckpointEntity::getAccountId, Function.identity()));
+
+        for (AccountAmountRow row : ledgerEntryRepository.sumPostingsByAccountBetween(previous, through)) {
+            LedgerCheckpointEntity checkpoint = checkpoints.computeIfAbsent(row.accountId(),
+                    id -> LedgerCheckpointEntity.builder().accountId(id).balance(BigDecimal.ZERO).build());
+            checkpoint.setBalance(checkpoint.getBalance().add(row.amount()));
+        }
+        for (LedgerCheckpointEntity checkpoint : checkpoints.values()) {
+            checkpoint.setCheckpointedThroughId(through);
+        }
+        ledgerCheckpointRepository.saveAll(checkpoints.values());
+
+        log.info("Ledger checkpointed {} accounts through entry {}", checkpoints.size(), through);
+    }
+
+    /**
+     * Compares the stored balance of every account with the sum of its journal entries.
+     * The id space is split into chunks that are verified in parallel, each with two aggregate
+     * queries in its own read-only transaction.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LedgerVerificationDto verifyAll() {
+        IdRangeRow range = treasuryRepository.findIdRange();
+        if (range == null || range.minId() == null) {
+            return new LedgerVerificationDto(0, 0, List.of());
+        }
+        long minId = range.minId();
+        long maxId = range.maxId();
+
+        List<long[]> chunks = new ArrayList<>();
+        for (long start = minId; start <= maxId; start += verifyChunkSize) {
+            chunks.add(new long[]{start, Math.min(maxId, start + verifyChunkSize - 1)});
+        }
+
+        List<ChunkResult> results = chunks.parallelStream()
+                .map(chunk -> readOnlyTransaction.execute(status -> verifyChunk(chunk[0], chunk[1])))
+                .toList();
+
+        long checked = 0;
+        List<LedgerMismatchDto> mismatches = new ArrayList<>();
+        for (ChunkResult result : results) {
+            checked += result.checked();
+            mismatches.addAll(result.mismatches());
+        }
+        if (!mismatches.isEmpty()) {
+            log.warn("Ledger verification found {} mismatching accounts out of {}", mismatches.size(), checked);
+        }
+        return new LedgerVerificationDto(checked, mismatches.size(), mismatches);
+    }
+
+    private ChunkResult verifyChunk(long fromId, long toId) {
+        Map<Long, BigDecimal> journal = new HashMap<>();
+        for (AccountAmountRow row : ledgerEntryRepository.sumPostingsByAccountInRange(fromId, toId)) {
+            journal.put(row.accountId(), row.amount());
+        }
+
+        // sharded accounts keep their balance in slots; their treasurys row only holds the last roll-up
+        Map<Long, BigDecimal> slotBalances = new HashMap<>();
+        for (AccountAmountRow row : treasuryBalanceSlotRepository.sumBalancesInRange(fromId, toId)) {
+            slotBalances.put(row.accountId(), row.amount());
+        }
+
+        List<AccountAmountRow> projected = treasuryRepository.findBalancesInRange(fromId, toId);
+        List<LedgerMismatchDto> mismatches = new ArrayList<>();
+        for (AccountAmountRow row : projected) {
+            Long accountId = row.accountId();
+            BigDecimal balance = slotBalances.getOrDefault(accountId, row.amount());
+            BigDecimal journalBalance = journal.getOrDefault(accountId, BigDecimal.ZERO);
+            if (balance.compareTo(journalBalance) != 0) {
+                mismatches.add(new LedgerMismatchDto(accountId, balance, journalBalance));
+            }
+        }
+        return new ChunkResult(projected.size(), mismatches);
+    }
+
+    /**
+     * Journals the opening balance of accounts that have no entry yet. Every instance runs this, so
+     * the accounts are locked in id order and read again under the lock: an instance that waited on
+     * another one finds the openings it committed and posts nothing twice.
+     */
+    private void backfillOpeningEntries() {
+        List<Long> ids = treasuryRepository.findIdsWithoutLedgerEntries();
+        for (int from = 0; from < ids.size(); from += BACKFILL_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BACKFILL_CHUNK, ids.size()));
+            treasuryRepository.lockInIdOrder(chunk);
+            for (AccountAmountRow account : treasuryRepository.findBalancesWithoutLedgerEntries(chunk)) {
+                recordOpeningBalance(account.accountId(), account.amount());
+            }
+        }
+    }
+
+    private void recordAgainst(String journalId, ContraAccount contra, Long accountId, BigDecimal delta,
+                               String description) {
+        if (delta == null || delta.signum() == 0) {
+            return;
+        }
+        boolean credit = delta.signum() > 0;
+        post(List.of(entry(journalId, accountId, credit ? LedgerEntryType.CREDIT : LedgerEntryType.DEBIT,
+                delta.abs(), description)));
+        save(List.of(entry(journalId, contra.getAccountId(), credit ? LedgerEntryType.DEBIT : LedgerEntryType.CREDIT,
+                delta.abs(), description)));
+    }
+
+    private void post(List<LedgerEntryEntity> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        save(entries);
+        applicationEventPublisher.publishEvent(new LedgerPostedEvent(entries.stream()
+                .map(entry -> new LedgerPostedEvent.Posting(entry.getJournalId(), entry.getAccountId(),
+                        entry.getEntryType(), entry.getAmount()))
+                .toList()));
+    }
+
+    // without an event: contra entries are saved this way, nothing in memory follows their balance
+    private void save(List<LedgerEntryEntity> entries) {
+        ledgerWatermarkService.beforePosting();
+        ledgerEntryRepository.saveAll(entries);
+        for (LedgerEntryEntity entry : entries) {
+            ledgerWatermarkService.posted(entry.getId());
+        }
+    }
+
+    private LedgerEntryEntity entry(String journalId, Long accountId, LedgerEntryType type,
+                                    BigDecimal amount, String description) {
+        return LedgerEntryEntity.builder()
+                .journalId(journalId)
+                .accountId(accountId)
+                .entryType(type)
+                .amount(amount)
+                .description(description)
+                .build();
+    }
+
+    private record ChunkResult(long checked, List<LedgerMismatchDto> mismatches) {
+    }
+}
@@ -0,0 +1,168 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.entity.LedgerWriterEntity;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.LedgerWriterRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells up to which journal entry id the journal can no longer change.
+ * Entry ids are drawn from a pooled sequence when a posting is made, not when its transaction
+ * commits, and every instance hands out the ids of its own block, so a higher id can commit long
+ * before a lower one. Each instance therefore tracks the lowest id it may still commit: the first id
+ * of its oldest open posting transaction, or the next id of its block when none is open. It reports
+ * that low water periodically, and every entry below the lowest report of the live instances is
+ * either committed or rolled back for good, which is what checkpoints and snapshots fold.
+ * An instance that stops posting halfway through a block holds the watermark there until it posts
+ * again; that only delays folding, the entries above the watermark are still replayed.
+ * The first report is made at startup, never from inside a posting transaction: a nested transaction
+ * there needs a second connection per poster and can drain the pool under concurrent transfers.
+ */
+@Service
+@Slf4j
+public class LedgerWatermarkService {
+
+    // floor of a transaction that is about to draw its first id
+    private static final long UNKNOWN = 0;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<Object, Long> openFloors = new ConcurrentHashMap<>();
+    private final Object reportLock = new Object();
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerWriterRepository ledgerWriterRepository;
+    private final TransactionTemplate reportTransaction;
+    private final long timeoutSeconds;
+
+    // next id of this instance's block, 0 until the instance has drawn one
+    private long nextOwnId;
+    private volatile boolean reported;
+
+    public LedgerWatermarkService(LedgerEntryRepository ledgerEntryRepository,
+                                  LedgerWriterRepository ledgerWriterRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${treasury.ledger.writer-timeout-seconds:300}") long timeoutSeconds) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerWriterRepository = ledgerWriterRepository;
+        this.reportTransaction = new TransactionTemplate(transactionManager);
+        this.reportTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @PostConstruct
+    public void register() {
+        try {
+            report();
+        } catch (RuntimeException e) {
+            log.warn("Could not register the ledger writer, the heartbeat will retry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Registers the current transaction as posting journal entries. Must be called before it draws
+     * an entry id; until posted() tells its first id, the transaction holds the watermark at zero.
+     */
+    public void beforePosting() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Journal entries can only be posted inside a transaction");
+        }
+        // the other instances have to know about this one before it draws an id
+        if (!reported) {
+            throw new IllegalStateException("Ledger writer is not registered yet, retry shortly");
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        Object transaction = new Object();
+        openFloors.put(transaction, UNKNOWN);
+        TransactionSynchronizationManager.bindResource(this, transaction);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LedgerWatermarkService.this);
+                openFloors.remove(transaction);
+            }
+        });
+    }
+
+    /**
+     * Records an entry id drawn by the current transaction from this instance's block.
+     */
+    public void posted(long entryId) {
+        Object transaction = TransactionSynchronizationManager.getResource(this);
+        if (transaction != null) {
+            openFloors.replace(transaction, UNKNOWN, entryId);
+        }
+        synchronized (this) {
+            nextOwnId = Math.max(nextOwnId, entryId + 1);
+        }
+    }
+
+    /**
+     * Highest entry id such that no entry at or below it can still commit.
+     */
+    public long foldableThrough() {
+        // taken before the reports are read: an instance whose first report is not visible yet only
+        // draws ids from blocks above it
+        long lowWater = lowWater();
+        Long reportedLowWater = ledgerWriterRepository.findLowestWaterSince(
+                LocalDateTime.now().minusSeconds(timeoutSeconds), instanceId);
+        if (reportedLowWater != null) {
+            lowWater = Math.min(lowWater, reportedLowWater);
+        }
+        return lowWater - 1;
+    }
+
+    /**
+     * Publishes the low water of this instance and forgets instances that stopped reporting.
+     */
+    @Scheduled(fixedDelayString = "${treasury.ledger.writer-heartbeat-ms:10000}")
+    public void report() {
+        // one report at a time, so that the first two can't both insert the row of this instance
+        synchronized (reportLock) {
+            long lowWater = lowWater();
+            LocalDateTime now = LocalDateTime.now();
+            reportTransaction.executeWithoutResult(status -> {
+                ledgerWriterRepository.save(new LedgerWriterEntity(instanceId, lowWater, now));
+                ledgerWriterRepository.deleteReportedBefore(now.minusSeconds(timeoutSeconds));
+            });
+            reported = true;
+        }
+    }
+
+    // the steps are ordered so that an id drawn concurrently is seen by at least one of them
+    private long lowWater() {
+        long idleFloor;
+        synchronized (this) {
+            idleFloor = nextOwnId;
+        }
+        if (idleFloor == 0) {
+            // the first block of this instance will lie above every id committed so far
+            Long maxId = ledgerEntryRepository.findMaxId();
+            idleFloor = (maxId == null ? 0 : maxId) + 1;
+        }
+        long lowWater = idleFloor;
+        for (Long floor : openFloors.values()) {
+            lowWater = Math.min(lowWater, floor);
+        }
+        synchronized (this) {
+            if (nextOwnId > 0) {
+                lowWater = Math.min(lowWater, nextOwnId);
+            }
+        }
+        return lowWater;
+    }
+}
@@ -0,0 +1,411 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.events.CashPoolSweptEvent;
+import com.treasury.kpstreasury.events.HoldChangedEvent;
+import com.treasury.kpstreasury.events.LedgerPostedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountChangedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountsStatusChangedEvent;
+import com.treasury.kpstreasury.models.dto.LowBalanceThresholdDto;
+import com.treasury.kpstreasury.models.dto.ThresholdAccountRow;
+import com.treasury.kpstreasury.models.dto.TreasuryFiguresRow;
+import com.treasury.kpstreasury.models.entity.LowBalanceThresholdEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.LowBalanceThresholdRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Low-balance alerts raised as balances change instead of by polling.
+ * The configured thresholds are kept in an in-memory index by account. Postings, hold changes and
+ * account edits are looked up there while their transaction runs; the watched accounts among them
+ * are collected once per transaction and read with one query per chunk of ids just before it
+ * commits, inside that transaction, so what is read is what commits. They are compared with their
+ * thresholds once the commit went through. Figures older than the last ones applied to an account
+ * (by row version) are ignored, so checks finishing out of order cannot undo a newer one.
+ *
+ * An alert is published through EventPublisher when the available balance crosses below the
+ * threshold. The account is re-armed only once the balance climbs back to threshold plus
+ * hysteresis, so a balance hovering around the threshold does not alert on every movement, and
+ * alerts of one account are at least the configured interval apart; crossings inside the interval
+ * are counted as suppressed instead. Alert state is not persisted: on startup accounts that are
+ * already below their threshold are marked as such without alerting again. A scheduled resync
+ * re-reads every watched account, which also catches changes committed on other instances.
+ */
+@Service
+@Slf4j
+public class LowBalanceAlertService {
+
+    // ids per figures query, well below the bind parameter limit of the drivers
+    private static final int REFRESH_CHUNK = 1000;
+
+    private final LowBalanceThresholdRepository thresholdRepository;
+    private final TreasuryRepository treasuryRepository;
+    private final BalanceSlotService balanceSlotService;
+    private final EventPublisher eventPublisher;
+    private final TransactionTemplate lookupTransaction;
+    private final TransactionTemplate alertTransaction;
+    private final BigDecimal defaultHysteresisRatio;
+    private final String defaultRecipient;
+    private final long minAlertIntervalNanos;
+    private final Map<Long, Watch> watches = new ConcurrentHashMap<>();
+
+    public LowBalanceAlertService(LowBalanceThresholdRepository thresholdRepository,
+                                  TreasuryRepository treasuryRepository,
+                                  BalanceSlotService balanceSlotService,
+                                  EventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${treasury.low-balance.default-hysteresis-ratio:0.05}") BigDecimal defaultHysteresisRatio,
+                                  @Value("${treasury.low-balance.default-recipient:treasury-operations}") String defaultRecipient,
+                                  @Value("${treasury.low-balance.min-alert-interval-ms:900000}") long minAlertIntervalMs) {
+        this.thresholdRepository = thresholdRepository;
+        this.treasuryRepository = treasuryRepository;
+        this.balanceSlotService = balanceSlotService;
+        this.eventPublisher = eventPublisher;
+        // checks run after the commit of the changing transaction, so reads and alerts need their own
+        this.lookupTransaction = new TransactionTemplate(transactionManager);
+        this.lookupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lookupTransaction.setReadOnly(true);
+        this.alertTransaction = new TransactionTemplate(transactionManager);
+        this.alertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.defaultHysteresisRatio = defaultHysteresisRatio;
+        this.defaultRecipient = defaultRecipient;
+        this.minAlertIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minAlertIntervalMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        load(false);
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.low-balance.resync-interval-ms:300000}",
+               initialDelayString = "${treasury.low-balance.resync-interval-ms:300000}")
+    public void resync() {
+        load(true);
+    }
+
+    /**
+     * Sets the threshold of an account; the account is checked against it once the change commits.
+     */
+    @Transactional
+    public LowBalanceThresholdDto setThreshold(Long accountId, LowBalanceThresholdDto thresholdDto) {
+        TreasuryEntity account = treasuryRepository.findById(accountId)
+                .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + accountId));
+        BigDecimal threshold = thresholdDto.getThreshold();
+        if (threshold == null || threshold.signum() < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+        BigDecimal hysteresis = thresholdDto.getHysteresis() != null ? thresholdDto.getHysteresis()
+                : threshold.multiply(defaultHysteresisRatio).setScale(2, RoundingMode.HALF_UP);
+        if (hysteresis.signum() < 0) {
+            throw new IllegalArgumentException("Hysteresis must not be negative");
+        }
+
+        LowBalanceThresholdEntity saved = thresholdRepository.save(LowBalanceThresholdEntity.builder()
+                .accountId(accountId)
+                .threshold(threshold)
+                .hysteresis(hysteresis)
+                .recipient(thresholdDto.getRecipient() != null ? thresholdDto.getRecipient() : defaultRecipient)
+                .build());
+        String accountNumber = account.getAccountNumber();
+        afterCommit(() -> {
+            watches.computeIfAbsent(accountId, id -> new Watch(accountNumber)).configure(saved);
+            refresh(List.of(accountId));
+        });
+        return toDto(saved, accountNumber);
+    }
+
+    @Transactional
+    public void removeThreshold(Long accountId) {
+        if (!thresholdRepository.existsById(accountId)) {
+            throw new IllegalArgumentException("No low-balance threshold for account: " + accountId);
+        }
+        thresholdRepository.deleteById(accountId);
+        afterCommit(() -> watches.remove(accountId));
+    }
+
+    public List<LowBalanceThresholdDto> getThresholds() {
+        return watches.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Watched accounts whose available balance is currently below their threshold.
+     */
+    public List<LowBalanceThresholdDto> getAccountsBelowThreshold() {
+        return getThresholds().stream()
+                .filter(LowBalanceThresholdDto::isBelowThreshold)
+                .collect(Collectors.toList());
+    }
+
+    @EventListener
+    public void onLedgerPosted(LedgerPostedEvent event) {
+        changed(event.postings().stream().map(LedgerPostedEvent.Posting::accountId).toList());
+    }
+
+    @EventListener
+    public void onHoldChanged(HoldChangedEvent event) {
+        changed(List.of(event.accountId()));
+    }
+
+    @EventListener
+    public void onCashPoolSwept(CashPoolSweptEvent event) {
+        changed(event.postings().stream().map(CashPoolSweptEvent.Posting::accountId).toList());
+    }
+
+    @EventListener
+    public void onTreasuryAccountChanged(TreasuryAccountChangedEvent event) {
+        changed(List.of(event.accountId()));
+    }
+
+    @EventListener
+    public void onTreasuryAccountsStatusChanged(TreasuryAccountsStatusChangedEvent event) {
+        changed(event.accountIds());
+    }
+
+    // collects the watched accounts of the running transaction; outside of one they are read right away
+    private void changed(Collection<Long> accountIds) {
+        List<Long> watched = accountIds.stream().filter(watches::containsKey).toList();
+        if (watched.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(watched);
+            return;
+        }
+        ChangedAccounts changed = (ChangedAccounts) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            changed = new ChangedAccounts();
+            TransactionSynchronizationManager.bindResource(this, changed);
+            TransactionSynchronizationManager.registerSynchronization(changed);
+        }
+        changed.accountIds.addAll(watched);
+    }
+
+    private void refresh(List<Long> accountIds) {
+        List<TreasuryFiguresRow> rows = lookupTransaction.execute(status -> read(accountIds));
+        apply(accountIds, rows);
+    }
+
+    private List<TreasuryFiguresRow> read(List<Long> accountIds) {
+        List<TreasuryFiguresRow> rows = new ArrayList<>(accountIds.size());
+        for (int from = 0; from < accountIds.size(); from += REFRESH_CHUNK) {
+            for (TreasuryFiguresRow row : treasuryRepository.findSummaryFiguresByIds(
+                    accountIds.subList(from, Math.min(from + REFRESH_CHUNK, accountIds.size())))) {
+                // the available balance of a sharded account lives in its slots
+                rows.add(!balanceSlotService.isSharded(row.id()) ? row : new TreasuryFiguresRow(row.id(),
+                        row.currency(), row.status(), row.balance(), balanceSlotService.availableBalance(row.id()),
+                        row.version()));
+            }
+        }
+        return rows;
+    }
+
+    private void apply(List<Long> accountIds, List<TreasuryFiguresRow> rows) {
+        Set<Long> found = new HashSet<>();
+        for (TreasuryFiguresRow row : rows) {
+            found.add(row.id());
+            Watch watch = watches.get(row.id());
+            if (watch == null) {
+                continue;
+            }
+            long version = row.version() != null ? row.version() : 0L;
+            synchronized (watch) {
+                // slot postings leave the row version alone, so equal versions are applied again
+                if (version < watch.version) {
+                    continue;
+                }
+                watch.version = version;
+                if (row.status() == AccountStatus.ACTIVE) {
+                    evaluate(watch, minorUnits(row.availableBalance()), true);
+                }
+            }
+        }
+        List<Long> deleted = accountIds.stream()
+                .filter(accountId -> !found.contains(accountId) && watches.remove(accountId) != null)
+                .toList();
+        if (!deleted.isEmpty()) {
+            alertTransaction.executeWithoutResult(status -> thresholdRepository.deleteAllByIdInBatch(deleted));
+        }
+    }
+
+    private synchronized void load(boolean alerting) {
+        List<ThresholdAccountRow> rows = lookupTransaction.execute(status -> thresholdRepository.findAllWithAccounts()
+                .stream()
+                .map(row -> row.balanceSlots() == 0 ? row : new ThresholdAccountRow(row.threshold(), row.accountNumber(),
+                        balanceSlotService.availableBalance(row.threshold().getAccountId()), row.status(),
+                        row.balanceSlots()))
+                .toList());
+
+        Set<Long> loaded = new HashSet<>();
+        for (ThresholdAccountRow row : rows) {
+            LowBalanceThresholdEntity threshold = row.threshold();
+            Long accountId = threshold.getAccountId();
+            loaded.add(accountId);
+            Watch watch = watches.computeIfAbsent(accountId, id -> new Watch(row.accountNumber()));
+            synchronized (watch) {
+                watch.configure(threshold);
+                if (row.status() == AccountStatus.ACTIVE) {
+                    evaluate(watch, minorUnits(row.availableBalance()), alerting);
+                }
+            }
+        }
+        watches.keySet().retainAll(loaded);
+        log.info("Watching {} accounts for low balances", loaded.size());
+    }
+
+    private void evaluate(Watch watch, long available, boolean alerting) {
+        if (!watch.below && available < watch.threshold) {
+            watch.below = true;
+            if (alerting) {
+                alert(watch, available);
+            }
+        } else if (watch.below && available >= watch.threshold + watch.hysteresis) {
+            watch.below = false;
+        }
+    }
+
+    private void alert(Watch watch, long available) {
+        long now = System.nanoTime();
+        if (watch.lastAlertAt != null && now - watch.lastAlertNanos < minAlertIntervalNanos) {
+            watch.suppressedAlerts++;
+            log.debug("Low-balance alert of account {} suppressed by rate limiting", watch.accountNumber);
+            return;
+        }
+        watch.lastAlertNanos = now;
+        watch.lastAlertAt = LocalDateTime.now();
+        String balance = amount(available).toPlainString();
+        alertTransaction.executeWithoutResult(status ->
+                eventPublisher.publishLowBalanceAlert(watch.recipient, watch.accountNumber, balance));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private LowBalanceThresholdDto toDto(LowBalanceThresholdEntity threshold, String accountNumber) {
+        return LowBalanceThresholdDto.builder()
+                .accountId(threshold.getAccountId())
+                .accountNumber(accountNumber)
+                .threshold(threshold.getThreshold())
+                .hysteresis(threshold.getHysteresis())
+                .recipient(threshold.getRecipient())
+                .build();
+    }
+
+    // balances are scale 2 columns
+    private static long minorUnits(BigDecimal amount) {
+        return Money.rounded(amount, null).minorUnits();
+    }
+
+    private static BigDecimal amount(long minorUnits) {
+        return Money.ofMinor(minorUnits, null).toBigDecimal();
+    }
+
+    // the watched accounts one transaction changed: read before it commits, checked after it committed
+    private final class ChangedAccounts implements TransactionSynchronization {
+        private final Set<Long> accountIds = new LinkedHashSet<>();
+        private List<TreasuryFiguresRow> rows;
+
+        // a nested REQUIRES_NEW transaction collects its own accounts
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(LowBalanceAlertService.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(LowBalanceAlertService.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            rows = read(new ArrayList<>(accountIds));
+        }
+
+        @Override
+        public void afterCommit() {
+            if (rows != null) {
+                apply(new ArrayList<>(accountIds), rows);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LowBalanceAlertService.this);
+        }
+    }
+
+    // guarded by its own monitor
+    private static final class Watch {
+        private final String accountNumber;
+        private long threshold;
+        private long hysteresis;
+        private String recipient;
+        private long version;
+        private boolean below;
+        private long lastAlertNanos;
+        private LocalDateTime lastAlertAt;
+        private long suppressedAlerts;
+
+        private Watch(String accountNumber) {
+            this.accountNumber = accountNumber;
+        }
+
+        private synchronized void configure(LowBalanceThresholdEntity entity) {
+            threshold = minorUnits(entity.getThreshold());
+            hysteresis = minorUnits(entity.getHysteresis());
+            recipient = entity.getRecipient();
+        }
+
+        private synchronized LowBalanceThresholdDto toDto(Long accountId) {
+            return LowBalanceThresholdDto.builder()
+                    .accountId(accountId)
+                    .accountNumber(accountNumber)
+                    .threshold(amount(threshold))
+                    .hysteresis(amount(hysteresis))
+                    .recipient(recipient)
+                    .belowThreshold(below)
+                    .lastAlertAt(lastAlertAt)
+                    .suppressedAlerts(suppressedAlerts)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.NettingStatus;
+import com.treasury.kpstreasury.models.dto.NettingCycleDto;
+import com.treasury.kpstreasury.models.dto.NettingInstructionDto;
+import com.treasury.kpstreasury.models.dto.NettingInstructionRow;
+import com.treasury.kpstreasury.models.dto.NettingLegDto;
+import com.treasury.kpstreasury.models.dto.NettingPositionDto;
+import com.treasury.kpstreasury.models.dto.NettingReportDto;
+import com.treasury.kpstreasury.models.dto.TreasuryFiguresRow;
+import com.treasury.kpstreasury.models.entity.NettingCycleEntity;
+import com.treasury.kpstreasury.models.entity.NettingInstructionEntity;
+import com.treasury.kpstreasury.models.entity.NettingLegEntity;
+import com.treasury.kpstreasury.repositories.NettingCycleRepository;
+import com.treasury.kpstreasury.repositories.NettingInstructionRepository;
+import com.treasury.kpstreasury.repositories.NettingLegRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.LongLongHashMap;
+import com.treasury.kpstreasury.utils.Money;
+import com.treasury.kpstreasury.utils.NettingMapper;
+import com.treasury.kpstreasury.utils.PaymentNetting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Multilateral netting of submitted transfers. Instructions are accepted as PENDING and left alone
+ * until a netting cycle runs; the cycle claims everything submitted up to its cutoff, nets it per
+ * account with PaymentNetting and posts only the residual legs through TransferEngine, so n
+ * instructions between a handful of accounts settle with at most one leg fewer than the accounts
+ * that have a net position instead of n transfers.
+ *
+ * The cycle runs in one transaction. The accounts of the claimed instructions are locked in id
+ * order before their available balances are read, instructions touching an account that is missing
+ * or not active are rejected, and a net payer that cannot cover its net position has its own
+ * instructions unwound, latest first, until it can; since unwinding changes what others receive the
+ * netting is repeated until every net payer is covered. The rest are SETTLED together with the legs.
+ * A leg that still fails (a sharded account drained between the read and the posting) rolls the
+ * whole cycle back and its instructions wait for the next one.
+ */
+@Service
+@Slf4j
+public class NettingService {
+
+    // ids per statement for the account reads, locks and rejections
+    private static final int CHUNK = 1000;
+
+    static final String ACCOUNT_NOT_FOUND = "Account not found";
+    static final String ACCOUNT_NOT_ACTIVE = "Both accounts must be active for transfer";
+    static final String CURRENCY_MISMATCH = "Both accounts must have the same currency";
+    static final String INSUFFICIENT_FUNDS = "Insufficient available balance for the net position";
+
+    private final NettingInstructionRepository nettingInstructionRepository;
+    private final NettingCycleRepository nettingCycleRepository;
+    private final NettingLegRepository nettingLegRepository;
+    private final TreasuryRepository treasuryRepository;
+    private final TransferEngine transferEngine;
+    private final BalanceSlotService balanceSlotService;
+    private final NettingMapper nettingMapper;
+    private final TransactionTemplate cycleTransaction;
+
+    public NettingService(NettingInstructionRepository nettingInstructionRepository,
+                          NettingCycleRepository nettingCycleRepository,
+                          NettingLegRepository nettingLegRepository,
+                          TreasuryRepository treasuryRepository,
+                          TransferEngine transferEngine,
+                          BalanceSlotService balanceSlotService,
+                          NettingMapper nettingMapper,
+                          PlatformTransactionManager transactionManager) {
+        this.nettingInstructionRepository = nettingInstructionRepository;
+        this.nettingCycleRepository = nettingCycleRepository;
+        this.nettingLegRepository = nettingLegRepository;
+        this.treasuryRepository = treasuryRepository;
+        this.transferEngine = transferEngine;
+        this.balanceSlotService = balanceSlotService;
+        this.nettingMapper = nettingMapper;
+        this.cycleTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Accepts the instructions for the next netting cycle, all or none. Each one takes the currency
+     * of its source account.
+     * @throws IllegalArgumentException when an instruction names an unknown account, the same account
+     * twice or accounts of different currencies
+     */
+    @Transactional
+    public List<NettingInstructionDto> submit(List<NettingInstructionDto> instructions) {
+        Map<Long, TreasuryFiguresRow> accounts = figures(instructions.stream()
+                .flatMap(instruction -> Stream.of(instruction.getFromAccountId(), instruction.getToAccountId()))
+                .collect(Collectors.toCollection(TreeSet::new)));
+
+        List<NettingInstructionEntity> entities = new ArrayList<>(instructions.size());
+        for (int i = 0; i < instructions.size(); i++) {
+            NettingInstructionDto instruction = instructions.get(i);
+            TransferEngine.requireValidTransfer(instruction.getFromAccountId(), instruction.getToAccountId(),
+                    instruction.getAmount());
+            TreasuryFiguresRow from = accounts.get(instruction.getFromAccountId());
+            TreasuryFiguresRow to = accounts.get(instruction.getToAccountId());
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("Instruction " + i + ": " + ACCOUNT_NOT_FOUND);
+            }
+            if (!from.currency().equals(to.currency())) {
+                throw new IllegalArgumentException("Instruction " + i + ": " + CURRENCY_MISMATCH);
+            }
+            NettingInstructionEntity entity = nettingMapper.toEntity(instruction);
+            entity.setCurrency(from.currency());
+            entities.add(entity);
+        }
+        return nettingInstructionRepository.saveAll(entities)
+                .stream()
+                .map(nettingMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<NettingInstructionDto> getInstruction(Long id) {
+        return nettingInstructionRepository.findById(id).map(nettingMapper::toDto);
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.netting.cycle-interval-ms:60000}",
+               initialDelayString = "${treasury.netting.cycle-interval-ms:60000}")
+    public void scheduledCycle() {
+        runCycle();
+    }
+
+    /**
+     * Nets and settles everything submitted so far, returning the report of the cycle, or nothing
+     * when no instruction was pending.
+     */
+    public synchronized Optional<NettingReportDto> runCycle() {
+        LocalDateTime cutoff = LocalDateTime.now();
+        if (!nettingInstructionRepository.existsByStatusAndCycleIdIsNullAndSubmittedAtLessThanEqual(
+                NettingStatus.PENDING, cutoff)) {
+            return Optional.empty();
+        }
+
+        long started = System.nanoTime();
+        NettingCycleEntity cycle = cycleTransaction.execute(status -> {
+            NettingCycleEntity claimed = nettingCycleRepository.save(NettingCycleEntity.builder()
+                    .cutoffAt(cutoff)
+                    .build());
+            int instructionCount = nettingInstructionRepository.claimPending(claimed.getId(), cutoff);
+            if (instructionCount == 0) {
+                status.setRollbackOnly();
+                return null;
+            }
+            claimed.setInstructionCount(instructionCount);
+            settle(claimed);
+            return nettingCycleRepository.save(claimed);
+        });
+        if (cycle == null) {
+            return Optional.empty();
+        }
+
+        log.info("Netting cycle {} settled {} of {} instructions with {} legs in {} ms", cycle.getId(),
+                cycle.getSettledCount(), cycle.getInstructionCount(), cycle.getLegCount(),
+                (System.nanoTime() - started) / 1_000_000);
+        return Optional.of(getReport(cycle.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<NettingCycleDto> getCycles() {
+        return nettingCycleRepository.findTop50ByOrderByIdDesc()
+                .stream()
+                .map(nettingMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Rebuilds the audit report of a cycle from its settled instructions and posted legs.
+     * @throws IllegalArgumentException when there is no such cycle
+     */
+    @Transactional(readOnly = true)
+    public NettingReportDto getReport(Long cycleId) {
+        NettingCycleEntity cycle = nettingCycleRepository.findById(cycleId)
+                .orElseThrow(() -> new IllegalArgumentException("Netting cycle not found with id: " + cycleId));
+        List<NettingInstructionRow> settled =
+                nettingInstructionRepository.findRowsByCycleIdAndStatus(cycleId, NettingStatus.SETTLED);
+        List<NettingLegEntity> legs = nettingLegRepository.findByCycleIdOrderById(cycleId);
+        PaymentNetting netting = net(settled);
+
+        List<NettingPositionDto> positions = new ArrayList<>(netting.accountCount());
+        for (int i = 0; i < netting.accountCount(); i++) {
+            String currency = netting.currency(i);
+            positions.add(new NettingPositionDto(netting.accountId(i), currency,
+                    Money.ofMinor(netting.paid(i), currency).toBigDecimal(),
+                    Money.ofMinor(netting.received(i), currency).toBigDecimal(),
+                    Money.ofMinor(netting.net(i), currency).toBigDecimal()));
+        }
+        positions.sort(Comparator.comparing(NettingPositionDto::getAccountId));
+
+        List<NettingLegDto> bilateralNets = new ArrayList<>();
+        netting.forEachBilateralNet((from, to, amount, currency) -> bilateralNets.add(
+                new NettingLegDto(from, to, Money.ofMinor(amount, currency).toBigDecimal(), currency, null)));
+        bilateralNets.sort(Comparator.comparing(NettingLegDto::getFromAccountId)
+                .thenComparing(NettingLegDto::getToAccountId));
+
+        // the legs are balanced when they move every account by exactly its net position
+        LongLongHashMap legNets = new LongLongHashMap(netting.accountCount());
+        boolean balanced = true;
+        for (NettingLegEntity leg : legs) {
+            long amount = Money.of(leg.getAmount(), leg.getCurrency()).minorUnits();
+            legNets.addTo(leg.getFromAccountId(), -amount);
+            legNets.addTo(leg.getToAccountId(), amount);
+            balanced &= netting.indexOf(leg.getFromAccountId()) >= 0
+                    && netting.indexOf(leg.getToAccountId()) >= 0;
+        }
+        for (int i = 0; i < netting.accountCount(); i++) {
+            balanced &= legNets.get(netting.accountId(i), 0L) == netting.net(i);
+        }
+
+        List<NettingInstructionDto> rejected = nettingInstructionRepository
+                .findByCycleIdAndStatusOrderById(cycleId, NettingStatus.REJECTED)
+                .stream()
+                .map(nettingMapper::toDto)
+                .collect(Collectors.toList());
+        return NettingReportDto.builder()
+                .cycle(nettingMapper.toDto(cycle))
+                .grossPostings(2 * settled.size())
+                .settlementPostings(2 * legs.size())
+                .balanced(balanced)
+                .positions(positions)
+                .bilateralNets(bilateralNets)
+                .legs(legs.stream().map(nettingMapper::toDto).collect(Collectors.toList()))
+                .rejected(rejected)
+                .build();
+    }
+
+    private void settle(NettingCycleEntity cycle) {
+        List<NettingInstructionRow> rows =
+                nettingInstructionRepository.findRowsByCycleIdAndStatus(cycle.getId(), NettingStatus.PENDING);
+        TreeSet<Long> accountIds = new TreeSet<>();
+        for (NettingInstructionRow row : rows) {
+            accountIds.add(row.fromAccountId());
+            accountIds.add(row.toAccountId());
+        }
+        List<Long> lockOrder = new ArrayList<>(accountIds);
+        for (int from = 0; from < lockOrder.size(); from += CHUNK) {
+            treasuryRepository.lockInIdOrder(lockOrder.subList(from, Math.min(from + CHUNK, lockOrder.size())));
+        }
+        Map<Long, TreasuryFiguresRow> accounts = figures(accountIds);
+
+        Map<String, List<Long>> rejections = new LinkedHashMap<>();
+        List<NettingInstructionRow> live = new ArrayList<>(rows.size());
+        for (NettingInstructionRow row : rows) {
+            String rejection = rejectionFor(row, accounts.get(row.fromAccountId()), accounts.get(row.toAccountId()));
+            if (rejection != null) {
+                rejections.computeIfAbsent(rejection, reason -> new ArrayList<>()).add(row.id());
+            } else {
+                live.add(row);
+            }
+        }
+
+        LongLongHashMap available = new LongLongHashMap(accounts.size());
+        for (TreasuryFiguresRow account : accounts.values()) {
+            BigDecimal availableBalance = balanceSlotService.isSharded(account.id())
+                    ? balanceSlotService.availableBalance(account.id())
+                    : account.availableBalance();
+            available.put(account.id(), Money.of(availableBalance, account.currency()).minorUnits());
+        }
+
+        PaymentNetting netting = net(live);
+        LongLongHashMap shortfalls = shortfalls(netting, available);
+        while (shortfalls.size() > 0) {
+            live = unwind(live, shortfalls, rejections);
+            netting = net(live);
+            shortfalls = shortfalls(netting, available);
+        }
+
+        List<NettingLegEntity> legs = new ArrayList<>();
+        for (PaymentNetting.Leg leg : netting.residualLegs()) {
+            BigDecimal amount = Money.ofMinor(leg.amount(), leg.currency()).toBigDecimal();
+            String journalId = transferEngine.postTransfer(leg.fromAccountId(), leg.toAccountId(), amount);
+            legs.add(NettingLegEntity.builder()
+                    .cycleId(cycle.getId())
+                    .fromAccountId(leg.fromAccountId())
+                    .toAccountId(leg.toAccountId())
+                    .amount(amount)
+                    .currency(leg.currency())
+                    .journalId(journalId)
+                    .build());
+        }
+        nettingLegRepository.saveAll(legs);
+
+        int rejected = 0;
+        for (Map.Entry<String, List<Long>> rejection : rejections.entrySet()) {
+            List<Long> ids = rejection.getValue();
+            for (int from = 0; from < ids.size(); from += CHUNK) {
+                rejected += nettingInstructionRepository.reject(ids.subList(from, Math.min(from + CHUNK, ids.size())),
+                        rejection.getKey());
+            }
+        }
+        cycle.setRejectedCount(rejected);
+        cycle.setSettledCount(nettingInstructionRepository.settleCycle(cycle.getId()));
+        cycle.setAccountCount(netting.accountCount());
+        cycle.setLegCount(legs.size());
+        cycle.setSettledAt(LocalDateTime.now());
+    }
+
+    private static String rejectionFor(NettingInstructionRow row, TreasuryFiguresRow from, TreasuryFiguresRow to) {
+        if (from == null || to == null) {
+            return ACCOUNT_NOT_FOUND;
+        }
+        if (from.status() != AccountStatus.ACTIVE || to.status() != AccountStatus.ACTIVE) {
+            return ACCOUNT_NOT_ACTIVE;
+        }
+        if (!row.currency().equals(from.currency()) || !from.currency().equals(to.currency())) {
+            return CURRENCY_MISMATCH;
+        }
+        return null;
+    }
+
+    // what each net payer that cannot cover its net position is short by, in minor units
+    private static LongLongHashMap shortfalls(PaymentNetting netting, LongLongHashMap available) {
+        LongLongHashMap shortfalls = new LongLongHashMap(16);
+        for (int i = 0; i < netting.accountCount(); i++) {
+            long accountId = netting.accountId(i);
+            long after = available.get(accountId, 0L) + netting.net(i);
+            if (after < 0) {
+                shortfalls.put(accountId, -after);
+            }
+        }
+        return shortfalls;
+    }
+
+    // takes the latest instructions of each short payer out until its shortfall is covered
+    private static List<NettingInstructionRow> unwind(List<NettingInstructionRow> live, LongLongHashMap shortfalls,
+                                                      Map<String, List<Long>> rejections) {
+        boolean[] unwound = new boolean[live.size()];
+        for (int i = live.size() - 1; i >= 0; i--) {
+            NettingInstructionRow row = live.get(i);
+            if (shortfalls.get(row.fromAccountId(), 0L) > 0) {
+                shortfalls.addTo(row.fromAccountId(), -Money.of(row.amount(), row.currency()).minorUnits());
+                rejections.computeIfAbsent(INSUFFICIENT_FUNDS, reason -> new ArrayList<>()).add(row.id());
+                unwound[i] = true;
+            }
+        }
+        List<NettingInstructionRow> kept = new ArrayList<>(live.size());
+        for (int i = 0; i < live.size(); i++) {
+            if (!unwound[i]) {
+                kept.add(live.get(i));
+            }
+        }
+        return kept;
+    }
+
+    private static PaymentNetting net(List<NettingInstructionRow> rows) {
+        PaymentNetting netting = new PaymentNetting(rows.size());
+        for (NettingInstructionRow row : rows) {
+            netting.add(row.fromAccountId(), row.toAccountId(), Money.of(row.amount(), row.currency()).minorUnits(),
+                    row.currency());
+        }
+        return netting;
+    }
+
+    private Map<Long, TreasuryFiguresRow> figures(TreeSet<Long> accountIds) {
+        List<Long> ids = new ArrayList<>(accountIds);
+        Map<Long, TreasuryFiguresRow> accounts = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += CHUNK) {
+            for (TreasuryFiguresRow row : treasuryRepository.findSummaryFiguresByIds(
+                    ids.subList(from, Math.min(from + CHUNK, ids.size())))) {
+                accounts.put(row.id(), row);
+            }
+        }
+        return accounts;
+    }
+}
@@ -0,0 +1,191 @@
+package com.treasury.kpstreasury.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.treasury.kpstreasury.events.BaseEvent;
+import com.treasury.kpstreasury.models.dto.EventKeyIdRow;
+import com.treasury.kpstreasury.models.entity.OutboxEventEntity;
+import com.treasury.kpstreasury.repositories.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes the events of the outbox to Kafka.
+ * Each run claims batches of unsent rows with FOR UPDATE SKIP LOCKED, so relays on several
+ * instances drain the outbox in parallel without sending a row twice; a run goes on until a claim
+ * comes back empty, since a batch cut short by rows another relay holds does not mean the outbox
+ * is drained. The events of different keys are sent in parallel, the events of one key one after
+ * the other, each once the previous one was acknowledged: after a failure the later events of that
+ * key are not sent at all, so they cannot overtake it. A claimed event whose key has an older event
+ * the claim does not hold, because another relay holds it, is left unsent for a later claim, so the
+ * order of a key holds across instances too. The rows Kafka acknowledged are marked sent
+ * in the same transaction that claimed them, the failed ones stay unsent and are retried by a later
+ * run until they reach the maximum number of attempts, after which they are left in the table for
+ * inspection. Delivery is therefore at-least-once: consumers should use the eventId to drop
+ * duplicates.
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long sendTimeoutMs;
+    private final Duration retention;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, Object> kafkaTemplate,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${treasury.outbox.batch-size:500}") int batchSize,
+                       @Value("${treasury.outbox.max-attempts:20}") int maxAttempts,
+                       @Value("${treasury.outbox.send-timeout-ms:10000}") long sendTimeoutMs,
+                       @Value("${treasury.outbox.retention-hours:24}") long retentionHours) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = maxAttempts;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.outbox.relay-interval-ms:500}")
+    public void relay() {
+        int sent;
+        do {
+            sent = transactionTemplate.execute(status -> relayBatch());
+        } while (sent > 0);
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.outbox.purge-interval-ms:3600000}")
+    public void purgeSent() {
+        int purged = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(LocalDateTime.now().minus(retention)));
+        if (purged > 0) {
+            log.debug("Purged {} published outbox events", purged);
+        }
+    }
+
+    /**
+     * Publishes one batch. Returns the number of events sent when Kafka took every event, 0 when
+     * there was nothing to send or a send failed, so a run stops at the first batch that did not
+     * fully go through instead of spinning on a broker outage or on events held behind another relay.
+     */
+    int relayBatch() {
+        List<OutboxEventEntity> batch = inKeyOrder(outboxEventRepository.claimUnsent(maxAttempts, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // each event of a key waits for the acknowledgement of the one before it
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        Map<String, CompletableFuture<?>> lastByKey = new HashMap<>();
+        for (OutboxEventEntity event : batch) {
+            CompletableFuture<?> previous = lastByKey.get(event.getEventKey());
+            CompletableFuture<?> send = previous == null ? send(event) : previous.thenCompose(ack -> send(event));
+            sends.add(send);
+            lastByKey.put(event.getEventKey(), send);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<Long> sent = new ArrayList<>(batch.size());
+        List<Long> failed = new ArrayList<>();
+        Set<String> failedKeys = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEventEntity event = batch.get(i);
+            if (failedKeys.contains(event.getEventKey())) {
+                // not sent and not an attempt: it stays behind the failed event of its key
+                sends.get(i).cancel(false);
+                continue;
+            }
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sent.add(event.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.add(event.getId());
+                failedKeys.add(event.getEventKey());
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Publishing outbox event {} to topic [{}] failed: {}",
+                        event.getId(), event.getTopic(), e.getMessage());
+                failed.add(event.getId());
+                failedKeys.add(event.getEventKey());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!sent.isEmpty()) {
+            outboxEventRepository.markSent(sent, now);
+        }
+        if (!failed.isEmpty()) {
+            outboxEventRepository.markFailed(failed);
+        }
+        return failed.isEmpty() ? sent.size() : 0;
+    }
+
+    /**
+     * The claimed events no older event of their key outside the claim has to precede. Rows skipped
+     * by the claim are held by another relay; the claimed events behind them stay unsent, their row
+     * locks go with this transaction, and a later claim takes them once the older ones were sent.
+     */
+    private List<OutboxEventEntity> inKeyOrder(List<OutboxEventEntity> claimed) {
+        if (claimed.isEmpty()) {
+            return claimed;
+        }
+        Set<String> keys = new HashSet<>();
+        List<Long> ids = new ArrayList<>(claimed.size());
+        for (OutboxEventEntity event : claimed) {
+            keys.add(event.getEventKey());
+            ids.add(event.getId());
+        }
+        Map<String, Long> oldestElsewhere = new HashMap<>();
+        for (EventKeyIdRow row : outboxEventRepository.findOldestUnclaimedByKey(keys, ids, maxAttempts)) {
+            oldestElsewhere.put(row.eventKey(), row.id());
+        }
+        if (oldestElsewhere.isEmpty()) {
+            return claimed;
+        }
+
+        List<OutboxEventEntity> sendable = new ArrayList<>(claimed.size());
+        for (OutboxEventEntity event : claimed) {
+            Long oldest = oldestElsewhere.get(event.getEventKey());
+            if (oldest == null || event.getId() < oldest) {
+                sendable.add(event);
+            }
+        }
+        return sendable;
+    }
+
+    private CompletableFuture<?> send(OutboxEventEntity event) {
+        try {
+            BaseEvent payload = objectMapper.readValue(event.getPayload(), BaseEvent.class);
+            return kafkaTemplate.send(event.getTopic(), event.getEventKey(), payload);
+        } catch (JsonProcessingException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.Money;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional execution mode for single transfers during bursts, enabled with treasury.transfer.mode=sharded.
+ * It is off by default: it has only been measured on in-memory H2 with one core, where it is no faster
+ * than the synchronous engine, and group commit only pays off where a commit costs an fsync.
+ *
+ * Accounts are partitioned over a fixed number of shards by id hash. Every shard owns a pre-allocated
+ * ring buffer and one writer thread, which checks transfers against the available balances it keeps in
+ * memory for its own accounts, without locks, and persists everything it drained from the ring in one
+ * transaction (group commit). Each shard remembers at most max-cached-accounts accounts, dropping the
+ * least recently used; a dropped account is simply read again.
+ *
+ * A transfer between accounts of different shards is two-phase: the source shard reserves the amount,
+ * the destination shard checks its account and commits the transfer with its group. An abort travels
+ * back to the source shard, which releases the reservation; a committed reservation is already part
+ * of the in-memory available balance, so nothing else needs to flow back.
+ *
+ * The in-memory balances are only a pre-check. The database stays authoritative: the group runs the
+ * same conditional UPDATEs as the synchronous path, and when one of them does not apply the group is
+ * rolled back and replayed one transfer at a time. Any rejection reloads the account first, so writes
+ * made outside the pipeline cannot make it refuse a transfer the database would accept. Groups of
+ * different shards share rows, so a group locks all of its accounts in id order before updating them,
+ * and a replayed transfer that still loses a lock conflict is retried a few times before it is rejected.
+ *
+ * A caller waits at most wait-timeout-ms for a shard to take its transfer; after that the transfer is
+ * withdrawn untouched and the caller falls back to the synchronous engine. Once a shard has taken it,
+ * the caller waits for its group, whose transaction is bounded by the same timeout.
+ */
+@Component
+@ConditionalOnProperty(prefix = "treasury.transfer", name = "mode", havingValue = "sharded")
+@Slf4j
+public class ShardedTransferPipeline {
+
+    private static final long POLL_MILLIS = 50;
+    private static final int MAX_REPLAY_ATTEMPTS = 5;
+
+    private final TreasuryRepository treasuryRepository;
+    private final TransferEngine transferEngine;
+    private final BalanceSlotService balanceSlotService;
+    private final TransactionTemplate transactionTemplate;
+    private final Shard[] shards;
+    private final int maxGroupSize;
+    private final int maxCachedAccounts;
+    private final long waitTimeoutMillis;
+    private volatile boolean running;
+
+    public ShardedTransferPipeline(TreasuryRepository treasuryRepository,
+                                   TransferEngine transferEngine,
+                                   BalanceSlotService balanceSlotService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${treasury.transfer.sharded.shards:4}") int shardCount,
+                                   @Value("${treasury.transfer.sharded.ring-capacity:8192}") int ringCapacity,
+                                   @Value("${treasury.transfer.sharded.max-group-size:256}") int maxGroupSize,
+                                   @Value("${treasury.transfer.sharded.max-cached-accounts:10000}") int maxCachedAccounts,
+                                   @Value("${treasury.transfer.sharded.wait-timeout-ms:5000}") long waitTimeoutMillis) {
+        this.treasuryRepository = treasuryRepository;
+        this.transferEngine = transferEngine;
+        this.balanceSlotService = balanceSlotService;
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        this.maxCachedAccounts = Math.max(1, maxCachedAccounts);
+        this.waitTimeoutMillis = Math.max(1, waitTimeoutMillis);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(this.waitTimeoutMillis)));
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i, Math.max(1, ringCapacity));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("Sharded transfer pipeline started with {} shards", shards.length);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        for (Shard shard : shards) {
+            List<Command> leftovers = new ArrayList<>();
+            shard.ring.drainTo(leftovers);
+            leftovers.forEach(command -> command.transfer().result
+                    .completeExceptionally(new IllegalStateException("Transfer pipeline stopped")));
+        }
+    }
+
+    /**
+     * Runs the transfer through the shards and waits for its group to commit.
+     * Returns false when the transfer was not accepted, in which case nothing was reserved or written
+     * and the caller should use the synchronous path instead: a ring buffer was full, no shard took
+     * it in time, an account is sharded into balance slots (which already spreads its writes), or the
+     * caller is inside a transaction, which the transfer has to join.
+     */
+    public boolean tryTransfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        TransferEngine.requireValidTransfer(fromAccountId, toAccountId, amount);
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || balanceSlotService.isSharded(fromAccountId) || balanceSlotService.isSharded(toAccountId)) {
+            return false;
+        }
+
+        Transfer transfer = new Transfer(fromAccountId, toAccountId, amount);
+        if (!running || !shardFor(fromAccountId).ring.offer(new Submit(transfer))) {
+            return false;
+        }
+
+        try {
+            try {
+                return transfer.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (transfer.withdraw()) {
+                    return false;
+                }
+                // a shard is working on it; its group transaction times out on its own
+                return transfer.result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Transfer failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for transfer", e);
+        }
+    }
+
+    private Shard shardFor(Long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return shards[Math.floorMod((int) (h ^ (h >>> 32)), shards.length)];
+    }
+
+    private sealed interface Command permits Submit, Prepare, Abort {
+        Transfer transfer();
+    }
+
+    /** A new transfer, queued on the source account's shard. */
+    private record Submit(Transfer transfer) implements Command {
+    }
+
+    /** Phase two of a cross-shard transfer, queued on the destination account's shard. */
+    private record Prepare(Transfer transfer) implements Command {
+    }
+
+    /**
+     * Tells the source shard a reservation will not commit. With evict the cached account is dropped
+     * instead of credited back, because the database disagreed with it.
+     */
+    private record Abort(Transfer transfer, boolean evict) implements Command {
+    }
+
+    private static final class Transfer {
+
+        private static final int QUEUED = 0;
+        private static final int TAKEN = 1;
+        private static final int WITHDRAWN = 2;
+
+        private final Long fromAccountId;
+        private final Long toAccountId;
+        private final BigDecimal amount;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private Shard reservedOn;
+        private long reservedEpoch;
+
+        private Transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.amount = amount;
+        }
+
+        // the caller gave up waiting; succeeds only while no shard has looked at the transfer
+        private boolean withdraw() {
+            return state.compareAndSet(QUEUED, WITHDRAWN);
+        }
+
+        private boolean take() {
+            return state.compareAndSet(QUEUED, TAKEN);
+        }
+
+        private boolean isReserved() {
+            return reservedOn != null;
+        }
+    }
+
+    /** What a shard knows about one of its accounts. Only ever touched by the shard's own thread. */
+    private static final class Slot {
+
+        private final long epoch;
+        private final String currency;
+        private final boolean active;
+        private Money available;
+
+        private Slot(long epoch, TreasuryEntity account) {
+            this.epoch = epoch;
+            this.currency = account.getCurrency();
+            this.active = AccountStatus.ACTIVE.equals(account.getStatus());
+            this.available = Money.of(account.getAvailableBalance(), account.getCurrency());
+        }
+
+        private Money amountOf(BigDecimal amount) {
+            return Money.of(amount, currency);
+        }
+    }
+
+    private final class Shard implements Runnable {
+
+        private final int index;
+        private final ArrayBlockingQueue<Command> ring;
+        private final Thread thread;
+        // access ordered, so the least recently used account is the one dropped when it is full
+        private final Map<Long, Slot> slots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Slot> eldest) {
+                return size() > maxCachedAccounts;
+            }
+        };
+        private final List<Command> drained = new ArrayList<>();
+        private final List<Transfer> group = new ArrayList<>();
+        private long epochs;
+
+        private Shard(int index, int ringCapacity) {
+            this.index = index;
+            this.ring = new ArrayBlockingQueue<>(ringCapacity);
+            this.thread = new Thread(this, "transfer-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running || !ring.isEmpty()) {
+                try {
+                    Command first = ring.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    drained.add(first);
+                    ring.drainTo(drained, maxGroupSize - 1);
+                    for (Command command : drained) {
+                        handle(command);
+                    }
+                    drained.clear();
+                    commitGroup();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        private void handle(Command command) {
+            try {
+                if (command instanceof Submit submit) {
+                    if (submit.transfer().take()) {
+                        submit(submit.transfer());
+                    }
+                } else if (command instanceof Prepare prepare) {
+                    prepare(prepare.transfer());
+                } else if (command instanceof Abort abort) {
+                    abort(abort.transfer(), abort.evict());
+                }
+            } catch (ArithmeticException e) {
+                // a balance beyond a long of minor units: left to the synchronous engine
+                if (!(command instanceof Abort)) {
+                    reject(command.transfer(), null, true);
+                }
+            } catch (RuntimeException e) {
+                if (command instanceof Abort) {
+                    log.warn("Transfer shard {} failed to release a reservation", index, e);
+                } else {
+                    reject(command.transfer(), e, true);
+                }
+            }
+        }
+
+        private void submit(Transfer transfer) {
+            Slot from = slot(transfer.fromAccountId);
+            if (from == null) {
+                throw new IllegalArgumentException("Source account not found with id: " + transfer.fromAccountId);
+            }
+            if (!from.active || from.available.isLessThan(from.amountOf(transfer.amount))) {
+                from = reload(transfer.fromAccountId);
+                if (from == null) {
+                    throw new IllegalArgumentException("Source account not found with id: " + transfer.fromAccountId);
+                }
+            }
+
+            Shard target = shardFor(transfer.toAccountId);
+            Slot to = target == this ? slot(transfer.toAccountId) : null;
+            if (target == this && to == null) {
+                throw new IllegalArgumentException("Destination account not found with id: " + transfer.toAccountId);
+            }
+            if (target == this && !to.active) {
+                to = reload(transfer.toAccountId);
+            }
+
+            Money amount = from.amountOf(transfer.amount);
+            if (from.available.isLessThan(amount)) {
+                throw new IllegalArgumentException("Insufficient available balance for transfer");
+            }
+            if (!from.active || (to != null && !to.active)) {
+                throw new IllegalArgumentException("Both accounts must be active for transfer");
+            }
+
+            from.available = from.available.minus(amount);
+            if (target == this) {
+                to.available = to.available.plus(to.amountOf(transfer.amount));
+                group.add(transfer);
+                return;
+            }
+
+            transfer.reservedOn = this;
+            transfer.reservedEpoch = from.epoch;
+            if (!target.ring.offer(new Prepare(transfer))) {
+                release(transfer);
+                transfer.result.complete(false);
+            }
+        }
+
+        private void prepare(Transfer transfer) {
+            Slot to = slot(transfer.toAccountId);
+            if (to != null && !to.active) {
+                to = reload(transfer.toAccountId);
+            }
+            if (to == null) {
+                reject(transfer, new IllegalArgumentException(
+                        "Destination account not found with id: " + transfer.toAccountId), false);
+                return;
+            }
+            if (!to.active) {
+                reject(transfer, new IllegalArgumentException("Both accounts must be active for transfer"), false);
+                return;
+            }
+
+            to.available = to.available.plus(to.amountOf(transfer.amount));
+            group.add(transfer);
+        }
+
+        private void abort(Transfer transfer, boolean evict) {
+            Slot from = slots.get(transfer.fromAccountId);
+            if (from == null || from.epoch != transfer.reservedEpoch) {
+                return;
+            }
+            if (evict) {
+                slots.remove(transfer.fromAccountId);
+            } else {
+                from.available = from.available.plus(from.amountOf(transfer.amount));
+            }
+        }
+
+        private void commitGroup() {
+            if (group.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(group));
+                for (Transfer transfer : group) {
+                    transfer.result.complete(true);
+                }
+            } catch (RuntimeException groupFailure) {
+                log.debug("Group commit of {} transfers on shard {} failed, replaying one by one: {}",
+                        group.size(), index, groupFailure.getMessage());
+                for (Transfer transfer : group) {
+                    try {
+                        replay(transfer);
+                        transfer.result.complete(true);
+                    } catch (RuntimeException e) {
+                        slots.remove(transfer.toAccountId);
+                        if (!transfer.isReserved()) {
+                            slots.remove(transfer.fromAccountId);
+                        }
+                        reject(transfer, e, true);
+                    }
+                }
+            } finally {
+                group.clear();
+            }
+        }
+
+        private void replay(Transfer transfer) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(List.of(transfer)));
+                    return;
+                } catch (ConcurrencyFailureException e) {
+                    if (attempt >= MAX_REPLAY_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.debug("Lock conflict replaying transfer on shard {}, retrying (attempt {})", index, attempt);
+                }
+            }
+        }
+
+        private void persist(List<Transfer> transfers) {
+            if (transfers.size() > 1) {
+                Set<Long> touched = new TreeSet<>();
+                for (Transfer transfer : transfers) {
+                    touched.add(transfer.fromAccountId);
+                    touched.add(transfer.toAccountId);
+                }
+                treasuryRepository.lockInIdOrder(touched);
+            }
+            for (Transfer transfer : transfers) {
+                transferEngine.postTransfer(transfer.fromAccountId, transfer.toAccountId, transfer.amount);
+            }
+        }
+
+        // without a cause the transfer is handed back to the caller untouched, for the synchronous engine
+        private void reject(Transfer transfer, RuntimeException cause, boolean evict) {
+            if (transfer.isReserved()) {
+                if (transfer.reservedOn == this) {
+                    abort(transfer, evict);
+                } else if (!transfer.reservedOn.ring.offer(new Abort(transfer, evict))) {
+                    log.debug("Shard {} is full, reservation for account {} stays until it is reloaded",
+                            transfer.reservedOn.index, transfer.fromAccountId);
+                }
+            }
+            if (cause == null) {
+                transfer.result.complete(false);
+            } else {
+                transfer.result.completeExceptionally(cause);
+            }
+        }
+
+        private void release(Transfer transfer) {
+            abort(transfer, false);
+            transfer.reservedOn = null;
+        }
+
+        private Slot slot(Long accountId) {
+            Slot slot = slots.get(accountId);
+            return slot != null ? slot : reload(accountId);
+        }
+
+        private Slot reload(Long accountId) {
+            Slot slot = treasuryRepository.findById(accountId)
+                    .map(account -> new Slot(++epochs, account))
+                    .orElse(null);
+            if (slot == null) {
+                slots.remove(accountId);
+            } else {
+                slots.put(accountId, slot);
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.TransferStatus;
+import com.treasury.kpstreasury.models.dto.TransferLegResultDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.Money;
+import com.treasury.kpstreasury.utils.StripedLocks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Executes transfers between treasury accounts.
+ * Both accounts' lock stripes are held (in stripe order) for the whole transaction, so transfers
+ * touching unrelated accounts run in parallel while transfers on the same account are serialized
+ * inside this instance. Single transfers are applied as conditional UPDATEs that also bump the
+ * @Version column; the batch path works on versioned entities, so a writer outside the stripes
+ * (another instance, a direct balance update) makes it fail and retry a bounded number of times.
+ * Accounts sharded into balance slots are left out of the lock stripes: their updates land on
+ * different slot rows, which is what lets transfers on a hot account run in parallel.
+ * A transfer called inside a transaction (an idempotent request, which stores its response in it)
+ * joins that transaction and is attempted once, since a failed attempt has spoilt it; the stripes
+ * are then released before it commits, leaving the serializing to the row locks and versions.
+ * Otherwise every attempt runs in a transaction of its own.
+ */
+@Component
+@Slf4j
+public class TransferEngine {
+
+    private final TreasuryRepository treasuryRepository;
+    private final LedgerService ledgerService;
+    private final BalanceSlotService balanceSlotService;
+    private final TransactionTemplate transactionTemplate;
+    private final StripedLocks locks;
+    private final int maxAttempts;
+
+    public TransferEngine(TreasuryRepository treasuryRepository,
+                          LedgerService ledgerService,
+                          BalanceSlotService balanceSlotService,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${treasury.transfer.lock-stripes:1024}") int lockStripes,
+                          @Value("${treasury.transfer.max-attempts:5}") int maxAttempts) {
+        this.treasuryRepository = treasuryRepository;
+        this.ledgerService = ledgerService;
+        this.balanceSlotService = balanceSlotService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.locks = new StripedLocks(lockStripes);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Posts one transfer as two conditional UPDATEs and its journal entries, without reading either
+     * account unless it is rejected. Returns the journal id; a caller that needs the balances
+     * afterwards reads them itself.
+     */
+    public String transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        requireValidTransfer(fromAccountId, toAccountId, amount);
+
+        long[] lockedIds = Stream.of(fromAccountId, toAccountId)
+                .filter(accountId -> !balanceSlotService.isSharded(accountId))
+                .mapToLong(Long::longValue)
+                .toArray();
+        return locks.withLocks(() -> executeWithRetry(() -> postTransfer(fromAccountId, toAccountId, amount)),
+                lockedIds);
+    }
+
+    /**
+     * Posts a whole file of transfer legs in one transaction.
+     * Every involved account is loaded with a single IN query, the legs are applied in memory in
+     * submission order (a rejected leg leaves the balances untouched for the following legs), in
+     * minor units, and the dirty accounts are flushed together so Hibernate can send the updates as
+     * one JDBC batch. The posted legs are journaled together, with a single LedgerPostedEvent.
+     */
+    public List<TransferLegResultDto> transferBatch(List<TransferRequestDto> legs) {
+        long[] accountIds = legs.stream()
+                .flatMap(leg -> Stream.of(leg.getFromAccountId(), leg.getToAccountId()))
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .distinct()
+                .toArray();
+
+        return locks.withLocks(() -> executeWithRetry(() -> applyBatch(legs, accountIds)), accountIds);
+    }
+
+    private <T> T executeWithRetry(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Transfer gave up after {} attempts: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                log.debug("Concurrent update during transfer, retrying (attempt {})", attempt);
+            }
+        }
+    }
+
+    static void requireValidTransfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        String rejection = rejectionOf(fromAccountId, toAccountId, amount);
+        if (rejection != null) {
+            throw new IllegalArgumentException(rejection);
+        }
+    }
+
+    /**
+     * Why a transfer with these arguments can never be posted, whatever the accounts look like, or
+     * null. Single transfers and batch legs are checked with the same rules.
+     */
+    static String rejectionOf(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return "Transfer amount must be positive";
+        }
+        if (amount.stripTrailingZeros().scale() > Money.SCALE) {
+            return "Transfer amount must have at most 2 decimals";
+        }
+        if (fromAccountId == null || toAccountId == null) {
+            return "Source and destination accounts are required";
+        }
+        if (fromAccountId.equals(toAccountId)) {
+            return "Source and destination accounts must be different";
+        }
+        return null;
+    }
+
+    /**
+     * Applies the transfer as two conditional UPDATE statements, without hydrating either account,
+     * and journals it, all in the caller's transaction. The rows are touched in ascending id order so
+     * that two writers transferring in opposite directions between the same pair cannot deadlock on
+     * the row locks. When either statement matches no row the accounts are read once to explain why
+     * and the exception rolls the caller's transaction back. Returns the journal id.
+     */
+    String postTransfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        boolean applied = fromAccountId < toAccountId
+                ? debit(fromAccountId, amount) && credit(toAccountId, amount)
+                : credit(toAccountId, amount) && debit(fromAccountId, amount);
+        if (!applied) {
+            throw rejectionFor(fromAccountId, toAccountId, amount);
+        }
+
+        return ledgerService.recordTransfer(fromAccountId, toAccountId, amount);
+    }
+
+    // each side tries the representation the account is believed to have first, then the other one
+    private boolean debit(Long accountId, BigDecimal amount) {
+        return balanceSlotService.isSharded(accountId)
+                ? balanceSlotService.debit(accountId, amount)
+                    || treasuryRepository.debitIfAvailable(accountId, amount) == 1
+                : treasuryRepository.debitIfAvailable(accountId, amount) == 1
+                    || balanceSlotService.debit(accountId, amount);
+    }
+
+    private boolean credit(Long accountId, BigDecimal amount) {
+        return balanceSlotService.isSharded(accountId)
+                ? balanceSlotService.credit(accountId, amount)
+                    || treasuryRepository.creditIfActive(accountId, amount) == 1
+                : treasuryRepository.creditIfActive(accountId, amount) == 1
+                    || balanceSlotService.credit(accountId, amount);
+    }
+
+    private IllegalArgumentException rejectionFor(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        TreasuryEntity fromAccount = treasuryRepository.findById(fromAccountId).orElse(null);
+        if (fromAccount == null) {
+            return new IllegalArgumentException("Source account not found with id: " + fromAccountId);
+        }
+        TreasuryEntity toAccount = treasuryRepository.findById(toAccountId).orElse(null);
+        if (toAccount == null) {
+            return new IllegalArgumentException("Destination account not found with id: " + toAccountId);
+        }
+        BigDecimal available = fromAccount.getBalanceSlots() > 0
+                ? balanceSlotService.availableBalance(fromAccountId)
+                : fromAccount.getAvailableBalance();
+        if (available.compareTo(amount) < 0) {
+            return new IllegalArgumentException("Insufficient available balance for transfer");
+        }
+        return new IllegalArgumentException("Both accounts must be active for transfer");
+    }
+
+    private List<TransferLegResultDto> applyBatch(List<TransferRequestDto> legs, long[] accountIds) {
+        Map<Long, Position> positions = new HashMap<>(accountIds.length * 2);
+        for (TreasuryEntity account : treasuryRepository.findAllById(LongStream.of(accountIds).boxed().toList())) {
+            BalanceSlotService.Totals slotTotals = account.getBalanceSlots() > 0
+                    ? balanceSlotService.lockTotals(account.getId())
+                    : null;
+            positions.put(account.getId(), new Position(account, slotTotals));
+        }
+
+        List<TransferLegResultDto> results = new ArrayList<>(legs.size());
+        List<TransferRequestDto> posted = new ArrayList<>(legs.size());
+        Map<Long, Position> touched = new LinkedHashMap<>();
+        for (int i = 0; i < legs.size(); i++) {
+            TransferRequestDto leg = legs.get(i);
+            String rejection = validateLeg(leg, positions);
+            if (rejection != null) {
+                results.add(legResult(i, leg, TransferStatus.REJECTED, rejection));
+                continue;
+            }
+
+            Position from = positions.get(leg.getFromAccountId());
+            Position to = positions.get(leg.getToAccountId());
+            from.debit(leg.getAmount());
+            to.credit(leg.getAmount());
+            touched.put(leg.getFromAccountId(), from);
+            touched.put(leg.getToAccountId(), to);
+            posted.add(leg);
+
+            results.add(legResult(i, leg, TransferStatus.POSTED, null));
+        }
+        ledgerService.recordTransfers(posted);
+
+        List<TreasuryEntity> dirty = new ArrayList<>(touched.size());
+        for (Position position : touched.values()) {
+            if (position.isSharded()) {
+                balanceSlotService.redistribute(position.account.getId(),
+                        position.balance.toBigDecimal(), position.availableBalance.toBigDecimal());
+            } else {
+                dirty.add(position.writeBack());
+            }
+        }
+        treasuryRepository.saveAll(dirty);
+        return results;
+    }
+
+    private String validateLeg(TransferRequestDto leg, Map<Long, Position> positions) {
+        String rejection = rejectionOf(leg.getFromAccountId(), leg.getToAccountId(), leg.getAmount());
+        if (rejection != null) {
+            return rejection;
+        }
+
+        Position from = positions.get(leg.getFromAccountId());
+        if (from == null) {
+            return "Source account not found with id: " + leg.getFromAccountId();
+        }
+        Position to = positions.get(leg.getToAccountId());
+        if (to == null) {
+            return "Destination account not found with id: " + leg.getToAccountId();
+        }
+        if (!from.covers(leg.getAmount())) {
+            return "Insufficient available balance for transfer";
+        }
+        if (!from.isActive() || !to.isActive()) {
+            return "Both accounts must be active for transfer";
+        }
+        return null;
+    }
+
+    private TransferLegResultDto legResult(int index, TransferRequestDto leg, TransferStatus status, String message) {
+        return new TransferLegResultDto(index, leg.getFromAccountId(), leg.getToAccountId(),
+                leg.getAmount(), status, message);
+    }
+
+    /**
+     * Working copy of an account's balances for the batch path. Legs are applied in minor units and
+     * the entity is only written back once, after the last leg. A sharded account starts from its
+     * locked slot totals and is written back by redistributing the result over the slots.
+     */
+    private static final class Position {
+
+        private final TreasuryEntity account;
+        private final boolean sharded;
+        private Money balance;
+        private Money availableBalance;
+
+        Position(TreasuryEntity account, BalanceSlotService.Totals slotTotals) {
+            this.account = account;
+            this.sharded = slotTotals != null;
+            this.balance = Money.of(sharded ? slotTotals.balance() : account.getBalance(), account.getCurrency());
+            this.availableBalance = Money.of(sharded ? slotTotals.availableBalance() : account.getAvailableBalance(),
+                    account.getCurrency());
+        }
+
+        boolean isSharded() {
+            return sharded;
+        }
+
+        boolean isActive() {
+            return AccountStatus.ACTIVE.equals(account.getStatus());
+        }
+
+        boolean covers(BigDecimal amount) {
+            return !availableBalance.isLessThan(Money.of(amount, account.getCurrency()));
+        }
+
+        void debit(BigDecimal amount) {
+            Money money = Money.of(amount, account.getCurrency());
+            balance = balance.minus(money);
+            availableBalance = availableBalance.minus(money);
+        }
+
+        void credit(BigDecimal amount) {
+            Money money = Money.of(amount, account.getCurrency());
+            balance = balance.plus(money);
+            availableBalance = availableBalance.plus(money);
+        }
+
+        TreasuryEntity writeBack() {
+            account.setBalance(balance.toBigDecimal());
+            account.setAvailableBalance(availableBalance.toBigDecimal());
+            return account;
+        }
+    }
+}
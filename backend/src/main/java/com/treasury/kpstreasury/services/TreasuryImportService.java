@@ -0,0 +1,478 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.enums.ContraAccount;
+import com.treasury.kpstreasury.enums.IdentifierSpace;
+import com.treasury.kpstreasury.events.TreasuryAccountsImportedEvent;
+import com.treasury.kpstreasury.models.dto.ImportLineErrorDto;
+import com.treasury.kpstreasury.models.dto.ImportReportDto;
+import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of treasury accounts from CSV.
+ * The body is read line by line and handled in chunks: the lines of a chunk are parsed and
+ * validated in parallel against the TreasuryDto constraints, checked for duplicates against the
+ * account numbers loaded once at the start, and the valid ones are streamed into the database
+ * before the next chunk is read. On PostgreSQL rows go through COPY on the transaction's
+ * connection; other databases get JDBC batch inserts. Once every row is in, the opening balances
+ * and their opening equity side are posted to the journal with one INSERT ... SELECT each.
+ *
+ * Valid lines are imported even when others are rejected; the report lists every rejected line.
+ * Everything runs in one transaction, so a failure of the database leaves nothing behind.
+ */
+@Service
+@Slf4j
+public class TreasuryImportService {
+
+    static final List<String> REQUIRED_COLUMNS =
+            List.of("accountNumber", "currency", "balance", "accountType", "bankName", "branchCode");
+    // availableBalance defaults to balance and status to ACTIVE
+    static final List<String> OPTIONAL_COLUMNS = List.of("availableBalance", "status");
+
+    private static final String COLUMNS = "account_number, currency, balance, available_balance, account_type, "
+            + "status, bank_name, branch_code, balance_slots, version, created_at, updated_at";
+    private static final String COPY_SQL = "COPY treasurys (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String INSERT_SQL = "INSERT INTO treasurys (" + COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 0, ?, ?)";
+    // the rows of one import share their created_at, which tells them apart from accounts created meanwhile
+    // the equity side goes in first, while the accounts themselves still have no entries
+    private static final String OPENING_EQUITY_SQL = "INSERT INTO ledger_entries "
+            + "(id, journal_id, account_id, entry_type, amount, description, posted_at) "
+            + "SELECT nextval('ledger_entry_seq'), 'opening-' || CAST(t.id AS VARCHAR(20)), ?, "
+            + "CASE WHEN t.balance > 0 THEN 'DEBIT' ELSE 'CREDIT' END, ABS(t.balance), 'Opening balance', t.created_at "
+            + "FROM treasurys t WHERE t.created_at = ? AND t.balance <> 0 "
+            + "AND NOT EXISTS (SELECT 1 FROM ledger_entries e WHERE e.account_id = t.id)";
+    private static final String OPENING_ENTRIES_SQL = "INSERT INTO ledger_entries "
+            + "(id, journal_id, account_id, entry_type, amount, description, posted_at) "
+            + "SELECT nextval('ledger_entry_seq'), 'opening-' || CAST(t.id AS VARCHAR(20)), t.id, "
+            + "CASE WHEN t.balance > 0 THEN 'CREDIT' ELSE 'DEBIT' END, ABS(t.balance), 'Opening balance', t.created_at "
+            + "FROM treasurys t WHERE t.created_at = ? AND t.balance <> 0 "
+            + "AND NOT EXISTS (SELECT 1 FROM ledger_entries e WHERE e.account_id = t.id)";
+
+    private final TreasuryRepository treasuryRepository;
+    private final LedgerWatermarkService ledgerWatermarkService;
+    private final Validator validator;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final AvailabilityFilterService availabilityFilterService;
+    private final int chunkSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TreasuryImportService(TreasuryRepository treasuryRepository,
+                                 LedgerWatermarkService ledgerWatermarkService,
+                                 Validator validator,
+                                 ApplicationEventPublisher applicationEventPublisher,
+                                 AvailabilityFilterService availabilityFilterService,
+                                 @Value("${treasury.import.chunk-size:5000}") int chunkSize) {
+        this.treasuryRepository = treasuryRepository;
+        this.ledgerWatermarkService = ledgerWatermarkService;
+        this.validator = validator;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.availabilityFilterService = availabilityFilterService;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Imports the accounts of a CSV body whose first line names the columns.
+     * @throws IllegalArgumentException when the header is missing or lacks a required column
+     */
+    @Transactional
+    public ImportReportDto importAccounts(InputStream csv) {
+        long started = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        Map<String, Integer> columns = readHeader(reader);
+
+        Set<String> existing = new HashSet<>(treasuryRepository.findAllAccountNumbers());
+        Timestamp importedAt = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        Progress progress = new Progress(columns, existing);
+
+        entityManager.flush();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            RowSink sink = connection.isWrapperFor(PGConnection.class)
+                    ? new CopySink(connection.unwrap(PGConnection.class), importedAt)
+                    : new BatchSink(connection, importedAt);
+            try {
+                readRows(reader, progress, sink);
+                sink.finish();
+            } catch (RuntimeException | SQLException e) {
+                sink.abort();
+                throw e;
+            }
+            if (progress.importedCount > 0) {
+                ledgerWatermarkService.beforePosting();
+                try (PreparedStatement equity = connection.prepareStatement(OPENING_EQUITY_SQL);
+                     PreparedStatement statement = connection.prepareStatement(OPENING_ENTRIES_SQL)) {
+                    equity.setLong(1, ContraAccount.OPENING_EQUITY.getAccountId());
+                    equity.setTimestamp(2, importedAt);
+                    equity.executeUpdate();
+                    statement.setTimestamp(1, importedAt);
+                    statement.executeUpdate();
+                }
+            }
+        });
+
+        for (String accountNumber : progress.imported) {
+            availabilityFilterService.add(IdentifierSpace.ACCOUNT_NUMBER, accountNumber);
+        }
+        if (progress.importedCount > 0) {
+            applicationEventPublisher.publishEvent(new TreasuryAccountsImportedEvent(progress.importedCount));
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Imported {} of {} treasury accounts in {} ms", progress.importedCount, progress.total, elapsedMillis);
+        return new ImportReportDto(progress.total, progress.importedCount, progress.errors.size(), elapsedMillis,
+                progress.errors);
+    }
+
+    private Map<String, Integer> readHeader(BufferedReader reader) {
+        String header = readLine(reader);
+        if (header == null || header.isBlank()) {
+            throw new IllegalArgumentException("The import needs a header line naming its columns");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim();
+            if (!REQUIRED_COLUMNS.contains(name) && !OPTIONAL_COLUMNS.contains(name)) {
+                throw new IllegalArgumentException("Unknown column: " + name);
+            }
+            if (columns.put(name, i) != null) {
+                throw new IllegalArgumentException("Duplicate column: " + name);
+            }
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Missing column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private void readRows(BufferedReader reader, Progress progress, RowSink sink) throws SQLException {
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        int lineNumber = 1;
+        String line;
+        while ((line = readLine(reader)) != null) {
+            lineNumber++;
+            int firstLine = lineNumber;
+            // a quoted field may span lines, an unterminated one is reported by splitCsv at the end
+            String next;
+            while (hasOpenQuote(line) && (next = readLine(reader)) != null) {
+                lineNumber++;
+                line = line + '\n' + next;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(new Line(firstLine, line));
+            if (chunk.size() == chunkSize) {
+                sink.write(progress.accept(parse(chunk, progress.columns)));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.write(progress.accept(parse(chunk, progress.columns)));
+        }
+    }
+
+    private List<ParsedLine> parse(List<Line> chunk, Map<String, Integer> columns) {
+        return chunk.parallelStream()
+                .map(line -> parse(line, columns))
+                .collect(Collectors.toList());
+    }
+
+    private ParsedLine parse(Line line, Map<String, Integer> columns) {
+        List<String> fields;
+        try {
+            fields = splitCsv(line.text());
+        } catch (IllegalArgumentException e) {
+            return new ParsedLine(line.number(), null, null, e.getMessage());
+        }
+        String accountNumber = field(fields, columns, "accountNumber");
+        if (fields.size() != columns.size()) {
+            return new ParsedLine(line.number(), accountNumber, null,
+                    "Expected " + columns.size() + " fields but found " + fields.size());
+        }
+
+        TreasuryDto dto;
+        try {
+            BigDecimal balance = decimal(field(fields, columns, "balance"), "balance");
+            String availableBalance = field(fields, columns, "availableBalance");
+            String status = field(fields, columns, "status");
+            dto = TreasuryDto.builder()
+                    .accountNumber(accountNumber)
+                    .currency(field(fields, columns, "currency"))
+                    .balance(balance)
+                    .availableBalance(availableBalance != null ? decimal(availableBalance, "available balance") : balance)
+                    .accountType(constant(AccountType.class, field(fields, columns, "accountType"), "account type"))
+                    .status(status != null ? constant(AccountStatus.class, status, "status") : AccountStatus.ACTIVE)
+                    .bankName(field(fields, columns, "bankName"))
+                    .branchCode(field(fields, columns, "branchCode"))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return new ParsedLine(line.number(), accountNumber, null, e.getMessage());
+        }
+
+        Set<ConstraintViolation<TreasuryDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return new ParsedLine(line.number(), accountNumber, null, message);
+        }
+        return new ParsedLine(line.number(), accountNumber, dto, null);
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal decimal(String value, String name) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E constant(Class<E> type, String value, String name) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    // comma separated, fields may be quoted with "" as an escaped quote and may hold line breaks
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // an escaped quote counts twice, so an odd count leaves a quoted field open
+    private static boolean hasOpenQuote(String line) {
+        boolean open = false;
+        for (int i = line.indexOf('"'); i >= 0; i = line.indexOf('"', i + 1)) {
+            open = !open;
+        }
+        return open;
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading the import failed", e);
+        }
+    }
+
+    private record Line(int number, String text) {
+    }
+
+    private record ParsedLine(int line, String accountNumber, TreasuryDto account, String error) {
+    }
+
+    private static final class Progress {
+        private final Map<String, Integer> columns;
+        private final Set<String> existing;
+        private final Set<String> imported = new HashSet<>();
+        private final List<ImportLineErrorDto> errors = new ArrayList<>();
+        private int total;
+        private int importedCount;
+
+        private Progress(Map<String, Integer> columns, Set<String> existing) {
+            this.columns = columns;
+            this.existing = existing;
+        }
+
+        // lines come in file order, so the first of two lines with the same account number wins
+        private List<TreasuryDto> accept(List<ParsedLine> lines) {
+            List<TreasuryDto> accepted = new ArrayList<>(lines.size());
+            for (ParsedLine line : lines) {
+                total++;
+                if (line.error() != null) {
+                    errors.add(new ImportLineErrorDto(line.line(), line.accountNumber(), line.error()));
+                } else if (existing.contains(line.accountNumber())) {
+                    errors.add(new ImportLineErrorDto(line.line(), line.accountNumber(), "Account number already exists"));
+                } else if (!imported.add(line.accountNumber())) {
+                    errors.add(new ImportLineErrorDto(line.line(), line.accountNumber(),
+                            "Account number appears more than once in the import"));
+                } else {
+                    accepted.add(line.account());
+                }
+            }
+            importedCount += accepted.size();
+            return accepted;
+        }
+    }
+
+    private interface RowSink {
+        void write(List<TreasuryDto> accounts) throws SQLException;
+
+        void finish() throws SQLException;
+
+        void abort() throws SQLException;
+    }
+
+    private static final class CopySink implements RowSink {
+        private final CopyIn copyIn;
+        private final String timestamp;
+
+        private CopySink(PGConnection connection, Timestamp importedAt) throws SQLException {
+            this.copyIn = connection.getCopyAPI().copyIn(COPY_SQL);
+            this.timestamp = importedAt.toString();
+        }
+
+        @Override
+        public void write(List<TreasuryDto> accounts) throws SQLException {
+            if (accounts.isEmpty()) {
+                return;
+            }
+            StringBuilder rows = new StringBuilder(accounts.size() * 128);
+            for (TreasuryDto account : accounts) {
+                rows.append(quote(account.getAccountNumber())).append(',')
+                        .append(quote(account.getCurrency())).append(',')
+                        .append(account.getBalance().toPlainString()).append(',')
+                        .append(account.getAvailableBalance().toPlainString()).append(',')
+                        .append(account.getAccountType().name()).append(',')
+                        .append(account.getStatus().name()).append(',')
+                        .append(quote(account.getBankName())).append(',')
+                        .append(quote(account.getBranchCode())).append(",0,0,")
+                        .append(timestamp).append(',')
+                        .append(timestamp).append('\n');
+            }
+            byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            copyIn.endCopy();
+        }
+
+        @Override
+        public void abort() throws SQLException {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+
+        private static String quote(String value) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static final class BatchSink implements RowSink {
+        private final PreparedStatement statement;
+        private final Timestamp importedAt;
+
+        private BatchSink(Connection connection, Timestamp importedAt) throws SQLException {
+            this.statement = connection.prepareStatement(INSERT_SQL);
+            this.importedAt = importedAt;
+        }
+
+        @Override
+        public void write(List<TreasuryDto> accounts) throws SQLException {
+            if (accounts.isEmpty()) {
+                return;
+            }
+            for (TreasuryDto account : accounts) {
+                statement.setString(1, account.getAccountNumber());
+                statement.setString(2, account.getCurrency());
+                statement.setBigDecimal(3, account.getBalance());
+                statement.setBigDecimal(4, account.getAvailableBalance());
+                statement.setString(5, account.getAccountType().name());
+                statement.setString(6, account.getStatus().name());
+                statement.setString(7, account.getBankName());
+                statement.setString(8, account.getBranchCode());
+                statement.setTimestamp(9, importedAt);
+                statement.setTimestamp(10, importedAt);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            statement.close();
+        }
+
+        @Override
+        public void abort() throws SQLException {
+            statement.close();
+        }
+    }
+}
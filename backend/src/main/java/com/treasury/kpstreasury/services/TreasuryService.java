@@ -2,19 +2,39 @@ package com.treasury.kpstreasury.services;
 
 import com.treasury.kpstreasury.enums.AccountStatus;
 import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.enums.IdentifierSpace;
+import com.treasury.kpstreasury.enums.TransferStatus;
+import com.treasury.kpstreasury.enums.TreasurySortKey;
+import com.treasury.kpstreasury.events.TreasuryAccountChangedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountsStatusChangedEvent;
+import com.treasury.kpstreasury.models.dto.BatchTransferResultDto;
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
 import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.dto.TreasuryStatusChangeDto;
 import com.treasury.kpstreasury.models.dto.TreasurySummaryDto;
+import com.treasury.kpstreasury.models.dto.TransferLegResultDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
 import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.BalanceHoldRepository;
 import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.repositories.TreasurySpecifications;
+import com.treasury.kpstreasury.utils.FilterSpecifications;
+import com.treasury.kpstreasury.utils.KeysetPager;
+import com.treasury.kpstreasury.utils.ProjectionQueries;
 import com.treasury.kpstreasury.utils.TreasuryMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -24,85 +44,129 @@ import java.util.stream.Collectors;
 @Transactional
 public class TreasuryService {
 
+    // ids per bulk status read and UPDATE, well below the bind parameter limit of the drivers
+    private static final int STATUS_CHANGE_CHUNK = 1000;
+
+    private static final String HELD_BALANCE_MESSAGE =
+            "Available balance of an account with active holds is its balance minus the holds; release them first";
+
+    private static final String SHARDED_BALANCE_MESSAGE =
+            "Balance of a sharded account only changes through postings; fold its balance slots back first";
+
     private final TreasuryRepository treasuryRepository;
+    private final BalanceHoldRepository balanceHoldRepository;
     private final TreasuryMapper treasuryMapper;
+    private final TransferEngine transferEngine;
+    private final ObjectProvider<ShardedTransferPipeline> transferPipeline;
+    private final LedgerService ledgerService;
+    private final BalanceSlotService balanceSlotService;
+    private final TreasurySummaryService treasurySummaryService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final KeysetPager keysetPager;
+    private final ProjectionQueries projectionQueries;
+    private final AvailabilityFilterService availabilityFilterService;
 
     public TreasuryDto createTreasuryAccount(TreasuryDto treasuryDto) {
+        // inserts ask the database, the filter misses what other instances inserted since its last rebuild
         if (treasuryRepository.existsByAccountNumber(treasuryDto.getAccountNumber())) {
             throw new IllegalArgumentException("Account number already exists: " + treasuryDto.getAccountNumber());
         }
 
+        availabilityFilterService.add(IdentifierSpace.ACCOUNT_NUMBER, treasuryDto.getAccountNumber());
         TreasuryEntity treasuryEntity = treasuryMapper.toEntity(treasuryDto);
         TreasuryEntity savedTreasury = treasuryRepository.save(treasuryEntity);
-        return treasuryMapper.toDto(savedTreasury);
+        ledgerService.recordOpeningBalance(savedTreasury.getId(), savedTreasury.getBalance());
+        applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(savedTreasury.getId()));
+        return toDto(savedTreasury);
     }
 
     @Transactional(readOnly = true)
     public Optional<TreasuryDto> getTreasuryById(Long id) {
-        return treasuryRepository.findById(id)
-                .map(treasuryMapper::toDto);
+        return treasuryRepository.findDtoById(id)
+                .map(this::withLiveBalances);
     }
 
     @Transactional(readOnly = true)
     public Optional<TreasuryDto> getTreasuryByAccountNumber(String accountNumber) {
-        return treasuryRepository.findByAccountNumber(accountNumber)
-                .map(treasuryMapper::toDto);
+        return treasuryRepository.findDtoByAccountNumber(accountNumber)
+                .map(this::withLiveBalances);
     }
 
     @Transactional(readOnly = true)
     public List<TreasuryDto> getAllTreasuryAccounts() {
-        return treasuryRepository.findAll()
+        return treasuryRepository.findAllDtos()
                 .stream()
-                .map(treasuryMapper::toDto)
+                .map(this::withLiveBalances)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<TreasuryDto> getTreasuryAccountsByStatus(AccountStatus status) {
-        return treasuryRepository.findByStatus(status)
+        return treasuryRepository.findDtosByStatus(status)
                 .stream()
-                .map(treasuryMapper::toDto)
+                .map(this::withLiveBalances)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<TreasuryDto> getTreasuryAccountsByType(AccountType accountType) {
-        return treasuryRepository.findByAccountType(accountType)
+        return treasuryRepository.findDtosByAccountType(accountType)
                 .stream()
-                .map(treasuryMapper::toDto)
+                .map(this::withLiveBalances)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<TreasuryDto> getTreasuryAccountsByCurrency(String currency) {
-        return treasuryRepository.findByCurrency(currency)
+        return treasuryRepository.findDtosByCurrency(currency)
                 .stream()
-                .map(treasuryMapper::toDto)
+                .map(this::withLiveBalances)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<TreasuryDto> getTreasuryAccountsByBank(String bankName) {
-        return treasuryRepository.findByBankName(bankName)
+        return treasuryRepository.findDtosByBankName(bankName)
                 .stream()
-                .map(treasuryMapper::toDto)
+                .map(this::withLiveBalances)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public Page<TreasuryDto> getTreasuryAccountsWithFilters(String currency, String bankName, 
                                                            AccountStatus status, Pageable pageable) {
-        return treasuryRepository.findWithFilters(currency, bankName, status, pageable)
-                .map(treasuryMapper::toDto);
+        return projectionQueries.page(TreasuryRepository.PROJECTION,
+                        TreasurySpecifications.matching(currency, bankName, status, null), pageable)
+                .map(this::withLiveBalances);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<TreasuryDto> getTreasuryAccountsPage(String currency, String bankName, AccountStatus status,
+                                                             AccountType accountType, TreasurySortKey sort,
+                                                             CursorPageRequest request) {
+        return keysetPager.page(TreasuryRepository.PROJECTION,
+                        TreasurySpecifications.matching(currency, bankName, status, accountType), sort, request)
+                .map(this::withLiveBalances);
     }
 
     public TreasuryDto updateTreasuryAccount(Long id, TreasuryDto treasuryDto) {
         TreasuryEntity existingTreasury = treasuryRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + id));
 
+        BigDecimal previousBalance = existingTreasury.getBalance();
+        BigDecimal previousAvailableBalance = existingTreasury.getAvailableBalance();
         TreasuryEntity updatedTreasury = treasuryMapper.updateEntity(existingTreasury, treasuryDto);
+        if (updatedTreasury.getBalanceSlots() > 0) {
+            // the balance of a sharded account lives in its slots and only changes through postings
+            updatedTreasury.setBalance(previousBalance);
+            updatedTreasury.setAvailableBalance(previousAvailableBalance);
+        } else {
+            deriveAvailableFromHolds(updatedTreasury);
+        }
         TreasuryEntity savedTreasury = treasuryRepository.save(updatedTreasury);
-        return treasuryMapper.toDto(savedTreasury);
+        recordBalanceChange(id, previousBalance, savedTreasury.getBalance());
+        applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(id));
+        return toDto(savedTreasury);
     }
 
     public void deleteTreasuryAccount(Long id) {
@@ -110,33 +174,65 @@ public class TreasuryService {
             throw new IllegalArgumentException("Treasury account not found with id: " + id);
         }
         treasuryRepository.deleteById(id);
+        applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(id));
     }
 
     public TreasuryDto updateBalance(Long id, BigDecimal newBalance) {
         TreasuryEntity treasury = treasuryRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + id));
+        requireNotSharded(treasury);
 
+        BigDecimal previousBalance = treasury.getBalance();
         treasury.setBalance(newBalance);
         
         if (treasury.getAvailableBalance().compareTo(newBalance) > 0) {
             treasury.setAvailableBalance(newBalance);
         }
+        deriveAvailableFromHolds(treasury);
 
         TreasuryEntity savedTreasury = treasuryRepository.save(treasury);
-        return treasuryMapper.toDto(savedTreasury);
+        recordBalanceChange(id, previousBalance, newBalance);
+        applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(id));
+        return toDto(savedTreasury);
     }
 
     public TreasuryDto updateAvailableBalance(Long id, BigDecimal newAvailableBalance) {
-        TreasuryEntity treasury = treasuryRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + id));
-
-        if (newAvailableBalance.compareTo(treasury.getBalance()) > 0) {
+        if (treasuryRepository.setAvailableBalanceIfWithinBalance(id, newAvailableBalance) == 0) {
+            requireExists(id);
+            if (balanceSlotService.isSharded(id)) {
+                throw new IllegalArgumentException(SHARDED_BALANCE_MESSAGE);
+            }
             throw new IllegalArgumentException("Available balance cannot be greater than total balance");
         }
+        // checked after the update holds the row lock, so a hold placed meanwhile is either seen here or waits
+        if (balanceHoldRepository.findActiveHoldTotal(id).isPresent()) {
+            throw new IllegalArgumentException(HELD_BALANCE_MESSAGE);
+        }
+        applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(id));
+        return reload(id);
+    }
 
-        treasury.setAvailableBalance(newAvailableBalance);
-        TreasuryEntity savedTreasury = treasuryRepository.save(treasury);
-        return treasuryMapper.toDto(savedTreasury);
+    /**
+     * While an account has active holds its available balance is its balance minus those holds, not
+     * whatever the caller sent. Read after the account was loaded: a hold placed later moves the
+     * row version, so the save fails instead of overwriting it.
+     */
+    private void deriveAvailableFromHolds(TreasuryEntity treasury) {
+        balanceHoldRepository.findActiveHoldTotal(treasury.getId()).ifPresent(held -> {
+            BigDecimal available = treasury.getBalance().subtract(held);
+            if (available.signum() < 0) {
+                throw new IllegalArgumentException("Balance cannot be lower than the " + held + " on hold");
+            }
+            treasury.setAvailableBalance(available);
+        });
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TreasuryDto setBalanceSlots(Long id, Integer slots) {
+        if (slots == null) {
+            throw new IllegalArgumentException("Balance slots are required");
+        }
+        return toDto(balanceSlotService.setSlotCount(id, slots));
     }
 
     public void activateAccount(Long id) {
@@ -144,6 +240,7 @@ public class TreasuryService {
                 .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + id));
         treasury.setStatus(AccountStatus.ACTIVE);
         treasuryRepository.save(treasury);
+        applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(id));
     }
 
     public void deactivateAccount(Long id) {
@@ -151,6 +248,7 @@ public class TreasuryService {
                 .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + id));
         treasury.setStatus(AccountStatus.INACTIVE);
         treasuryRepository.save(treasury);
+        applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(id));
     }
 
     public void suspendAccount(Long id) {
@@ -158,80 +256,135 @@ public class TreasuryService {
                 .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + id));
         treasury.setStatus(AccountStatus.SUSPENDED);
         treasuryRepository.save(treasury);
+        applicationEventPublisher.publishEvent(new TreasuryAccountChangedEvent(id));
+    }
+
+    /**
+     * Moves the accounts given by id, or all accounts matching the bank and currency filter, to the
+     * status with set-wise updates and publishes one event for all of them. Returns the ids of the
+     * accounts that changed, in id order; accounts already in the status are left alone.
+     */
+    public List<Long> changeStatus(TreasuryStatusChangeDto change) {
+        boolean byIds = change.getIds() != null && !change.getIds().isEmpty();
+        boolean byFilter = change.getBankName() != null || change.getCurrency() != null;
+        if (byIds == byFilter) {
+            throw new IllegalArgumentException("Give either account ids or a filter");
+        }
+        Specification<TreasuryEntity> changing =
+                Specification.where(FilterSpecifications.notEqualTo("status", change.getStatus()));
+        List<Long> ids = byIds
+                ? projectionQueries.idsIn(TreasuryEntity.class, change.getIds(), changing, STATUS_CHANGE_CHUNK)
+                : projectionQueries.ids(TreasuryEntity.class, changing
+                        .and(FilterSpecifications.equalTo("bankName", change.getBankName()))
+                        .and(FilterSpecifications.equalTo("currency", change.getCurrency())));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < ids.size(); from += STATUS_CHANGE_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + STATUS_CHANGE_CHUNK, ids.size()));
+            // same lock order as transfers, a bulk change cannot deadlock with them
+            treasuryRepository.lockInIdOrder(chunk);
+            treasuryRepository.updateStatus(chunk, change.getStatus(), now);
+        }
+        if (!ids.isEmpty()) {
+            applicationEventPublisher.publishEvent(new TreasuryAccountsStatusChangedEvent(ids, change.getStatus()));
+        }
+        return ids;
     }
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalBalanceByCurrencyAndStatus(String currency, AccountStatus status) {
-        BigDecimal total = treasuryRepository.getTotalBalanceByCurrencyAndStatus(currency, status);
-        return total != null ? total : BigDecimal.ZERO;
+        return treasurySummaryService.getTotalBalance(currency, status);
     }
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalAvailableBalance() {
-        BigDecimal total = treasuryRepository.getTotalAvailableBalance();
-        return total != null ? total : BigDecimal.ZERO;
+        return treasurySummaryService.getTotalAvailableBalance();
     }
 
     @Transactional(readOnly = true)
     public List<TreasurySummaryDto> getTreasurySummaryByCurrency() {
-        List<Object[]> results = treasuryRepository.getTreasurySummaryByCurrency();
-        return results.stream()
-                .map(row -> {
-                    String currency = (String) row[0];
-                    BigDecimal totalBalance = (BigDecimal) row[1];
-                    Long accountCount = (Long) row[2];
-                    
-                    BigDecimal averageBalance = accountCount > 0 ? 
-                        totalBalance.divide(BigDecimal.valueOf(accountCount), 2, RoundingMode.HALF_UP) : 
-                        BigDecimal.ZERO;
-                    
-                    return new TreasurySummaryDto(currency, totalBalance, null, accountCount, averageBalance);
-                })
+        return treasurySummaryService.getActiveTotalsByCurrency()
+                .stream()
+                .map(totals -> new TreasurySummaryDto(totals.getCurrency(), totals.getTotalBalance(), null,
+                        totals.getAccountCount(), totals.getAverageBalance()))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Balance, available balance and account count of the ACTIVE accounts of each currency.
+     */
+    @Transactional(readOnly = true)
+    public List<TreasurySummaryDto> getTreasuryTotalsByCurrency() {
+        return treasurySummaryService.getActiveTotalsByCurrency();
+    }
+
     @Transactional(readOnly = true)
     public List<TreasuryDto> getLowBalanceAccounts(BigDecimal threshold) {
-        return treasuryRepository.findLowBalanceAccounts(threshold)
+        return treasuryRepository.findLowBalanceDtos(threshold)
                 .stream()
-                .map(treasuryMapper::toDto)
+                .map(this::withLiveBalances)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public boolean isAccountNumberAvailable(String accountNumber) {
-        return !treasuryRepository.existsByAccountNumber(accountNumber);
+        return !availabilityFilterService.exists(IdentifierSpace.ACCOUNT_NUMBER, accountNumber,
+                treasuryRepository::existsByAccountNumber);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public TreasuryDto transferFunds(Long fromAccountId, Long toAccountId, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Transfer amount must be positive");
+        ShardedTransferPipeline pipeline = transferPipeline.getIfAvailable();
+        if (pipeline == null || !pipeline.tryTransfer(fromAccountId, toAccountId, amount)) {
+            transferEngine.transfer(fromAccountId, toAccountId, amount);
         }
-
-        TreasuryEntity fromAccount = treasuryRepository.findById(fromAccountId)
+        // the response shows the source account, read as a projection after the two updates
+        return treasuryRepository.findDtoById(fromAccountId)
+                .map(this::withLiveBalances)
                 .orElseThrow(() -> new IllegalArgumentException("Source account not found with id: " + fromAccountId));
+    }
 
-        TreasuryEntity toAccount = treasuryRepository.findById(toAccountId)
-                .orElseThrow(() -> new IllegalArgumentException("Destination account not found with id: " + toAccountId));
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public BatchTransferResultDto transferFundsBatch(List<TransferRequestDto> transfers) {
+        List<TransferLegResultDto> legs = transferEngine.transferBatch(transfers);
+        int posted = (int) legs.stream()
+                .filter(leg -> leg.getStatus() == TransferStatus.POSTED)
+                .count();
+        return new BatchTransferResultDto(legs.size(), posted, legs.size() - posted, legs);
+    }
 
-        if (fromAccount.getAvailableBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient available balance for transfer");
+    private void recordBalanceChange(Long accountId, BigDecimal previousBalance, BigDecimal newBalance) {
+        if (previousBalance == null || newBalance == null) {
+            return;
         }
+        ledgerService.recordAdjustment(accountId, newBalance.subtract(previousBalance), "Balance adjustment");
+    }
 
-        if (!fromAccount.getStatus().equals(AccountStatus.ACTIVE) || 
-            !toAccount.getStatus().equals(AccountStatus.ACTIVE)) {
-            throw new IllegalArgumentException("Both accounts must be active for transfer");
-        }
+    private TreasuryDto toDto(TreasuryEntity treasury) {
+        TreasuryDto dto = treasuryMapper.toDto(treasury);
+        return treasury.getBalanceSlots() > 0 ? balanceSlotService.withLiveBalances(dto) : dto;
+    }
 
-        fromAccount.setAvailableBalance(fromAccount.getAvailableBalance().subtract(amount));
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+    // projected rows carry no slot count, the in-memory one of BalanceSlotService tells sharded accounts
+    private TreasuryDto withLiveBalances(TreasuryDto dto) {
+        return balanceSlotService.isSharded(dto.getId()) ? balanceSlotService.withLiveBalances(dto) : dto;
+    }
 
-        toAccount.setAvailableBalance(toAccount.getAvailableBalance().add(amount));
-        toAccount.setBalance(toAccount.getBalance().add(amount));
+    private void requireNotSharded(TreasuryEntity treasury) {
+        if (treasury.getBalanceSlots() > 0) {
+            throw new IllegalArgumentException(SHARDED_BALANCE_MESSAGE);
+        }
+    }
 
-        treasuryRepository.save(fromAccount);
-        treasuryRepository.save(toAccount);
+    private void requireExists(Long id) {
+        if (!treasuryRepository.existsById(id)) {
+            throw new IllegalArgumentException("Treasury account not found with id: " + id);
+        }
+    }
 
-        return treasuryMapper.toDto(fromAccount);
+    private TreasuryDto reload(Long id) {
+        return treasuryRepository.findById(id)
+                .map(this::toDto)
+                .orElseThrow(() -> new IllegalArgumentException("Treasury account not found with id: " + id));
     }
 }
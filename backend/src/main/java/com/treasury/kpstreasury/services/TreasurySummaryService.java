@@ -0,0 +1,400 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.events.CashPoolSweptEvent;
+import com.treasury.kpstreasury.events.HoldChangedEvent;
+import com.treasury.kpstreasury.events.LedgerPostedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountChangedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountsImportedEvent;
+import com.treasury.kpstreasury.events.TreasuryAccountsStatusChangedEvent;
+import com.treasury.kpstreasury.models.dto.TreasuryFiguresRow;
+import com.treasury.kpstreasury.models.dto.TreasurySummaryDto;
+import com.treasury.kpstreasury.models.dto.TreasuryTotalsRow;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Balance, available balance and account count per currency and status, kept in memory.
+ * A rebuild reads the figures of every account once. After that the accounts a transaction changes
+ * (a TreasuryService edit, journal postings, holds, a bulk status change or a cash pool sweep) are
+ * collected while it runs and read with one query per chunk of ids just before it commits, inside
+ * that transaction and under the row locks its own updates took, so what is read is what commits.
+ * Their contribution is moved between the totals once the commit went through, and the dashboard
+ * aggregates are read from a handful of striped counters instead of a GROUP BY over treasurys.
+ *
+ * The figures of an account are applied only when their row version is newer than the ones already
+ * counted, so figures applied out of order or twice do not count anything twice; a deleted account
+ * is dropped from the map. The counters are not updated together: a reader racing with a change may
+ * see an account removed from one total before it is added to the other. A scheduled reconciliation
+ * compares the totals with the SQL aggregates and rebuilds them when they drifted, which also folds
+ * in what other instances did.
+ */
+@Service
+@Slf4j
+public class TreasurySummaryService {
+
+    // accounts read per query
+    private static final int REFRESH_CHUNK = 1000;
+
+    private final TreasuryRepository treasuryRepository;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate lookupTransaction;
+
+    // refreshes take the read lock, swapping in a rebuilt summary takes the write lock
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Summary summary;
+    private Set<Long> duringRebuild;
+
+    public TreasurySummaryService(TreasuryRepository treasuryRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.treasuryRepository = treasuryRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        // rebuild catch-up reads and changes made outside of a transaction run in their own
+        this.lookupTransaction = new TransactionTemplate(transactionManager);
+        this.lookupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lookupTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${treasury.summary.reconcile-interval-ms:300000}",
+               initialDelayString = "${treasury.summary.reconcile-interval-ms:300000}")
+    public void reconcileOnSchedule() {
+        reconcile();
+    }
+
+    public synchronized void rebuild() {
+        withWriteLock(() -> duringRebuild = ConcurrentHashMap.newKeySet());
+
+        Summary fresh;
+        try {
+            fresh = readTransaction.execute(status -> load());
+        } catch (RuntimeException e) {
+            withWriteLock(() -> duringRebuild = null);
+            throw e;
+        }
+
+        List<Long> changed = new ArrayList<>();
+        withWriteLock(() -> {
+            changed.addAll(duringRebuild);
+            duringRebuild = null;
+            summary = fresh;
+        });
+        // accounts changed while the rebuild read may be missing from it
+        refresh(changed);
+        log.info("Rebuilt the treasury summary of {} accounts in {} currency and status totals",
+                fresh.accounts.size(), fresh.totals.size());
+    }
+
+    /**
+     * Compares the in-memory totals with the SQL aggregates and rebuilds them on any difference.
+     * Returns whether they matched.
+     */
+    public boolean reconcile() {
+        Summary current = current();
+        List<TreasuryTotalsRow> rows = readTransaction.execute(
+                status -> treasuryRepository.getTreasuryTotalsByCurrencyAndStatus());
+
+        int matched = 0;
+        for (TreasuryTotalsRow row : rows) {
+            Totals totals = current.totals.get(new TotalsKey(row.currency(), row.status()));
+            if (totals == null
+                    || totals.count.sum() != row.accountCount()
+                    || totals.balance.sum() != minorUnits(row.balance())
+                    || totals.availableBalance.sum() != minorUnits(row.availableBalance())) {
+                return drifted(row.currency() + "/" + row.status());
+            }
+            matched++;
+        }
+        long nonEmpty = current.totals.values().stream().filter(totals -> totals.count.sum() != 0).count();
+        if (nonEmpty != matched) {
+            return drifted("accounts that no longer exist");
+        }
+        return true;
+    }
+
+    public BigDecimal getTotalBalance(String currency, AccountStatus status) {
+        Totals totals = current().totals.get(new TotalsKey(currency, status));
+        return totals == null || totals.count.sum() == 0 ? BigDecimal.ZERO : amount(totals.balance.sum());
+    }
+
+    public BigDecimal getTotalAvailableBalance() {
+        Summary current = current();
+        return current.activeCount.sum() == 0 ? BigDecimal.ZERO : amount(current.activeAvailableBalance.sum());
+    }
+
+    /**
+     * Balance, available balance and account count of the ACTIVE accounts of each currency.
+     */
+    public List<TreasurySummaryDto> getActiveTotalsByCurrency() {
+        List<TreasurySummaryDto> result = new ArrayList<>();
+        for (Map.Entry<TotalsKey, Totals> entry : current().totals.entrySet()) {
+            long count = entry.getValue().count.sum();
+            if (entry.getKey().status() != AccountStatus.ACTIVE || count == 0) {
+                continue;
+            }
+            String currency = entry.getKey().currency();
+            long balance = entry.getValue().balance.sum();
+            result.add(new TreasurySummaryDto(currency, amount(balance),
+                    amount(entry.getValue().availableBalance.sum()), count,
+                    Money.ofMinor(balance, currency).dividedBy(count).toBigDecimal()));
+        }
+        result.sort(Comparator.comparing(TreasurySummaryDto::getCurrency));
+        return result;
+    }
+
+    // accounts whose figures are counted, for tests
+    int trackedAccounts() {
+        return current().accounts.size();
+    }
+
+    @EventListener
+    public void onTreasuryAccountChanged(TreasuryAccountChangedEvent event) {
+        changed(List.of(event.accountId()));
+    }
+
+    @TransactionalEventListener
+    public void onTreasuryAccountsImported(TreasuryAccountsImportedEvent event) {
+        rebuild();
+    }
+
+    @EventListener
+    public void onTreasuryAccountsStatusChanged(TreasuryAccountsStatusChangedEvent event) {
+        changed(event.accountIds());
+    }
+
+    @EventListener
+    public void onLedgerPosted(LedgerPostedEvent event) {
+        changed(event.postings().stream().map(LedgerPostedEvent.Posting::accountId).toList());
+    }
+
+    @EventListener
+    public void onHoldChanged(HoldChangedEvent event) {
+        changed(List.of(event.accountId()));
+    }
+
+    @EventListener
+    public void onCashPoolSwept(CashPoolSweptEvent event) {
+        changed(event.postings().stream().map(CashPoolSweptEvent.Posting::accountId).toList());
+    }
+
+    // collects the accounts of the running transaction; outside of one they are read right away
+    private void changed(Collection<Long> accountIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(new ArrayList<>(accountIds));
+            return;
+        }
+        ChangedAccounts changed = (ChangedAccounts) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            changed = new ChangedAccounts();
+            TransactionSynchronizationManager.bindResource(this, changed);
+            TransactionSynchronizationManager.registerSynchronization(changed);
+        }
+        changed.accountIds.addAll(accountIds);
+    }
+
+    // the figures of many accounts at once, read in chunks of ids in their own transaction
+    private void refresh(List<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return;
+        }
+        List<TreasuryFiguresRow> rows = lookupTransaction.execute(status -> read(accountIds));
+        apply(accountIds, rows);
+    }
+
+    private List<TreasuryFiguresRow> read(List<Long> accountIds) {
+        List<TreasuryFiguresRow> rows = new ArrayList<>(accountIds.size());
+        for (int from = 0; from < accountIds.size(); from += REFRESH_CHUNK) {
+            rows.addAll(treasuryRepository.findSummaryFiguresByIds(
+                    accountIds.subList(from, Math.min(from + REFRESH_CHUNK, accountIds.size()))));
+        }
+        return rows;
+    }
+
+    private void apply(List<Long> accountIds, List<TreasuryFiguresRow> rows) {
+        swapLock.readLock().lock();
+        try {
+            if (duringRebuild != null) {
+                duringRebuild.addAll(accountIds);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+
+        Summary current = summary;
+        if (current == null) {
+            return;
+        }
+        Set<Long> found = new HashSet<>();
+        for (TreasuryFiguresRow row : rows) {
+            current.apply(row.id(), figures(row));
+            found.add(row.id());
+        }
+        for (Long accountId : accountIds) {
+            if (!found.contains(accountId)) {
+                current.remove(accountId);
+            }
+        }
+    }
+
+    private Summary current() {
+        Summary current = summary;
+        if (current == null) {
+            rebuild();
+            current = summary;
+        }
+        return current;
+    }
+
+    private Summary load() {
+        Summary fresh = new Summary();
+        for (TreasuryFiguresRow row : treasuryRepository.findSummaryFigures()) {
+            fresh.apply(row.id(), figures(row));
+        }
+        return fresh;
+    }
+
+    private boolean drifted(String where) {
+        log.warn("Treasury summary drifted from the database at {}, rebuilding it", where);
+        rebuild();
+        return false;
+    }
+
+    private void withWriteLock(Runnable action) {
+        swapLock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private static Figures figures(TreasuryFiguresRow row) {
+        return new Figures(row.currency(), row.status(), minorUnits(row.balance()),
+                minorUnits(row.availableBalance()), row.version() != null ? row.version() : 0L);
+    }
+
+    // balances are scale 2 columns
+    private static long minorUnits(BigDecimal amount) {
+        return amount == null ? 0 : Money.rounded(amount, null).minorUnits();
+    }
+
+    private static BigDecimal amount(long minorUnits) {
+        return Money.ofMinor(minorUnits, null).toBigDecimal();
+    }
+
+    private record Figures(String currency, AccountStatus status, long balance, long availableBalance,
+                           long version) {
+
+    }
+
+    private record TotalsKey(String currency, AccountStatus status) {
+    }
+
+    // the accounts one transaction changed: read before it commits, counted after it committed
+    private final class ChangedAccounts implements TransactionSynchronization {
+        private final Set<Long> accountIds = new LinkedHashSet<>();
+        private List<TreasuryFiguresRow> rows;
+
+        // a nested REQUIRES_NEW transaction collects its own accounts
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(TreasurySummaryService.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TreasurySummaryService.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            rows = read(new ArrayList<>(accountIds));
+        }
+
+        @Override
+        public void afterCommit() {
+            if (rows != null) {
+                apply(new ArrayList<>(accountIds), rows);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TreasurySummaryService.this);
+        }
+    }
+
+    private static final class Totals {
+        private final LongAdder balance = new LongAdder();
+        private final LongAdder availableBalance = new LongAdder();
+        private final LongAdder count = new LongAdder();
+    }
+
+    private static final class Summary {
+        private final Map<Long, Figures> accounts = new ConcurrentHashMap<>();
+        private final Map<TotalsKey, Totals> totals = new ConcurrentHashMap<>();
+        private final LongAdder activeAvailableBalance = new LongAdder();
+        private final LongAdder activeCount = new LongAdder();
+
+        // per-account updates are serialized by the accounts map, the totals themselves are not locked
+        private void apply(Long accountId, Figures figures) {
+            accounts.compute(accountId, (id, previous) -> {
+                if (previous != null && previous.version() >= figures.version()) {
+                    return previous;
+                }
+                if (previous != null) {
+                    add(previous, -1);
+                }
+                add(figures, 1);
+                return figures;
+            });
+        }
+
+        private void remove(Long accountId) {
+            accounts.computeIfPresent(accountId, (id, previous) -> {
+                add(previous, -1);
+                return null;
+            });
+        }
+
+        private void add(Figures figures, int sign) {
+            Totals target = totals.computeIfAbsent(new TotalsKey(figures.currency(), figures.status()), k -> new Totals());
+            target.balance.add(sign * figures.balance());
+            target.availableBalance.add(sign * figures.availableBalance());
+            target.count.add(sign);
+            if (figures.status() == AccountStatus.ACTIVE) {
+                activeAvailableBalance.add(sign * figures.availableBalance());
+                activeCount.add(sign);
+            }
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.treasury.kpstreasury.services;
 
+import com.treasury.kpstreasury.enums.IdentifierSpace;
 import com.treasury.kpstreasury.enums.Role;
+import com.treasury.kpstreasury.enums.UserSortKey;
 import com.treasury.kpstreasury.models.dto.CreateUserDto;
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
 import com.treasury.kpstreasury.models.dto.UserDto;
 import com.treasury.kpstreasury.models.entity.UserEntity;
 import com.treasury.kpstreasury.repositories.UserRepository;
+import com.treasury.kpstreasury.utils.FilterSpecifications;
+import com.treasury.kpstreasury.utils.KeysetPager;
 import com.treasury.kpstreasury.utils.UserMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -18,7 +25,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,6 +35,8 @@ public class UserService implements UserDetailsService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final EventPublisher eventPublisher;
+    private final KeysetPager keysetPager;
+    private final AvailabilityFilterService availabilityFilterService;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -37,6 +45,7 @@ public class UserService implements UserDetailsService {
     }
 
     public UserDto createUser(CreateUserDto createUserDto) {
+        // inserts ask the database, the filter misses what other instances inserted since its last rebuild
         if (userRepository.existsByUsername(createUserDto.getUsername())) {
             throw new IllegalArgumentException("Username already exists: " + createUserDto.getUsername());
         }
@@ -45,6 +54,9 @@ public class UserService implements UserDetailsService {
             throw new IllegalArgumentException("Email already exists: " + createUserDto.getEmail());
         }
 
+        availabilityFilterService.add(IdentifierSpace.USERNAME, createUserDto.getUsername());
+        availabilityFilterService.add(IdentifierSpace.EMAIL, createUserDto.getEmail());
+
         UserEntity userEntity = userMapper.toEntity(createUserDto);
         userEntity.setPassword(passwordEncoder.encode(createUserDto.getPassword()));
 
@@ -60,58 +72,50 @@ public class UserService implements UserDetailsService {
 
     @Transactional(readOnly = true)
     public Optional<UserDto> getUserById(Long id) {
-        return userRepository.findById(id)
-                .map(userMapper::toDto);
+        return userRepository.findDtoById(id);
     }
 
     @Transactional(readOnly = true)
     public Optional<UserDto> getUserByUsername(String username) {
-        return userRepository.findByUsername(username)
-                .map(userMapper::toDto);
+        return userRepository.findDtoByUsername(username);
     }
 
     @Transactional(readOnly = true)
     public Optional<UserDto> getUserByEmail(String email) {
-        return userRepository.findByEmail(email)
-                .map(userMapper::toDto);
+        return userRepository.findDtoByEmail(email);
     }
 
     @Transactional(readOnly = true)
     public List<UserDto> getAllUsers() {
-        return userRepository.findAll()
-                .stream()
-                .map(userMapper::toDto)
-                .collect(Collectors.toList());
+        return userRepository.findAllDtos();
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<UserDto> getUsersPage(Role role, Boolean enabled, UserSortKey sort, CursorPageRequest request) {
+        Specification<UserEntity> filter = Specification
+                .<UserEntity>where(FilterSpecifications.equalTo("role", role))
+                .and(FilterSpecifications.equalTo("enabled", enabled));
+        return keysetPager.page(UserRepository.PROJECTION, filter, sort, request);
     }
 
     @Transactional(readOnly = true)
     public List<UserDto> getUsersByRole(Role role) {
-        return userRepository.findByRole(role)
-                .stream()
-                .map(userMapper::toDto)
-                .collect(Collectors.toList());
+        return userRepository.findDtosByRole(role);
     }
 
     @Transactional(readOnly = true)
     public List<UserDto> getActiveUsers() {
-        return userRepository.findByEnabledTrue()
-                .stream()
-                .map(userMapper::toDto)
-                .collect(Collectors.toList());
+        return userRepository.findEnabledDtos();
     }
 
     @Transactional(readOnly = true)
     public List<UserDto> searchUsersByName(String name) {
-        return userRepository.findByFirstNameContaining(name)
-                .stream()
-                .map(userMapper::toDto)
-                .collect(Collectors.toList());
+        return userRepository.findDtosByNameContaining(name);
     }
 
     @Transactional(readOnly = true)
     public Page<UserDto> getActiveUsersByRole(Role role, Pageable pageable) {
-        return userRepository.findActiveUsersByRole(role, pageable)
-                .map(userMapper::toDto);
+        return userRepository.findActiveDtosByRole(role, pageable);
     }
 
     @Transactional(readOnly = true)
@@ -128,6 +132,8 @@ public class UserService implements UserDetailsService {
             throw new IllegalArgumentException("Email already exists: " + userDto.getEmail());
         }
 
+        availabilityFilterService.add(IdentifierSpace.EMAIL, userDto.getEmail());
+
         UserEntity updatedUser = userMapper.updateEntity(existingUser, userDto);
         UserEntity savedUser = userRepository.save(updatedUser);
         return userMapper.toDto(savedUser);
@@ -163,11 +169,13 @@ public class UserService implements UserDetailsService {
 
     @Transactional(readOnly = true)
     public boolean isUsernameAvailable(String username) {
-        return !userRepository.existsByUsername(username);
+        return !availabilityFilterService.exists(IdentifierSpace.USERNAME, username,
+                userRepository::existsByUsername);
     }
 
     @Transactional(readOnly = true)
     public boolean isEmailAvailable(String email) {
-        return !userRepository.existsByEmail(email);
+        return !availabilityFilterService.exists(IdentifierSpace.EMAIL, email,
+                userRepository::existsByEmail);
     }
 }
@@ -0,0 +1,26 @@
+package com.treasury.kpstreasury.utils;
+
+import com.treasury.kpstreasury.models.dto.BalanceHoldDto;
+import com.treasury.kpstreasury.models.entity.BalanceHoldEntity;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BalanceHoldMapper {
+
+    public BalanceHoldDto toDto(BalanceHoldEntity hold) {
+        if (hold == null) {
+            return null;
+        }
+
+        BalanceHoldDto dto = new BalanceHoldDto();
+        dto.setId(hold.getId());
+        dto.setAccountId(hold.getTreasuryId());
+        dto.setAmount(hold.getAmount());
+        dto.setStatus(hold.getStatus());
+        dto.setReference(hold.getReference());
+        dto.setExpiresAt(hold.getExpiresAt());
+        dto.setCreatedAt(hold.getCreatedAt());
+        dto.setResolvedAt(hold.getResolvedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,115 @@
+package com.treasury.kpstreasury.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size Bloom filter of strings. mightContain never answers false for a value that was put,
+ * and answers true for a value that was not with roughly the false-positive probability it was
+ * sized for, as long as no more than the expected number of values are put into it.
+ *
+ * Bit and hash counts follow the usual m = -n ln p / (ln 2)^2 and k = m / n ln 2. The k positions
+ * come from two halves of one 64-bit hash (h1 + i * h2), so a lookup hashes its value once. Bits
+ * are set with compare-and-set, so puts and lookups may run concurrently without a lock.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final long expectedInsertions;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False-positive probability must be between 0 and 1");
+        }
+        long words = (optimalBitCount(expectedInsertions, falsePositiveProbability) + 63) / 64;
+        // positions come from 32-bit hash halves, so 2^31 bits (256 MB) is as large as it gets
+        if (words * 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter of " + expectedInsertions + " values is too large");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * The share of bits set; the false-positive probability of a lookup is about this to the power k.
+     */
+    public double fillRatio() {
+        long set = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            set += Long.bitCount(bits.get(i));
+        }
+        return (double) set / bitCount;
+    }
+
+    private long index(int combined) {
+        // a negative combination is flipped, the way h1 + i * h2 is usually kept in range
+        return (combined < 0 ? ~combined : combined) % bitCount;
+    }
+
+    static long optimalBitCount(long expectedInsertions, double falsePositiveProbability) {
+        return Math.max(64, (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability)
+                / (Math.log(2) * Math.log(2))));
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the murmur3 finalizer so both 32-bit halves are well mixed
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
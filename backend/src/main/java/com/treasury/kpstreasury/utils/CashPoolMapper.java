@@ -0,0 +1,28 @@
+package com.treasury.kpstreasury.utils;
+
+import com.treasury.kpstreasury.models.dto.CashPoolDto;
+import com.treasury.kpstreasury.models.entity.CashPoolEntity;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CashPoolMapper {
+
+    public CashPoolDto toDto(CashPoolEntity pool) {
+        if (pool == null) {
+            return null;
+        }
+
+        CashPoolDto dto = new CashPoolDto();
+        dto.setId(pool.getId());
+        dto.setName(pool.getName());
+        dto.setHeaderAccountId(pool.getHeaderAccountId());
+        dto.setCurrency(pool.getCurrency());
+        dto.setBankName(pool.getBankName());
+        dto.setTargetBalance(pool.getTargetBalance());
+        dto.setMinimumSweep(pool.getMinimumSweep());
+        dto.setEnabled(pool.isEnabled());
+        dto.setCreatedAt(pool.getCreatedAt());
+        dto.setUpdatedAt(pool.getUpdatedAt());
+        return dto;
+    }
+}
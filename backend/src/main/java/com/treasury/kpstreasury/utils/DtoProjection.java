@@ -0,0 +1,23 @@
+package com.treasury.kpstreasury.utils;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.List;
+
+/**
+ * The Criteria form of a JPQL constructor expression: rows of an entity read straight into a DTO
+ * through the constructor that takes the listed properties in order. The DTO is built from the
+ * columns, so no entity is instantiated, registered in the persistence context or dirty-checked.
+ */
+public record DtoProjection<E, D>(Class<E> entityType, Class<D> dtoType, List<String> properties) {
+
+    public static <E, D> DtoProjection<E, D> of(Class<E> entityType, Class<D> dtoType, String... properties) {
+        return new DtoProjection<>(entityType, dtoType, List.of(properties));
+    }
+
+    public Selection<D> select(CriteriaBuilder cb, Root<E> root) {
+        return cb.construct(dtoType, properties.stream().map(root::get).toArray(Selection[]::new));
+    }
+}
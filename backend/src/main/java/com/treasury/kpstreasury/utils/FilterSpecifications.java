@@ -0,0 +1,60 @@
+package com.treasury.kpstreasury.utils;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+/**
+ * Filter predicates for the listing queries. Each one is null when its parameter is, and a null
+ * specification is simply left out when they are combined, so a query only carries the predicates
+ * that were actually asked for: every combination of filters gets its own fixed SQL text with bound
+ * parameters, which the database can plan against the matching index and the driver can keep
+ * prepared, instead of one catch-all "(:p IS NULL OR col = :p)" query planned for no value at all.
+ */
+public final class FilterSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private FilterSpecifications() {
+    }
+
+    public static <E> Specification<E> equalTo(String property, Object value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get(property), value);
+    }
+
+    public static <E> Specification<E> notEqualTo(String property, Object value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.notEqual(root.get(property), value);
+    }
+
+    /**
+     * Values starting with the prefix, as LIKE 'prefix%' with the wildcards of the prefix escaped.
+     * Unlike a '%value%' match an index on the column can serve it as a range.
+     */
+    public static <E> Specification<E> startsWith(String property, String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.get(property), pattern, ESCAPE);
+    }
+
+    public static <E, V extends Comparable<? super V>> Specification<E> atLeast(String property, V value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get(property), value);
+    }
+
+    public static <E> Specification<E> in(String property, Collection<?> values) {
+        if (values == null) {
+            return null;
+        }
+        return (root, query, cb) -> root.get(property).in(values);
+    }
+}
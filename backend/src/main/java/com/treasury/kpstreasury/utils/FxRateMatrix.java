@@ -0,0 +1,139 @@
+package com.treasury.kpstreasury.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable table of the conversion rates between every pair of known currencies.
+ * Rates are given as units of each currency per one unit of a pivot currency; every cross rate is
+ * computed once when the matrix is built and stored in a flat array indexed by the ordinals of the
+ * two currencies. A three-letter code maps to its ordinal through a table indexed by the code's
+ * letters, so a lookup is two array reads and never allocates. A new set of rates means a new
+ * matrix; readers holding the old one keep a consistent view.
+ */
+public final class FxRateMatrix {
+
+    public static final int RATE_SCALE = 10;
+
+    private static final int LETTERS = 26;
+    private static final int CODE_SPACE = LETTERS * LETTERS * LETTERS;
+
+    private final String pivotCurrency;
+    private final String[] currencies;
+    // ordinal + 1 per packed code, 0 for unknown codes
+    private final short[] ordinalsByCode;
+    private final BigDecimal[] unitsPerPivot;
+    private final BigDecimal[] rates;
+
+    private FxRateMatrix(String pivotCurrency, String[] currencies, short[] ordinalsByCode,
+                         BigDecimal[] unitsPerPivot, BigDecimal[] rates) {
+        this.pivotCurrency = pivotCurrency;
+        this.currencies = currencies;
+        this.ordinalsByCode = ordinalsByCode;
+        this.unitsPerPivot = unitsPerPivot;
+        this.rates = rates;
+    }
+
+    /**
+     * Builds the matrix from the units of each currency per one unit of the pivot; the pivot itself
+     * is always present with a rate of one.
+     * @throws IllegalArgumentException for codes that are not three letters A-Z or rates that are not positive
+     */
+    public static FxRateMatrix of(String pivotCurrency, Map<String, BigDecimal> unitsPerPivot) {
+        Map<String, BigDecimal> sorted = new TreeMap<>(unitsPerPivot);
+        sorted.put(pivotCurrency, BigDecimal.ONE);
+
+        int size = sorted.size();
+        if (size > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many currencies: " + size);
+        }
+        String[] currencies = new String[size];
+        BigDecimal[] units = new BigDecimal[size];
+        short[] ordinalsByCode = new short[CODE_SPACE];
+        int ordinal = 0;
+        for (Map.Entry<String, BigDecimal> entry : sorted.entrySet()) {
+            int code = pack(entry.getKey());
+            if (code < 0) {
+                throw new IllegalArgumentException("Invalid currency code: " + entry.getKey());
+            }
+            if (entry.getValue() == null || entry.getValue().signum() <= 0) {
+                throw new IllegalArgumentException("Rate of " + entry.getKey() + " must be positive");
+            }
+            currencies[ordinal] = entry.getKey();
+            units[ordinal] = entry.getValue();
+            ordinalsByCode[code] = (short) (ordinal + 1);
+            ordinal++;
+        }
+
+        BigDecimal[] rates = new BigDecimal[size * size];
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                rates[from * size + to] = from == to ? BigDecimal.ONE
+                        : units[to].divide(units[from], RATE_SCALE, RoundingMode.HALF_EVEN);
+            }
+        }
+        return new FxRateMatrix(pivotCurrency, currencies, ordinalsByCode, units, rates);
+    }
+
+    public String pivotCurrency() {
+        return pivotCurrency;
+    }
+
+    public int size() {
+        return currencies.length;
+    }
+
+    /**
+     * The ordinal of a currency in this matrix, -1 when it is unknown.
+     */
+    public int ordinal(String currency) {
+        int code = pack(currency);
+        return code < 0 ? -1 : ordinalsByCode[code] - 1;
+    }
+
+    public boolean contains(String currency) {
+        return ordinal(currency) >= 0;
+    }
+
+    /**
+     * Units of the target currency per one unit of the source currency, null when either is unknown.
+     */
+    public BigDecimal rate(String from, String to) {
+        int fromOrdinal = ordinal(from);
+        int toOrdinal = ordinal(to);
+        if (fromOrdinal < 0 || toOrdinal < 0) {
+            return null;
+        }
+        return rates[fromOrdinal * currencies.length + toOrdinal];
+    }
+
+    public BigDecimal unitsPerPivot(String currency) {
+        int ordinal = ordinal(currency);
+        return ordinal < 0 ? null : unitsPerPivot[ordinal];
+    }
+
+    public List<String> currencies() {
+        return new ArrayList<>(Arrays.asList(currencies));
+    }
+
+    // AAA..ZZZ to 0..17575, -1 for anything else
+    private static int pack(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = currency.charAt(i) - 'A';
+            if (letter < 0 || letter >= LETTERS) {
+                return -1;
+            }
+            code = code * LETTERS + letter;
+        }
+        return code;
+    }
+}
@@ -0,0 +1,169 @@
+package com.treasury.kpstreasury.utils;
+
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Keyset ("seek") pagination over an entity, ordered by a sort column and the id.
+ *
+ * A page reads the first size + 1 rows after the last (sort value, id) of the previous page, written
+ * as k >= :k AND (k > :k OR id > :id): the first term is where an index on (k, id) starts its range
+ * scan, so page 1000 costs what page 1 does, unlike an OFFSET that reads and throws away every row
+ * before it. The extra row only tells whether there is a next page. The cursor handed to the client
+ * is that last (sort value, id) with the sort it belongs to, base64 encoded.
+ *
+ * Pages are read either as entities or, through a DtoProjection, straight into DTOs whose sort
+ * and id properties have the same names as the entity's.
+ */
+@Component
+public class KeysetPager {
+
+    private final int maxPageSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public KeysetPager(@Value("${treasury.pagination.max-page-size:500}") int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    public <E> CursorPageDto<E> page(Class<E> type, Specification<E> filter, KeysetSortKey sort,
+                                     CursorPageRequest request) {
+        return page(type, type, (cb, root) -> root, filter, sort, request);
+    }
+
+    public <E, D> CursorPageDto<D> page(DtoProjection<E, D> projection, Specification<E> filter, KeysetSortKey sort,
+                                        CursorPageRequest request) {
+        return page(projection.entityType(), projection.dtoType(), projection::select, filter, sort, request);
+    }
+
+    private <E, R> CursorPageDto<R> page(Class<E> type, Class<R> resultType,
+                                         BiFunction<CriteriaBuilder, Root<E>, Selection<? extends R>> selection,
+                                         Specification<E> filter, KeysetSortKey sort, CursorPageRequest request) {
+        int size = request.getSize();
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+        boolean descending = request.isDescending();
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> query = cb.createQuery(resultType);
+        Root<E> root = query.from(type);
+        query.select(selection.apply(cb, root));
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filtered = filter != null ? filter.toPredicate(root, query, cb) : null;
+        if (filtered != null) {
+            predicates.add(filtered);
+        }
+
+        Path<Long> id = root.get("id");
+        Path<Comparable<Object>> key = root.get(sort.property());
+        boolean byId = "id".equals(sort.property());
+        if (request.getCursor() != null && !request.getCursor().isBlank()) {
+            Cursor after = Cursor.decode(request.getCursor(), sort, descending);
+            if (byId) {
+                predicates.add(descending ? cb.lessThan(id, after.id()) : cb.greaterThan(id, after.id()));
+            } else if (descending) {
+                predicates.add(cb.and(cb.lessThanOrEqualTo(key, after.value()),
+                        cb.or(cb.lessThan(key, after.value()), cb.lessThan(id, after.id()))));
+            } else {
+                predicates.add(cb.and(cb.greaterThanOrEqualTo(key, after.value()),
+                        cb.or(cb.greaterThan(key, after.value()), cb.greaterThan(id, after.id()))));
+            }
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        if (byId) {
+            query.orderBy(descending ? cb.desc(id) : cb.asc(id));
+        } else {
+            query.orderBy(descending ? cb.desc(key) : cb.asc(key), descending ? cb.desc(id) : cb.asc(id));
+        }
+
+        List<R> rows = entityManager.createQuery(query)
+                .setMaxResults(size + 1)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+        boolean hasMore = rows.size() > size;
+        List<R> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? Cursor.of(items.get(size - 1), sort, descending).encode() : null;
+        Long totalCount = request.isCount() ? count(type, filter) : null;
+        return new CursorPageDto<>(List.copyOf(items), nextCursor, hasMore, totalCount);
+    }
+
+    private <E> long count(Class<E> type, Specification<E> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<E> root = query.from(type);
+        Predicate filtered = filter != null ? filter.toPredicate(root, query, cb) : null;
+        query.select(cb.count(root));
+        if (filtered != null) {
+            query.where(filtered);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private record Cursor(String sort, Comparable<Object> value, Long id) {
+
+        private static final char SEPARATOR = '|';
+
+        private static Cursor of(Object entity, KeysetSortKey sort, boolean descending) {
+            BeanWrapperImpl row = new BeanWrapperImpl(entity);
+            @SuppressWarnings("unchecked")
+            Comparable<Object> value = (Comparable<Object>) row.getPropertyValue(sort.property());
+            return new Cursor(sortName(sort, descending), value, (Long) row.getPropertyValue("id"));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Cursor decode(String cursor, KeysetSortKey sort, boolean descending) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            // the sort name has no separator and the id is last, the value may contain anything
+            int first = decoded.indexOf(SEPARATOR);
+            int last = decoded.lastIndexOf(SEPARATOR);
+            if (first < 0 || first == last) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            if (!decoded.substring(0, first).equals(sortName(sort, descending))) {
+                throw new IllegalArgumentException("Cursor belongs to another sort order, start again without it");
+            }
+            try {
+                return new Cursor(decoded.substring(0, first),
+                        (Comparable<Object>) sort.parse(decoded.substring(first + 1, last)),
+                        Long.valueOf(decoded.substring(last + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+        }
+
+        private static String sortName(KeysetSortKey sort, boolean descending) {
+            return sort.name() + (descending ? ".desc" : ".asc");
+        }
+
+        private String encode() {
+            String plain = sort + SEPARATOR + value + SEPARATOR + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
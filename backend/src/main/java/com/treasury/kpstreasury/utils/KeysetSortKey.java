@@ -0,0 +1,17 @@
+package com.treasury.kpstreasury.utils;
+
+/**
+ * A column a listing can be sorted and seeked on. Together with the id it forms the keyset, so the
+ * column does not need to be unique, but it must not be null.
+ */
+public interface KeysetSortKey {
+
+    String name();
+
+    String property();
+
+    /**
+     * Reads back a value written into a cursor by {@link String#valueOf(Object)}.
+     */
+    Comparable<?> parse(String value);
+}
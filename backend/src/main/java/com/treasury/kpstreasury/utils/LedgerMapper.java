@@ -0,0 +1,25 @@
+package com.treasury.kpstreasury.utils;
+
+import com.treasury.kpstreasury.models.dto.LedgerEntryDto;
+import com.treasury.kpstreasury.models.entity.LedgerEntryEntity;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LedgerMapper {
+
+    public LedgerEntryDto toDto(LedgerEntryEntity entry) {
+        if (entry == null) {
+            return null;
+        }
+
+        LedgerEntryDto dto = new LedgerEntryDto();
+        dto.setSequence(entry.getId());
+        dto.setJournalId(entry.getJournalId());
+        dto.setAccountId(entry.getAccountId());
+        dto.setEntryType(entry.getEntryType());
+        dto.setAmount(entry.getAmount());
+        dto.setDescription(entry.getDescription());
+        dto.setPostedAt(entry.getPostedAt());
+        return dto;
+    }
+}
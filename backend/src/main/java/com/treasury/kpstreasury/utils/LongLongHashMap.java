@@ -0,0 +1,119 @@
+package com.treasury.kpstreasury.utils;
+
+/**
+ * A hash map from long keys to long values that stores both in flat primitive arrays, so neither a
+ * put nor a lookup boxes or allocates an entry. Open addressing with linear probing over a power of
+ * two table that doubles once it is more than half full; key 0 marks a free slot and is kept apart.
+ * Entries cannot be removed. Not thread-safe.
+ */
+public final class LongLongHashMap {
+
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative");
+        }
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZeroKey : keys[slot(key)] != 0;
+    }
+
+    /**
+     * The value of the key, or missing when the key was never put.
+     */
+    public long get(long key, long missing) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : missing;
+        }
+        int slot = slot(key);
+        return keys[slot] != 0 ? values[slot] : missing;
+    }
+
+    public void put(long key, long value) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int slot = slot(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Adds delta to the value of the key, a missing key counting as 0, and returns the new value.
+     * @throws ArithmeticException when the value overflows
+     */
+    public long addTo(long key, long delta) {
+        long value = Math.addExact(get(key, 0L), delta);
+        put(key, value);
+        return value;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0L, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // the slot holding the key, or the free slot where it would go
+    private int slot(long key) {
+        int slot = (int) ((key * MIX) >>> 32) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,133 @@
+package com.treasury.kpstreasury.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * Monetary amount held as a long count of minor units (cents) plus an ISO currency code.
+ * The scale matches the precision 19 / scale 2 money columns, so converting to and from the
+ * persisted BigDecimal is exact. All arithmetic is overflow-checked and throws ArithmeticException
+ * instead of wrapping. A null currency means the amount came from a source that does not carry one
+ * (a single column, a JSON number); it only combines with other currency-less amounts.
+ */
+public record Money(long minorUnits, String currency) implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+
+    private static final long RATE_SCALE = 10_000L;
+
+    public static Money zero(String currency) {
+        return new Money(0L, currency);
+    }
+
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Converts an amount that must already be representable in minor units.
+     * @throws ArithmeticException when the amount has more than two decimals or does not fit in a long
+     */
+    public static Money of(BigDecimal amount, String currency) {
+        return new Money(toMinorUnits(amount.setScale(SCALE, RoundingMode.UNNECESSARY)), currency);
+    }
+
+    /**
+     * Converts an amount rounding it half-up to minor units, the way the database does when
+     * writing an unrounded value into a scale 2 column.
+     */
+    public static Money rounded(BigDecimal amount, String currency) {
+        return new Money(toMinorUnits(amount.setScale(SCALE, RoundingMode.HALF_UP)), currency);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    public Money times(long factor) {
+        return new Money(Math.multiplyExact(minorUnits, factor), currency);
+    }
+
+    /**
+     * Divides by a count, rounding half-up as the BigDecimal averages used to.
+     */
+    public Money dividedBy(long divisor) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long quotient = minorUnits / divisor;
+        long remainder = minorUnits % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += Long.signum(minorUnits) * Long.signum(divisor);
+        }
+        return new Money(quotient, currency);
+    }
+
+    /**
+     * Applies a haircut expressed as a fraction with up to four decimals (0.1500 = 15%) and returns
+     * the remaining value, rounded half-up to minor units. The amount is split so the intermediate
+     * product only overflows when the result itself would not fit.
+     */
+    public Money afterHaircut(BigDecimal haircut) {
+        long haircutUnits = haircut.movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        long keep = Math.subtractExact(RATE_SCALE, haircutUnits);
+
+        long whole = minorUnits / RATE_SCALE;
+        long fraction = minorUnits % RATE_SCALE;
+        long scaledFraction = fraction * keep;
+        long roundedFraction = (scaledFraction + Long.signum(scaledFraction) * (RATE_SCALE / 2)) / RATE_SCALE;
+        return new Money(Math.addExact(Math.multiplyExact(whole, keep), roundedFraction), currency);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        requireSameCurrency(other);
+        return minorUnits < other.minorUnits;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        String amount = toBigDecimal().toPlainString();
+        return currency == null ? amount : currency + " " + amount;
+    }
+
+    // setScale returns the same instance when the scale already matches, and scaleByPowerOfTen keeps
+    // the compact long representation, so unlike unscaledValue() this does not allocate a BigInteger
+    private static long toMinorUnits(BigDecimal scaled) {
+        return scaled.scaleByPowerOfTen(SCALE).longValueExact();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!Objects.equals(currency, other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+}
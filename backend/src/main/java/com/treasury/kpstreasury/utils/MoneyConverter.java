@@ -0,0 +1,25 @@
+package com.treasury.kpstreasury.utils;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Maps a Money attribute onto an existing precision 19 / scale 2 amount column, so a field can move
+ * from BigDecimal to Money without a schema change. The column carries no currency, so values read
+ * back are currency-less.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money != null ? money.toBigDecimal() : null;
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return amount != null ? Money.rounded(amount, null) : null;
+    }
+}
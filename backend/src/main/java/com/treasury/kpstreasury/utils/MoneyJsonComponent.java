@@ -0,0 +1,40 @@
+package com.treasury.kpstreasury.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Writes Money as the plain JSON number the API already exposes for amounts (100.50, not an object),
+ * and reads such numbers back, so DTO fields can switch to Money without changing the REST contract.
+ */
+@JsonComponent
+public class MoneyJsonComponent {
+
+    public static class Serializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money money, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(money.toBigDecimal());
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            BigDecimal amount = parser.getDecimalValue();
+            try {
+                return Money.of(amount, null);
+            } catch (ArithmeticException e) {
+                throw InvalidFormatException.from(parser, "Amount must have at most 2 decimals", amount, Money.class);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.treasury.kpstreasury.utils;
+
+import com.treasury.kpstreasury.enums.NettingStatus;
+import com.treasury.kpstreasury.models.dto.NettingCycleDto;
+import com.treasury.kpstreasury.models.dto.NettingInstructionDto;
+import com.treasury.kpstreasury.models.dto.NettingLegDto;
+import com.treasury.kpstreasury.models.entity.NettingCycleEntity;
+import com.treasury.kpstreasury.models.entity.NettingInstructionEntity;
+import com.treasury.kpstreasury.models.entity.NettingLegEntity;
+import org.springframework.stereotype.Component;
+
+@Component
+public class NettingMapper {
+
+    public NettingInstructionDto toDto(NettingInstructionEntity instruction) {
+        if (instruction == null) {
+            return null;
+        }
+
+        NettingInstructionDto dto = new NettingInstructionDto();
+        dto.setId(instruction.getId());
+        dto.setFromAccountId(instruction.getFromAccountId());
+        dto.setToAccountId(instruction.getToAccountId());
+        dto.setAmount(instruction.getAmount());
+        dto.setReference(instruction.getReference());
+        dto.setCurrency(instruction.getCurrency());
+        dto.setStatus(instruction.getStatus());
+        dto.setRejectionReason(instruction.getRejectionReason());
+        dto.setCycleId(instruction.getCycleId());
+        dto.setSubmittedAt(instruction.getSubmittedAt());
+        return dto;
+    }
+
+    public NettingInstructionEntity toEntity(NettingInstructionDto dto) {
+        if (dto == null) {
+            return null;
+        }
+
+        NettingInstructionEntity instruction = new NettingInstructionEntity();
+        instruction.setFromAccountId(dto.getFromAccountId());
+        instruction.setToAccountId(dto.getToAccountId());
+        instruction.setAmount(dto.getAmount());
+        instruction.setReference(dto.getReference());
+        instruction.setStatus(NettingStatus.PENDING);
+        return instruction;
+    }
+
+    public NettingCycleDto toDto(NettingCycleEntity cycle) {
+        if (cycle == null) {
+            return null;
+        }
+
+        NettingCycleDto dto = new NettingCycleDto();
+        dto.setId(cycle.getId());
+        dto.setCutoffAt(cycle.getCutoffAt());
+        dto.setSettledAt(cycle.getSettledAt());
+        dto.setInstructionCount(cycle.getInstructionCount());
+        dto.setSettledCount(cycle.getSettledCount());
+        dto.setRejectedCount(cycle.getRejectedCount());
+        dto.setAccountCount(cycle.getAccountCount());
+        dto.setLegCount(cycle.getLegCount());
+        return dto;
+    }
+
+    public NettingLegDto toDto(NettingLegEntity leg) {
+        if (leg == null) {
+            return null;
+        }
+
+        return new NettingLegDto(leg.getFromAccountId(), leg.getToAccountId(), leg.getAmount(), leg.getCurrency(),
+                leg.getJournalId());
+    }
+}
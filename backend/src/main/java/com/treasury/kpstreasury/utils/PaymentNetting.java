@@ -0,0 +1,207 @@
+package com.treasury.kpstreasury.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Multilateral netting of a set of transfer instructions, all in minor units.
+ * Each account gets a dense index on first sight (a LongLongHashMap from account id to index), and
+ * the gross amounts it paid and received are summed into flat arrays at that index. The bilateral
+ * net of each pair of accounts is kept in another LongLongHashMap keyed by the two indexes packed
+ * into one long, so adding an instruction touches three arrays and one map slot and allocates
+ * nothing once the tables are sized.
+ *
+ * The residual legs settle every account's net position with as few transfers as a greedy match
+ * allows: per currency, net payers and net receivers are walked in account id order and each leg
+ * moves the smaller of the two open amounts, so there are at most payers + receivers - 1 legs and
+ * the same instructions always give the same legs. Not thread-safe.
+ */
+public final class PaymentNetting {
+
+    private final LongLongHashMap indexes;
+    private final LongLongHashMap bilateral;
+    private long[] accountIds;
+    private String[] currencies;
+    private long[] paid;
+    private long[] received;
+    private int accounts;
+    private int instructions;
+
+    public PaymentNetting(int expectedInstructions) {
+        int expectedAccounts = Math.max(16, expectedInstructions / 4);
+        this.indexes = new LongLongHashMap(expectedAccounts);
+        this.bilateral = new LongLongHashMap(expectedInstructions);
+        this.accountIds = new long[expectedAccounts];
+        this.currencies = new String[expectedAccounts];
+        this.paid = new long[expectedAccounts];
+        this.received = new long[expectedAccounts];
+    }
+
+    /**
+     * Adds one instruction moving amount minor units from one account to another.
+     * @throws IllegalArgumentException when the amount is not positive, the accounts are the same or
+     * an account was already seen with another currency
+     */
+    public void add(long fromAccountId, long toAccountId, long amount, String currency) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Netted amounts must be positive");
+        }
+        if (fromAccountId == toAccountId) {
+            throw new IllegalArgumentException("Source and destination accounts must be different");
+        }
+        requireCurrency(fromAccountId, currency);
+        requireCurrency(toAccountId, currency);
+        int from = index(fromAccountId, currency);
+        int to = index(toAccountId, currency);
+        paid[from] = Math.addExact(paid[from], amount);
+        received[to] = Math.addExact(received[to], amount);
+        // the net of a pair is kept from the side of its lower index, positive when that side receives
+        if (from < to) {
+            bilateral.addTo(pairKey(from, to), -amount);
+        } else {
+            bilateral.addTo(pairKey(to, from), amount);
+        }
+        instructions++;
+    }
+
+    public int instructionCount() {
+        return instructions;
+    }
+
+    public int accountCount() {
+        return accounts;
+    }
+
+    public long accountId(int index) {
+        return accountIds[index];
+    }
+
+    public String currency(int index) {
+        return currencies[index];
+    }
+
+    public long paid(int index) {
+        return paid[index];
+    }
+
+    public long received(int index) {
+        return received[index];
+    }
+
+    // received minus paid, positive for a net receiver
+    public long net(int index) {
+        return received[index] - paid[index];
+    }
+
+    /**
+     * The dense index of the account, or -1 when no instruction involved it.
+     */
+    public int indexOf(long accountId) {
+        return (int) indexes.get(accountId, -1L);
+    }
+
+    /**
+     * Hands every pair of accounts that does not net to zero to the consumer, as the amount the one
+     * owes the other.
+     */
+    public void forEachBilateralNet(LegConsumer consumer) {
+        bilateral.forEach((key, net) -> {
+            int low = (int) (key >>> 32);
+            int high = (int) key;
+            if (net > 0) {
+                consumer.accept(accountIds[high], accountIds[low], net, currencies[low]);
+            } else if (net < 0) {
+                consumer.accept(accountIds[low], accountIds[high], -net, currencies[low]);
+            }
+        });
+    }
+
+    public List<Leg> residualLegs() {
+        int[] byAccountId = new int[accounts];
+        long[] sortedIds = Arrays.copyOf(accountIds, accounts);
+        Arrays.sort(sortedIds);
+        for (int i = 0; i < accounts; i++) {
+            byAccountId[i] = indexOf(sortedIds[i]);
+        }
+
+        List<Leg> legs = new ArrayList<>();
+        for (String currency : new TreeSet<>(Arrays.asList(currencies).subList(0, accounts))) {
+            int[] payers = new int[accounts];
+            int[] receivers = new int[accounts];
+            int payerCount = 0;
+            int receiverCount = 0;
+            for (int index : byAccountId) {
+                if (!currencies[index].equals(currency)) {
+                    continue;
+                }
+                long net = net(index);
+                if (net < 0) {
+                    payers[payerCount++] = index;
+                } else if (net > 0) {
+                    receivers[receiverCount++] = index;
+                }
+            }
+
+            int p = 0;
+            int r = 0;
+            long owed = payerCount > 0 ? -net(payers[0]) : 0;
+            long due = receiverCount > 0 ? net(receivers[0]) : 0;
+            while (p < payerCount && r < receiverCount) {
+                long amount = Math.min(owed, due);
+                legs.add(new Leg(accountIds[payers[p]], accountIds[receivers[r]], amount, currency));
+                owed -= amount;
+                due -= amount;
+                if (owed == 0 && ++p < payerCount) {
+                    owed = -net(payers[p]);
+                }
+                if (due == 0 && ++r < receiverCount) {
+                    due = net(receivers[r]);
+                }
+            }
+        }
+        return legs;
+    }
+
+    private void requireCurrency(long accountId, String currency) {
+        int index = indexOf(accountId);
+        if (index >= 0 && !currencies[index].equals(currency)) {
+            throw new IllegalArgumentException("Account " + accountId + " is netted in more than one currency");
+        }
+    }
+
+    private int index(long accountId, String currency) {
+        int index = indexOf(accountId);
+        if (index >= 0) {
+            return index;
+        }
+        if (accounts == accountIds.length) {
+            int capacity = accounts * 2;
+            accountIds = Arrays.copyOf(accountIds, capacity);
+            currencies = Arrays.copyOf(currencies, capacity);
+            paid = Arrays.copyOf(paid, capacity);
+            received = Arrays.copyOf(received, capacity);
+        }
+        index = accounts++;
+        indexes.put(accountId, index);
+        accountIds[index] = accountId;
+        currencies[index] = currency;
+        return index;
+    }
+
+    private static long pairKey(int low, int high) {
+        return ((long) low << 32) | high;
+    }
+
+    /**
+     * One residual settlement transfer, in minor units.
+     */
+    public record Leg(long fromAccountId, long toAccountId, long amount, String currency) {
+    }
+
+    @FunctionalInterface
+    public interface LegConsumer {
+        void accept(long fromAccountId, long toAccountId, long amount, String currency);
+    }
+}
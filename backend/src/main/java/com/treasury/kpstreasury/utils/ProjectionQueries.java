@@ -0,0 +1,96 @@
+package com.treasury.kpstreasury.utils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Specification-filtered listings read into DTOs, or just their ids, for the filters a fixed
+ * repository query cannot express. Spring Data's own findAll(Specification, Pageable) always
+ * hydrates entities.
+ */
+@Component
+public class ProjectionQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <E, D> Page<D> page(DtoProjection<E, D> projection, Specification<E> filter, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<D> query = cb.createQuery(projection.dtoType());
+        Root<E> root = query.from(projection.entityType());
+        query.select(projection.select(cb, root));
+        Predicate filtered = filter != null ? filter.toPredicate(root, query, cb) : null;
+        if (filtered != null) {
+            query.where(filtered);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(entityManager.createQuery(query).getResultList());
+        }
+        List<D> content = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(projection.entityType(), filter));
+    }
+
+    /**
+     * The ids of the rows matching the filter, in id order.
+     */
+    public <E> List<Long> ids(Class<E> type, Specification<E> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<E> root = query.from(type);
+        Predicate filtered = filter != null ? filter.toPredicate(root, query, cb) : null;
+        query.select(root.get("id"));
+        if (filtered != null) {
+            query.where(filtered);
+        }
+        query.orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    /**
+     * The given ids of the rows matching the filter, in id order. The ids are bound in chunks of at
+     * most chunkSize, so that a long id list cannot exceed the bind parameter limit of the driver.
+     */
+    public <E> List<Long> idsIn(Class<E> type, Collection<Long> ids, Specification<E> filter, int chunkSize) {
+        List<Long> sorted = ids.stream().distinct().sorted().toList();
+        List<Long> matching = new ArrayList<>();
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            List<Long> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+            matching.addAll(ids(type, Specification.where(FilterSpecifications.<E>in("id", chunk)).and(filter)));
+        }
+        return matching;
+    }
+
+    private <E> long count(Class<E> type, Specification<E> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<E> root = query.from(type);
+        Predicate filtered = filter != null ? filter.toPredicate(root, query, cb) : null;
+        query.select(cb.count(root));
+        if (filtered != null) {
+            query.where(filtered);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
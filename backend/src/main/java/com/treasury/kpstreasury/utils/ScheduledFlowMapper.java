@@ -0,0 +1,41 @@
+package com.treasury.kpstreasury.utils;
+
+import com.treasury.kpstreasury.models.dto.ScheduledFlowDto;
+import com.treasury.kpstreasury.models.entity.ScheduledFlowEntity;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ScheduledFlowMapper {
+
+    public ScheduledFlowDto toDto(ScheduledFlowEntity flow) {
+        if (flow == null) {
+            return null;
+        }
+
+        ScheduledFlowDto dto = new ScheduledFlowDto();
+        dto.setId(flow.getId());
+        dto.setAccountId(flow.getAccountId());
+        dto.setAmount(flow.getAmount());
+        dto.setStartDate(flow.getStartDate());
+        dto.setRecurrence(flow.getRecurrence());
+        dto.setEndDate(flow.getEndDate());
+        dto.setDescription(flow.getDescription());
+        dto.setCreatedAt(flow.getCreatedAt());
+        return dto;
+    }
+
+    public ScheduledFlowEntity toEntity(ScheduledFlowDto dto) {
+        if (dto == null) {
+            return null;
+        }
+
+        return ScheduledFlowEntity.builder()
+                .accountId(dto.getAccountId())
+                .amount(dto.getAmount())
+                .startDate(dto.getStartDate())
+                .recurrence(dto.getRecurrence())
+                .endDate(dto.getEndDate())
+                .description(dto.getDescription())
+                .build();
+    }
+}
@@ -2,9 +2,14 @@ package com.treasury.kpstreasury.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.treasury.kpstreasury.config.TestSecurityConfig;
+import com.treasury.kpstreasury.enums.ExportFormat;
 import com.treasury.kpstreasury.enums.Role;
+import com.treasury.kpstreasury.enums.UserSortKey;
 import com.treasury.kpstreasury.models.dto.CreateUserDto;
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
 import com.treasury.kpstreasury.models.dto.UserDto;
+import com.treasury.kpstreasury.services.ExportService;
 import com.treasury.kpstreasury.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,7 +20,10 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -23,6 +31,10 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
@@ -40,6 +52,9 @@ class UserControllerTests {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private ExportService exportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -120,6 +135,50 @@ class UserControllerTests {
                 .andExpect(jsonPath("$[0].username").value("testuser"));
     }
 
+    @Test
+    void getUsersPage_ShouldBindFiltersSortAndCursor() throws Exception {
+        when(userService.getUsersPage(eq(Role.USER), isNull(), eq(UserSortKey.USERNAME),
+                argThat((CursorPageRequest request) -> "abc".equals(request.getCursor()) && request.getSize() == 10)))
+                .thenReturn(new CursorPageDto<>(List.of(userDto), "def", true, null));
+
+        mockMvc.perform(get("/api/users/page")
+                        .param("role", "USER")
+                        .param("sort", "USERNAME")
+                        .param("cursor", "abc")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].username").value("testuser"))
+                .andExpect(jsonPath("$.nextCursor").value("def"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    void getUsersPage_ShouldReturnBadRequest_WhenTheCursorIsRejected() throws Exception {
+        when(userService.getUsersPage(any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Malformed cursor"));
+
+        mockMvc.perform(get("/api/users/page").param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportUsers_ShouldStreamTheRequestedFormat() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("id,username\n1,testuser\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(exportService).exportUsers(eq(ExportFormat.CSV), any());
+
+        MvcResult started = mockMvc.perform(get("/api/users/export").param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"users.csv\""))
+                .andExpect(content().string("id,username\n1,testuser\n"));
+    }
+
     @Test
     void getUsersByRole_ShouldReturnUsersByRole() throws Exception {
         List<UserDto> users = Arrays.asList(userDto);
@@ -0,0 +1,60 @@
+package com.treasury.kpstreasury.models.dto;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchTransferRequestDtoTests {
+
+    private Validator validator;
+
+    @BeforeEach
+    void setUp() {
+        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @Test
+    void testBatchAtTheCeilingIsValid() {
+        BatchTransferRequestDto dto = new BatchTransferRequestDto(legs(BatchTransferRequestDto.MAX_LEGS));
+
+        Set<ConstraintViolation<BatchTransferRequestDto>> violations = validator.validate(dto);
+        assertTrue(violations.isEmpty());
+    }
+
+    @Test
+    void testBatchAboveTheCeilingIsRejected() {
+        BatchTransferRequestDto dto = new BatchTransferRequestDto(legs(BatchTransferRequestDto.MAX_LEGS + 1));
+
+        Set<ConstraintViolation<BatchTransferRequestDto>> violations = validator.validate(dto);
+        assertEquals(1, violations.size());
+        assertEquals("A batch cannot have more than 10000 transfers", violations.iterator().next().getMessage());
+    }
+
+    @Test
+    void testEmptyBatchIsRejected() {
+        BatchTransferRequestDto dto = new BatchTransferRequestDto(List.of());
+
+        Set<ConstraintViolation<BatchTransferRequestDto>> violations = validator.validate(dto);
+        assertEquals(1, violations.size());
+        assertEquals("At least one transfer is required", violations.iterator().next().getMessage());
+    }
+
+    private static List<TransferRequestDto> legs(int count) {
+        List<TransferRequestDto> legs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            legs.add(new TransferRequestDto(1L, 2L, new BigDecimal("1.00")));
+        }
+        return legs;
+    }
+}
@@ -104,6 +104,16 @@ public class CollateralDtoTests {
         assertEquals("Market value must be greater than zero", violations.iterator().next().getMessage());
     }
 
+    @Test
+    void testMarketValueBeyondMinorUnits() {
+        CollateralDto dto = createValidCollateralDto();
+        dto.setMarketValue(new BigDecimal("92233720368547758.08"));
+
+        Set<ConstraintViolation<CollateralDto>> violations = validator.validate(dto);
+        assertEquals(1, violations.size());
+        assertEquals("Market value cannot exceed 92233720368547758.07", violations.iterator().next().getMessage());
+    }
+
     @Test
     void testHaircutRequired() {
         CollateralDto dto = createValidCollateralDto();
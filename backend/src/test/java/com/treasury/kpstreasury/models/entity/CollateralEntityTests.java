@@ -45,4 +45,14 @@ public class CollateralEntityTests {
 
     }
 
+    @Test
+    void shouldCalculateEligibleValue_BeyondALongOfMinorUnits() {
+        CollateralEntity collateral = testsUtil.createCollateralEntityA();
+        collateral.setMarketValue(new BigDecimal("99999999999999999.99"));
+        collateral.setHaircut(new BigDecimal("0.1500"));
+        collateral.calculateEligibleValue();
+
+        assertThat(collateral.getEligibleValue()).isEqualByComparingTo("84999999999999999.99");
+    }
+
 }
@@ -3,16 +3,24 @@ package com.treasury.kpstreasury.repositories;
 import com.treasury.kpstreasury.enums.CollateralStatus;
 import com.treasury.kpstreasury.enums.CollateralType;
 import com.treasury.kpstreasury.enums.Rating;
+import com.treasury.kpstreasury.models.dto.CollateralDto;
+import com.treasury.kpstreasury.models.dto.CollateralRatingTotalsRow;
+import com.treasury.kpstreasury.models.dto.CollateralTypeTotalsRow;
 import com.treasury.kpstreasury.models.entity.CollateralEntity;
+import com.treasury.kpstreasury.utils.FilterSpecifications;
+import com.treasury.kpstreasury.utils.ProjectionQueries;
 import com.treasury.kpstreasury.utils.TestsUtil;
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -22,6 +30,7 @@ import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
+@Import(ProjectionQueries.class)
 class CollateralRepositoryTests {
 
     @Autowired
@@ -30,6 +39,9 @@ class CollateralRepositoryTests {
     @Autowired
     private CollateralRepository collateralRepository;
 
+    @Autowired
+    private ProjectionQueries projectionQueries;
+
     private TestsUtil testsUtil;
 
     private CollateralEntity collateralA;
@@ -185,38 +197,38 @@ class CollateralRepositoryTests {
     @Test
     void shouldGetCollateralSummaryByType() {
         // When
-        List<Object[]> summary = collateralRepository.getCollateralSummaryByType();
+        List<CollateralTypeTotalsRow> summary = collateralRepository.getCollateralSummaryByType();
 
         // Then
         assertThat(summary).hasSize(2); // GOVERNMENT_BOND and CORPORATE_BOND (only ELIGIBLE ones)
 
         // Find government bond summary
-        Object[] govBondSummary = summary.stream()
-                .filter(row -> row[0] == CollateralType.GOVERNMENT_BOND)
+        CollateralTypeTotalsRow govBondSummary = summary.stream()
+                .filter(row -> row.collateralType() == CollateralType.GOVERNMENT_BOND)
                 .findFirst()
                 .orElse(null);
 
         assertThat(govBondSummary).isNotNull();
-        assertThat(govBondSummary[1]).isEqualTo(new BigDecimal("500000.00")); // Market value
+        assertThat(govBondSummary.totalMarketValue()).isEqualTo(new BigDecimal("500000.00")); // Market value
     }
 
     @Test
     void shouldGetCollateralConcentrationByRating() {
         // When
-        List<Object[]> concentration = collateralRepository.getCollateralConcentrationByRating();
+        List<CollateralRatingTotalsRow> concentration = collateralRepository.getCollateralConcentrationByRating();
 
         // Then
         assertThat(concentration).hasSize(2); // AAA and BBB (only ELIGIBLE ones)
 
         // Find AAA concentration
-        Object[] aaaConcentration = concentration.stream()
-                .filter(row -> row[0] == Rating.AAA)
+        CollateralRatingTotalsRow aaaConcentration = concentration.stream()
+                .filter(row -> row.rating() == Rating.AAA)
                 .findFirst()
                 .orElse(null);
 
         assertThat(aaaConcentration).isNotNull();
-        assertThat(aaaConcentration[1]).isEqualTo(1L); // Count
-        assertThat(aaaConcentration[2]).isEqualTo(new BigDecimal("500000.00")); // Market value
+        assertThat(aaaConcentration.count()).isEqualTo(1L); // Count
+        assertThat(aaaConcentration.totalMarketValue()).isEqualTo(new BigDecimal("500000.00")); // Market value
     }
 
     @Test
@@ -235,14 +247,8 @@ class CollateralRepositoryTests {
     void shouldFindWithAdvancedFilters() {
         // When
         Pageable pageable = PageRequest.of(0, 10);
-        Page<CollateralEntity> result = collateralRepository.findWithAdvancedFilters(
-                CollateralType.GOVERNMENT_BOND,
-                Rating.AAA,
-                "EUR",
-                CollateralStatus.ELIGIBLE,
-                new BigDecimal("400000.00"),
-                pageable
-        );
+        Page<CollateralEntity> result = collateralRepository.findAll(CollateralSpecifications.advancedFilters(
+                CollateralType.GOVERNMENT_BOND, Rating.AAA, "EUR", CollateralStatus.ELIGIBLE, new BigDecimal("400000.00")), pageable);
 
         // Then
         assertThat(result.getContent()).hasSize(1);
@@ -254,14 +260,8 @@ class CollateralRepositoryTests {
     void shouldFindWithAdvancedFiltersNoResults() {
         // When
         Pageable pageable = PageRequest.of(0, 10);
-        Page<CollateralEntity> result = collateralRepository.findWithAdvancedFilters(
-                CollateralType.GOVERNMENT_BOND,
-                Rating.AAA,
-                "USD", // No USD collaterals
-                CollateralStatus.ELIGIBLE,
-                null,
-                pageable
-        );
+        Page<CollateralEntity> result = collateralRepository.findAll(CollateralSpecifications.advancedFilters(
+                CollateralType.GOVERNMENT_BOND, Rating.AAA, "USD", CollateralStatus.ELIGIBLE, null), pageable); // No USD collaterals
 
         // Then
         assertThat(result.getContent()).isEmpty();
@@ -272,12 +272,56 @@ class CollateralRepositoryTests {
     void shouldFindWithAdvancedFiltersAllNull() {
         // When
         Pageable pageable = PageRequest.of(0, 10);
-        Page<CollateralEntity> result = collateralRepository.findWithAdvancedFilters(
-                null, null, null, null, null, pageable
-        );
+        Page<CollateralEntity> result = collateralRepository.findAll(CollateralSpecifications.advancedFilters(
+                null, null, null, null, null), pageable);
 
         // Then
         assertThat(result.getContent()).hasSize(4); // All collaterals
         assertThat(result.getTotalElements()).isEqualTo(4);
     }
+
+    @Test
+    void shouldReadCollateralDtosWithoutManagingEntities() {
+        // Given
+        entityManager.clear();
+
+        // When
+        List<CollateralDto> all = collateralRepository.findAllDtos();
+        Page<CollateralDto> eligibleBonds = projectionQueries.page(CollateralRepository.PROJECTION,
+                CollateralSpecifications.advancedFilters(null, null, "EUR", CollateralStatus.ELIGIBLE, null),
+                PageRequest.of(0, 1, Sort.by("marketValue").descending()));
+
+        // Then
+        assertThat(all).hasSize(4);
+        assertThat(all).extracting(CollateralDto::getDescription)
+                .contains("Portuguese Government Bond 2025", "Commercial Property Porto");
+        assertThat(eligibleBonds.getTotalElements()).isEqualTo(2);
+        assertThat(eligibleBonds.getContent()).hasSize(1);
+        assertThat(eligibleBonds.getContent().get(0).getDescription()).isEqualTo("Portuguese Government Bond 2025");
+
+        // the rows were read into DTOs, nothing was attached to the persistence context
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        assertThat(session.getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void shouldReadMatchingIdsInChunks() {
+        // When
+        List<Long> ids = projectionQueries.idsIn(CollateralEntity.class,
+                List.of(collateralD.getId(), collateralA.getId(), collateralC.getId(), collateralB.getId(), collateralD.getId()),
+                FilterSpecifications.notEqualTo("status", CollateralStatus.ELIGIBLE), 2);
+
+        // Then
+        assertThat(ids).containsExactly(collateralC.getId(), collateralD.getId());
+    }
+
+    @Test
+    void shouldLockCollateralsInIdOrder() {
+        // When
+        List<Long> locked = collateralRepository.lockInIdOrder(
+                List.of(collateralD.getId(), collateralB.getId(), collateralA.getId()));
+
+        // Then
+        assertThat(locked).containsExactly(collateralA.getId(), collateralB.getId(), collateralD.getId());
+    }
 }
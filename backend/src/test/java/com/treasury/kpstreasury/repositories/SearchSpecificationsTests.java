@@ -0,0 +1,151 @@
+package com.treasury.kpstreasury.repositories;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.CollateralStatus;
+import com.treasury.kpstreasury.enums.CollateralType;
+import com.treasury.kpstreasury.enums.Rating;
+import com.treasury.kpstreasury.models.entity.CollateralEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.treasury.kpstreasury.repositories.CapturingStatementInspector")
+class SearchSpecificationsTests {
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private CollateralRepository collateralRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 60; i++) {
+            treasuryRepository.save(TestsUtil.account("SPEC-" + i, "100.00")
+                    .currency(i % 3 == 0 ? "USD" : "EUR")
+                    .status(i % 4 == 0 ? AccountStatus.INACTIVE : AccountStatus.ACTIVE)
+                    .bankName((i % 2 == 0 ? "Alpha" : "Beta") + " Bank " + i % 5)
+                    .build());
+            collateralRepository.save(collateral(i));
+        }
+        treasuryRepository.save(TestsUtil.account("SPEC-X", "100.00").bankName("Alpha_Bank").build());
+        treasuryRepository.flush();
+        collateralRepository.flush();
+    }
+
+    @Test
+    void matching_ShouldOnlyEmitTheSuppliedPredicates_WithOneSqlTextPerShape() {
+        List<TreasuryEntity> eurActive = find(TreasurySpecifications.matching("EUR", null, AccountStatus.ACTIVE, null));
+        String first = lastSelect();
+        List<TreasuryEntity> usdInactive = find(TreasurySpecifications.matching("USD", null, AccountStatus.INACTIVE, null));
+        String second = lastSelect();
+
+        assertThat(eurActive).allMatch(account -> account.getCurrency().equals("EUR")
+                && account.getStatus() == AccountStatus.ACTIVE).hasSize(31);
+        assertThat(usdInactive).allMatch(account -> account.getCurrency().equals("USD")
+                && account.getStatus() == AccountStatus.INACTIVE).hasSize(5);
+        assertThat(second).isEqualTo(first);
+        assertThat(where(first)).isEqualTo("te1_0.currency=? and te1_0.status=?");
+
+        find(TreasurySpecifications.matching(null, null, null, null));
+        assertThat(lastSelect()).doesNotContain(" where ");
+    }
+
+    @Test
+    void matching_ShouldMatchBankNamePrefixes_WithWildcardsTakenLiterally() {
+        assertThat(find(TreasurySpecifications.matching(null, "Alpha", null, null))).hasSize(31);
+        assertThat(find(TreasurySpecifications.matching(null, "Alpha_", null, null)))
+                .extracting(TreasuryEntity::getAccountNumber)
+                .containsExactly("SPEC-X");
+        assertThat(find(TreasurySpecifications.matching(null, "Bank", null, null))).isEmpty();
+    }
+
+    @Test
+    void advancedFilters_ShouldTreatMinRatingAsThisRatingOrBetter() {
+        List<CollateralEntity> found = collateralRepository.findAll(CollateralSpecifications.advancedFilters(
+                null, Rating.AA, "EUR", CollateralStatus.ELIGIBLE, new BigDecimal("1000")));
+
+        assertThat(found).isNotEmpty().allSatisfy(collateral -> {
+            assertThat(collateral.getRating()).isIn(Rating.AAA, Rating.AA);
+            assertThat(collateral.getMarketValue()).isGreaterThanOrEqualTo(new BigDecimal("1000"));
+        });
+        assertThat(found).hasSize((int) collateralRepository.findAll().stream()
+                .filter(c -> c.getCurrency().equals("EUR") && c.getStatus() == CollateralStatus.ELIGIBLE
+                        && c.getRating().ordinal() <= Rating.AA.ordinal()
+                        && c.getMarketValue().compareTo(new BigDecimal("1000")) >= 0)
+                .count());
+    }
+
+    @Test
+    void explain_ShouldUseAnIndex_ForCommonFilterCombinations() {
+        find(TreasurySpecifications.matching("EUR", null, AccountStatus.ACTIVE, null));
+        assertThat(explain(lastSelect(), "EUR", "ACTIVE")).containsIgnoringCase("idx_treasurys_currency_status").doesNotContainIgnoringCase("tableScan");
+
+        find(TreasurySpecifications.matching("EUR", null, null, null));
+        assertThat(explain(lastSelect(), "EUR")).containsIgnoringCase("idx_treasurys_currency_status").doesNotContainIgnoringCase("tableScan");
+
+        find(TreasurySpecifications.matching(null, null, AccountStatus.SUSPENDED, null));
+        assertThat(explain(lastSelect(), "SUSPENDED")).containsIgnoringCase("idx_treasurys_status").doesNotContainIgnoringCase("tableScan");
+
+        find(TreasurySpecifications.matching(null, "Alpha", null, null));
+        assertThat(explain(lastSelect(), "Alpha%")).containsIgnoringCase("idx_treasurys_bank_name").doesNotContainIgnoringCase("tableScan");
+
+        collateralRepository.findAll(CollateralSpecifications.advancedFilters(
+                CollateralType.GOVERNMENT_BOND, null, null, CollateralStatus.ELIGIBLE, null));
+        assertThat(explain(lastSelect(), "GOVERNMENT_BOND", "ELIGIBLE")).containsIgnoringCase("idx_collaterals_type_status")
+                .doesNotContainIgnoringCase("tableScan");
+    }
+
+    private List<TreasuryEntity> find(Specification<TreasuryEntity> specification) {
+        CapturingStatementInspector.clear();
+        return treasuryRepository.findAll(specification);
+    }
+
+    private String lastSelect() {
+        List<String> selects = CapturingStatementInspector.statements().stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("select"))
+                .toList();
+        assertThat(selects).isNotEmpty();
+        return selects.get(selects.size() - 1).replaceAll("\\s+", " ").trim();
+    }
+
+    private String where(String sql) {
+        return sql.substring(sql.indexOf(" where ") + " where ".length());
+    }
+
+    private String explain(String sql, Object... parameters) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters));
+    }
+
+    private CollateralEntity collateral(int i) {
+        return CollateralEntity.builder()
+                .collateralType(CollateralType.values()[i % CollateralType.values().length])
+                .description("Collateral " + i)
+                .marketValue(BigDecimal.valueOf(500L * (i + 1)))
+                .haircut(new BigDecimal("0.1000"))
+                .currency(i % 2 == 0 ? "EUR" : "USD")
+                .rating(Rating.values()[i % 5])
+                .maturityDate(LocalDate.now().plusYears(1))
+                .status(i % 3 == 0 ? CollateralStatus.INELIGIBLE : CollateralStatus.ELIGIBLE)
+                .counterparty("Counterparty " + i % 4)
+                .location("Vault")
+                .build();
+    }
+}
@@ -86,6 +86,60 @@ class TreasuryRepositoryTest {
         assertThat(lowBalanceAccounts.get(0).getAccountNumber()).isEqualTo("ACC-LOW");
     }
 
+    @Test
+    void shouldDebitOnlyWhenAvailableBalanceCoversAmount() {
+        // Given
+        TreasuryEntity treasury = entityManager.persistAndFlush(
+                createTreasury("ACC-DEBIT", "EUR", new BigDecimal("1000"), AccountStatus.ACTIVE));
+        entityManager.clear();
+
+        // When
+        int rejected = treasuryRepository.debitIfAvailable(treasury.getId(), new BigDecimal("1500"));
+        int applied = treasuryRepository.debitIfAvailable(treasury.getId(), new BigDecimal("400"));
+        entityManager.clear();
+
+        // Then
+        TreasuryEntity reloaded = treasuryRepository.findById(treasury.getId()).orElseThrow();
+        assertThat(rejected).isZero();
+        assertThat(applied).isEqualTo(1);
+        assertThat(reloaded.getBalance()).isEqualByComparingTo("600");
+        assertThat(reloaded.getAvailableBalance()).isEqualByComparingTo("600");
+        assertThat(reloaded.getVersion()).isEqualTo(treasury.getVersion() + 1);
+    }
+
+    @Test
+    void shouldNotCreditInactiveAccount() {
+        // Given
+        TreasuryEntity treasury = entityManager.persistAndFlush(
+                createTreasury("ACC-SUSP", "EUR", new BigDecimal("1000"), AccountStatus.SUSPENDED));
+
+        // When
+        int updated = treasuryRepository.creditIfActive(treasury.getId(), new BigDecimal("100"));
+
+        // Then
+        assertThat(updated).isZero();
+    }
+
+    @Test
+    void shouldHoldAndReleaseAvailableBalanceOnly() {
+        // Given
+        TreasuryEntity treasury = entityManager.persistAndFlush(
+                createTreasury("ACC-HOLD", "EUR", new BigDecimal("1000"), AccountStatus.ACTIVE));
+        entityManager.clear();
+
+        // When
+        int held = treasuryRepository.holdIfAvailable(treasury.getId(), new BigDecimal("300"));
+        int overReleased = treasuryRepository.releaseHoldIfHeld(treasury.getId(), new BigDecimal("400"));
+        entityManager.clear();
+
+        // Then
+        TreasuryEntity reloaded = treasuryRepository.findById(treasury.getId()).orElseThrow();
+        assertThat(held).isEqualTo(1);
+        assertThat(overReleased).isZero();
+        assertThat(reloaded.getBalance()).isEqualByComparingTo("1000");
+        assertThat(reloaded.getAvailableBalance()).isEqualByComparingTo("700");
+    }
+
     private TreasuryEntity createTreasury(String accountNumber, String currency,
                                     BigDecimal balance, AccountStatus status) {
         TreasuryEntity treasury = new TreasuryEntity();
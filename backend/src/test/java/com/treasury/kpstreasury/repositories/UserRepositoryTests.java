@@ -2,14 +2,18 @@ package com.treasury.kpstreasury.repositories;
 
 
 import com.treasury.kpstreasury.enums.Role;
+import com.treasury.kpstreasury.models.dto.UserDto;
 import com.treasury.kpstreasury.models.entity.UserEntity;
 import com.treasury.kpstreasury.utils.TestsUtil;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -119,4 +123,32 @@ public class UserRepositoryTests {
         assertThat(adminUsersList.get(0).getRole()).isEqualTo(Role.ADMIN);
     }
 
+    @Test
+    void shouldReadUserDtosWithoutManagingEntities() {
+        // Given
+        userRepository.save(testsUtil.createUserEntityA());
+        userRepository.save(testsUtil.createUserEntityC());
+        userRepository.save(testsUtil.createUserEntityD());
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<UserDto> treasuryUsers = userRepository.findDtosByRole(Role.TREASURY);
+        Optional<UserDto> admin = userRepository.findDtoByUsername("admin.user");
+        Page<UserDto> activeUsers = userRepository.findActiveDtosByRole(Role.USER, PageRequest.of(0, 10));
+
+        // Then
+        assertThat(treasuryUsers.size()).isEqualTo(1);
+        assertThat(treasuryUsers.get(0).getUsername()).isEqualTo("treasury.user");
+        assertThat(treasuryUsers.get(0).isEnabled()).isTrue();
+        assertThat(admin).isPresent();
+        assertThat(admin.get().isEnabled()).isFalse();
+        assertThat(activeUsers.getTotalElements()).isEqualTo(1L);
+        assertThat(activeUsers.getContent().get(0).getUsername()).isEqualTo("regular.user");
+
+        // the rows were read into DTOs, nothing was attached to the persistence context
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        assertThat(session.getStatistics().getEntityCount()).isEqualTo(0);
+    }
+
 }
@@ -0,0 +1,130 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.IdentifierSpace;
+import com.treasury.kpstreasury.enums.Role;
+import com.treasury.kpstreasury.models.dto.AvailabilityFilterStatsDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.models.entity.UserEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.repositories.UserRepository;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(AvailabilityFilterService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AvailabilityFilterServiceTests {
+
+    @Autowired
+    private AvailabilityFilterService availabilityFilterService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        treasuryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void exists_ShouldAnswerUnknownValuesWithoutALookup_OnceLoaded() {
+        for (int i = 0; i < 50; i++) {
+            treasuryRepository.save(TestsUtil.account("BF-" + i, "10").build());
+        }
+        Predicate<String> lookup = counting(treasuryRepository::existsByAccountNumber);
+
+        availabilityFilterService.rebuild();
+        for (int i = 0; i < 50; i++) {
+            assertThat(availabilityFilterService.exists(IdentifierSpace.ACCOUNT_NUMBER, "BF-" + i, lookup)).isTrue();
+        }
+        int unknownAnsweredByDatabase = 0;
+        for (int i = 0; i < 1000; i++) {
+            int before = lookups.get();
+            assertThat(availabilityFilterService.exists(IdentifierSpace.ACCOUNT_NUMBER, "NEW-" + i, lookup)).isFalse();
+            unknownAnsweredByDatabase += lookups.get() - before;
+        }
+
+        assertThat(lookups.get()).isEqualTo(50 + unknownAnsweredByDatabase);
+        assertThat(unknownAnsweredByDatabase).isLessThan(50);
+        AvailabilityFilterStatsDto stats = stats(IdentifierSpace.ACCOUNT_NUMBER);
+        assertThat(stats.isLoaded()).isTrue();
+        assertThat(stats.getLoadedValues()).isEqualTo(50);
+        assertThat(stats.getHits()).isEqualTo(50);
+        assertThat(stats.getFalsePositives()).isEqualTo(unknownAnsweredByDatabase);
+        assertThat(stats.getMisses()).isEqualTo(1000 - unknownAnsweredByDatabase);
+    }
+
+    @Test
+    void add_ShouldMakeAValueALookupAgain_AndSurviveTheNextRebuild() {
+        availabilityFilterService.rebuild();
+        Predicate<String> lookup = counting(userRepository::existsByUsername);
+
+        availabilityFilterService.add(IdentifierSpace.USERNAME, "late.writer");
+        availabilityFilterService.add(IdentifierSpace.EMAIL, "late.writer@example.com");
+        // the insert commits after the rebuild read the column
+        availabilityFilterService.rebuild();
+        userRepository.save(user("late.writer"));
+
+        assertThat(availabilityFilterService.exists(IdentifierSpace.USERNAME, "late.writer", lookup)).isTrue();
+        assertThat(availabilityFilterService.exists(IdentifierSpace.EMAIL, "late.writer@example.com",
+                counting(userRepository::existsByEmail))).isTrue();
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void rebuild_ShouldPickUpRowsWrittenBehindItsBack() {
+        availabilityFilterService.rebuild();
+        userRepository.save(user("direct.insert"));
+        Predicate<String> lookup = counting(userRepository::existsByUsername);
+
+        assertThat(availabilityFilterService.exists(IdentifierSpace.USERNAME, "direct.insert", lookup)).isFalse();
+
+        availabilityFilterService.rebuild();
+
+        assertThat(availabilityFilterService.exists(IdentifierSpace.USERNAME, "direct.insert", lookup)).isTrue();
+        assertThat(stats(IdentifierSpace.USERNAME).getLoadedValues()).isEqualTo(1);
+    }
+
+    private Predicate<String> counting(Predicate<String> lookup) {
+        return value -> {
+            lookups.incrementAndGet();
+            return lookup.test(value);
+        };
+    }
+
+    private AvailabilityFilterStatsDto stats(IdentifierSpace space) {
+        return availabilityFilterService.getStats().stream()
+                .filter(stats -> stats.getSpace() == space)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private UserEntity user(String username) {
+        return UserEntity.builder()
+                .username(username)
+                .password("$2a$10$secret")
+                .email(username + "@example.com")
+                .firstName("Late")
+                .lastName("Writer")
+                .role(Role.USER)
+                .enabled(true)
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.HoldStatus;
+import com.treasury.kpstreasury.models.dto.BalanceHoldDto;
+import com.treasury.kpstreasury.models.dto.HoldRequestDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.BalanceHoldRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryBalanceSlotRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.BalanceHoldMapper;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({BalanceHoldService.class, BalanceSlotService.class, LedgerService.class,
+        LedgerWatermarkService.class, LedgerMapper.class, BalanceHoldMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceHoldServiceTests {
+
+    @Autowired
+    private BalanceHoldService balanceHoldService;
+
+    @Autowired
+    private BalanceSlotService balanceSlotService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private BalanceHoldRepository balanceHoldRepository;
+
+    @Autowired
+    private TreasuryBalanceSlotRepository slotRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @AfterEach
+    void tearDown() {
+        balanceHoldRepository.deleteAll();
+        slotRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void placeHold_ShouldReserveAvailableBalance() {
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("HOLD-PLACE", "1000.00").build());
+
+        BalanceHoldDto hold = balanceHoldService.placeHold(account.getId(), request("300.00", null));
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.ACTIVE);
+        assertThat(hold.getExpiresAt()).isAfter(LocalDateTime.now());
+        TreasuryEntity reloaded = treasuryRepository.findById(account.getId()).orElseThrow();
+        assertThat(reloaded.getBalance()).isEqualByComparingTo("1000.00");
+        assertThat(reloaded.getAvailableBalance()).isEqualByComparingTo("700.00");
+        assertThat(balanceHoldService.getActiveHolds(account.getId())).extracting(BalanceHoldDto::getId)
+                .containsExactly(hold.getId());
+    }
+
+    @Test
+    void placeHold_ShouldThrowException_WhenAvailableBalanceInsufficient() {
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("HOLD-SHORT", "100.00").build());
+
+        assertThatThrownBy(() -> balanceHoldService.placeHold(account.getId(), request("100.01", null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient available balance or inactive account");
+        assertThat(balanceHoldRepository.count()).isZero();
+    }
+
+    @Test
+    void placeHold_ShouldThrowException_WhenExpiryInThePast() {
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("HOLD-PAST", "100.00").build());
+
+        assertThatThrownBy(() -> balanceHoldService.placeHold(account.getId(),
+                request("10.00", LocalDateTime.now().minusMinutes(1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Expiry must be in the future");
+    }
+
+    @Test
+    void releaseHold_ShouldRestoreAvailableBalanceOnce() {
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("HOLD-RELEASE", "1000.00").build());
+        BalanceHoldDto hold = balanceHoldService.placeHold(account.getId(), request("300.00", null));
+
+        BalanceHoldDto released = balanceHoldService.releaseHold(hold.getId());
+
+        assertThat(released.getStatus()).isEqualTo(HoldStatus.RELEASED);
+        assertThat(released.getResolvedAt()).isNotNull();
+        assertThat(treasuryRepository.findById(account.getId()).orElseThrow().getAvailableBalance())
+                .isEqualByComparingTo("1000.00");
+        assertThatThrownBy(() -> balanceHoldService.releaseHold(hold.getId()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Hold " + hold.getId() + " is already RELEASED");
+    }
+
+    @Test
+    void captureHold_ShouldDebitBalanceAndRecordLedgerEntry() {
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("HOLD-CAPTURE", "1000.00").build());
+        ledgerService.recordOpeningBalance(account.getId(), account.getBalance());
+        BalanceHoldDto hold = balanceHoldService.placeHold(account.getId(), request("300.00", null));
+
+        BalanceHoldDto captured = balanceHoldService.captureHold(hold.getId());
+
+        assertThat(captured.getStatus()).isEqualTo(HoldStatus.CAPTURED);
+        TreasuryEntity reloaded = treasuryRepository.findById(account.getId()).orElseThrow();
+        assertThat(reloaded.getBalance()).isEqualByComparingTo("700.00");
+        assertThat(reloaded.getAvailableBalance()).isEqualByComparingTo("700.00");
+        assertThat(ledgerService.rebuildBalance(account.getId())).isEqualByComparingTo("700.00");
+        assertThatThrownBy(() -> balanceHoldService.releaseHold(hold.getId()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Hold " + hold.getId() + " is already CAPTURED");
+    }
+
+    @Test
+    void expireDue_ShouldReturnExpiredHoldsToTheirAccounts() {
+        TreasuryEntity first = treasuryRepository.save(TestsUtil.account("HOLD-EXPIRE-1", "1000.00").build());
+        TreasuryEntity second = treasuryRepository.save(TestsUtil.account("HOLD-EXPIRE-2", "1000.00").build());
+        LocalDateTime soon = LocalDateTime.now().plusMinutes(5);
+        BalanceHoldDto due1 = balanceHoldService.placeHold(first.getId(), request("100.00", soon));
+        BalanceHoldDto due2 = balanceHoldService.placeHold(first.getId(), request("150.00", soon));
+        BalanceHoldDto due3 = balanceHoldService.placeHold(second.getId(), request("200.00", soon));
+        BalanceHoldDto later = balanceHoldService.placeHold(second.getId(), request("50.00", soon.plusHours(1)));
+
+        int expired = balanceHoldService.expireDue(soon.plusSeconds(1));
+
+        assertThat(expired).isEqualTo(3);
+        assertThat(balanceHoldRepository.findById(due1.getId()).orElseThrow().getStatus()).isEqualTo(HoldStatus.EXPIRED);
+        assertThat(balanceHoldRepository.findById(due2.getId()).orElseThrow().getStatus()).isEqualTo(HoldStatus.EXPIRED);
+        assertThat(balanceHoldRepository.findById(due3.getId()).orElseThrow().getStatus()).isEqualTo(HoldStatus.EXPIRED);
+        assertThat(balanceHoldRepository.findById(later.getId()).orElseThrow().getStatus()).isEqualTo(HoldStatus.ACTIVE);
+        assertThat(treasuryRepository.findById(first.getId()).orElseThrow().getAvailableBalance())
+                .isEqualByComparingTo("1000.00");
+        assertThat(treasuryRepository.findById(second.getId()).orElseThrow().getAvailableBalance())
+                .isEqualByComparingTo("950.00");
+        assertThat(balanceHoldService.expireDue(soon.plusSeconds(1))).isZero();
+    }
+
+    @Test
+    void holds_ShouldUseBalanceSlots_OfShardedAccount() {
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("HOLD-SHARDED", "1000.00").build());
+        balanceSlotService.setSlotCount(account.getId(), 4);
+        Long rowVersion = treasuryRepository.findById(account.getId()).orElseThrow().getVersion();
+
+        BalanceHoldDto hold = balanceHoldService.placeHold(account.getId(), request("600.00", null));
+
+        assertThat(treasuryRepository.findById(account.getId()).orElseThrow().getVersion()).isEqualTo(rowVersion);
+        assertThat(balanceSlotService.availableBalance(account.getId())).isEqualByComparingTo("400.00");
+
+        balanceHoldService.captureHold(hold.getId());
+
+        TreasuryEntity folded = balanceSlotService.setSlotCount(account.getId(), 0);
+        assertThat(folded.getBalance()).isEqualByComparingTo("400.00");
+        assertThat(folded.getAvailableBalance()).isEqualByComparingTo("400.00");
+    }
+
+    private HoldRequestDto request(String amount, LocalDateTime expiresAt) {
+        return HoldRequestDto.builder()
+                .amount(new BigDecimal(amount))
+                .expiresAt(expiresAt)
+                .reference("payment")
+                .build();
+    }
+}
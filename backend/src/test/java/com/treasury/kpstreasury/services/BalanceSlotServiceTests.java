@@ -0,0 +1,230 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.entity.TreasuryBalanceSlotEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryBalanceSlotRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({BalanceSlotService.class, TransferEngine.class, LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceSlotServiceTests {
+
+    private static final int COLD_ACCOUNTS = 20;
+    private static final int TRANSFERS = 2_000;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private BalanceSlotService balanceSlotService;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private TreasuryBalanceSlotRepository slotRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        slotRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void setSlotCount_ShouldSplitBalanceEvenly() {
+        TreasuryEntity hot = treasuryRepository.save(TestsUtil.account("HOT-SPLIT", "1000.01")
+                .availableBalance(new BigDecimal("900.00"))
+                .build());
+
+        balanceSlotService.setSlotCount(hot.getId(), 4);
+
+        List<TreasuryBalanceSlotEntity> slots = slotsOf(hot.getId());
+        assertThat(slots).hasSize(4);
+        assertThat(slots).extracting(TreasuryBalanceSlotEntity::getBalance)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("250.01"), new BigDecimal("250.00"),
+                        new BigDecimal("250.00"), new BigDecimal("250.00"));
+        assertThat(slots).allSatisfy(slot ->
+                assertThat(slot.getAvailableBalance()).isEqualByComparingTo("225.00"));
+        assertThat(treasuryRepository.findById(hot.getId()).orElseThrow().getBalanceSlots()).isEqualTo(4);
+        assertThat(balanceSlotService.isSharded(hot.getId())).isTrue();
+    }
+
+    @Test
+    void parallelTransfers_OnHotAccount_ShouldConserveTotalBalance() throws Exception {
+        TreasuryEntity hot = treasuryRepository.save(TestsUtil.account("HOT-PARALLEL", "100000.00").build());
+        ledgerService.recordOpeningBalance(hot.getId(), hot.getBalance());
+        balanceSlotService.setSlotCount(hot.getId(), 8);
+        List<Long> coldIds = new ArrayList<>();
+        for (int i = 0; i < COLD_ACCOUNTS; i++) {
+            TreasuryEntity cold = treasuryRepository.save(TestsUtil.account("COLD-" + i, "1000.00").build());
+            ledgerService.recordOpeningBalance(cold.getId(), cold.getBalance());
+            coldIds.add(cold.getId());
+        }
+        BigDecimal expectedTotal = totalBalance(hot.getId());
+
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Long cold = coldIds.get(random.nextInt(COLD_ACCOUNTS));
+                BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 20_000), 2);
+                try {
+                    if (random.nextBoolean()) {
+                        transferEngine.transfer(hot.getId(), cold, amount);
+                    } else {
+                        transferEngine.transfer(cold, hot.getId(), amount);
+                    }
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(rejected.get()).isLessThan(TRANSFERS);
+        assertThat(totalBalance(hot.getId())).isEqualByComparingTo(expectedTotal);
+        assertThat(slotsOf(hot.getId())).allSatisfy(slot ->
+                assertThat(slot.getAvailableBalance()).isGreaterThanOrEqualTo(BigDecimal.ZERO));
+        assertThat(ledgerService.verifyAll().getMismatchCount()).isZero();
+    }
+
+    @Test
+    void transfer_ShouldTakeFromSeveralSlots_WhenNoSingleSlotCoversTheAmount() {
+        TreasuryEntity hot = treasuryRepository.save(TestsUtil.account("HOT-SPREAD", "100.00").build());
+        TreasuryEntity cold = treasuryRepository.save(TestsUtil.account("COLD-SPREAD", "0.00").build());
+        balanceSlotService.setSlotCount(hot.getId(), 4);
+
+        transferEngine.transfer(hot.getId(), cold.getId(), new BigDecimal("90.00"));
+
+        assertThat(balanceSlotService.availableBalance(hot.getId())).isEqualByComparingTo("10.00");
+        assertThat(treasuryRepository.findById(cold.getId()).orElseThrow().getBalance()).isEqualByComparingTo("90.00");
+        assertThatThrownBy(() -> transferEngine.transfer(hot.getId(), cold.getId(), new BigDecimal("20.00")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient available balance for transfer");
+    }
+
+    @Test
+    void holdAndRelease_ShouldWorkAcrossSlots() {
+        TreasuryEntity hot = treasuryRepository.save(TestsUtil.account("HOT-HOLD", "100.00").build());
+        balanceSlotService.setSlotCount(hot.getId(), 4);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Boolean held = transaction.execute(status -> balanceSlotService.hold(hot.getId(), new BigDecimal("60.00")));
+        Boolean overdrawn = transaction.execute(status -> balanceSlotService.hold(hot.getId(), new BigDecimal("50.00")));
+
+        assertThat(held).isTrue();
+        assertThat(overdrawn).isFalse();
+        assertThat(balanceSlotService.availableBalance(hot.getId())).isEqualByComparingTo("40.00");
+
+        Boolean released = transaction.execute(status -> balanceSlotService.release(hot.getId(), new BigDecimal("60.00")));
+
+        assertThat(released).isTrue();
+        assertThat(balanceSlotService.availableBalance(hot.getId())).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void rebalanceAll_ShouldEvenSlotsAndRollUpTotal() {
+        TreasuryEntity hot = treasuryRepository.save(TestsUtil.account("HOT-REBALANCE", "100.00").build());
+        TreasuryEntity cold = treasuryRepository.save(TestsUtil.account("COLD-REBALANCE", "500.00").build());
+        balanceSlotService.setSlotCount(hot.getId(), 4);
+        transferEngine.transfer(cold.getId(), hot.getId(), new BigDecimal("300.00"));
+
+        balanceSlotService.rebalanceAll();
+
+        assertThat(slotsOf(hot.getId())).allSatisfy(slot -> {
+            assertThat(slot.getBalance()).isEqualByComparingTo("100.00");
+            assertThat(slot.getAvailableBalance()).isEqualByComparingTo("100.00");
+        });
+        assertThat(treasuryRepository.findById(hot.getId()).orElseThrow().getBalance()).isEqualByComparingTo("400.00");
+    }
+
+    @Test
+    void setSlotCount_ShouldFoldSlotsBackIntoAccount() {
+        TreasuryEntity hot = treasuryRepository.save(TestsUtil.account("HOT-FOLD", "100.00").build());
+        TreasuryEntity cold = treasuryRepository.save(TestsUtil.account("COLD-FOLD", "0.00").build());
+        balanceSlotService.setSlotCount(hot.getId(), 4);
+        transferEngine.transfer(hot.getId(), cold.getId(), new BigDecimal("30.00"));
+
+        TreasuryEntity folded = balanceSlotService.setSlotCount(hot.getId(), 0);
+
+        assertThat(folded.getBalanceSlots()).isZero();
+        assertThat(folded.getBalance()).isEqualByComparingTo("70.00");
+        assertThat(slotsOf(hot.getId())).isEmpty();
+        transferEngine.transfer(hot.getId(), cold.getId(), new BigDecimal("70.00"));
+        assertThat(treasuryRepository.findById(hot.getId()).orElseThrow().getBalance()).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void accountRowUpdates_ShouldNotApply_ToShardedAccount() {
+        TreasuryEntity hot = treasuryRepository.save(TestsUtil.account("HOT-GUARD", "100.00").build());
+        balanceSlotService.setSlotCount(hot.getId(), 2);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Integer updated = transaction.execute(status ->
+                treasuryRepository.debitIfAvailable(hot.getId(), new BigDecimal("10.00")));
+
+        assertThat(updated).isZero();
+    }
+
+    private BigDecimal totalBalance(Long hotId) {
+        BigDecimal slots = slotsOf(hotId).stream()
+                .map(TreasuryBalanceSlotEntity::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return treasuryRepository.findAll().stream()
+                .filter(account -> !account.getId().equals(hotId))
+                .map(TreasuryEntity::getBalance)
+                .reduce(slots, BigDecimal::add);
+    }
+
+    private List<TreasuryBalanceSlotEntity> slotsOf(Long accountId) {
+        return slotRepository.findAll().stream()
+                .filter(slot -> slot.getTreasuryId().equals(accountId))
+                .sorted(Comparator.comparingInt(TreasuryBalanceSlotEntity::getSlotIndex))
+                .toList();
+    }
+}
@@ -0,0 +1,197 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.dto.AccountBalanceDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.BalanceSnapshotRepository;
+import com.treasury.kpstreasury.repositories.BalanceSnapshotRunRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({BalanceSnapshotService.class, LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceSnapshotServiceTests {
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private BalanceSnapshotRunRepository balanceSnapshotRunRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long first;
+    private Long second;
+
+    @BeforeEach
+    void setUp() {
+        first = treasuryRepository.save(TestsUtil.account("SNAP-001", "0.00").build()).getId();
+        second = treasuryRepository.save(TestsUtil.account("SNAP-002", "0.00").build()).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceSnapshotRepository.deleteAll();
+        balanceSnapshotRunRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void getBalanceAsOf_ShouldReplayJournal_WhenNoSnapshotExists() throws InterruptedException {
+        ledgerService.recordOpeningBalance(first, new BigDecimal("1000.00"));
+        LocalDateTime afterOpening = tick();
+        ledgerService.recordTransfer(first, second, new BigDecimal("250.00"));
+        LocalDateTime afterTransfer = tick();
+
+        assertThat(balanceSnapshotService.getBalanceAsOf(first, afterOpening)).isEqualByComparingTo("1000.00");
+        assertThat(balanceSnapshotService.getBalanceAsOf(first, afterTransfer)).isEqualByComparingTo("750.00");
+        assertThat(balanceSnapshotService.getBalanceAsOf(second, afterOpening)).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void getBalanceAsOf_ShouldStartFromNearestSnapshot() throws InterruptedException {
+        ledgerService.recordOpeningBalance(first, new BigDecimal("1000.00"));
+        LocalDateTime beforeSnapshot = tick();
+        ledgerService.recordTransfer(first, second, new BigDecimal("100.00"));
+        LocalDateTime snapshotAt = tick();
+        balanceSnapshotService.takeSnapshot(snapshotAt);
+        ledgerService.recordTransfer(first, second, new BigDecimal("50.00"));
+        LocalDateTime afterSnapshot = tick();
+
+        // first, second and the opening equity side
+        assertThat(balanceSnapshotRepository.findAll()).hasSize(3);
+        assertThat(balanceSnapshotService.getBalanceAsOf(first, beforeSnapshot)).isEqualByComparingTo("1000.00");
+        assertThat(balanceSnapshotService.getBalanceAsOf(first, snapshotAt)).isEqualByComparingTo("900.00");
+        assertThat(balanceSnapshotService.getBalanceAsOf(first, afterSnapshot)).isEqualByComparingTo("850.00");
+        assertThat(balanceSnapshotService.getBalanceAsOf(second, afterSnapshot)).isEqualByComparingTo("150.00");
+    }
+
+    @Test
+    void takeSnapshot_ShouldOnlySnapshotAccountsWithPostings() throws InterruptedException {
+        ledgerService.recordOpeningBalance(first, new BigDecimal("1000.00"));
+        ledgerService.recordOpeningBalance(second, new BigDecimal("500.00"));
+        LocalDateTime firstRun = tick();
+        // both accounts and the opening equity side
+        assertThat(balanceSnapshotService.takeSnapshot(firstRun)).isEqualTo(3);
+
+        ledgerService.recordAdjustment(first, new BigDecimal("-200.00"), "Fee");
+        LocalDateTime secondRun = tick();
+
+        // first and the suspense side of the fee
+        assertThat(balanceSnapshotService.takeSnapshot(secondRun)).isEqualTo(2);
+        assertThat(balanceSnapshotService.takeSnapshot(secondRun)).isZero();
+        assertThat(balanceSnapshotRunRepository.count()).isEqualTo(2);
+        assertThat(balanceSnapshotRepository
+                .findFirstByAccountIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(first, secondRun)
+                .orElseThrow().getBalance()).isEqualByComparingTo("800.00");
+        assertThat(balanceSnapshotService.getBalanceAsOf(second, secondRun)).isEqualByComparingTo("500.00");
+    }
+
+    @Test
+    void getBalancesAsOf_ShouldMatchSingleAccountQueries() throws InterruptedException {
+        ledgerService.recordOpeningBalance(first, new BigDecimal("1000.00"));
+        ledgerService.recordOpeningBalance(second, new BigDecimal("500.00"));
+        balanceSnapshotService.takeSnapshot(tick());
+        ledgerService.recordTransfer(first, second, new BigDecimal("300.00"));
+        balanceSnapshotService.takeSnapshot(tick());
+        ledgerService.recordTransfer(second, first, new BigDecimal("25.00"));
+        LocalDateTime asOf = tick();
+        ledgerService.recordTransfer(second, first, new BigDecimal("75.00"));
+
+        Map<Long, BigDecimal> balances = balanceSnapshotService.getBalancesAsOf(asOf).stream()
+                .collect(Collectors.toMap(AccountBalanceDto::getAccountId, AccountBalanceDto::getBalance));
+
+        assertThat(balances.get(first)).isEqualByComparingTo("725.00")
+                .isEqualByComparingTo(balanceSnapshotService.getBalanceAsOf(first, asOf));
+        assertThat(balances.get(second)).isEqualByComparingTo("775.00")
+                .isEqualByComparingTo(balanceSnapshotService.getBalanceAsOf(second, asOf));
+    }
+
+    @Test
+    void takeSnapshot_ShouldLeaveEntriesOfOpenTransactions_ToTheNextRun() throws Exception {
+        ledgerService.recordOpeningBalance(first, new BigDecimal("1000.00"));
+        CountDownLatch posted = new CountDownLatch(1);
+        CountDownLatch committing = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CompletableFuture<Void> slowTransfer = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            ledgerService.recordTransfer(first, second, new BigDecimal("300.00"));
+            posted.countDown();
+            await(committing);
+        }));
+        assertThat(posted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        balanceSnapshotService.takeSnapshot(tick());
+        committing.countDown();
+        slowTransfer.get(10, TimeUnit.SECONDS);
+        LocalDateTime secondRun = tick();
+        balanceSnapshotService.takeSnapshot(secondRun);
+
+        assertThat(balanceSnapshotRunRepository.count()).isEqualTo(2);
+        assertThat(balanceSnapshotRepository
+                .findFirstByAccountIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(first, secondRun)
+                .orElseThrow().getBalance()).isEqualByComparingTo("700.00");
+        assertThat(balanceSnapshotService.getBalanceAsOf(first, secondRun)).isEqualByComparingTo("700.00");
+        assertThat(balanceSnapshotService.getBalanceAsOf(second, secondRun)).isEqualByComparingTo("300.00");
+    }
+
+    @Test
+    void getBalanceAsOf_ShouldThrowException_WhenAccountNotFound() {
+        assertThatThrownBy(() -> balanceSnapshotService.getBalanceAsOf(-1L, LocalDateTime.now()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("not found");
+    }
+
+    // an instant strictly between the postings made before and after it; postedAt is set on insert
+    private LocalDateTime tick() throws InterruptedException {
+        ledgerEntryRepository.flush();
+        Thread.sleep(5);
+        LocalDateTime now = LocalDateTime.now();
+        Thread.sleep(5);
+        return now;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
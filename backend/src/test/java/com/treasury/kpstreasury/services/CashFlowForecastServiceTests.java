@@ -0,0 +1,191 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.CollateralStatus;
+import com.treasury.kpstreasury.enums.CollateralType;
+import com.treasury.kpstreasury.enums.FlowRecurrence;
+import com.treasury.kpstreasury.enums.Rating;
+import com.treasury.kpstreasury.models.dto.CashFlowForecastDto;
+import com.treasury.kpstreasury.models.dto.ForecastBucketDto;
+import com.treasury.kpstreasury.models.dto.ScheduledFlowDto;
+import com.treasury.kpstreasury.models.entity.CollateralEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.CollateralRepository;
+import com.treasury.kpstreasury.repositories.ScheduledFlowRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.CollateralMapper;
+import com.treasury.kpstreasury.utils.KeysetPager;
+import com.treasury.kpstreasury.utils.ProjectionQueries;
+import com.treasury.kpstreasury.utils.ScheduledFlowMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({CashFlowForecastService.class, BalanceSlotService.class, ScheduledFlowMapper.class,
+        CollateralService.class, CollateralMapper.class, KeysetPager.class, ProjectionQueries.class})
+@TestPropertySource(properties = "treasury.forecast.parallel-threshold=4")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CashFlowForecastServiceTests {
+
+    @Autowired
+    private CashFlowForecastService cashFlowForecastService;
+
+    @Autowired
+    private CollateralService collateralService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private ScheduledFlowRepository scheduledFlowRepository;
+
+    @Autowired
+    private CollateralRepository collateralRepository;
+
+    private final LocalDate today = LocalDate.now();
+
+    @AfterEach
+    void tearDown() {
+        scheduledFlowRepository.deleteAll();
+        collateralRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void getAccountForecast_ShouldExpandOneOffAndRecurringFlowsIntoDailyBuckets() {
+        Long account = treasuryRepository.save(TestsUtil.account("FC-001", "1000.00").build()).getId();
+        cashFlowForecastService.createScheduledFlow(flow(account, "500.00", today.plusDays(2), FlowRecurrence.NONE, null));
+        cashFlowForecastService.createScheduledFlow(flow(account, "-100.00", today.minusDays(3), FlowRecurrence.WEEKLY,
+                today.plusDays(20)));
+        cashFlowForecastService.createScheduledFlow(flow(account, "50.00", today, FlowRecurrence.MONTHLY, null));
+        cashFlowForecastService.createScheduledFlow(flow(account, "999.00", today.minusDays(1), FlowRecurrence.NONE, null));
+
+        CashFlowForecastDto forecast = cashFlowForecastService.getAccountForecast(account);
+
+        List<ForecastBucketDto> buckets = forecast.getBuckets();
+        assertThat(buckets).hasSize(90);
+        assertThat(forecast.getOpeningBalance()).isEqualByComparingTo("1000.00");
+        assertThat(buckets.get(0).getDate()).isEqualTo(today);
+        assertThat(buckets.get(0).getInflows()).isEqualByComparingTo("50.00");
+        assertThat(buckets.get(2).getInflows()).isEqualByComparingTo("500.00");
+        assertThat(buckets).filteredOn(bucket -> bucket.getOutflows().signum() > 0)
+                .extracting(ForecastBucketDto::getDate)
+                .containsExactly(today.plusDays(4), today.plusDays(11), today.plusDays(18));
+        assertThat(buckets).filteredOn(bucket -> bucket.getDate().equals(today.plusMonths(1)))
+                .singleElement()
+                .satisfies(bucket -> assertThat(bucket.getInflows()).isEqualByComparingTo("50.00"));
+        long monthlyOccurrences = buckets.stream().filter(bucket -> bucket.getInflows().compareTo(new BigDecimal("50.00")) == 0).count();
+        assertThat(buckets.get(89).getClosingBalance())
+                .isEqualByComparingTo(new BigDecimal("1200.00").add(new BigDecimal("50.00").multiply(BigDecimal.valueOf(monthlyOccurrences))));
+    }
+
+    @Test
+    void getCurrencyForecasts_ShouldAggregateAccountsInParallelAndAddCollateralMaturities() {
+        Long first = treasuryRepository.save(TestsUtil.account("FC-101", "1000.00").build()).getId();
+        Long second = treasuryRepository.save(TestsUtil.account("FC-102", "500.00").build()).getId();
+        Long third = treasuryRepository.save(TestsUtil.account("FC-103", "200.00").currency("USD").build()).getId();
+        for (int i = 0; i < 30; i++) {
+            cashFlowForecastService.createScheduledFlow(flow(i % 2 == 0 ? first : second, "10.00",
+                    today.plusDays(5), FlowRecurrence.NONE, null));
+        }
+        cashFlowForecastService.createScheduledFlow(flow(third, "-1.00", today, FlowRecurrence.DAILY, null));
+        collateralRepository.save(collateral("EUR", "2500.00", today.plusDays(10), CollateralStatus.PLEDGED));
+        collateralRepository.save(collateral("EUR", "9999.00", today.plusDays(10), CollateralStatus.RETURNED));
+
+        List<CashFlowForecastDto> forecasts = cashFlowForecastService.getCurrencyForecasts(null);
+
+        assertThat(forecasts).extracting(CashFlowForecastDto::getCurrency).containsExactly("EUR", "USD");
+        CashFlowForecastDto eur = forecasts.get(0);
+        assertThat(eur.getAccountId()).isNull();
+        assertThat(eur.getOpeningBalance()).isEqualByComparingTo("1500.00");
+        assertThat(eur.getBuckets().get(5).getInflows()).isEqualByComparingTo("300.00");
+        assertThat(eur.getBuckets().get(10).getInflows()).isEqualByComparingTo("2500.00");
+        assertThat(eur.getBuckets().get(89).getClosingBalance()).isEqualByComparingTo("4300.00");
+        CashFlowForecastDto usd = cashFlowForecastService.getCurrencyForecasts("USD").get(0);
+        assertThat(usd.getBuckets().get(89).getClosingBalance()).isEqualByComparingTo("110.00");
+    }
+
+    @Test
+    void forecasts_ShouldBeRecomputed_WhenFlowsOrCollateralChange() {
+        Long account = treasuryRepository.save(TestsUtil.account("FC-201", "100.00").build()).getId();
+        CollateralEntity bond = collateralRepository.save(collateral("EUR", "400.00", today.plusDays(3), CollateralStatus.ELIGIBLE));
+        assertThat(closing("EUR")).isEqualByComparingTo("500.00");
+        assertThat(cashFlowForecastService.getAccountForecast(account).getBuckets().get(89).getClosingBalance())
+                .isEqualByComparingTo("100.00");
+
+        ScheduledFlowDto rent = cashFlowForecastService.createScheduledFlow(
+                flow(account, "-30.00", today.plusDays(1), FlowRecurrence.NONE, null));
+        assertThat(closing("EUR")).isEqualByComparingTo("470.00");
+        assertThat(cashFlowForecastService.getAccountForecast(account).getBuckets().get(89).getClosingBalance())
+                .isEqualByComparingTo("70.00");
+
+        collateralService.updateStatus(bond.getId(), CollateralStatus.RETURNED);
+        assertThat(closing("EUR")).isEqualByComparingTo("70.00");
+
+        cashFlowForecastService.deleteScheduledFlow(rent.getId());
+        assertThat(closing("EUR")).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void createScheduledFlow_ShouldRejectInvalidFlows() {
+        Long account = treasuryRepository.save(TestsUtil.account("FC-301", "0.00").build()).getId();
+
+        assertThatThrownBy(() -> cashFlowForecastService.createScheduledFlow(
+                flow(account, "0.00", today, FlowRecurrence.NONE, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Amount must not be zero");
+        assertThatThrownBy(() -> cashFlowForecastService.createScheduledFlow(
+                flow(account, "10.00", today, FlowRecurrence.DAILY, today.minusDays(1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("End date must not be before start date");
+        assertThatThrownBy(() -> cashFlowForecastService.createScheduledFlow(
+                flow(-1L, "10.00", today, FlowRecurrence.NONE, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("not found");
+    }
+
+    private BigDecimal closing(String currency) {
+        return cashFlowForecastService.getCurrencyForecasts(currency).get(0).getBuckets().get(89).getClosingBalance();
+    }
+
+    private ScheduledFlowDto flow(Long accountId, String amount, LocalDate startDate,
+                                  FlowRecurrence recurrence, LocalDate endDate) {
+        return ScheduledFlowDto.builder()
+                .accountId(accountId)
+                .amount(new BigDecimal(amount))
+                .startDate(startDate)
+                .recurrence(recurrence)
+                .endDate(endDate)
+                .description("forecast test")
+                .build();
+    }
+
+    private CollateralEntity collateral(String currency, String marketValue, LocalDate maturityDate,
+                                        CollateralStatus status) {
+        return CollateralEntity.builder()
+                .collateralType(CollateralType.GOVERNMENT_BOND)
+                .description("Bond")
+                .marketValue(new BigDecimal(marketValue))
+                .haircut(new BigDecimal("0.0500"))
+                .currency(currency)
+                .rating(Rating.AAA)
+                .maturityDate(maturityDate)
+                .status(status)
+                .counterparty("Treasury")
+                .location("Custodian")
+                .build();
+    }
+}
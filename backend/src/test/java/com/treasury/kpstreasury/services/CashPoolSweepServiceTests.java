@@ -0,0 +1,252 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+import com.treasury.kpstreasury.models.dto.CashPoolDto;
+import com.treasury.kpstreasury.models.dto.CashPoolSweepDto;
+import com.treasury.kpstreasury.models.dto.SweepReportDto;
+import com.treasury.kpstreasury.models.entity.LedgerEntryEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.CashPoolRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.CashPoolMapper;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({CashPoolSweepService.class, CashPoolService.class, CashPoolMapper.class, TreasurySummaryService.class,
+        LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CashPoolSweepServiceTests {
+
+    @Autowired
+    private CashPoolSweepService cashPoolSweepService;
+
+    @Autowired
+    private CashPoolService cashPoolService;
+
+    @Autowired
+    private TreasurySummaryService treasurySummaryService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private CashPoolRepository cashPoolRepository;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @AfterEach
+    void tearDown() {
+        cashPoolRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+        treasurySummaryService.rebuild();
+    }
+
+    @Test
+    void sweep_ShouldPostEachAccountOnce_AndTheHeaderWithTheNet() {
+        Long header = account("POOL-HDR", "EUR", "Pool Bank", "1000.00", "1000.00", AccountStatus.ACTIVE);
+        Long held = account("POOL-001", "EUR", "Pool Bank", "600.00", "500.00", AccountStatus.ACTIVE);
+        Long surplus = account("POOL-002", "EUR", "Pool Bank", "300.00", "300.00", AccountStatus.ACTIVE);
+        Long deficit = account("POOL-003", "EUR", "Pool Bank", "20.00", "20.00", AccountStatus.ACTIVE);
+        Long atTarget = account("POOL-004", "EUR", "Pool Bank", "100.00", "100.00", AccountStatus.ACTIVE);
+        Long belowMinimum = account("POOL-005", "EUR", "Pool Bank", "100.50", "100.50", AccountStatus.ACTIVE);
+        Long otherCurrency = account("POOL-006", "USD", "Pool Bank", "900.00", "900.00", AccountStatus.ACTIVE);
+        Long otherBank = account("POOL-007", "EUR", "Other Bank", "900.00", "900.00", AccountStatus.ACTIVE);
+        Long suspended = account("POOL-008", "EUR", "Pool Bank", "900.00", "900.00", AccountStatus.SUSPENDED);
+        cashPoolService.createPool(pool("EUR pool", header, "100.00", "1.00"));
+        treasurySummaryService.rebuild();
+
+        SweepReportDto report = cashPoolSweepService.sweep();
+
+        assertThat(report.isApplied()).isTrue();
+        assertThat(report.getPostings()).isEqualTo(4);
+        CashPoolSweepDto sweep = report.getPools().get(0);
+        assertThat(sweep.getParticipants()).isEqualTo(5);
+        assertThat(sweep.getSweptIn()).isEqualByComparingTo("600.00");
+        assertThat(sweep.getFundedOut()).isEqualByComparingTo("80.00");
+        assertThat(sweep.getHeaderNet()).isEqualByComparingTo("520.00");
+        assertThat(sweep.getUnfundedDeficits()).isZero();
+        assertThat(sweep.getRejectedLegs()).isZero();
+
+        assertBalance(header, "1520.00", "1520.00");
+        assertBalance(held, "200.00", "100.00");
+        assertBalance(surplus, "100.00", "100.00");
+        assertBalance(deficit, "100.00", "100.00");
+        assertBalance(atTarget, "100.00", "100.00");
+        assertBalance(belowMinimum, "100.50", "100.50");
+        assertBalance(otherCurrency, "900.00", "900.00");
+        assertBalance(otherBank, "900.00", "900.00");
+        assertBalance(suspended, "900.00", "900.00");
+
+        Map<Long, LedgerEntryEntity> journal = ledgerEntryRepository.findAll().stream()
+                .filter(entry -> entry.getJournalId().equals(sweep.getJournalId()))
+                .collect(Collectors.toMap(LedgerEntryEntity::getAccountId, entry -> entry));
+        assertThat(journal).containsOnlyKeys(header, held, surplus, deficit);
+        assertThat(journal.get(header).getEntryType()).isEqualTo(LedgerEntryType.CREDIT);
+        assertThat(journal.get(held).signedAmount()).isEqualByComparingTo("-400.00");
+        assertThat(journal.get(deficit).signedAmount()).isEqualByComparingTo("80.00");
+        assertThat(journal.values().stream()
+                .map(LedgerEntryEntity::signedAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)).isEqualByComparingTo("0.00");
+        assertThat(ledgerService.verifyAll().getMismatchCount()).isZero();
+        assertThat(treasurySummaryService.reconcile()).isTrue();
+
+        // everything is at target now
+        assertThat(cashPoolSweepService.sweep().getPostings()).isZero();
+    }
+
+    @Test
+    void sweep_ShouldLeaveDeficitsUnfunded_WhenTheHeaderCannotCoverThem() {
+        Long header = account("POOL-HDR", "EUR", "Pool Bank", "50.00", "50.00", AccountStatus.ACTIVE);
+        Long first = account("POOL-011", "EUR", "Pool Bank", "60.00", "60.00", AccountStatus.ACTIVE);
+        Long second = account("POOL-012", "EUR", "Pool Bank", "70.00", "70.00", AccountStatus.ACTIVE);
+        cashPoolService.createPool(pool("EUR pool", header, "100.00", null));
+
+        CashPoolSweepDto sweep = cashPoolSweepService.sweep().getPools().get(0);
+
+        assertThat(sweep.getFundedOut()).isEqualByComparingTo("40.00");
+        assertThat(sweep.getUnfundedDeficits()).isEqualTo(1);
+        assertBalance(header, "10.00", "10.00");
+        assertBalance(first, "100.00", "100.00");
+        assertBalance(second, "70.00", "70.00");
+    }
+
+    @Test
+    void sweep_ShouldPostEachLegOnce_WhenTwoInstancesSweepAtTheSameTime() throws Exception {
+        Long header = account("POOL-HDR", "EUR", "Pool Bank", "0.00", "0.00", AccountStatus.ACTIVE);
+        Long surplus = account("POOL-051", "EUR", "Pool Bank", "1500.00", "1500.00", AccountStatus.ACTIVE);
+        Long deficit = account("POOL-052", "EUR", "Pool Bank", "900.00", "900.00", AccountStatus.ACTIVE);
+        cashPoolService.createPool(pool("EUR pool", header, "1000.00", null));
+        // a second instance of the service, as on another node: synchronized does not keep them apart
+        CashPoolSweepService otherInstance =
+                applicationContext.getAutowireCapableBeanFactory().createBean(CashPoolSweepService.class);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<SweepReportDto>> sweeps = List.of(cashPoolSweepService, otherInstance).stream()
+                .map(service -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return service.sweep();
+                }))
+                .toList();
+        start.countDown();
+        int postings = 0;
+        for (CompletableFuture<SweepReportDto> sweep : sweeps) {
+            postings += sweep.get().getPostings();
+        }
+
+        assertThat(postings).isEqualTo(3);
+        assertBalance(header, "400.00", "400.00");
+        assertBalance(surplus, "1000.00", "1000.00");
+        assertBalance(deficit, "1000.00", "1000.00");
+        assertThat(ledgerService.verifyAll().getMismatchCount()).isZero();
+    }
+
+    @Test
+    void preview_ShouldComputeTheLegs_WithoutPostingThem() {
+        Long header = account("POOL-HDR", "EUR", "Pool Bank", "0.00", "0.00", AccountStatus.ACTIVE);
+        Long participant = account("POOL-021", "EUR", "Pool Bank", "250.00", "250.00", AccountStatus.ACTIVE);
+        cashPoolService.createPool(pool("Zero-balance pool", header, null, null));
+
+        SweepReportDto preview = cashPoolSweepService.preview();
+
+        assertThat(preview.isApplied()).isFalse();
+        assertThat(preview.getScannedAccounts()).isEqualTo(2);
+        assertThat(preview.getPostings()).isEqualTo(2);
+        assertThat(preview.getPools().get(0).getSweptIn()).isEqualByComparingTo("250.00");
+        assertThat(preview.getPools().get(0).getJournalId()).isNull();
+        assertBalance(participant, "250.00", "250.00");
+        // only the opening balance of the participant and its equity side
+        assertThat(ledgerEntryRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void sweep_ShouldSkipThePool_WhenTheHeaderIsNotActive() {
+        Long header = account("POOL-HDR", "EUR", "Pool Bank", "0.00", "0.00", AccountStatus.ACTIVE);
+        Long participant = account("POOL-031", "EUR", "Pool Bank", "250.00", "250.00", AccountStatus.ACTIVE);
+        cashPoolService.createPool(pool("Zero-balance pool", header, null, null));
+        TreasuryEntity headerAccount = treasuryRepository.findById(header).orElseThrow();
+        headerAccount.setStatus(AccountStatus.SUSPENDED);
+        treasuryRepository.save(headerAccount);
+
+        SweepReportDto report = cashPoolSweepService.sweep();
+
+        assertThat(report.getPostings()).isZero();
+        assertThat(report.getPools().get(0).getSkippedReason()).isNotNull();
+        assertBalance(participant, "250.00", "250.00");
+    }
+
+    @Test
+    void createPool_ShouldRejectASecondPoolForTheSameCurrencyAndBank() {
+        Long header = account("POOL-HDR", "EUR", "Pool Bank", "0.00", "0.00", AccountStatus.ACTIVE);
+        Long other = account("POOL-041", "EUR", "Pool Bank", "0.00", "0.00", AccountStatus.ACTIVE);
+        CashPoolDto created = cashPoolService.createPool(pool("EUR pool", header, null, null));
+
+        assertThat(created.getCurrency()).isEqualTo("EUR");
+        assertThat(created.getBankName()).isEqualTo("Pool Bank");
+        assertThat(created.getTargetBalance()).isEqualByComparingTo("0.00");
+        assertThat(created.getMinimumSweep()).isEqualByComparingTo("0.01");
+        assertThat(created.getEnabled()).isTrue();
+        assertThatThrownBy(() -> cashPoolService.createPool(pool("Second EUR pool", other, null, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("A cash pool already exists for EUR at Pool Bank");
+    }
+
+    private Long account(String accountNumber, String currency, String bankName, String balance,
+                         String availableBalance, AccountStatus status) {
+        Long id = treasuryRepository.save(TestsUtil.account(accountNumber, balance)
+                .currency(currency)
+                .availableBalance(new BigDecimal(availableBalance))
+                .status(status)
+                .bankName(bankName)
+                .build()).getId();
+        ledgerService.recordOpeningBalance(id, new BigDecimal(balance));
+        return id;
+    }
+
+    private CashPoolDto pool(String name, Long headerAccountId, String targetBalance, String minimumSweep) {
+        return CashPoolDto.builder()
+                .name(name)
+                .headerAccountId(headerAccountId)
+                .targetBalance(targetBalance != null ? new BigDecimal(targetBalance) : null)
+                .minimumSweep(minimumSweep != null ? new BigDecimal(minimumSweep) : null)
+                .build();
+    }
+
+    private void assertBalance(Long accountId, String balance, String availableBalance) {
+        TreasuryEntity account = treasuryRepository.findById(accountId).orElseThrow();
+        assertThat(account.getBalance()).isEqualByComparingTo(balance);
+        assertThat(account.getAvailableBalance()).isEqualByComparingTo(availableBalance);
+    }
+}
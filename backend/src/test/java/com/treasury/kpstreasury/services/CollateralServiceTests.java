@@ -3,21 +3,30 @@ package com.treasury.kpstreasury.services;
 import com.treasury.kpstreasury.enums.CollateralStatus;
 import com.treasury.kpstreasury.enums.CollateralType;
 import com.treasury.kpstreasury.enums.Rating;
+import com.treasury.kpstreasury.events.CollateralsStatusChangedEvent;
 import com.treasury.kpstreasury.models.dto.CollateralDto;
+import com.treasury.kpstreasury.models.dto.CollateralRatingTotalsRow;
+import com.treasury.kpstreasury.models.dto.CollateralStatusChangeDto;
 import com.treasury.kpstreasury.models.dto.CollateralSummaryDto;
+import com.treasury.kpstreasury.models.dto.CollateralTypeTotalsRow;
 import com.treasury.kpstreasury.models.entity.CollateralEntity;
 import com.treasury.kpstreasury.repositories.CollateralRepository;
 import com.treasury.kpstreasury.utils.CollateralMapper;
+import com.treasury.kpstreasury.utils.ProjectionQueries;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -39,6 +48,12 @@ class CollateralServiceTests {
     @Mock
     private CollateralMapper collateralMapper;
 
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Mock
+    private ProjectionQueries projectionQueries;
+
     @InjectMocks
     private CollateralService collateralService;
 
@@ -97,131 +112,122 @@ class CollateralServiceTests {
 
     @Test
     void getCollateralById_ShouldReturnCollateral_WhenCollateralExists() {
-        when(collateralRepository.findById(1L)).thenReturn(Optional.of(collateralEntity));
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        when(collateralRepository.findDtoById(1L)).thenReturn(Optional.of(collateralDto));
 
         Optional<CollateralDto> result = collateralService.getCollateralById(1L);
 
         assertTrue(result.isPresent());
         assertEquals(CollateralType.GOVERNMENT_BOND, result.get().getCollateralType());
-        verify(collateralRepository).findById(1L);
+        verify(collateralRepository).findDtoById(1L);
     }
 
     @Test
     void getCollateralById_ShouldReturnEmpty_WhenCollateralNotFound() {
-        when(collateralRepository.findById(1L)).thenReturn(Optional.empty());
+        when(collateralRepository.findDtoById(1L)).thenReturn(Optional.empty());
 
         Optional<CollateralDto> result = collateralService.getCollateralById(1L);
 
         assertFalse(result.isPresent());
-        verify(collateralRepository).findById(1L);
+        verify(collateralRepository).findDtoById(1L);
     }
 
     @Test
     void getAllCollaterals_ShouldReturnAllCollaterals() {
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findAll()).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findAllDtos()).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getAllCollaterals();
 
         assertEquals(1, result.size());
         assertEquals(CollateralType.GOVERNMENT_BOND, result.get(0).getCollateralType());
-        verify(collateralRepository).findAll();
+        verify(collateralRepository).findAllDtos();
     }
 
     @Test
     void getCollateralsByStatus_ShouldReturnCollateralsByStatus() {
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findByStatus(CollateralStatus.ELIGIBLE)).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findDtosByStatus(CollateralStatus.ELIGIBLE)).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getCollateralsByStatus(CollateralStatus.ELIGIBLE);
 
         assertEquals(1, result.size());
         assertEquals(CollateralStatus.ELIGIBLE, result.get(0).getStatus());
-        verify(collateralRepository).findByStatus(CollateralStatus.ELIGIBLE);
+        verify(collateralRepository).findDtosByStatus(CollateralStatus.ELIGIBLE);
     }
 
     @Test
     void getCollateralsByType_ShouldReturnCollateralsByType() {
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findByCollateralType(CollateralType.GOVERNMENT_BOND)).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findDtosByCollateralType(CollateralType.GOVERNMENT_BOND)).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getCollateralsByType(CollateralType.GOVERNMENT_BOND);
 
         assertEquals(1, result.size());
         assertEquals(CollateralType.GOVERNMENT_BOND, result.get(0).getCollateralType());
-        verify(collateralRepository).findByCollateralType(CollateralType.GOVERNMENT_BOND);
+        verify(collateralRepository).findDtosByCollateralType(CollateralType.GOVERNMENT_BOND);
     }
 
     @Test
     void getCollateralsByRating_ShouldReturnCollateralsByRating() {
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findByRating(Rating.AAA)).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findDtosByRating(Rating.AAA)).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getCollateralsByRating(Rating.AAA);
 
         assertEquals(1, result.size());
         assertEquals(Rating.AAA, result.get(0).getRating());
-        verify(collateralRepository).findByRating(Rating.AAA);
+        verify(collateralRepository).findDtosByRating(Rating.AAA);
     }
 
     @Test
     void getCollateralsByCurrency_ShouldReturnCollateralsByCurrency() {
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findByCurrency("EUR")).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findDtosByCurrency("EUR")).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getCollateralsByCurrency("EUR");
 
         assertEquals(1, result.size());
         assertEquals("EUR", result.get(0).getCurrency());
-        verify(collateralRepository).findByCurrency("EUR");
+        verify(collateralRepository).findDtosByCurrency("EUR");
     }
 
     @Test
     void getCollateralsByCounterparty_ShouldReturnCollateralsByCounterparty() {
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findByCounterparty("Government XYZ")).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findDtosByCounterparty("Government XYZ")).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getCollateralsByCounterparty("Government XYZ");
 
         assertEquals(1, result.size());
         assertEquals("Government XYZ", result.get(0).getCounterparty());
-        verify(collateralRepository).findByCounterparty("Government XYZ");
+        verify(collateralRepository).findDtosByCounterparty("Government XYZ");
     }
 
     @Test
     void getEligibleCollateralsByRating_ShouldReturnEligibleCollaterals() {
         List<Rating> acceptableRatings = Arrays.asList(Rating.AAA, Rating.AA);
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findByStatusAndRatingIn(CollateralStatus.ELIGIBLE, acceptableRatings))
-                .thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findDtosByStatusAndRatingIn(CollateralStatus.ELIGIBLE, acceptableRatings))
+                .thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getEligibleCollateralsByRating(acceptableRatings);
 
         assertEquals(1, result.size());
         assertEquals(CollateralStatus.ELIGIBLE, result.get(0).getStatus());
-        verify(collateralRepository).findByStatusAndRatingIn(CollateralStatus.ELIGIBLE, acceptableRatings);
+        verify(collateralRepository).findDtosByStatusAndRatingIn(CollateralStatus.ELIGIBLE, acceptableRatings);
     }
 
     @Test
     void getCollateralsExpiringBetween_ShouldReturnCollateralsInDateRange() {
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = LocalDate.now().plusDays(30);
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findByMaturityDateBetween(startDate, endDate)).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findDtosByMaturityDateBetween(startDate, endDate)).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getCollateralsExpiringBetween(startDate, endDate);
 
         assertEquals(1, result.size());
-        verify(collateralRepository).findByMaturityDateBetween(startDate, endDate);
+        verify(collateralRepository).findDtosByMaturityDateBetween(startDate, endDate);
     }
 
     @Test
@@ -229,25 +235,22 @@ class CollateralServiceTests {
         int days = 30;
         LocalDate today = LocalDate.now();
         LocalDate futureDate = today.plusDays(days);
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findByMaturityDateBetween(today, futureDate)).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findDtosByMaturityDateBetween(today, futureDate)).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getCollateralsExpiringInDays(days);
 
         assertEquals(1, result.size());
-        verify(collateralRepository).findByMaturityDateBetween(today, futureDate);
+        verify(collateralRepository).findDtosByMaturityDateBetween(today, futureDate);
     }
 
     @Test
     void getCollateralsWithAdvancedFilters_ShouldReturnPagedResults() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<CollateralEntity> collateralEntityPage = new PageImpl<>(Arrays.asList(collateralEntity));
-        when(collateralRepository.findWithAdvancedFilters(
-                CollateralType.GOVERNMENT_BOND, Rating.AAA, "EUR", 
-                CollateralStatus.ELIGIBLE, new BigDecimal("50000.00"), pageable))
-                .thenReturn(collateralEntityPage);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        Page<CollateralDto> collateralDtoPage = new PageImpl<>(Arrays.asList(collateralDto));
+        when(projectionQueries.page(eq(CollateralRepository.PROJECTION),
+                ArgumentMatchers.<Specification<CollateralEntity>>any(), eq(pageable)))
+                .thenReturn(collateralDtoPage);
 
         Page<CollateralDto> result = collateralService.getCollateralsWithAdvancedFilters(
                 CollateralType.GOVERNMENT_BOND, Rating.AAA, "EUR", 
@@ -255,9 +258,8 @@ class CollateralServiceTests {
 
         assertEquals(1, result.getContent().size());
         assertEquals(CollateralType.GOVERNMENT_BOND, result.getContent().get(0).getCollateralType());
-        verify(collateralRepository).findWithAdvancedFilters(
-                CollateralType.GOVERNMENT_BOND, Rating.AAA, "EUR", 
-                CollateralStatus.ELIGIBLE, new BigDecimal("50000.00"), pageable);
+        verify(projectionQueries).page(eq(CollateralRepository.PROJECTION),
+                ArgumentMatchers.<Specification<CollateralEntity>>notNull(), eq(pageable));
     }
 
     @Test
@@ -369,6 +371,33 @@ class CollateralServiceTests {
         assertEquals(CollateralStatus.MATURED, collateralEntity.getStatus());
     }
 
+    @Test
+    void changeStatus_ShouldUpdateTheMatchingCollaterals_AndPublishOneEvent() {
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(projectionQueries.ids(eq(CollateralEntity.class), ArgumentMatchers.<Specification<CollateralEntity>>notNull()))
+                .thenReturn(ids);
+
+        List<Long> result = collateralService.changeStatus(CollateralStatusChangeDto.builder()
+                .status(CollateralStatus.INELIGIBLE)
+                .counterparty("Bank A")
+                .rating(Rating.BBB)
+                .build());
+
+        assertEquals(ids, result);
+        InOrder lockThenUpdate = inOrder(collateralRepository);
+        lockThenUpdate.verify(collateralRepository).lockInIdOrder(ids);
+        lockThenUpdate.verify(collateralRepository).updateStatus(eq(ids), eq(CollateralStatus.INELIGIBLE), any());
+        verify(applicationEventPublisher).publishEvent(new CollateralsStatusChangedEvent(ids, CollateralStatus.INELIGIBLE));
+        verify(collateralRepository, never()).save(any());
+    }
+
+    @Test
+    void changeStatus_ShouldThrowException_WhenNeitherIdsNorFilterAreGiven() {
+        assertThrows(IllegalArgumentException.class, () -> collateralService.changeStatus(
+                CollateralStatusChangeDto.builder().status(CollateralStatus.ELIGIBLE).ids(List.of()).build()));
+        verifyNoInteractions(projectionQueries, applicationEventPublisher);
+    }
+
     @Test
     void getTotalEligibleValue_ShouldReturnTotal() {
         BigDecimal expectedTotal = new BigDecimal("500000.00");
@@ -391,8 +420,8 @@ class CollateralServiceTests {
 
     @Test
     void getCollateralSummaryByType_ShouldReturnSummary() {
-        Object[] row = {CollateralType.GOVERNMENT_BOND, new BigDecimal("100000.00"), new BigDecimal("95000.00")};
-        List<Object[]> results = Arrays.<Object[]>asList(row);
+        List<CollateralTypeTotalsRow> results = Arrays.asList(new CollateralTypeTotalsRow(
+                CollateralType.GOVERNMENT_BOND, new BigDecimal("100000.00"), new BigDecimal("95000.00")));
         when(collateralRepository.getCollateralSummaryByType()).thenReturn(results);
 
         List<CollateralSummaryDto> result = collateralService.getCollateralSummaryByType();
@@ -405,8 +434,8 @@ class CollateralServiceTests {
 
     @Test
     void getCollateralConcentrationByRating_ShouldReturnConcentration() {
-        Object[] row = {Rating.AAA, 5L, new BigDecimal("500000.00")};
-        List<Object[]> results = Arrays.<Object[]>asList(row);
+        List<CollateralRatingTotalsRow> results = Arrays.asList(new CollateralRatingTotalsRow(
+                Rating.AAA, 5L, new BigDecimal("500000.00")));
         when(collateralRepository.getCollateralConcentrationByRating()).thenReturn(results);
 
         List<CollateralSummaryDto> result = collateralService.getCollateralConcentrationByRating();
@@ -420,27 +449,25 @@ class CollateralServiceTests {
     @Test
     void getHighRiskCollaterals_ShouldReturnHighRiskCollaterals() {
         BigDecimal threshold = new BigDecimal("0.15");
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findHighRiskCollateral(threshold)).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findHighRiskDtos(threshold)).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getHighRiskCollaterals(threshold);
 
         assertEquals(1, result.size());
-        verify(collateralRepository).findHighRiskCollateral(threshold);
+        verify(collateralRepository).findHighRiskDtos(threshold);
     }
 
     @Test
     void getHighRiskCollaterals_WithDefaultThreshold_ShouldUseDefaultThreshold() {
         BigDecimal defaultThreshold = new BigDecimal("0.15");
-        List<CollateralEntity> collateralEntities = Arrays.asList(collateralEntity);
-        when(collateralRepository.findHighRiskCollateral(defaultThreshold)).thenReturn(collateralEntities);
-        when(collateralMapper.toDto(collateralEntity)).thenReturn(collateralDto);
+        List<CollateralDto> collateralDtos = Arrays.asList(collateralDto);
+        when(collateralRepository.findHighRiskDtos(defaultThreshold)).thenReturn(collateralDtos);
 
         List<CollateralDto> result = collateralService.getHighRiskCollaterals();
 
         assertEquals(1, result.size());
-        verify(collateralRepository).findHighRiskCollateral(defaultThreshold);
+        verify(collateralRepository).findHighRiskDtos(defaultThreshold);
     }
 
     @Test
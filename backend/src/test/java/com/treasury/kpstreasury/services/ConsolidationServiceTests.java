@@ -0,0 +1,82 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.dto.CollateralSummaryDto;
+import com.treasury.kpstreasury.models.dto.ConsolidatedTotalsDto;
+import com.treasury.kpstreasury.models.dto.TreasurySummaryDto;
+import com.treasury.kpstreasury.repositories.FxRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsolidationServiceTests {
+
+    @Mock
+    private TreasuryService treasuryService;
+
+    @Mock
+    private CollateralService collateralService;
+
+    @Mock
+    private FxRateRepository fxRateRepository;
+
+    private ConsolidationService consolidationService;
+
+    @BeforeEach
+    void setUp(@TempDir Path directory) throws IOException {
+        Path rates = directory.resolve("rates.csv");
+        Files.writeString(rates, "USD,1.25\nGBP,0.80\n");
+        FxRateService fxRateService = new FxRateService(fxRateRepository, "EUR", rates.toString(), "");
+        fxRateService.reload();
+        consolidationService = new ConsolidationService(treasuryService, collateralService, fxRateService);
+    }
+
+    @Test
+    void getConsolidatedTotals_ShouldConvertEveryCurrencyIntoTheBaseCurrency() {
+        when(treasuryService.getTreasuryTotalsByCurrency()).thenReturn(List.of(
+                new TreasurySummaryDto("EUR", new BigDecimal("1000.00"), new BigDecimal("900.00"), 2L, null),
+                new TreasurySummaryDto("USD", new BigDecimal("500.00"), new BigDecimal("250.00"), 1L, null)));
+        CollateralSummaryDto bonds = new CollateralSummaryDto();
+        bonds.setCurrency("GBP");
+        bonds.setTotalMarketValue(new BigDecimal("800.00"));
+        bonds.setTotalEligibleValue(new BigDecimal("720.00"));
+        bonds.setCount(3L);
+        when(collateralService.getCollateralSummaryByCurrency()).thenReturn(List.of(bonds));
+
+        ConsolidatedTotalsDto totals = consolidationService.getConsolidatedTotals("EUR");
+
+        assertEquals("EUR", totals.getBaseCurrency());
+        assertEquals(0, new BigDecimal("1400.00").compareTo(totals.getTotalBalance()));
+        assertEquals(0, new BigDecimal("1100.00").compareTo(totals.getTotalAvailableBalance()));
+        assertEquals(3L, totals.getAccountCount());
+        assertEquals(0, new BigDecimal("1000.00").compareTo(totals.getTotalCollateralMarketValue()));
+        assertEquals(0, new BigDecimal("900.00").compareTo(totals.getTotalCollateralEligibleValue()));
+        assertEquals(3L, totals.getCollateralCount());
+    }
+
+    @Test
+    void getConsolidatedTotals_ShouldThrowException_WhenBaseCurrencyHasNoRate() {
+        assertThrows(IllegalArgumentException.class, () -> consolidationService.getConsolidatedTotals("JPY"));
+        verifyNoInteractions(treasuryService, collateralService);
+    }
+
+    @Test
+    void getConsolidatedTotals_ShouldThrowException_WhenAHeldCurrencyHasNoRate() {
+        when(treasuryService.getTreasuryTotalsByCurrency()).thenReturn(List.of(
+                new TreasurySummaryDto("CHF", new BigDecimal("10.00"), new BigDecimal("10.00"), 1L, null)));
+
+        assertThrows(IllegalArgumentException.class, () -> consolidationService.getConsolidatedTotals("USD"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.treasury.kpstreasury.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.treasury.kpstreasury.enums.ExportFormat;
+import com.treasury.kpstreasury.enums.Role;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.models.entity.UserEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.repositories.UserRepository;
+import com.treasury.kpstreasury.utils.CollateralMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import com.treasury.kpstreasury.utils.TreasuryMapper;
+import com.treasury.kpstreasury.utils.UserMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({ExportService.class, BalanceSlotService.class, TreasuryMapper.class, CollateralMapper.class, UserMapper.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ExportServiceTests {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void exportTreasuryAccounts_ShouldWriteOneJsonObjectPerLine_InIdOrder() throws Exception {
+        TreasuryEntity first = treasuryRepository.save(TestsUtil.account("EXP-001", "1000.00")
+                .bankName("Alpha Bank").build());
+        TreasuryEntity second = treasuryRepository.save(TestsUtil.account("EXP-002", "250.50")
+                .bankName("Beta Bank").build());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportTreasuryAccounts(ExportFormat.NDJSON, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(count).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        JsonNode row = objectMapper.readTree(lines.get(1));
+        assertThat(row.get("id").asLong()).isEqualTo(second.getId());
+        assertThat(row.get("accountNumber").asText()).isEqualTo("EXP-002");
+        assertThat(row.get("balance").decimalValue()).isEqualByComparingTo("250.50");
+        assertThat(objectMapper.readTree(lines.get(0)).get("id").asLong()).isEqualTo(first.getId());
+    }
+
+    @Test
+    void exportTreasuryAccounts_ShouldWriteCsvThatTheImportReadsBack() throws Exception {
+        treasuryRepository.save(TestsUtil.account("EXP-003", "75.25").bankName("Gamma \"Bank\", N.A.").build());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportTreasuryAccounts(ExportFormat.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines.get(0)).isEqualTo("id,accountNumber,currency,balance,availableBalance,accountType,status,"
+                + "bankName,branchCode,createdAt,updatedAt");
+        List<String> fields = TreasuryImportService.splitCsv(lines.get(1));
+        assertThat(fields).hasSize(11);
+        assertThat(fields.subList(1, 9)).containsExactly("EXP-003", "EUR", "75.25", "75.25", "CHECKING", "ACTIVE",
+                "Gamma \"Bank\", N.A.", "TB001");
+    }
+
+    @Test
+    void exportUsers_ShouldNotExposePasswords() throws Exception {
+        userRepository.save(UserEntity.builder()
+                .username("exporter")
+                .password("$2a$10$secret")
+                .email("exporter@example.com")
+                .firstName("Ex")
+                .lastName("Porter")
+                .role(Role.ADMIN)
+                .enabled(true)
+                .build());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportUsers(ExportFormat.NDJSON, out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertThat(body).contains("\"username\":\"exporter\"").doesNotContain("secret").endsWith("\n");
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertThat(exportService.exportCollaterals(ExportFormat.CSV, csv)).isZero();
+        assertThat(csv.toString(StandardCharsets.UTF_8)).startsWith("id,collateralType,");
+    }
+}
@@ -0,0 +1,96 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.repositories.FxRateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import(FxRateService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FxRateServiceTests {
+
+    @Autowired
+    private FxRateService fxRateService;
+
+    @Autowired
+    private FxRateRepository fxRateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        fxRateRepository.deleteAll();
+        fxRateService.reload();
+    }
+
+    @Test
+    void updateRate_ShouldSwapInNewMatrix_OnlyWhenCommitted() {
+        fxRateService.updateRate("USD", new BigDecimal("1.10"));
+        assertThat(fxRateService.convert(new BigDecimal("100.00"), "EUR", "USD")).isEqualByComparingTo("110.00");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            fxRateService.updateRate("USD", new BigDecimal("2.00"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(fxRateService.getMatrix().unitsPerPivot("USD")).isEqualByComparingTo("1.10");
+        assertThat(fxRateRepository.findById("USD").orElseThrow().getUnitsPerPivot()).isEqualByComparingTo("1.10");
+    }
+
+    @Test
+    void updateRate_ShouldRejectPivotAndInvalidRates() {
+        assertThatThrownBy(() -> fxRateService.updateRate("EUR", BigDecimal.TEN))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> fxRateService.updateRate("USD", new BigDecimal("-1")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(fxRateRepository.count()).isZero();
+    }
+
+    @Test
+    void convert_ShouldThrowException_WhenRateMissing() {
+        assertThatThrownBy(() -> fxRateService.convert(BigDecimal.ONE, "EUR", "JPY"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("No FX rate from EUR to JPY");
+    }
+
+    @Test
+    void loadOnStartup_ShouldSeedDefaultRates_OnlyIntoAnEmptyTable() {
+        new FxRateService(fxRateRepository, "EUR", "", "USD,1.10;GBP,0.80").loadOnStartup();
+        FxRateService secondInstance = new FxRateService(fxRateRepository, "EUR", "", "USD,9.99");
+        secondInstance.loadOnStartup();
+
+        assertThat(fxRateRepository.count()).isEqualTo(2);
+        assertThat(secondInstance.convert(new BigDecimal("100.00"), "USD", "GBP")).isEqualByComparingTo("72.73");
+    }
+
+    @Test
+    void reload_ShouldReadRatesFromFile_WhenConfigured(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("rates.csv");
+        Files.writeString(file, "# units per EUR\nUSD,1.25\nGBP, 0.80\n\n");
+        FxRateService fromFile = new FxRateService(fxRateRepository, "EUR", file.toString(), "");
+
+        fromFile.reload();
+
+        assertThat(fromFile.getMatrix().currencies()).containsExactly("EUR", "GBP", "USD");
+        assertThat(fromFile.convert(new BigDecimal("100.00"), "USD", "GBP")).isEqualByComparingTo("64.00");
+        assertThatThrownBy(() -> fromFile.updateRate("USD", BigDecimal.ONE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
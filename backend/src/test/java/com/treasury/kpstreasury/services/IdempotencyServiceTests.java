@@ -0,0 +1,269 @@
+package com.treasury.kpstreasury.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.entity.IdempotencyKeyEntity;
+import com.treasury.kpstreasury.repositories.IdempotencyKeyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(IdempotencyService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTests {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        idempotencyKeyRepository.deleteAll();
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponse_WithoutRunningActionAgain() {
+        AtomicInteger executions = new AtomicInteger();
+        String fingerprint = idempotencyService.fingerprint("transfer", 1L, 2L, new BigDecimal("10.00"));
+
+        ResponseEntity<TreasuryDto> first = idempotencyService.execute("key-replay", fingerprint, TreasuryDto.class,
+                () -> ResponseEntity.ok(account(executions.incrementAndGet())));
+        ResponseEntity<TreasuryDto> second = idempotencyService.execute("key-replay", fingerprint, TreasuryDto.class,
+                () -> ResponseEntity.ok(account(executions.incrementAndGet())));
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getBody()).isEqualTo(first.getBody());
+        assertThat(second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(idempotencyKeyRepository.findById("key-replay").orElseThrow().getResponseStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void execute_ShouldCollapseConcurrentDuplicates_IntoSingleExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        String fingerprint = idempotencyService.fingerprint("hold-funds", 1L, new BigDecimal("5.00"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ResponseEntity<TreasuryDto>>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> idempotencyService.execute("key-concurrent", fingerprint,
+                    TreasuryDto.class, () -> {
+                        executions.incrementAndGet();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return ResponseEntity.ok(account(1));
+                    })));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<ResponseEntity<TreasuryDto>> future : futures) {
+            ResponseEntity<TreasuryDto> response = future.get(10, TimeUnit.SECONDS);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody().getId()).isEqualTo(1L);
+        }
+        executor.shutdown();
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_ShouldReject_WhenKeyIsReusedForDifferentRequest() {
+        idempotencyService.execute("key-mismatch", idempotencyService.fingerprint("transfer", 1L, 2L, BigDecimal.ONE),
+                TreasuryDto.class, () -> ResponseEntity.ok(account(1)));
+
+        ResponseEntity<TreasuryDto> response = idempotencyService.execute("key-mismatch",
+                idempotencyService.fingerprint("transfer", 1L, 2L, BigDecimal.TEN),
+                TreasuryDto.class, () -> ResponseEntity.ok(account(2)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void execute_ShouldReplayFromStore_AfterRestart() {
+        String fingerprint = idempotencyService.fingerprint("update-balance", 7L, new BigDecimal("100.00"));
+        idempotencyService.execute("key-restart", fingerprint, TreasuryDto.class,
+                () -> ResponseEntity.ok(account(7)));
+
+        IdempotencyService restarted = new IdempotencyService(idempotencyKeyRepository, objectMapper,
+                transactionManager, 24, 60, 100);
+        AtomicInteger executions = new AtomicInteger();
+        ResponseEntity<TreasuryDto> replay = restarted.execute("key-restart", fingerprint, TreasuryDto.class, () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.ok(account(8));
+        });
+
+        assertThat(executions.get()).isZero();
+        assertThat(replay.getBody().getId()).isEqualTo(7L);
+    }
+
+    @Test
+    void execute_ShouldNotRemember_ServerErrors() {
+        String fingerprint = idempotencyService.fingerprint("transfer", 1L, 2L, BigDecimal.ONE);
+        idempotencyService.execute("key-error", fingerprint, TreasuryDto.class,
+                () -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+        ResponseEntity<TreasuryDto> retry = idempotencyService.execute("key-error", fingerprint, TreasuryDto.class,
+                () -> ResponseEntity.ok(account(3)));
+
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retry.getBody().getId()).isEqualTo(3L);
+    }
+
+    @Test
+    void execute_ShouldTakeOverAClaim_OnlyOnceItsLeaseRanOut() {
+        String fingerprint = idempotencyService.fingerprint("transfer", 1L, 2L, BigDecimal.ONE);
+        IdempotencyKeyEntity claim = idempotencyKeyRepository.save(IdempotencyKeyEntity.builder()
+                .idempotencyKey("key-crashed")
+                .requestFingerprint(fingerprint)
+                .expiresAt(LocalDateTime.now().plusHours(24))
+                .leaseExpiresAt(LocalDateTime.now().plusMinutes(1))
+                .build());
+
+        ResponseEntity<TreasuryDto> whileLeased = idempotencyService.execute("key-crashed", fingerprint,
+                TreasuryDto.class, () -> ResponseEntity.ok(account(4)));
+        claim.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(1));
+        idempotencyKeyRepository.save(claim);
+        ResponseEntity<TreasuryDto> afterLease = idempotencyService.execute("key-crashed", fingerprint,
+                TreasuryDto.class, () -> ResponseEntity.ok(account(5)));
+
+        assertThat(whileLeased.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(afterLease.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(afterLease.getBody().getId()).isEqualTo(5L);
+        assertThat(idempotencyKeyRepository.findById("key-crashed").orElseThrow().getResponseStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void execute_ShouldRollTheRequestBack_WhenARetryTookItsClaimOver() {
+        String fingerprint = idempotencyService.fingerprint("transfer", 1L, 2L, BigDecimal.ONE);
+
+        ResponseEntity<TreasuryDto> response = idempotencyService.execute("key-outlived", fingerprint,
+                TreasuryDto.class, () -> {
+                    // a retry on another instance takes the claim over while this request is still running
+                    CompletableFuture.runAsync(() -> {
+                        IdempotencyKeyEntity claim = idempotencyKeyRepository.findById("key-outlived").orElseThrow();
+                        claim.setLeaseExpiresAt(LocalDateTime.now().plusMinutes(1));
+                        idempotencyKeyRepository.save(claim);
+                    }).join();
+                    idempotencyKeyRepository.save(IdempotencyKeyEntity.builder()
+                            .idempotencyKey("key-side-effect")
+                            .requestFingerprint(fingerprint)
+                            .expiresAt(LocalDateTime.now().plusHours(1))
+                            .build());
+                    return ResponseEntity.ok(account(6));
+                });
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(idempotencyKeyRepository.findById("key-side-effect")).isEmpty();
+        assertThat(idempotencyKeyRepository.findById("key-outlived").orElseThrow().getResponseStatus()).isNull();
+    }
+
+    @Test
+    void renewLeases_ShouldExtendTheLease_OfARequestStillRunning() {
+        String fingerprint = idempotencyService.fingerprint("transfer-batch", 1L);
+        List<LocalDateTime> renewed = new ArrayList<>();
+
+        ResponseEntity<TreasuryDto> response = idempotencyService.execute("key-long", fingerprint,
+                TreasuryDto.class, () -> {
+                    CompletableFuture.runAsync(() -> {
+                        IdempotencyKeyEntity claim = idempotencyKeyRepository.findById("key-long").orElseThrow();
+                        idempotencyKeyRepository.renewLease("key-long", claim.getVersion(),
+                                LocalDateTime.now().minusSeconds(1));
+                        idempotencyService.renewLeases();
+                        renewed.add(idempotencyKeyRepository.findById("key-long").orElseThrow().getLeaseExpiresAt());
+                    }).join();
+                    return ResponseEntity.ok(account(9));
+                });
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(renewed).singleElement().satisfies(lease -> assertThat(lease).isAfter(LocalDateTime.now()));
+        assertThat(idempotencyKeyRepository.findById("key-long").orElseThrow().getResponseStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void execute_ShouldKeepTheKeysOfEachUserApart() {
+        AtomicInteger executions = new AtomicInteger();
+        String fingerprint = idempotencyService.fingerprint("transfer", 1L, 2L, BigDecimal.ONE);
+
+        authenticateAs("alice");
+        ResponseEntity<TreasuryDto> alice = idempotencyService.execute("key-shared", fingerprint, TreasuryDto.class,
+                () -> ResponseEntity.ok(account(executions.incrementAndGet())));
+        authenticateAs("bob");
+        ResponseEntity<TreasuryDto> bob = idempotencyService.execute("key-shared", fingerprint, TreasuryDto.class,
+                () -> ResponseEntity.ok(account(executions.incrementAndGet())));
+
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(alice.getBody().getId()).isEqualTo(1L);
+        assertThat(bob.getBody().getId()).isEqualTo(2L);
+        assertThat(idempotencyKeyRepository.findAll()).extracting(IdempotencyKeyEntity::getIdempotencyKey)
+                .containsExactlyInAnyOrder("alice:key-shared", "bob:key-shared");
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteExpiredKeys() {
+        idempotencyKeyRepository.save(IdempotencyKeyEntity.builder()
+                .idempotencyKey("key-expired")
+                .requestFingerprint("f".repeat(64))
+                .responseStatus(200)
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build());
+
+        idempotencyService.purgeExpired();
+
+        assertThat(idempotencyKeyRepository.findById("key-expired")).isEmpty();
+    }
+
+    private void authenticateAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private TreasuryDto account(long id) {
+        return TreasuryDto.builder()
+                .id(id)
+                .accountNumber("IDEMP-" + id)
+                .currency("EUR")
+                .balance(new BigDecimal("100.00"))
+                .availableBalance(new BigDecimal("100.00"))
+                .build();
+    }
+}
@@ -0,0 +1,242 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.dto.BalanceHoldDto;
+import com.treasury.kpstreasury.models.dto.HoldRequestDto;
+import com.treasury.kpstreasury.models.dto.LiquidityPositionDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.BalanceHoldRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.BalanceHoldMapper;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+@DataJpaTest
+@Import({IntradayLiquidityService.class, BalanceSnapshotService.class, LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class,
+        BalanceHoldService.class, BalanceSlotService.class, BalanceHoldMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IntradayLiquidityServiceTests {
+
+    @Autowired
+    private IntradayLiquidityService intradayLiquidityService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @SpyBean
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private BalanceHoldService balanceHoldService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private BalanceHoldRepository balanceHoldRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceHoldRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void rebuild_ShouldSplitOpeningBalanceFromTodaysFlows() {
+        Long first = treasuryRepository.save(TestsUtil.account("LIQ-001", "800.00")
+                .bankName("Alpha Bank").build()).getId();
+        Long second = treasuryRepository.save(TestsUtil.account("LIQ-002", "200.00")
+                .bankName("Alpha Bank").build()).getId();
+        Long third = treasuryRepository.save(TestsUtil.account("LIQ-003", "450.00")
+                .currency("USD").bankName("Beta Bank").build()).getId();
+        ledgerService.recordOpeningBalance(first, new BigDecimal("1000.00"));
+        ledgerService.recordOpeningBalance(third, new BigDecimal("500.00"));
+        postYesterday();
+        ledgerService.recordTransfer(first, second, new BigDecimal("200.00"));
+        ledgerService.recordAdjustment(third, new BigDecimal("-50.00"), "Fee");
+
+        intradayLiquidityService.rebuild();
+        List<LiquidityPositionDto> positions = intradayLiquidityService.getPositions(null);
+
+        assertThat(positions).hasSize(2);
+        LiquidityPositionDto eur = positions.get(0);
+        assertThat(eur.getBusinessDate()).isEqualTo(LocalDate.now());
+        assertThat(eur.getCurrency()).isEqualTo("EUR");
+        assertThat(eur.getBankName()).isEqualTo("Alpha Bank");
+        assertThat(eur.getOpeningBalance()).isEqualByComparingTo("1000.00");
+        assertThat(eur.getInflows()).isEqualByComparingTo("200.00");
+        assertThat(eur.getOutflows()).isEqualByComparingTo("200.00");
+        assertThat(eur.getCurrentBalance()).isEqualByComparingTo("1000.00");
+        LiquidityPositionDto usd = positions.get(1);
+        assertThat(usd.getOpeningBalance()).isEqualByComparingTo("500.00");
+        assertThat(usd.getOutflows()).isEqualByComparingTo("50.00");
+        assertThat(usd.getCurrentBalance()).isEqualByComparingTo("450.00");
+    }
+
+    @Test
+    void committedMovements_ShouldUpdatePositions_AsARebuildWould() {
+        Long first = treasuryRepository.save(TestsUtil.account("LIQ-101", "1000.00")
+                .bankName("Alpha Bank").build()).getId();
+        Long second = treasuryRepository.save(TestsUtil.account("LIQ-102", "0.00")
+                .bankName("Gamma Bank").build()).getId();
+        intradayLiquidityService.rebuild();
+
+        ledgerService.recordOpeningBalance(first, new BigDecimal("1000.00"));
+        ledgerService.recordTransfer(first, second, new BigDecimal("300.00"));
+        transaction.executeWithoutResult(status -> {
+            ledgerService.recordTransfer(first, second, new BigDecimal("99.00"));
+            status.setRollbackOnly();
+        });
+        BalanceHoldDto captured = balanceHoldService.placeHold(first, hold("100.00"));
+        balanceHoldService.placeHold(first, hold("150.00"));
+        balanceHoldService.captureHold(captured.getId());
+
+        List<LiquidityPositionDto> incremental = intradayLiquidityService.getPositions(null);
+        LiquidityPositionDto alpha = incremental.get(0);
+        assertThat(alpha.getInflows()).isEqualByComparingTo("1000.00");
+        assertThat(alpha.getOutflows()).isEqualByComparingTo("400.00");
+        assertThat(alpha.getCurrentBalance()).isEqualByComparingTo("600.00");
+        assertThat(alpha.getScheduledOutflows()).isEqualByComparingTo("150.00");
+        assertThat(alpha.getProjectedBalance()).isEqualByComparingTo("450.00");
+        assertThat(incremental.get(1).getCurrentBalance()).isEqualByComparingTo("300.00");
+
+        intradayLiquidityService.rebuild();
+        assertThat(intradayLiquidityService.getPositions(null)).isEqualTo(incremental);
+    }
+
+    @Test
+    void rebuild_ShouldCountMovementsOnce_WhenTheyCommitWhileItReads() throws Exception {
+        Long first = treasuryRepository.save(TestsUtil.account("LIQ-151", "1000.00")
+                .bankName("Alpha Bank").build()).getId();
+        Long second = treasuryRepository.save(TestsUtil.account("LIQ-152", "0.00")
+                .bankName("Gamma Bank").build()).getId();
+        ledgerService.recordOpeningBalance(first, new BigDecimal("1000.00"));
+        BalanceHoldDto released = balanceHoldService.placeHold(first, hold("100.00"));
+        intradayLiquidityService.rebuild();
+
+        doAnswer(invocation -> {
+            Thread writer = new Thread(() -> {
+                ledgerService.recordTransfer(first, second, new BigDecimal("300.00"));
+                balanceHoldService.releaseHold(released.getId());
+                balanceHoldService.placeHold(first, hold("150.00"));
+            });
+            writer.start();
+            writer.join();
+            return invocation.callRealMethod();
+        }).when(balanceSnapshotService).getBalancesAsOf(any());
+        intradayLiquidityService.rebuild();
+        List<LiquidityPositionDto> rebuilt = intradayLiquidityService.getPositions(null);
+
+        LiquidityPositionDto alpha = rebuilt.get(0);
+        assertThat(alpha.getOutflows()).isEqualByComparingTo("300.00");
+        assertThat(alpha.getCurrentBalance()).isEqualByComparingTo("700.00");
+        assertThat(alpha.getScheduledOutflows()).isEqualByComparingTo("150.00");
+        assertThat(rebuilt.get(1).getInflows()).isEqualByComparingTo("300.00");
+
+        reset(balanceSnapshotService);
+        intradayLiquidityService.rebuild();
+        assertThat(intradayLiquidityService.getPositions(null)).isEqualTo(rebuilt);
+    }
+
+    @Test
+    void accountCreatedAfterRebuild_ShouldGetItsPositionOnFirstMovement() {
+        intradayLiquidityService.rebuild();
+        assertThat(intradayLiquidityService.getPositions(null)).isEmpty();
+
+        Long account = treasuryRepository.save(TestsUtil.account("LIQ-201", "250.00")
+                .currency("GBP").bankName("Delta Bank").build()).getId();
+        ledgerService.recordOpeningBalance(account, new BigDecimal("250.00"));
+
+        List<LiquidityPositionDto> positions = intradayLiquidityService.getPositions("GBP");
+        assertThat(positions).hasSize(1);
+        assertThat(positions.get(0).getBankName()).isEqualTo("Delta Bank");
+        assertThat(positions.get(0).getCurrentBalance()).isEqualByComparingTo("250.00");
+    }
+
+    @Test
+    void unknownAccountMovingWhileRebuildReads_ShouldBeCountedOnce() {
+        intradayLiquidityService.rebuild();
+        // created after the rebuild, so the view resolves its first movement from the database
+        Long account = treasuryRepository.save(TestsUtil.account("LIQ-251", "400.00")
+                .currency("CHF").bankName("Epsilon Bank").build()).getId();
+
+        doAnswer(invocation -> {
+            Thread writer = new Thread(() -> ledgerService.recordOpeningBalance(account, new BigDecimal("400.00")));
+            writer.start();
+            writer.join();
+            return invocation.callRealMethod();
+        }).when(balanceSnapshotService).getBalancesAsOf(any());
+        intradayLiquidityService.rebuild();
+        reset(balanceSnapshotService);
+
+        List<LiquidityPositionDto> positions = intradayLiquidityService.getPositions("CHF");
+        assertThat(positions).hasSize(1);
+        assertThat(positions.get(0).getInflows()).isEqualByComparingTo("400.00");
+        assertThat(positions.get(0).getBankName()).isEqualTo("Epsilon Bank");
+        assertThat(positions.get(0).getCurrentBalance()).isEqualByComparingTo("400.00");
+    }
+
+    @Test
+    void getPositions_ShouldFilterByCurrency() {
+        treasuryRepository.save(TestsUtil.account("LIQ-301", "0.00").bankName("Alpha Bank").build());
+        treasuryRepository.save(TestsUtil.account("LIQ-302", "0.00").currency("USD").bankName("Alpha Bank").build());
+        treasuryRepository.save(TestsUtil.account("LIQ-303", "0.00").currency("USD").bankName("Beta Bank").build());
+        intradayLiquidityService.rebuild();
+
+        assertThat(intradayLiquidityService.getPositions("USD"))
+                .extracting(LiquidityPositionDto::getBankName)
+                .containsExactly("Alpha Bank", "Beta Bank");
+    }
+
+    private void postYesterday() {
+        transaction.executeWithoutResult(status -> entityManager
+                .createNativeQuery("UPDATE ledger_entries SET posted_at = :yesterday")
+                .setParameter("yesterday", LocalDate.now().minusDays(1).atTime(12, 0))
+                .executeUpdate());
+    }
+
+    private HoldRequestDto hold(String amount) {
+        return HoldRequestDto.builder()
+                .amount(new BigDecimal(amount))
+                .reference("payment")
+                .build();
+    }
+}
@@ -0,0 +1,226 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.ContraAccount;
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+import com.treasury.kpstreasury.events.LedgerPostedEvent;
+import com.treasury.kpstreasury.models.dto.LedgerVerificationDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
+import com.treasury.kpstreasury.models.entity.LedgerEntryEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.LedgerCheckpointRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.LedgerWriterRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class})
+@TestPropertySource(properties = "treasury.ledger.verify-chunk-size=2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+class LedgerServiceTests {
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private LedgerCheckpointRepository ledgerCheckpointRepository;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LedgerWriterRepository ledgerWriterRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @AfterEach
+    void tearDown() {
+        ledgerCheckpointRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void ledgerWriter_ShouldBeRegisteredAtStartup_NotByTheFirstPosting() {
+        // the first posting must not open a nested transaction to report the writer
+        assertThat(ledgerWriterRepository.count()).isPositive();
+    }
+
+    @Test
+    void recordTransfer_ShouldPostBalancedDebitAndCredit() {
+        String journalId = ledgerService.recordTransfer(1L, 2L, new BigDecimal("250.00"));
+
+        List<LedgerEntryEntity> entries = ledgerEntryRepository.findByJournalId(journalId);
+
+        assertThat(entries).hasSize(2);
+        assertThat(entries).extracting(LedgerEntryEntity::getEntryType)
+                .containsExactlyInAnyOrder(LedgerEntryType.DEBIT, LedgerEntryType.CREDIT);
+        assertThat(entries.stream().map(LedgerEntryEntity::signedAmount).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo("0");
+    }
+
+    @Test
+    void recordTransfers_ShouldPostOneJournalPerTransfer_AndAnnounceThemTogether() {
+        List<String> journalIds = ledgerService.recordTransfers(List.of(
+                new TransferRequestDto(1L, 2L, new BigDecimal("100.00")),
+                new TransferRequestDto(2L, 3L, new BigDecimal("40.00"))));
+
+        assertThat(journalIds).hasSize(2).doesNotHaveDuplicates();
+        assertThat(ledgerEntryRepository.findByJournalId(journalIds.get(1)))
+                .extracting(LedgerEntryEntity::getAccountId)
+                .containsExactlyInAnyOrder(2L, 3L);
+        assertThat(ledgerService.rebuildBalance(2L)).isEqualByComparingTo("60.00");
+        assertThat(applicationEvents.stream(LedgerPostedEvent.class))
+                .singleElement()
+                .satisfies(event -> assertThat(event.postings()).hasSize(4));
+    }
+
+    @Test
+    void recordOpeningBalanceAndAdjustment_ShouldPostTheOtherSideToAContraAccount() {
+        ledgerService.recordOpeningBalance(1L, new BigDecimal("1000.00"));
+        ledgerService.recordAdjustment(1L, new BigDecimal("-100.00"), "Fee");
+
+        Map<String, BigDecimal> journals = ledgerEntryRepository.findAll().stream()
+                .collect(Collectors.groupingBy(LedgerEntryEntity::getJournalId,
+                        Collectors.reducing(BigDecimal.ZERO, LedgerEntryEntity::signedAmount, BigDecimal::add)));
+
+        assertThat(journals).hasSize(2);
+        assertThat(journals.values()).allSatisfy(net -> assertThat(net).isEqualByComparingTo("0"));
+        assertThat(ledgerService.rebuildBalance(1L)).isEqualByComparingTo("900.00");
+        assertThat(ledgerService.rebuildBalance(ContraAccount.OPENING_EQUITY.getAccountId()))
+                .isEqualByComparingTo("-1000.00");
+        assertThat(ledgerService.rebuildBalance(ContraAccount.SUSPENSE.getAccountId())).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void rebuildBalance_ShouldReplayJournal_BeforeAndAfterCheckpoint() {
+        ledgerService.recordOpeningBalance(1L, new BigDecimal("1000.00"));
+        ledgerService.recordTransfer(1L, 2L, new BigDecimal("300.00"));
+
+        assertThat(ledgerService.rebuildBalance(1L)).isEqualByComparingTo("700.00");
+        assertThat(ledgerService.rebuildBalance(2L)).isEqualByComparingTo("300.00");
+
+        ledgerService.checkpointAll();
+        assertThat(ledgerCheckpointRepository.findById(1L)).isPresent();
+
+        ledgerService.recordAdjustment(1L, new BigDecimal("-100.00"), "Fee");
+
+        assertThat(ledgerService.rebuildBalance(1L)).isEqualByComparingTo("600.00");
+        assertThat(ledgerService.rebuildBalance(2L)).isEqualByComparingTo("300.00");
+    }
+
+    @Test
+    void checkpointAll_ShouldBackfillOpeningEntries_ForAccountsWithoutJournal() {
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("LEGACY-1", "500.00").build());
+
+        ledgerService.checkpointAll();
+
+        assertThat(ledgerEntryRepository.existsByAccountId(account.getId())).isTrue();
+        assertThat(ledgerService.rebuildBalance(account.getId())).isEqualByComparingTo("500.00");
+        assertThat(ledgerEntryRepository.findByJournalId("opening-" + account.getId())).hasSize(2);
+    }
+
+    @Test
+    void checkpointAll_ShouldBackfillOpeningEntriesOnce_WhenInstancesRace() throws Exception {
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("LEGACY-2", "500.00").build());
+        CountDownLatch backfilled = new CountDownLatch(1);
+        CountDownLatch committing = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            ledgerService.checkpointAll();
+            backfilled.countDown();
+            await(committing);
+        }));
+        assertThat(backfilled.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // the second instance still sees no entry, then waits on the account lock of the first
+        CompletableFuture<Void> second = CompletableFuture.runAsync(ledgerService::checkpointAll);
+        Thread.sleep(200);
+        committing.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        assertThat(ledgerEntryRepository.findByJournalId("opening-" + account.getId())).hasSize(2);
+        assertThat(ledgerService.rebuildBalance(account.getId())).isEqualByComparingTo("500.00");
+    }
+
+    @Test
+    void checkpointAll_ShouldLeaveEntriesOfOpenTransactions_ToTheNextCheckpoint() throws Exception {
+        CountDownLatch posted = new CountDownLatch(1);
+        CountDownLatch committing = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CompletableFuture<Void> slowTransfer = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            ledgerService.recordTransfer(1L, 2L, new BigDecimal("300.00"));
+            posted.countDown();
+            await(committing);
+        }));
+        assertThat(posted.await(10, TimeUnit.SECONDS)).isTrue();
+        // posted and committed after the transfer, so its entries have higher ids
+        ledgerService.recordAdjustment(1L, new BigDecimal("50.00"), "Interest");
+
+        ledgerService.checkpointAll();
+        committing.countDown();
+        slowTransfer.get(10, TimeUnit.SECONDS);
+        ledgerService.checkpointAll();
+
+        assertThat(ledgerCheckpointRepository.findById(1L).orElseThrow().getBalance()).isEqualByComparingTo("-250.00");
+        assertThat(ledgerCheckpointRepository.findById(2L).orElseThrow().getBalance()).isEqualByComparingTo("300.00");
+        assertThat(ledgerService.rebuildBalance(1L)).isEqualByComparingTo("-250.00");
+    }
+
+    @Test
+    void verifyAll_ShouldReportAccountsWhoseBalanceDiffersFromJournal() {
+        TreasuryEntity consistent = treasuryRepository.save(TestsUtil.account("LEDGER-1", "100.00").build());
+        TreasuryEntity drifted = treasuryRepository.save(TestsUtil.account("LEDGER-2", "200.00").build());
+        TreasuryEntity other = treasuryRepository.save(TestsUtil.account("LEDGER-3", "300.00").build());
+        ledgerService.recordOpeningBalance(consistent.getId(), consistent.getBalance());
+        ledgerService.recordOpeningBalance(drifted.getId(), new BigDecimal("150.00"));
+        ledgerService.recordOpeningBalance(other.getId(), other.getBalance());
+
+        LedgerVerificationDto result = ledgerService.verifyAll();
+
+        assertThat(result.getAccountsChecked()).isEqualTo(3);
+        assertThat(result.getMismatchCount()).isEqualTo(1);
+        assertThat(result.getMismatches().get(0).getAccountId()).isEqualTo(drifted.getId());
+        assertThat(result.getMismatches().get(0).getJournalBalance()).isEqualByComparingTo("150.00");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.models.dto.BalanceHoldDto;
+import com.treasury.kpstreasury.models.dto.HoldRequestDto;
+import com.treasury.kpstreasury.models.dto.LowBalanceThresholdDto;
+import com.treasury.kpstreasury.models.entity.LowBalanceThresholdEntity;
+import com.treasury.kpstreasury.models.entity.OutboxEventEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.BalanceHoldRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.LowBalanceThresholdRepository;
+import com.treasury.kpstreasury.repositories.OutboxEventRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.BalanceHoldMapper;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({LowBalanceAlertService.class, EventPublisher.class, BalanceHoldService.class, BalanceSlotService.class,
+        LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class, BalanceHoldMapper.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = "treasury.low-balance.min-alert-interval-ms=600000")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LowBalanceAlertServiceTests {
+
+    @Autowired
+    private LowBalanceAlertService lowBalanceAlertService;
+
+    @Autowired
+    private BalanceHoldService balanceHoldService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LowBalanceThresholdRepository thresholdRepository;
+
+    @Autowired
+    private BalanceHoldRepository balanceHoldRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        thresholdRepository.deleteAll();
+        lowBalanceAlertService.resync();
+        outboxEventRepository.deleteAll();
+        balanceHoldRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void balanceChanges_ShouldAlertOnlyWhenCrossingBelow_AndReArmAboveTheHysteresisBand() {
+        Long account = treasuryRepository.save(TestsUtil.account("LOW-001", "1000.00").build()).getId();
+        lowBalanceAlertService.setThreshold(account, threshold("500.00", "100.00"));
+
+        BalanceHoldDto first = balanceHoldService.placeHold(account, hold("450.00"));
+        assertThat(alerts()).isEmpty();
+
+        BalanceHoldDto second = balanceHoldService.placeHold(account, hold("100.00"));
+        assertThat(alerts()).singleElement()
+                .satisfies(alert -> assertThat(alert.getPayload()).contains("LOW-001", "450.00", "ops-desk"));
+
+        // back to 550, inside the hysteresis band: still below, so dropping again is not a new crossing
+        balanceHoldService.releaseHold(second.getId());
+        BalanceHoldDto third = balanceHoldService.placeHold(account, hold("100.00"));
+        LowBalanceThresholdDto state = lowBalanceAlertService.getAccountsBelowThreshold().get(0);
+        assertThat(state.getAccountId()).isEqualTo(account);
+        assertThat(state.getSuppressedAlerts()).isZero();
+        assertThat(alerts()).hasSize(1);
+
+        balanceHoldService.releaseHold(third.getId());
+        balanceHoldService.releaseHold(first.getId());
+        assertThat(lowBalanceAlertService.getAccountsBelowThreshold()).isEmpty();
+    }
+
+    @Test
+    void changesOfOneTransaction_ShouldBeCheckedOnce_WithTheBalanceItCommits() {
+        Long account = treasuryRepository.save(TestsUtil.account("LOW-051", "1000.00").build()).getId();
+        lowBalanceAlertService.setThreshold(account, threshold("500.00", "0.00"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            balanceHoldService.placeHold(account, hold("300.00"));
+            balanceHoldService.placeHold(account, hold("300.00"));
+            assertThat(alerts()).isEmpty();
+        });
+
+        assertThat(alerts()).singleElement()
+                .satisfies(alert -> assertThat(alert.getPayload()).contains("LOW-051", "400.00"));
+    }
+
+    @Test
+    void flappingAccount_ShouldBeRateLimited() {
+        Long account = treasuryRepository.save(TestsUtil.account("LOW-101", "1000.00").build()).getId();
+        lowBalanceAlertService.setThreshold(account, threshold("500.00", "0.00"));
+
+        for (int i = 0; i < 5; i++) {
+            BalanceHoldDto hold = balanceHoldService.placeHold(account, hold("600.00"));
+            balanceHoldService.releaseHold(hold.getId());
+        }
+
+        assertThat(alerts()).hasSize(1);
+        assertThat(lowBalanceAlertService.getThresholds().get(0).getSuppressedAlerts()).isEqualTo(4);
+        assertThat(lowBalanceAlertService.getThresholds().get(0).getLastAlertAt()).isNotNull();
+    }
+
+    @Test
+    void setThreshold_ShouldAlertAtOnce_WhenTheAccountIsAlreadyBelow() {
+        Long low = treasuryRepository.save(TestsUtil.account("LOW-201", "100.00").build()).getId();
+        Long unwatched = treasuryRepository.save(TestsUtil.account("LOW-202", "100.00").build()).getId();
+
+        LowBalanceThresholdDto threshold = lowBalanceAlertService.setThreshold(low, threshold("500.00", null));
+        balanceHoldService.placeHold(unwatched, hold("90.00"));
+
+        assertThat(threshold.getHysteresis()).isEqualByComparingTo("25.00");
+        assertThat(threshold.getAccountNumber()).isEqualTo("LOW-201");
+        assertThat(alerts()).hasSize(1);
+        assertThatThrownBy(() -> lowBalanceAlertService.setThreshold(-1L, threshold("1.00", null)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        lowBalanceAlertService.removeThreshold(low);
+        assertThat(lowBalanceAlertService.getThresholds()).isEmpty();
+        assertThatThrownBy(() -> lowBalanceAlertService.removeThreshold(low))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void loadOnStartup_ShouldRestoreStateWithoutAlertingAgain() {
+        Long account = treasuryRepository.save(TestsUtil.account("LOW-301", "100.00").build()).getId();
+        thresholdRepository.save(LowBalanceThresholdEntity.builder()
+                .accountId(account)
+                .threshold(new BigDecimal("500.00"))
+                .hysteresis(new BigDecimal("50.00"))
+                .recipient("ops-desk")
+                .build());
+
+        lowBalanceAlertService.loadOnStartup();
+
+        assertThat(lowBalanceAlertService.getAccountsBelowThreshold())
+                .extracting(LowBalanceThresholdDto::getAccountNumber)
+                .containsExactly("LOW-301");
+        assertThat(alerts()).isEmpty();
+    }
+
+    private List<OutboxEventEntity> alerts() {
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> event.getTopic().equals("notification-events"))
+                .toList();
+    }
+
+    private LowBalanceThresholdDto threshold(String threshold, String hysteresis) {
+        return LowBalanceThresholdDto.builder()
+                .threshold(new BigDecimal(threshold))
+                .hysteresis(hysteresis != null ? new BigDecimal(hysteresis) : null)
+                .recipient("ops-desk")
+                .build();
+    }
+
+    private HoldRequestDto hold(String amount) {
+        return HoldRequestDto.builder()
+                .amount(new BigDecimal(amount))
+                .reference("payment")
+                .build();
+    }
+}
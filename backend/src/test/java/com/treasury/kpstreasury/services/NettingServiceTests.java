@@ -0,0 +1,199 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.NettingStatus;
+import com.treasury.kpstreasury.models.dto.NettingInstructionDto;
+import com.treasury.kpstreasury.models.dto.NettingLegDto;
+import com.treasury.kpstreasury.models.dto.NettingReportDto;
+import com.treasury.kpstreasury.models.entity.NettingInstructionEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.NettingCycleRepository;
+import com.treasury.kpstreasury.repositories.NettingInstructionRepository;
+import com.treasury.kpstreasury.repositories.NettingLegRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.NettingMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+@DataJpaTest
+@Import({NettingService.class, NettingMapper.class, TransferEngine.class, BalanceSlotService.class,
+        LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NettingServiceTests {
+
+    @Autowired
+    private NettingService nettingService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private NettingInstructionRepository nettingInstructionRepository;
+
+    @Autowired
+    private NettingCycleRepository nettingCycleRepository;
+
+    @Autowired
+    private NettingLegRepository nettingLegRepository;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @AfterEach
+    void tearDown() {
+        nettingLegRepository.deleteAll();
+        nettingInstructionRepository.deleteAll();
+        nettingCycleRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void runCycle_ShouldSettleOnlyTheResidualLegs() {
+        List<Long> accounts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            accounts.add(account("NET-00" + i, "EUR", "10000.00", AccountStatus.ACTIVE));
+        }
+        Random random = new Random(11);
+        List<NettingInstructionDto> instructions = new ArrayList<>();
+        Map<Long, BigDecimal> expected = new HashMap<>();
+        for (int i = 0; i < 400; i++) {
+            Long from = accounts.get(random.nextInt(accounts.size()));
+            Long to = accounts.get(random.nextInt(accounts.size()));
+            if (from.equals(to)) {
+                continue;
+            }
+            BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(10_000), 2);
+            instructions.add(instruction(from, to, amount));
+            expected.merge(from, amount.negate(), BigDecimal::add);
+            expected.merge(to, amount, BigDecimal::add);
+        }
+        long openingEntries = ledgerEntryRepository.count();
+
+        List<NettingInstructionDto> submitted = nettingService.submit(instructions);
+        NettingReportDto report = nettingService.runCycle().orElseThrow();
+
+        assertThat(submitted).allMatch(instruction -> instruction.getStatus() == NettingStatus.PENDING
+                && "EUR".equals(instruction.getCurrency()));
+        assertThat(report.getCycle().getInstructionCount()).isEqualTo(instructions.size());
+        assertThat(report.getCycle().getSettledCount()).isEqualTo(instructions.size());
+        assertThat(report.getCycle().getAccountCount()).isEqualTo(5);
+        assertThat(report.getLegs()).hasSizeLessThanOrEqualTo(4);
+        assertThat(report.getGrossPostings()).isEqualTo(2 * instructions.size());
+        assertThat(report.getSettlementPostings() * 10).isLessThan(report.getGrossPostings());
+        assertThat(report.isBalanced()).isTrue();
+        assertThat(report.getRejected()).isEmpty();
+        assertThat(report.getPositions()).allSatisfy(position -> assertThat(position.getNet())
+                .isEqualByComparingTo(expected.get(position.getAccountId())));
+        assertThat(report.getLegs()).allMatch(leg -> leg.getJournalId() != null);
+
+        for (Long id : accounts) {
+            TreasuryEntity account = treasuryRepository.findById(id).orElseThrow();
+            BigDecimal balance = new BigDecimal("10000.00").add(expected.getOrDefault(id, BigDecimal.ZERO));
+            assertThat(account.getBalance()).isEqualByComparingTo(balance);
+            assertThat(account.getAvailableBalance()).isEqualByComparingTo(balance);
+        }
+        assertThat(ledgerEntryRepository.count()).isEqualTo(openingEntries + report.getSettlementPostings());
+        assertThat(ledgerService.verifyAll().getMismatchCount()).isZero();
+        assertThat(nettingInstructionRepository.findAll())
+                .allMatch(instruction -> instruction.getStatus() == NettingStatus.SETTLED);
+
+        // everything was claimed by the first cycle
+        assertThat(nettingService.runCycle()).isEmpty();
+        assertThat(nettingService.getReport(report.getCycle().getId())).isEqualTo(report);
+    }
+
+    @Test
+    void runCycle_ShouldUnwindThePayer_WhenItCannotCoverItsNetPosition() {
+        Long payer = account("NET-101", "EUR", "50.00", AccountStatus.ACTIVE);
+        Long payee = account("NET-102", "EUR", "0.00", AccountStatus.ACTIVE);
+        Long suspended = account("NET-103", "EUR", "500.00", AccountStatus.SUSPENDED);
+        List<NettingInstructionDto> submitted = nettingService.submit(List.of(
+                instruction(payer, payee, new BigDecimal("100.00")),
+                instruction(payee, payer, new BigDecimal("70.00")),
+                instruction(payer, payee, new BigDecimal("30.00")),
+                instruction(suspended, payer, new BigDecimal("5.00"))));
+
+        NettingReportDto report = nettingService.runCycle().orElseThrow();
+
+        assertThat(report.getCycle().getSettledCount()).isEqualTo(2);
+        assertThat(report.getCycle().getRejectedCount()).isEqualTo(2);
+        assertThat(report.getLegs())
+                .extracting(NettingLegDto::getFromAccountId, NettingLegDto::getToAccountId, NettingLegDto::getAmount)
+                .containsExactly(tuple(payer, payee, new BigDecimal("30.00")));
+        assertThat(report.getBilateralNets()).hasSize(1);
+        assertThat(report.isBalanced()).isTrue();
+        assertThat(report.getRejected())
+                .extracting(NettingInstructionDto::getId, NettingInstructionDto::getRejectionReason)
+                .containsExactly(
+                        tuple(submitted.get(2).getId(), NettingService.INSUFFICIENT_FUNDS),
+                        tuple(submitted.get(3).getId(), NettingService.ACCOUNT_NOT_ACTIVE));
+
+        assertThat(treasuryRepository.findById(payer).orElseThrow().getBalance()).isEqualByComparingTo("20.00");
+        assertThat(treasuryRepository.findById(payee).orElseThrow().getBalance()).isEqualByComparingTo("30.00");
+        assertThat(treasuryRepository.findById(suspended).orElseThrow().getBalance()).isEqualByComparingTo("500.00");
+        NettingInstructionEntity unwound =
+                nettingInstructionRepository.findById(submitted.get(2).getId()).orElseThrow();
+        assertThat(unwound.getStatus()).isEqualTo(NettingStatus.REJECTED);
+        assertThat(unwound.getCycleId()).isEqualTo(report.getCycle().getId());
+    }
+
+    @Test
+    void submit_ShouldRejectTheWholeFile_WhenAnInstructionCannotBeNetted() {
+        Long euro = account("NET-201", "EUR", "100.00", AccountStatus.ACTIVE);
+        Long otherEuro = account("NET-202", "EUR", "100.00", AccountStatus.ACTIVE);
+        Long dollar = account("NET-203", "USD", "100.00", AccountStatus.ACTIVE);
+
+        assertThatThrownBy(() -> nettingService.submit(List.of(
+                instruction(euro, otherEuro, new BigDecimal("10.00")),
+                instruction(euro, dollar, new BigDecimal("10.00")))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Instruction 1: " + NettingService.CURRENCY_MISMATCH);
+        assertThatThrownBy(() -> nettingService.submit(List.of(
+                instruction(euro, -1L, new BigDecimal("10.00")))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Instruction 0: " + NettingService.ACCOUNT_NOT_FOUND);
+        assertThat(nettingInstructionRepository.count()).isZero();
+        assertThat(nettingService.runCycle()).isEmpty();
+        assertThat(nettingCycleRepository.count()).isZero();
+    }
+
+    private Long account(String accountNumber, String currency, String balance, AccountStatus status) {
+        Long id = treasuryRepository.save(TestsUtil.account(accountNumber, balance)
+                .currency(currency)
+                .status(status)
+                .build()).getId();
+        ledgerService.recordOpeningBalance(id, new BigDecimal(balance));
+        return id;
+    }
+
+    private NettingInstructionDto instruction(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        return NettingInstructionDto.builder()
+                .fromAccountId(fromAccountId)
+                .toAccountId(toAccountId)
+                .amount(amount)
+                .build();
+    }
+}
@@ -0,0 +1,225 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.Role;
+import com.treasury.kpstreasury.events.UserEvent;
+import com.treasury.kpstreasury.models.entity.OutboxEventEntity;
+import com.treasury.kpstreasury.repositories.OutboxEventRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import({EventPublisher.class, OutboxRelay.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTests {
+
+    @MockBean
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private EventPublisher eventPublisher;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxEventRepository.deleteAll();
+    }
+
+    @Test
+    void publishUserCreated_ShouldOnlyStoreEvent_WhenTransactionCommits() {
+        transaction.executeWithoutResult(status ->
+                eventPublisher.publishUserCreated(1L, "committed", "committed@example.com", Role.ADMIN, "system"));
+        transaction.executeWithoutResult(status -> {
+            eventPublisher.publishUserCreated(2L, "rolledback", "rolledback@example.com", Role.ADMIN, "system");
+            status.setRollbackOnly();
+        });
+
+        List<OutboxEventEntity> events = outboxEventRepository.findAll();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getTopic()).isEqualTo("user-events");
+        assertThat(events.get(0).getEventKey()).isEqualTo("1");
+        assertThat(events.get(0).getEventType()).isEqualTo("USER_EVENT");
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    @Test
+    void relay_ShouldPublishEventsAndMarkThemSent() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        eventPublisher.publishUserCreated(1L, "relayed", "relayed@example.com", Role.ADMIN, "system");
+
+        outboxRelay.relay();
+
+        verify(kafkaTemplate).send(eq("user-events"), eq("1"), any(UserEvent.class));
+        assertThat(outboxEventRepository.countBySentAtIsNull()).isZero();
+        assertThat(outboxEventRepository.findAll()).allSatisfy(event -> assertThat(event.getSentAt()).isNotNull());
+    }
+
+    @Test
+    void relay_ShouldKeepEventUnsent_WhenKafkaFails() {
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        eventPublisher.publishUserLogin(1L, "unlucky");
+
+        outboxRelay.relay();
+
+        OutboxEventEntity event = outboxEventRepository.findAll().get(0);
+        assertThat(event.getSentAt()).isNull();
+        assertThat(event.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void relay_ShouldHoldBackLaterEventsOfAKey_WhenAnEarlierOneFails() {
+        List<String> sent = new ArrayList<>();
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            UserEvent event = invocation.getArgument(2);
+            if ("failing".equals(event.getUsername())) {
+                return CompletableFuture.failedFuture(new IllegalStateException("record too large"));
+            }
+            sent.add(event.getUsername());
+            return CompletableFuture.completedFuture(null);
+        });
+        transaction.executeWithoutResult(status -> {
+            eventPublisher.publishUserLogin(1L, "failing");
+            eventPublisher.publishUserLogin(1L, "held back");
+            eventPublisher.publishUserLogin(2L, "other key");
+        });
+
+        outboxRelay.relay();
+
+        assertThat(sent).containsExactly("other key");
+        List<OutboxEventEntity> events = outboxEventRepository.findAll(Sort.by("id"));
+        assertThat(events).extracting(OutboxEventEntity::getAttempts).containsExactly(1, 0, 0);
+        assertThat(events).extracting(event -> event.getSentAt() != null).containsExactly(false, false, true);
+    }
+
+    @Test
+    void relay_ShouldHoldBackLaterEventsOfAKey_WhileAnotherRelayHoldsAnEarlierOne() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            UserEvent event = invocation.getArgument(2);
+            sent.add(event.getUsername());
+            return CompletableFuture.completedFuture(null);
+        });
+        transaction.executeWithoutResult(status -> {
+            eventPublisher.publishUserLogin(1L, "first");
+            eventPublisher.publishUserLogin(1L, "second");
+            eventPublisher.publishUserLogin(2L, "other key");
+        });
+
+        // another instance has claimed the first event and not yet published it; H2 would lock every
+        // row a LIMIT 1 claim scans, so the row is locked by id
+        Long first = outboxEventRepository.findAll(Sort.by("id")).get(0).getId();
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        CompletableFuture<Void> otherRelay = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            entityManager.find(OutboxEventEntity.class, first, LockModeType.PESSIMISTIC_WRITE);
+            claimed.countDown();
+            await(released);
+        }));
+        assertThat(claimed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        outboxRelay.relay();
+        assertThat(sent).containsExactly("other key");
+
+        released.countDown();
+        otherRelay.get(10, TimeUnit.SECONDS);
+        outboxRelay.relay();
+        assertThat(sent).containsExactly("other key", "first", "second");
+        assertThat(outboxEventRepository.countBySentAtIsNull()).isZero();
+    }
+
+    @Test
+    void parallelRelays_ShouldPublishEveryEventExactlyOnce() throws Exception {
+        int events = 1_200;
+        Map<String, AtomicInteger> sends = new ConcurrentHashMap<>();
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            UserEvent event = invocation.getArgument(2);
+            sends.computeIfAbsent(event.getEventId(), id -> new AtomicInteger()).incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+        transaction.executeWithoutResult(status -> {
+            for (long i = 0; i < events; i++) {
+                eventPublisher.publishUserLogin(i, "user" + i);
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> relays = List.of(
+                executor.submit(outboxRelay::relay), executor.submit(outboxRelay::relay),
+                executor.submit(outboxRelay::relay), executor.submit(outboxRelay::relay));
+        for (Future<?> relay : relays) {
+            relay.get();
+        }
+        executor.shutdown();
+        // a relay stops when its claim comes back empty, rows held by the others included
+        while (outboxEventRepository.countBySentAtIsNull() > 0) {
+            outboxRelay.relay();
+        }
+
+        assertThat(sends).hasSize(events);
+        assertThat(sends.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(1));
+        assertThat(outboxEventRepository.countBySentAtIsNull()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({ShardedTransferPipeline.class, TransferEngine.class, BalanceSlotService.class,
+        LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class})
+@TestPropertySource(properties = {
+        "treasury.transfer.mode=sharded",
+        "treasury.transfer.sharded.shards=4",
+        "treasury.transfer.sharded.max-group-size=64"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardedTransferPipelineTests {
+
+    private static final int ACCOUNTS = 50;
+    private static final int TRANSFERS = 2_000;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ShardedTransferPipeline pipeline;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void parallelTransfers_ShouldConserveTotalBalance_AcrossShards() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            TreasuryEntity account = treasuryRepository.save(TestsUtil.account("SHARD-" + i, "1000.00").build());
+            ledgerService.recordOpeningBalance(account.getId(), account.getBalance());
+            ids.add(account.getId());
+        }
+        BigDecimal expectedTotal = sumBalances();
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(ACCOUNTS);
+                int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 50_000), 2);
+                try {
+                    assertThat(pipeline.tryTransfer(ids.get(from), ids.get(to), amount)).isTrue();
+                    completed.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(completed.get() + rejected.get()).isEqualTo(TRANSFERS);
+        assertThat(completed.get()).isPositive();
+        assertThat(sumBalances()).isEqualByComparingTo(expectedTotal);
+        assertThat(ledgerService.verifyAll().getMismatchCount()).isZero();
+        assertThat(treasuryRepository.findAll())
+                .allSatisfy(account -> assertThat(account.getBalance()).isGreaterThanOrEqualTo(BigDecimal.ZERO));
+    }
+
+    @Test
+    void tryTransfer_ShouldReject_WhenInsufficientOrInactive() {
+        Long sourceId = treasuryRepository.save(TestsUtil.account("SHARD-SRC", "100.00").build()).getId();
+        Long inactiveId = treasuryRepository.save(TestsUtil.account("SHARD-OFF", "0.00")
+                .status(AccountStatus.SUSPENDED).build()).getId();
+        Long destinationId = treasuryRepository.save(TestsUtil.account("SHARD-DST", "0.00").build()).getId();
+
+        assertThatThrownBy(() -> pipeline.tryTransfer(sourceId, destinationId, new BigDecimal("150.00")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient available balance for transfer");
+        assertThatThrownBy(() -> pipeline.tryTransfer(sourceId, inactiveId, new BigDecimal("50.00")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Both accounts must be active for transfer");
+        assertThatThrownBy(() -> pipeline.tryTransfer(sourceId, Long.MAX_VALUE, new BigDecimal("50.00")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Destination account not found");
+
+        // the rejected reservations were released, so the full balance is still available
+        assertThat(pipeline.tryTransfer(sourceId, destinationId, new BigDecimal("100.00"))).isTrue();
+        assertThat(treasuryRepository.findById(destinationId).orElseThrow().getBalance())
+                .isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void tryTransfer_ShouldSeeBalanceChangesMadeOutsideThePipeline() {
+        Long sourceId = treasuryRepository.save(TestsUtil.account("SHARD-EXT", "100.00").build()).getId();
+        Long destinationId = treasuryRepository.save(TestsUtil.account("SHARD-EXT-DST", "0.00").build()).getId();
+
+        pipeline.tryTransfer(sourceId, destinationId, new BigDecimal("50.00"));
+        TreasuryEntity topUp = treasuryRepository.findById(sourceId).orElseThrow();
+        topUp.setBalance(topUp.getBalance().add(new BigDecimal("500.00")));
+        topUp.setAvailableBalance(topUp.getAvailableBalance().add(new BigDecimal("500.00")));
+        treasuryRepository.save(topUp);
+
+        assertThat(pipeline.tryTransfer(sourceId, destinationId, new BigDecimal("400.00"))).isTrue();
+
+        assertThat(treasuryRepository.findById(sourceId).orElseThrow().getBalance()).isEqualByComparingTo("150.00");
+    }
+
+    @Test
+    void tryTransfer_ShouldDecline_InsideACallersTransaction() {
+        Long sourceId = treasuryRepository.save(TestsUtil.account("SHARD-TX", "100.00").build()).getId();
+        Long destinationId = treasuryRepository.save(TestsUtil.account("SHARD-TX-DST", "0.00").build()).getId();
+
+        Boolean accepted = new TransactionTemplate(transactionManager)
+                .execute(status -> pipeline.tryTransfer(sourceId, destinationId, new BigDecimal("10.00")));
+
+        assertThat(accepted).isFalse();
+        assertThat(treasuryRepository.findById(sourceId).orElseThrow().getBalance()).isEqualByComparingTo("100.00");
+    }
+
+    private BigDecimal sumBalances() {
+        return treasuryRepository.findAll().stream()
+                .map(TreasuryEntity::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,134 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.TransferStatus;
+import com.treasury.kpstreasury.models.dto.TransferLegResultDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({TransferEngine.class, BalanceSlotService.class, LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferEngineConcurrencyTests {
+
+    private static final int ACCOUNTS = 200;
+    private static final int TRANSFERS = 10_000;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @AfterEach
+    void tearDown() {
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void parallelTransfers_ShouldConserveTotalBalance() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            TreasuryEntity account = treasuryRepository.save(TestsUtil.account("STRESS-" + i, "1000.00").build());
+            ledgerService.recordOpeningBalance(account.getId(), account.getBalance());
+            ids.add(account.getId());
+        }
+        BigDecimal expectedTotal = sumBalances();
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Long from = ids.get(random.nextInt(ACCOUNTS));
+                Long to = ids.get(random.nextInt(ACCOUNTS));
+                if (from.equals(to)) {
+                    to = ids.get((ids.indexOf(from) + 1) % ACCOUNTS);
+                }
+                BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+                try {
+                    transferEngine.transfer(from, to, amount);
+                    completed.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(completed.get() + rejected.get()).isEqualTo(TRANSFERS);
+        assertThat(completed.get()).isPositive();
+        assertThat(sumBalances()).isEqualByComparingTo(expectedTotal);
+        assertThat(ledgerService.verifyAll().getMismatchCount()).isZero();
+        assertThat(treasuryRepository.findAll())
+                .allSatisfy(account -> {
+                    assertThat(account.getBalance()).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+                    assertThat(account.getAvailableBalance()).isEqualByComparingTo(account.getBalance());
+                });
+    }
+
+    @Test
+    void batchTransfer_ShouldPostFiveThousandLegsInOneTransaction() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids.add(treasuryRepository.save(TestsUtil.account("BATCH-" + i, "1000.00").build()).getId());
+        }
+        BigDecimal expectedTotal = sumBalances();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<TransferRequestDto> legs = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            int from = random.nextInt(ACCOUNTS);
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            legs.add(new TransferRequestDto(ids.get(from), ids.get(to), BigDecimal.valueOf(random.nextInt(1, 5000), 2)));
+        }
+
+        List<TransferLegResultDto> results = transferEngine.transferBatch(legs);
+
+        assertThat(results).hasSize(5_000);
+        assertThat(results).anyMatch(leg -> leg.getStatus() == TransferStatus.POSTED);
+        assertThat(sumBalances()).isEqualByComparingTo(expectedTotal);
+    }
+
+    private BigDecimal sumBalances() {
+        return treasuryRepository.findAll().stream()
+                .map(TreasuryEntity::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
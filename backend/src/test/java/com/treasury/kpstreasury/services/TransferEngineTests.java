@@ -0,0 +1,216 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.TransferStatus;
+import com.treasury.kpstreasury.models.dto.TransferLegResultDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferEngineTests {
+
+    @Mock
+    private TreasuryRepository treasuryRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private BalanceSlotService balanceSlotService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransferEngine transferEngine;
+
+    @BeforeEach
+    void setUp() {
+        transferEngine = new TransferEngine(treasuryRepository, ledgerService, balanceSlotService, transactionManager, 16, 3);
+    }
+
+    @Test
+    void transfer_ShouldApplyTwoConditionalUpdates_WithoutReadingTheAccounts() {
+        BigDecimal amount = new BigDecimal("2000.00");
+
+        when(treasuryRepository.debitIfAvailable(1L, amount)).thenReturn(1);
+        when(treasuryRepository.creditIfActive(2L, amount)).thenReturn(1);
+        when(ledgerService.recordTransfer(1L, 2L, amount)).thenReturn("journal-1");
+
+        String journalId = transferEngine.transfer(1L, 2L, amount);
+
+        assertEquals("journal-1", journalId);
+        verify(treasuryRepository, never()).findById(any());
+        verify(treasuryRepository, never()).save(any());
+        verify(ledgerService).recordTransfer(1L, 2L, amount);
+    }
+
+    @Test
+    void transfer_ShouldTouchRowsInAscendingIdOrder() {
+        BigDecimal amount = new BigDecimal("100.00");
+        when(treasuryRepository.creditIfActive(1L, amount)).thenReturn(1);
+        when(treasuryRepository.debitIfAvailable(2L, amount)).thenReturn(1);
+
+        transferEngine.transfer(2L, 1L, amount);
+
+        InOrder inOrder = inOrder(treasuryRepository);
+        inOrder.verify(treasuryRepository).creditIfActive(1L, amount);
+        inOrder.verify(treasuryRepository).debitIfAvailable(2L, amount);
+    }
+
+    @Test
+    void transfer_ShouldThrowException_WhenInsufficientFunds() {
+        BigDecimal amount = new BigDecimal("2000.00");
+        when(treasuryRepository.debitIfAvailable(1L, amount)).thenReturn(0);
+        when(treasuryRepository.findById(1L))
+                .thenReturn(Optional.of(TestsUtil.account("ACC-1", "1000.00").id(1L).build()));
+        when(treasuryRepository.findById(2L))
+                .thenReturn(Optional.of(TestsUtil.account("ACC-2", "0.00").id(2L).build()));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transferEngine.transfer(1L, 2L, amount));
+
+        assertEquals("Insufficient available balance for transfer", exception.getMessage());
+        verify(treasuryRepository, never()).creditIfActive(any(), any());
+        verify(ledgerService, never()).recordTransfer(any(), any(), any());
+    }
+
+    @Test
+    void transfer_ShouldThrowException_WhenDestinationInactive() {
+        BigDecimal amount = new BigDecimal("100.00");
+        TreasuryEntity toAccount = TestsUtil.account("ACC-2", "0.00").id(2L).build();
+        toAccount.setStatus(AccountStatus.SUSPENDED);
+        when(treasuryRepository.debitIfAvailable(1L, amount)).thenReturn(1);
+        when(treasuryRepository.creditIfActive(2L, amount)).thenReturn(0);
+        when(treasuryRepository.findById(1L))
+                .thenReturn(Optional.of(TestsUtil.account("ACC-1", "1000.00").id(1L).build()));
+        when(treasuryRepository.findById(2L)).thenReturn(Optional.of(toAccount));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transferEngine.transfer(1L, 2L, amount));
+
+        assertEquals("Both accounts must be active for transfer", exception.getMessage());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void transfer_ShouldThrowException_WhenSourceNotFound() {
+        BigDecimal amount = new BigDecimal("100.00");
+        when(treasuryRepository.debitIfAvailable(1L, amount)).thenReturn(0);
+        when(treasuryRepository.findById(1L)).thenReturn(Optional.empty());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transferEngine.transfer(1L, 2L, amount));
+
+        assertTrue(exception.getMessage().contains("Source account not found"));
+    }
+
+    @Test
+    void transfer_ShouldThrowException_WhenNegativeAmount() {
+        assertThrows(IllegalArgumentException.class,
+                () -> transferEngine.transfer(1L, 2L, new BigDecimal("-100.00")));
+
+        verifyNoInteractions(treasuryRepository);
+    }
+
+    @Test
+    void transfer_ShouldThrowException_WhenAmountHasMoreThanTwoDecimals() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transferEngine.transfer(1L, 2L, new BigDecimal("100.005")));
+
+        assertEquals("Transfer amount must have at most 2 decimals", exception.getMessage());
+        verifyNoInteractions(treasuryRepository, ledgerService);
+    }
+
+    @Test
+    void transfer_ShouldThrowException_WhenSameAccount() {
+        assertThrows(IllegalArgumentException.class,
+                () -> transferEngine.transfer(1L, 1L, new BigDecimal("100.00")));
+
+        verifyNoInteractions(treasuryRepository);
+    }
+
+    @Test
+    void transferBatch_ShouldRetry_WhenOptimisticLockFails() {
+        when(treasuryRepository.findAllById(any()))
+                .thenAnswer(invocation -> List.of(TestsUtil.account("ACC-1", "1000.00").id(1L).build(),
+                        TestsUtil.account("ACC-2", "0.00").id(2L).build()));
+        when(treasuryRepository.saveAll(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(TreasuryEntity.class, 1L))
+                .thenReturn(List.of());
+
+        List<TransferLegResultDto> results = transferEngine.transferBatch(
+                List.of(new TransferRequestDto(1L, 2L, new BigDecimal("100.00"))));
+
+        assertEquals(TransferStatus.POSTED, results.get(0).getStatus());
+        verify(treasuryRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void transferBatch_ShouldGiveUp_AfterMaxAttempts() {
+        when(treasuryRepository.findAllById(any()))
+                .thenAnswer(invocation -> List.of(TestsUtil.account("ACC-1", "1000.00").id(1L).build(),
+                        TestsUtil.account("ACC-2", "0.00").id(2L).build()));
+        when(treasuryRepository.saveAll(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(TreasuryEntity.class, 1L));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> transferEngine.transferBatch(List.of(new TransferRequestDto(1L, 2L, new BigDecimal("100.00")))));
+
+        verify(treasuryRepository, times(3)).findAllById(any());
+    }
+
+    @Test
+    void transferBatch_ShouldApplyLegsInOrder_AndRejectInvalidLegs() {
+        TreasuryEntity accountA = TestsUtil.account("ACC-1", "1000.00").id(1L).build();
+        TreasuryEntity accountB = TestsUtil.account("ACC-2", "0.00").id(2L).build();
+        TreasuryEntity accountC = TestsUtil.account("ACC-3", "500.00").id(3L).build();
+        accountC.setStatus(AccountStatus.SUSPENDED);
+
+        when(treasuryRepository.findAllById(any())).thenReturn(List.of(accountA, accountB, accountC));
+
+        List<TransferRequestDto> legs = List.of(
+                new TransferRequestDto(1L, 2L, new BigDecimal("600.00")),
+                new TransferRequestDto(1L, 2L, new BigDecimal("600.00")),
+                new TransferRequestDto(2L, 1L, new BigDecimal("100.00")),
+                new TransferRequestDto(3L, 1L, new BigDecimal("50.00")),
+                new TransferRequestDto(9L, 1L, new BigDecimal("50.00")));
+
+        List<TransferLegResultDto> results = transferEngine.transferBatch(legs);
+
+        assertEquals(5, results.size());
+        assertEquals(TransferStatus.POSTED, results.get(0).getStatus());
+        assertEquals(TransferStatus.REJECTED, results.get(1).getStatus());
+        assertEquals("Insufficient available balance for transfer", results.get(1).getMessage());
+        assertEquals(TransferStatus.POSTED, results.get(2).getStatus());
+        assertEquals(TransferStatus.REJECTED, results.get(3).getStatus());
+        assertEquals(TransferStatus.REJECTED, results.get(4).getStatus());
+        assertEquals(4, results.get(4).getIndex());
+
+        assertEquals(new BigDecimal("500.00"), accountA.getBalance());
+        assertEquals(new BigDecimal("500.00"), accountB.getBalance());
+        assertEquals(new BigDecimal("500.00"), accountC.getBalance());
+        verify(treasuryRepository, times(1)).findAllById(any());
+        verify(treasuryRepository, never()).findById(any());
+        verify(treasuryRepository).saveAll(any());
+        verify(ledgerService).recordTransfers(List.of(legs.get(0), legs.get(2)));
+        verify(ledgerService, never()).recordTransfer(any(), any(), any());
+    }
+}
@@ -0,0 +1,166 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.ContraAccount;
+import com.treasury.kpstreasury.enums.LedgerEntryType;
+import com.treasury.kpstreasury.models.dto.ImportLineErrorDto;
+import com.treasury.kpstreasury.models.dto.ImportReportDto;
+import com.treasury.kpstreasury.models.entity.LedgerEntryEntity;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({TreasuryImportService.class, LedgerWatermarkService.class, AvailabilityFilterService.class})
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@TestPropertySource(properties = "treasury.import.chunk-size=3")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TreasuryImportServiceTests {
+
+    private static final String HEADER = "accountNumber,currency,balance,availableBalance,accountType,status,bankName,branchCode\n";
+
+    @Autowired
+    private TreasuryImportService treasuryImportService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @AfterEach
+    void tearDown() {
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void importAccounts_ShouldLoadValidLines_AndReportEveryRejectedOne() {
+        treasuryRepository.save(TestsUtil.account("IMP-000", "0.00").build());
+        String csv = HEADER
+                + "IMP-001,EUR,1000.00,800.00,CHECKING,ACTIVE,\"Alpha Bank, N.A.\",AB001\n"
+                + "IMP-002,USD,250.50,250.50,SAVINGS,INACTIVE,\"The \"\"Beta\"\" Bank\",BB001\n"
+                + "\n"
+                + "IMP-003,EUR,abc,0,CHECKING,ACTIVE,Alpha Bank,AB001\n"
+                + "IMP-004,EUR,10.00,20.00,CHECKING,ACTIVE,Alpha Bank,AB001\n"
+                + "IMP-005,EUR,10.00,10.00,WALLET,ACTIVE,Alpha Bank,AB001\n"
+                + "IMP-006,EUR,10.00\n"
+                + "IMP-001,EUR,5.00,5.00,CHECKING,ACTIVE,Alpha Bank,AB001\n"
+                + "IMP-000,EUR,5.00,5.00,CHECKING,ACTIVE,Alpha Bank,AB001\n"
+                + "IMP-007,EURO,-1.00,-1.00,CHECKING,ACTIVE,Alpha Bank,AB001\n"
+                + "IMP-008,GBP,0.00,0.00,CHECKING,ACTIVE,Gamma Bank,GB001\n";
+
+        ImportReportDto report = treasuryImportService.importAccounts(body(csv));
+
+        assertThat(report.getTotalRows()).isEqualTo(10);
+        assertThat(report.getImportedRows()).isEqualTo(3);
+        assertThat(report.getRejectedRows()).isEqualTo(7);
+        assertThat(report.getErrors()).extracting(ImportLineErrorDto::getLine)
+                .containsExactly(5, 6, 7, 8, 9, 10, 11);
+        assertThat(report.getErrors()).extracting(ImportLineErrorDto::getMessage).containsExactly(
+                "Invalid balance: abc",
+                "Available balance cannot be grater than total balance",
+                "Invalid account type: WALLET",
+                "Expected 8 fields but found 3",
+                "Account number appears more than once in the import",
+                "Account number already exists",
+                "Available balance must be greater or equal to 0; Balance must be greater orequal to 0; "
+                        + "Currency must be composed of 3 charcters only (ISO 4217)");
+
+        TreasuryEntity alpha = treasuryRepository.findByAccountNumber("IMP-001").orElseThrow();
+        assertThat(alpha.getBankName()).isEqualTo("Alpha Bank, N.A.");
+        assertThat(alpha.getAvailableBalance()).isEqualByComparingTo("800.00");
+        assertThat(alpha.getVersion()).isZero();
+        assertThat(alpha.getCreatedAt()).isNotNull();
+        TreasuryEntity beta = treasuryRepository.findByAccountNumber("IMP-002").orElseThrow();
+        assertThat(beta.getBankName()).isEqualTo("The \"Beta\" Bank");
+        assertThat(beta.getStatus()).isEqualTo(AccountStatus.INACTIVE);
+
+        // opening balances are journaled against opening equity, except for the zero one and the pre-existing account
+        long equity = ContraAccount.OPENING_EQUITY.getAccountId();
+        List<LedgerEntryEntity> entries = ledgerEntryRepository.findAll();
+        assertThat(entries).extracting(LedgerEntryEntity::getAccountId)
+                .containsExactlyInAnyOrder(alpha.getId(), beta.getId(), equity, equity);
+        assertThat(entries).allSatisfy(entry -> {
+            assertThat(entry.getEntryType())
+                    .isEqualTo(entry.getAccountId() == equity ? LedgerEntryType.DEBIT : LedgerEntryType.CREDIT);
+            assertThat(entry.getDescription()).isEqualTo("Opening balance");
+        });
+        assertThat(entries).filteredOn(entry -> entry.getJournalId().equals("opening-" + beta.getId()))
+                .hasSize(2)
+                .allSatisfy(entry -> assertThat(entry.getAmount()).isEqualByComparingTo("250.50"));
+    }
+
+    @Test
+    void importAccounts_ShouldStreamManyChunks_WithDefaultsForOptionalColumns() {
+        StringBuilder csv = new StringBuilder("branchCode,bankName,accountType,balance,currency,accountNumber\n");
+        for (int i = 0; i < 500; i++) {
+            csv.append("BR").append(i % 7).append(",Bulk Bank,CHECKING,").append(i).append(".25,EUR,BULK-").append(i).append('\n');
+        }
+
+        ImportReportDto report = treasuryImportService.importAccounts(body(csv.toString()));
+
+        assertThat(report.getImportedRows()).isEqualTo(500);
+        assertThat(report.getErrors()).isEmpty();
+        assertThat(treasuryRepository.getTotalBalanceByCurrencyAndStatus("EUR", AccountStatus.ACTIVE))
+                .isEqualByComparingTo(new BigDecimal(500 * 499 / 2).add(new BigDecimal("125.00")));
+        assertThat(treasuryRepository.findByAccountNumber("BULK-42").orElseThrow().getAvailableBalance())
+                .isEqualByComparingTo("42.25");
+        assertThat(ledgerEntryRepository.count()).isEqualTo(1000);
+    }
+
+    @Test
+    void importAccounts_ShouldReadQuotedLineBreaks_AndNumberErrorsByTheFirstLineOfTheRow() {
+        String csv = HEADER
+                + "IMP-101,EUR,10.00,10.00,CHECKING,ACTIVE,\"Delta Bank\nHead Office\",DB001\n"
+                + "IMP-102,EUR,abc,0,CHECKING,ACTIVE,Delta Bank,DB001\n"
+                + "IMP-103,EUR,10.00,10.00,CHECKING,ACTIVE,\"Delta Bank\n";
+
+        ImportReportDto report = treasuryImportService.importAccounts(body(csv));
+
+        assertThat(report.getTotalRows()).isEqualTo(3);
+        assertThat(report.getImportedRows()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting(ImportLineErrorDto::getLine).containsExactly(4, 5);
+        assertThat(report.getErrors()).extracting(ImportLineErrorDto::getMessage)
+                .containsExactly("Invalid balance: abc", "Unterminated quoted field");
+        assertThat(treasuryRepository.findByAccountNumber("IMP-101").orElseThrow().getBankName())
+                .isEqualTo("Delta Bank\nHead Office");
+    }
+
+    @Test
+    void importAccounts_ShouldRejectTheWholeBody_WhenTheHeaderIsInvalid() {
+        assertThatThrownBy(() -> treasuryImportService.importAccounts(body("accountNumber,currency,balance\nX,EUR,1\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Missing column: accountType");
+        assertThatThrownBy(() -> treasuryImportService.importAccounts(body(HEADER.replace("status", "colour"))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown column: colour");
+        assertThatThrownBy(() -> treasuryImportService.importAccounts(body("")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(treasuryRepository.count()).isZero();
+    }
+
+    private InputStream body(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
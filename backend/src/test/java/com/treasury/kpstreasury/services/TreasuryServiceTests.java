@@ -2,27 +2,42 @@ package com.treasury.kpstreasury.services;
 
 import com.treasury.kpstreasury.enums.AccountStatus;
 import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.enums.TransferStatus;
+import com.treasury.kpstreasury.events.TreasuryAccountsStatusChangedEvent;
+import com.treasury.kpstreasury.models.dto.BatchTransferResultDto;
 import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.dto.TreasuryStatusChangeDto;
 import com.treasury.kpstreasury.models.dto.TreasurySummaryDto;
+import com.treasury.kpstreasury.models.dto.TransferLegResultDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
 import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.BalanceHoldRepository;
 import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.ProjectionQueries;
+import com.treasury.kpstreasury.utils.TestsUtil;
 import com.treasury.kpstreasury.utils.TreasuryMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -37,6 +52,33 @@ class TreasuryServiceTests {
     @Mock
     private TreasuryMapper treasuryMapper;
 
+    @Mock
+    private TransferEngine transferEngine;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private ObjectProvider<ShardedTransferPipeline> transferPipeline;
+
+    @Mock
+    private BalanceHoldRepository balanceHoldRepository;
+
+    @Mock
+    private BalanceSlotService balanceSlotService;
+
+    @Mock
+    private TreasurySummaryService treasurySummaryService;
+
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Mock
+    private AvailabilityFilterService availabilityFilterService;
+
+    @Mock
+    private ProjectionQueries projectionQueries;
+
     @InjectMocks
     private TreasuryService treasuryService;
 
@@ -45,16 +87,13 @@ class TreasuryServiceTests {
 
     @BeforeEach
     void setUp() {
-        treasuryEntity = TreasuryEntity.builder()
+        // a filter that has not loaded yet: every check goes to the repository
+        lenient().when(availabilityFilterService.exists(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Predicate<String>>getArgument(2).test(invocation.getArgument(1)));
+
+        treasuryEntity = TestsUtil.account("ACC001", "10000.00")
                 .id(1L)
-                .accountNumber("ACC001")
-                .currency("EUR")
-                .balance(new BigDecimal("10000.00"))
                 .availableBalance(new BigDecimal("8000.00"))
-                .accountType(AccountType.CHECKING)
-                .status(AccountStatus.ACTIVE)
-                .bankName("Test Bank")
-                .branchCode("0001")
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
@@ -68,7 +107,7 @@ class TreasuryServiceTests {
                 .accountType(AccountType.CHECKING)
                 .status(AccountStatus.ACTIVE)
                 .bankName("Test Bank")
-                .branchCode("0001")
+                .branchCode("TB001")
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
@@ -101,117 +140,111 @@ class TreasuryServiceTests {
 
     @Test
     void getTreasuryById_ShouldReturnTreasury_WhenAccountExists() {
-        when(treasuryRepository.findById(1L)).thenReturn(Optional.of(treasuryEntity));
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        when(treasuryRepository.findDtoById(1L)).thenReturn(Optional.of(treasuryDto));
 
         Optional<TreasuryDto> result = treasuryService.getTreasuryById(1L);
 
         assertTrue(result.isPresent());
         assertEquals("ACC001", result.get().getAccountNumber());
-        verify(treasuryRepository).findById(1L);
+        verify(treasuryRepository).findDtoById(1L);
     }
 
     @Test
     void getTreasuryById_ShouldReturnEmpty_WhenAccountNotFound() {
-        when(treasuryRepository.findById(1L)).thenReturn(Optional.empty());
+        when(treasuryRepository.findDtoById(1L)).thenReturn(Optional.empty());
 
         Optional<TreasuryDto> result = treasuryService.getTreasuryById(1L);
 
         assertFalse(result.isPresent());
-        verify(treasuryRepository).findById(1L);
+        verify(treasuryRepository).findDtoById(1L);
     }
 
     @Test
     void getTreasuryByAccountNumber_ShouldReturnTreasury_WhenAccountExists() {
-        when(treasuryRepository.findByAccountNumber("ACC001")).thenReturn(Optional.of(treasuryEntity));
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        when(treasuryRepository.findDtoByAccountNumber("ACC001")).thenReturn(Optional.of(treasuryDto));
 
         Optional<TreasuryDto> result = treasuryService.getTreasuryByAccountNumber("ACC001");
 
         assertTrue(result.isPresent());
         assertEquals("ACC001", result.get().getAccountNumber());
-        verify(treasuryRepository).findByAccountNumber("ACC001");
+        verify(treasuryRepository).findDtoByAccountNumber("ACC001");
     }
 
     @Test
     void getAllTreasuryAccounts_ShouldReturnAllAccounts() {
-        List<TreasuryEntity> treasuryEntities = Arrays.asList(treasuryEntity);
-        when(treasuryRepository.findAll()).thenReturn(treasuryEntities);
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        List<TreasuryDto> treasuryDtos = Arrays.asList(treasuryDto);
+        when(treasuryRepository.findAllDtos()).thenReturn(treasuryDtos);
 
         List<TreasuryDto> result = treasuryService.getAllTreasuryAccounts();
 
         assertEquals(1, result.size());
         assertEquals("ACC001", result.get(0).getAccountNumber());
-        verify(treasuryRepository).findAll();
+        verify(treasuryRepository).findAllDtos();
     }
 
     @Test
     void getTreasuryAccountsByStatus_ShouldReturnAccountsByStatus() {
-        List<TreasuryEntity> treasuryEntities = Arrays.asList(treasuryEntity);
-        when(treasuryRepository.findByStatus(AccountStatus.ACTIVE)).thenReturn(treasuryEntities);
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        List<TreasuryDto> treasuryDtos = Arrays.asList(treasuryDto);
+        when(treasuryRepository.findDtosByStatus(AccountStatus.ACTIVE)).thenReturn(treasuryDtos);
 
         List<TreasuryDto> result = treasuryService.getTreasuryAccountsByStatus(AccountStatus.ACTIVE);
 
         assertEquals(1, result.size());
         assertEquals(AccountStatus.ACTIVE, result.get(0).getStatus());
-        verify(treasuryRepository).findByStatus(AccountStatus.ACTIVE);
+        verify(treasuryRepository).findDtosByStatus(AccountStatus.ACTIVE);
     }
 
     @Test
     void getTreasuryAccountsByType_ShouldReturnAccountsByType() {
-        List<TreasuryEntity> treasuryEntities = Arrays.asList(treasuryEntity);
-        when(treasuryRepository.findByAccountType(AccountType.CHECKING)).thenReturn(treasuryEntities);
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        List<TreasuryDto> treasuryDtos = Arrays.asList(treasuryDto);
+        when(treasuryRepository.findDtosByAccountType(AccountType.CHECKING)).thenReturn(treasuryDtos);
 
         List<TreasuryDto> result = treasuryService.getTreasuryAccountsByType(AccountType.CHECKING);
 
         assertEquals(1, result.size());
         assertEquals(AccountType.CHECKING, result.get(0).getAccountType());
-        verify(treasuryRepository).findByAccountType(AccountType.CHECKING);
+        verify(treasuryRepository).findDtosByAccountType(AccountType.CHECKING);
     }
 
     @Test
     void getTreasuryAccountsByCurrency_ShouldReturnAccountsByCurrency() {
-        List<TreasuryEntity> treasuryEntities = Arrays.asList(treasuryEntity);
-        when(treasuryRepository.findByCurrency("EUR")).thenReturn(treasuryEntities);
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        List<TreasuryDto> treasuryDtos = Arrays.asList(treasuryDto);
+        when(treasuryRepository.findDtosByCurrency("EUR")).thenReturn(treasuryDtos);
 
         List<TreasuryDto> result = treasuryService.getTreasuryAccountsByCurrency("EUR");
 
         assertEquals(1, result.size());
         assertEquals("EUR", result.get(0).getCurrency());
-        verify(treasuryRepository).findByCurrency("EUR");
+        verify(treasuryRepository).findDtosByCurrency("EUR");
     }
 
     @Test
     void getTreasuryAccountsByBank_ShouldReturnAccountsByBank() {
-        List<TreasuryEntity> treasuryEntities = Arrays.asList(treasuryEntity);
-        when(treasuryRepository.findByBankName("Test Bank")).thenReturn(treasuryEntities);
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        List<TreasuryDto> treasuryDtos = Arrays.asList(treasuryDto);
+        when(treasuryRepository.findDtosByBankName("Test Bank")).thenReturn(treasuryDtos);
 
         List<TreasuryDto> result = treasuryService.getTreasuryAccountsByBank("Test Bank");
 
         assertEquals(1, result.size());
         assertEquals("Test Bank", result.get(0).getBankName());
-        verify(treasuryRepository).findByBankName("Test Bank");
+        verify(treasuryRepository).findDtosByBankName("Test Bank");
     }
 
     @Test
     void getTreasuryAccountsWithFilters_ShouldReturnPagedResults() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<TreasuryEntity> treasuryEntityPage = new PageImpl<>(Arrays.asList(treasuryEntity));
-        when(treasuryRepository.findWithFilters("EUR", "Test Bank", AccountStatus.ACTIVE, pageable))
-                .thenReturn(treasuryEntityPage);
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        Page<TreasuryDto> treasuryDtoPage = new PageImpl<>(Arrays.asList(treasuryDto));
+        when(projectionQueries.page(eq(TreasuryRepository.PROJECTION),
+                ArgumentMatchers.<Specification<TreasuryEntity>>any(), eq(pageable)))
+                .thenReturn(treasuryDtoPage);
 
         Page<TreasuryDto> result = treasuryService.getTreasuryAccountsWithFilters(
                 "EUR", "Test Bank", AccountStatus.ACTIVE, pageable);
 
         assertEquals(1, result.getContent().size());
         assertEquals("EUR", result.getContent().get(0).getCurrency());
-        verify(treasuryRepository).findWithFilters("EUR", "Test Bank", AccountStatus.ACTIVE, pageable);
+        verify(projectionQueries).page(eq(TreasuryRepository.PROJECTION),
+                ArgumentMatchers.<Specification<TreasuryEntity>>notNull(), eq(pageable));
     }
 
     @Test
@@ -293,31 +326,108 @@ class TreasuryServiceTests {
         assertEquals(newBalance, treasuryEntity.getAvailableBalance());
     }
 
+    @Test
+    void updateBalance_ShouldDeriveAvailableBalance_WhenHoldsAreActive() {
+        treasuryEntity.setId(1L);
+        when(treasuryRepository.findById(1L)).thenReturn(Optional.of(treasuryEntity));
+        when(balanceHoldRepository.findActiveHoldTotal(1L)).thenReturn(Optional.of(new BigDecimal("3000.00")));
+        when(treasuryRepository.save(treasuryEntity)).thenReturn(treasuryEntity);
+        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+
+        treasuryService.updateBalance(1L, new BigDecimal("12000.00"));
+
+        assertEquals(new BigDecimal("9000.00"), treasuryEntity.getAvailableBalance());
+    }
+
+    @Test
+    void updateBalance_ShouldThrowException_WhenBelowTheAmountOnHold() {
+        treasuryEntity.setId(1L);
+        when(treasuryRepository.findById(1L)).thenReturn(Optional.of(treasuryEntity));
+        when(balanceHoldRepository.findActiveHoldTotal(1L)).thenReturn(Optional.of(new BigDecimal("3000.00")));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> treasuryService.updateBalance(1L, new BigDecimal("2000.00")));
+
+        verify(treasuryRepository, never()).save(any());
+    }
+
+    @Test
+    void updateTreasuryAccount_ShouldIgnoreTheSentAvailableBalance_WhenHoldsAreActive() {
+        treasuryEntity.setId(1L);
+        TreasuryDto updateDto = TreasuryDto.builder()
+                .balance(new BigDecimal("15000.00"))
+                .availableBalance(new BigDecimal("15000.00"))
+                .status(AccountStatus.ACTIVE)
+                .bankName("Updated Bank")
+                .branchCode("0002")
+                .build();
+        when(treasuryRepository.findById(1L)).thenReturn(Optional.of(treasuryEntity));
+        when(treasuryMapper.updateEntity(treasuryEntity, updateDto)).thenAnswer(invocation -> {
+            treasuryEntity.setBalance(updateDto.getBalance());
+            treasuryEntity.setAvailableBalance(updateDto.getAvailableBalance());
+            return treasuryEntity;
+        });
+        when(balanceHoldRepository.findActiveHoldTotal(1L)).thenReturn(Optional.of(new BigDecimal("500.00")));
+        when(treasuryRepository.save(treasuryEntity)).thenReturn(treasuryEntity);
+        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+
+        treasuryService.updateTreasuryAccount(1L, updateDto);
+
+        assertEquals(new BigDecimal("14500.00"), treasuryEntity.getAvailableBalance());
+    }
+
+    @Test
+    void updateAvailableBalance_ShouldThrowException_WhenHoldsAreActive() {
+        BigDecimal newAvailableBalance = new BigDecimal("7000.00");
+        when(treasuryRepository.setAvailableBalanceIfWithinBalance(1L, newAvailableBalance)).thenReturn(1);
+        when(balanceHoldRepository.findActiveHoldTotal(1L)).thenReturn(Optional.of(new BigDecimal("500.00")));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> treasuryService.updateAvailableBalance(1L, newAvailableBalance));
+
+        assertTrue(exception.getMessage().contains("active holds"));
+        verify(applicationEventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     void updateAvailableBalance_ShouldUpdateAvailableBalance_WhenValid() {
         BigDecimal newAvailableBalance = new BigDecimal("7000.00");
+        when(treasuryRepository.setAvailableBalanceIfWithinBalance(1L, newAvailableBalance)).thenReturn(1);
         when(treasuryRepository.findById(1L)).thenReturn(Optional.of(treasuryEntity));
-        when(treasuryRepository.save(treasuryEntity)).thenReturn(treasuryEntity);
         when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
 
         TreasuryDto result = treasuryService.updateAvailableBalance(1L, newAvailableBalance);
 
         assertNotNull(result);
-        verify(treasuryRepository).save(treasuryEntity);
-        assertEquals(newAvailableBalance, treasuryEntity.getAvailableBalance());
+        verify(treasuryRepository).setAvailableBalanceIfWithinBalance(1L, newAvailableBalance);
+        verify(treasuryRepository, never()).save(any());
     }
 
     @Test
     void updateAvailableBalance_ShouldThrowException_WhenGreaterThanBalance() {
         BigDecimal newAvailableBalance = new BigDecimal("15000.00");
-        when(treasuryRepository.findById(1L)).thenReturn(Optional.of(treasuryEntity));
+        when(treasuryRepository.setAvailableBalanceIfWithinBalance(1L, newAvailableBalance)).thenReturn(0);
+        when(treasuryRepository.existsById(1L)).thenReturn(true);
 
-        assertThrows(IllegalArgumentException.class,
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
                 () -> treasuryService.updateAvailableBalance(1L, newAvailableBalance));
 
+        assertTrue(exception.getMessage().contains("cannot be greater than total balance"));
         verify(treasuryRepository, never()).save(any());
     }
 
+    @Test
+    void updateAvailableBalance_ShouldThrowException_WhenAccountNotFound() {
+        BigDecimal newAvailableBalance = new BigDecimal("100.00");
+        when(treasuryRepository.setAvailableBalanceIfWithinBalance(1L, newAvailableBalance)).thenReturn(0);
+        when(treasuryRepository.existsById(1L)).thenReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> treasuryService.updateAvailableBalance(1L, newAvailableBalance));
+
+        assertTrue(exception.getMessage().contains("not found"));
+    }
+
     @Test
     void activateAccount_ShouldActivateAccount() {
         when(treasuryRepository.findById(1L)).thenReturn(Optional.of(treasuryEntity));
@@ -352,63 +462,99 @@ class TreasuryServiceTests {
     }
 
     @Test
-    void getTotalBalanceByCurrencyAndStatus_ShouldReturnTotal() {
-        BigDecimal expectedTotal = new BigDecimal("50000.00");
-        when(treasuryRepository.getTotalBalanceByCurrencyAndStatus("EUR", AccountStatus.ACTIVE))
-                .thenReturn(expectedTotal);
+    void changeStatus_ShouldUpdateInChunks_AndPublishOneEvent() {
+        List<Long> ids = LongStream.rangeClosed(1, 2500).boxed().toList();
+        when(projectionQueries.ids(eq(TreasuryEntity.class), ArgumentMatchers.<Specification<TreasuryEntity>>notNull()))
+                .thenReturn(ids);
 
-        BigDecimal result = treasuryService.getTotalBalanceByCurrencyAndStatus("EUR", AccountStatus.ACTIVE);
+        List<Long> result = treasuryService.changeStatus(TreasuryStatusChangeDto.builder()
+                .status(AccountStatus.SUSPENDED)
+                .bankName("Test Bank")
+                .build());
+
+        assertEquals(ids, result);
+        verify(treasuryRepository).updateStatus(eq(ids.subList(0, 1000)), eq(AccountStatus.SUSPENDED), any());
+        verify(treasuryRepository).updateStatus(eq(ids.subList(1000, 2000)), eq(AccountStatus.SUSPENDED), any());
+        verify(treasuryRepository).updateStatus(eq(ids.subList(2000, 2500)), eq(AccountStatus.SUSPENDED), any());
+        verify(treasuryRepository, times(3)).lockInIdOrder(any());
+        verify(applicationEventPublisher).publishEvent(new TreasuryAccountsStatusChangedEvent(ids, AccountStatus.SUSPENDED));
+        verify(treasuryRepository, never()).save(any());
+    }
 
-        assertEquals(expectedTotal, result);
-        verify(treasuryRepository).getTotalBalanceByCurrencyAndStatus("EUR", AccountStatus.ACTIVE);
+    @Test
+    void changeStatus_ShouldThrowException_WhenNeitherOrBothIdsAndFilterAreGiven() {
+        assertThrows(IllegalArgumentException.class, () -> treasuryService.changeStatus(
+                TreasuryStatusChangeDto.builder().status(AccountStatus.ACTIVE).build()));
+        assertThrows(IllegalArgumentException.class, () -> treasuryService.changeStatus(
+                TreasuryStatusChangeDto.builder().status(AccountStatus.ACTIVE).ids(List.of(1L)).currency("EUR").build()));
+        verifyNoInteractions(projectionQueries, applicationEventPublisher);
+    }
+
+    @Test
+    void changeStatus_ShouldNotPublish_WhenNothingChanged() {
+        when(projectionQueries.idsIn(eq(TreasuryEntity.class), eq(List.of(1L)),
+                ArgumentMatchers.<Specification<TreasuryEntity>>notNull(), eq(1000)))
+                .thenReturn(List.of());
+
+        List<Long> result = treasuryService.changeStatus(TreasuryStatusChangeDto.builder()
+                .status(AccountStatus.ACTIVE)
+                .ids(List.of(1L))
+                .build());
+
+        assertTrue(result.isEmpty());
+        verify(treasuryRepository, never()).updateStatus(any(), any(), any());
+        verifyNoInteractions(applicationEventPublisher);
     }
 
     @Test
-    void getTotalBalanceByCurrencyAndStatus_ShouldReturnZero_WhenNoResults() {
-        when(treasuryRepository.getTotalBalanceByCurrencyAndStatus("USD", AccountStatus.ACTIVE))
-                .thenReturn(null);
+    void getTotalBalanceByCurrencyAndStatus_ShouldReturnTotal() {
+        BigDecimal expectedTotal = new BigDecimal("50000.00");
+        when(treasurySummaryService.getTotalBalance("EUR", AccountStatus.ACTIVE)).thenReturn(expectedTotal);
 
-        BigDecimal result = treasuryService.getTotalBalanceByCurrencyAndStatus("USD", AccountStatus.ACTIVE);
+        BigDecimal result = treasuryService.getTotalBalanceByCurrencyAndStatus("EUR", AccountStatus.ACTIVE);
 
-        assertEquals(BigDecimal.ZERO, result);
+        assertEquals(expectedTotal, result);
+        verify(treasurySummaryService).getTotalBalance("EUR", AccountStatus.ACTIVE);
+        verifyNoInteractions(treasuryRepository);
     }
 
     @Test
     void getTotalAvailableBalance_ShouldReturnTotal() {
         BigDecimal expectedTotal = new BigDecimal("40000.00");
-        when(treasuryRepository.getTotalAvailableBalance()).thenReturn(expectedTotal);
+        when(treasurySummaryService.getTotalAvailableBalance()).thenReturn(expectedTotal);
 
         BigDecimal result = treasuryService.getTotalAvailableBalance();
 
         assertEquals(expectedTotal, result);
-        verify(treasuryRepository).getTotalAvailableBalance();
+        verifyNoInteractions(treasuryRepository);
     }
 
     @Test
     void getTreasurySummaryByCurrency_ShouldReturnSummary() {
-        Object[] row = {"EUR", new BigDecimal("50000.00"), 5L};
-        List<Object[]> results = Arrays.<Object[]>asList(row);
-        when(treasuryRepository.getTreasurySummaryByCurrency()).thenReturn(results);
+        when(treasurySummaryService.getActiveTotalsByCurrency()).thenReturn(List.of(new TreasurySummaryDto(
+                "EUR", new BigDecimal("50000.00"), new BigDecimal("45000.00"), 5L, new BigDecimal("10000.00"))));
 
         List<TreasurySummaryDto> result = treasuryService.getTreasurySummaryByCurrency();
 
         assertEquals(1, result.size());
         assertEquals("EUR", result.get(0).getCurrency());
         assertEquals(new BigDecimal("50000.00"), result.get(0).getTotalBalance());
+        assertNull(result.get(0).getTotalAvailableBalance());
         assertEquals(5L, result.get(0).getAccountCount());
+        assertEquals(new BigDecimal("10000.00"), result.get(0).getAverageBalance());
+        verifyNoInteractions(treasuryRepository);
     }
 
     @Test
     void getLowBalanceAccounts_ShouldReturnLowBalanceAccounts() {
         BigDecimal threshold = new BigDecimal("1000.00");
-        List<TreasuryEntity> treasuryEntities = Arrays.asList(treasuryEntity);
-        when(treasuryRepository.findLowBalanceAccounts(threshold)).thenReturn(treasuryEntities);
-        when(treasuryMapper.toDto(treasuryEntity)).thenReturn(treasuryDto);
+        List<TreasuryDto> treasuryDtos = Arrays.asList(treasuryDto);
+        when(treasuryRepository.findLowBalanceDtos(threshold)).thenReturn(treasuryDtos);
 
         List<TreasuryDto> result = treasuryService.getLowBalanceAccounts(threshold);
 
         assertEquals(1, result.size());
-        verify(treasuryRepository).findLowBalanceAccounts(threshold);
+        verify(treasuryRepository).findLowBalanceDtos(threshold);
     }
 
     @Test
@@ -422,70 +568,73 @@ class TreasuryServiceTests {
     }
 
     @Test
-    void transferFunds_ShouldTransferFunds_WhenValidData() {
-        TreasuryEntity fromAccount = TreasuryEntity.builder()
-                .id(1L)
-                .balance(new BigDecimal("10000.00"))
-                .availableBalance(new BigDecimal("8000.00"))
-                .status(AccountStatus.ACTIVE)
-                .build();
-
-        TreasuryEntity toAccount = TreasuryEntity.builder()
-                .id(2L)
-                .balance(new BigDecimal("5000.00"))
-                .availableBalance(new BigDecimal("5000.00"))
-                .status(AccountStatus.ACTIVE)
-                .build();
-
+    void transferFunds_ShouldDelegateToTransferEngine() {
         BigDecimal transferAmount = new BigDecimal("2000.00");
-
-        when(treasuryRepository.findById(1L)).thenReturn(Optional.of(fromAccount));
-        when(treasuryRepository.findById(2L)).thenReturn(Optional.of(toAccount));
-        when(treasuryRepository.save(fromAccount)).thenReturn(fromAccount);
-        when(treasuryRepository.save(toAccount)).thenReturn(toAccount);
-        when(treasuryMapper.toDto(fromAccount)).thenReturn(treasuryDto);
+        when(treasuryRepository.findDtoById(1L)).thenReturn(Optional.of(treasuryDto));
 
         TreasuryDto result = treasuryService.transferFunds(1L, 2L, transferAmount);
 
         assertNotNull(result);
-        assertEquals(new BigDecimal("6000.00"), fromAccount.getAvailableBalance());
-        assertEquals(new BigDecimal("8000.00"), fromAccount.getBalance());
-        assertEquals(new BigDecimal("7000.00"), toAccount.getAvailableBalance());
-        assertEquals(new BigDecimal("7000.00"), toAccount.getBalance());
-        verify(treasuryRepository, times(2)).save(any(TreasuryEntity.class));
+        assertEquals("ACC001", result.getAccountNumber());
+        verify(transferEngine).transfer(1L, 2L, transferAmount);
+        verify(treasuryRepository, never()).findById(any());
     }
 
     @Test
-    void transferFunds_ShouldThrowException_WhenInsufficientFunds() {
-        TreasuryEntity fromAccount = TreasuryEntity.builder()
-                .id(1L)
-                .availableBalance(new BigDecimal("1000.00"))
-                .status(AccountStatus.ACTIVE)
-                .build();
+    void transferFunds_ShouldUseShardedPipeline_WhenEnabled() {
+        BigDecimal transferAmount = new BigDecimal("2000.00");
+        ShardedTransferPipeline pipeline = mock(ShardedTransferPipeline.class);
+        when(transferPipeline.getIfAvailable()).thenReturn(pipeline);
+        when(pipeline.tryTransfer(1L, 2L, transferAmount)).thenReturn(true);
+        when(treasuryRepository.findDtoById(1L)).thenReturn(Optional.of(treasuryDto));
 
-        TreasuryEntity toAccount = TreasuryEntity.builder()
-                .id(2L)
-                .status(AccountStatus.ACTIVE)
-                .build();
+        TreasuryDto result = treasuryService.transferFunds(1L, 2L, transferAmount);
 
-        BigDecimal transferAmount = new BigDecimal("2000.00");
+        assertNotNull(result);
+        verify(transferEngine, never()).transfer(any(), any(), any());
+    }
 
-        when(treasuryRepository.findById(1L)).thenReturn(Optional.of(fromAccount));
-        when(treasuryRepository.findById(2L)).thenReturn(Optional.of(toAccount));
+    @Test
+    void transferFunds_ShouldFallBackToTransferEngine_WhenPipelineDeclines() {
+        BigDecimal transferAmount = new BigDecimal("2000.00");
+        ShardedTransferPipeline pipeline = mock(ShardedTransferPipeline.class);
+        when(transferPipeline.getIfAvailable()).thenReturn(pipeline);
+        when(pipeline.tryTransfer(1L, 2L, transferAmount)).thenReturn(false);
+        when(treasuryRepository.findDtoById(1L)).thenReturn(Optional.of(treasuryDto));
 
-        assertThrows(IllegalArgumentException.class,
-                () -> treasuryService.transferFunds(1L, 2L, transferAmount));
+        treasuryService.transferFunds(1L, 2L, transferAmount);
 
-        verify(treasuryRepository, never()).save(any());
+        verify(transferEngine).transfer(1L, 2L, transferAmount);
     }
 
     @Test
-    void transferFunds_ShouldThrowException_WhenNegativeAmount() {
+    void transferFunds_ShouldPropagateException_WhenTransferRejected() {
         BigDecimal transferAmount = new BigDecimal("-100.00");
+        when(transferEngine.transfer(1L, 2L, transferAmount))
+                .thenThrow(new IllegalArgumentException("Transfer amount must be positive"));
 
         assertThrows(IllegalArgumentException.class,
                 () -> treasuryService.transferFunds(1L, 2L, transferAmount));
 
-        verify(treasuryRepository, never()).findById(any());
+        verify(treasuryRepository, never()).findDtoById(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void transferFundsBatch_ShouldSummarizeLegOutcomes() {
+        List<TransferRequestDto> transfers = Arrays.asList(
+                new TransferRequestDto(1L, 2L, new BigDecimal("100.00")),
+                new TransferRequestDto(2L, 3L, new BigDecimal("50.00")));
+        List<TransferLegResultDto> legs = Arrays.asList(
+                new TransferLegResultDto(0, 1L, 2L, new BigDecimal("100.00"), TransferStatus.POSTED, null),
+                new TransferLegResultDto(1, 2L, 3L, new BigDecimal("50.00"), TransferStatus.REJECTED,
+                        "Insufficient available balance for transfer"));
+        when(transferEngine.transferBatch(transfers)).thenReturn(legs);
+
+        BatchTransferResultDto result = treasuryService.transferFundsBatch(transfers);
+
+        assertEquals(2, result.getTotalLegs());
+        assertEquals(1, result.getPostedLegs());
+        assertEquals(1, result.getRejectedLegs());
+        assertEquals(legs, result.getLegs());
+    }
+}
@@ -0,0 +1,224 @@
+package com.treasury.kpstreasury.services;
+
+import com.treasury.kpstreasury.enums.AccountStatus;
+import com.treasury.kpstreasury.enums.AccountType;
+import com.treasury.kpstreasury.models.dto.HoldRequestDto;
+import com.treasury.kpstreasury.models.dto.TransferRequestDto;
+import com.treasury.kpstreasury.models.dto.TreasuryDto;
+import com.treasury.kpstreasury.models.dto.TreasuryStatusChangeDto;
+import com.treasury.kpstreasury.models.dto.TreasurySummaryDto;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.BalanceHoldRepository;
+import com.treasury.kpstreasury.repositories.LedgerEntryRepository;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import com.treasury.kpstreasury.utils.BalanceHoldMapper;
+import com.treasury.kpstreasury.utils.KeysetPager;
+import com.treasury.kpstreasury.utils.LedgerMapper;
+import com.treasury.kpstreasury.utils.ProjectionQueries;
+import com.treasury.kpstreasury.utils.TestsUtil;
+import com.treasury.kpstreasury.utils.TreasuryMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({TreasurySummaryService.class, TreasuryService.class, TreasuryMapper.class, TransferEngine.class,
+        LedgerService.class, LedgerWatermarkService.class, LedgerMapper.class, BalanceSlotService.class, BalanceHoldService.class,
+        BalanceHoldMapper.class, KeysetPager.class, ProjectionQueries.class, AvailabilityFilterService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TreasurySummaryServiceTests {
+
+    @Autowired
+    private TreasurySummaryService treasurySummaryService;
+
+    @Autowired
+    private TreasuryService treasuryService;
+
+    @Autowired
+    private BalanceHoldService balanceHoldService;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private BalanceHoldRepository balanceHoldRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        balanceHoldRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+        treasuryRepository.deleteAll();
+        treasurySummaryService.rebuild();
+    }
+
+    @Test
+    void rebuild_ShouldMatchTheSqlAggregates() {
+        treasuryRepository.save(TestsUtil.account("SUM-001", "1000.00").build());
+        treasuryRepository.save(TestsUtil.account("SUM-002", "500.00").build());
+        treasuryRepository.save(TestsUtil.account("SUM-003", "700.00").status(AccountStatus.SUSPENDED).build());
+        treasuryRepository.save(TestsUtil.account("SUM-004", "300.00").currency("USD").build());
+
+        treasurySummaryService.rebuild();
+
+        List<TreasurySummaryDto> totals = treasurySummaryService.getActiveTotalsByCurrency();
+        assertThat(totals).extracting(TreasurySummaryDto::getCurrency).containsExactly("EUR", "USD");
+        assertThat(totals.get(0).getTotalBalance()).isEqualByComparingTo("1500.00");
+        assertThat(totals.get(0).getTotalAvailableBalance()).isEqualByComparingTo("1500.00");
+        assertThat(totals.get(0).getAccountCount()).isEqualTo(2L);
+        assertThat(totals.get(0).getAverageBalance()).isEqualByComparingTo("750.00");
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.SUSPENDED)).isEqualByComparingTo("700.00");
+        assertThat(treasurySummaryService.getTotalBalance("GBP", AccountStatus.ACTIVE)).isEqualTo(BigDecimal.ZERO);
+        assertThat(treasurySummaryService.getTotalAvailableBalance()).isEqualByComparingTo("1800.00");
+        assertThat(treasurySummaryService.reconcile()).isTrue();
+    }
+
+    @Test
+    void committedChanges_ShouldMoveAccountsBetweenTotals_WithoutARebuild() {
+        treasurySummaryService.rebuild();
+        Long first = treasuryService.createTreasuryAccount(dto("SUM-101", "EUR", "1000.00")).getId();
+        Long second = treasuryService.createTreasuryAccount(dto("SUM-102", "EUR", "200.00")).getId();
+        Long third = treasuryService.createTreasuryAccount(dto("SUM-103", "USD", "50.00")).getId();
+
+        treasuryService.transferFunds(first, second, new BigDecimal("300.00"));
+        balanceHoldService.placeHold(second, HoldRequestDto.builder()
+                .amount(new BigDecimal("100.00"))
+                .reference("payment")
+                .build());
+        treasuryService.updateBalance(third, new BigDecimal("80.00"));
+        treasuryService.suspendAccount(first);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            treasuryService.activateAccount(first);
+            status.setRollbackOnly();
+        });
+
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.ACTIVE)).isEqualByComparingTo("500.00");
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.SUSPENDED)).isEqualByComparingTo("700.00");
+        assertThat(treasurySummaryService.getTotalBalance("USD", AccountStatus.ACTIVE)).isEqualByComparingTo("80.00");
+        assertThat(treasurySummaryService.getTotalAvailableBalance()).isEqualByComparingTo("450.00");
+        assertThat(treasurySummaryService.reconcile()).isTrue();
+
+        treasuryService.deleteTreasuryAccount(third);
+        assertThat(treasurySummaryService.getActiveTotalsByCurrency())
+                .extracting(TreasurySummaryDto::getCurrency)
+                .containsExactly("EUR");
+        assertThat(treasurySummaryService.trackedAccounts()).isEqualTo(2);
+        assertThat(treasurySummaryService.reconcile()).isTrue();
+    }
+
+    @Test
+    void transferBatch_ShouldReadTheChangedAccountsOnce_BeforeItCommits() {
+        Long first = treasuryService.createTreasuryAccount(dto("SUM-401", "EUR", "1000.00")).getId();
+        Long second = treasuryService.createTreasuryAccount(dto("SUM-402", "EUR", "1000.00")).getId();
+        Long third = treasuryService.createTreasuryAccount(dto("SUM-403", "EUR", "1000.00")).getId();
+        treasurySummaryService.rebuild();
+        List<TransferRequestDto> legs = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Long from = i % 3 == 0 ? first : i % 3 == 1 ? second : third;
+            Long to = i % 3 == 0 ? second : i % 3 == 1 ? third : first;
+            legs.add(new TransferRequestDto(from, to, new BigDecimal(i % 2 == 0 ? "2.00" : "1.00")));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transferEngine.transferBatch(legs);
+
+        long figureReads = 0;
+        for (String query : statistics.getQueries()) {
+            if (query.contains("TreasuryFiguresRow") && query.contains("IN :ids")) {
+                figureReads += statistics.getQueryStatistics(query).getExecutionCount();
+            }
+        }
+        assertThat(figureReads).isEqualTo(1);
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.ACTIVE)).isEqualByComparingTo("3000.00");
+        assertThat(treasurySummaryService.reconcile()).isTrue();
+    }
+
+    @Test
+    void reconcile_ShouldRebuild_WhenTheDatabaseChangedBehindItsBack() {
+        treasurySummaryService.rebuild();
+        TreasuryEntity account = treasuryRepository.save(TestsUtil.account("SUM-201", "100.00").build());
+
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.ACTIVE)).isEqualTo(BigDecimal.ZERO);
+        assertThat(treasurySummaryService.reconcile()).isFalse();
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.ACTIVE)).isEqualByComparingTo("100.00");
+
+        treasuryRepository.delete(account);
+        assertThat(treasurySummaryService.reconcile()).isFalse();
+        assertThat(treasurySummaryService.getActiveTotalsByCurrency()).isEmpty();
+        assertThat(treasurySummaryService.reconcile()).isTrue();
+    }
+
+    @Test
+    void bulkStatusChange_ShouldMoveTheMatchingAccounts_WithOneEvent() {
+        treasurySummaryService.rebuild();
+        Long first = treasuryService.createTreasuryAccount(dto("SUM-301", "EUR", "1000.00")).getId();
+        Long second = treasuryService.createTreasuryAccount(dto("SUM-302", "EUR", "200.00")).getId();
+        Long third = treasuryService.createTreasuryAccount(dto("SUM-303", "USD", "50.00")).getId();
+        long versionBefore = treasuryRepository.findById(first).orElseThrow().getVersion();
+
+        List<Long> suspended = treasuryService.changeStatus(TreasuryStatusChangeDto.builder()
+                .status(AccountStatus.SUSPENDED)
+                .bankName("Summary Bank")
+                .currency("EUR")
+                .build());
+
+        assertThat(suspended).containsExactly(first, second);
+        TreasuryEntity account = treasuryRepository.findById(first).orElseThrow();
+        assertThat(account.getStatus()).isEqualTo(AccountStatus.SUSPENDED);
+        assertThat(account.getVersion()).isEqualTo(versionBefore + 1);
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.SUSPENDED)).isEqualByComparingTo("1200.00");
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.ACTIVE)).isEqualTo(BigDecimal.ZERO);
+        assertThat(treasurySummaryService.reconcile()).isTrue();
+
+        // accounts already in the status are left out
+        List<Long> activated = treasuryService.changeStatus(TreasuryStatusChangeDto.builder()
+                .status(AccountStatus.ACTIVE)
+                .ids(List.of(second, third))
+                .build());
+
+        assertThat(activated).containsExactly(second);
+        assertThat(treasurySummaryService.getTotalBalance("EUR", AccountStatus.ACTIVE)).isEqualByComparingTo("200.00");
+        assertThat(treasurySummaryService.getTotalBalance("USD", AccountStatus.ACTIVE)).isEqualByComparingTo("50.00");
+        assertThat(treasurySummaryService.reconcile()).isTrue();
+    }
+
+    private TreasuryDto dto(String accountNumber, String currency, String balance) {
+        return TreasuryDto.builder()
+                .accountNumber(accountNumber)
+                .currency(currency)
+                .balance(new BigDecimal(balance))
+                .availableBalance(new BigDecimal(balance))
+                .accountType(AccountType.CHECKING)
+                .status(AccountStatus.ACTIVE)
+                .bankName("Summary Bank")
+                .branchCode("SU001")
+                .build();
+    }
+}
@@ -25,6 +25,7 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -45,6 +46,9 @@ class UserServiceTests {
     @Mock
     private EventPublisher eventPublisher;
 
+    @Mock
+    private AvailabilityFilterService availabilityFilterService;
+
     @InjectMocks
     private UserService userService;
 
@@ -54,6 +58,10 @@ class UserServiceTests {
 
     @BeforeEach
     void setUp() {
+        // a filter that has not loaded yet: every check goes to the repository
+        lenient().when(availabilityFilterService.exists(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Predicate<String>>getArgument(2).test(invocation.getArgument(1)));
+
         userEntity = UserEntity.builder()
                 .id(1L)
                 .username("testuser")
@@ -148,104 +156,111 @@ class UserServiceTests {
         verify(userRepository, never()).save(any());
     }
 
+    @Test
+    void createUser_ShouldAskTheDatabase_NotTheAvailabilityFilter() {
+        // the filter can miss an email another instance inserted since its last rebuild
+        when(userRepository.existsByUsername("testuser")).thenReturn(false);
+        when(userRepository.existsByEmail("test@example.com")).thenReturn(true);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> userService.createUser(createUserDto));
+
+        assertTrue(exception.getMessage().contains("Email already exists"));
+        verify(availabilityFilterService, never()).exists(any(), any(), any());
+        verify(userRepository, never()).save(any());
+    }
+
     @Test
     void getUserById_ShouldReturnUser_WhenUserExists() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
-        when(userMapper.toDto(userEntity)).thenReturn(userDto);
+        when(userRepository.findDtoById(1L)).thenReturn(Optional.of(userDto));
 
         Optional<UserDto> result = userService.getUserById(1L);
 
         assertTrue(result.isPresent());
         assertEquals("testuser", result.get().getUsername());
-        verify(userRepository).findById(1L);
+        verify(userRepository).findDtoById(1L);
     }
 
     @Test
     void getUserById_ShouldReturnEmpty_WhenUserNotFound() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.findDtoById(1L)).thenReturn(Optional.empty());
 
         Optional<UserDto> result = userService.getUserById(1L);
 
         assertFalse(result.isPresent());
-        verify(userRepository).findById(1L);
+        verify(userRepository).findDtoById(1L);
     }
 
     @Test
     void getUserByUsername_ShouldReturnUser_WhenUserExists() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(userEntity));
-        when(userMapper.toDto(userEntity)).thenReturn(userDto);
+        when(userRepository.findDtoByUsername("testuser")).thenReturn(Optional.of(userDto));
 
         Optional<UserDto> result = userService.getUserByUsername("testuser");
 
         assertTrue(result.isPresent());
         assertEquals("testuser", result.get().getUsername());
-        verify(userRepository).findByUsername("testuser");
+        verify(userRepository).findDtoByUsername("testuser");
     }
 
     @Test
     void getAllUsers_ShouldReturnAllUsers() {
-        List<UserEntity> userEntities = Arrays.asList(userEntity);
-        when(userRepository.findAll()).thenReturn(userEntities);
-        when(userMapper.toDto(userEntity)).thenReturn(userDto);
+        List<UserDto> userDtos = Arrays.asList(userDto);
+        when(userRepository.findAllDtos()).thenReturn(userDtos);
 
         List<UserDto> result = userService.getAllUsers();
 
         assertEquals(1, result.size());
         assertEquals("testuser", result.get(0).getUsername());
-        verify(userRepository).findAll();
+        verify(userRepository).findAllDtos();
     }
 
     @Test
     void getUsersByRole_ShouldReturnUsersByRole() {
-        List<UserEntity> userEntities = Arrays.asList(userEntity);
-        when(userRepository.findByRole(Role.USER)).thenReturn(userEntities);
-        when(userMapper.toDto(userEntity)).thenReturn(userDto);
+        List<UserDto> userDtos = Arrays.asList(userDto);
+        when(userRepository.findDtosByRole(Role.USER)).thenReturn(userDtos);
 
         List<UserDto> result = userService.getUsersByRole(Role.USER);
 
         assertEquals(1, result.size());
         assertEquals(Role.USER, result.get(0).getRole());
-        verify(userRepository).findByRole(Role.USER);
+        verify(userRepository).findDtosByRole(Role.USER);
     }
 
     @Test
     void getActiveUsers_ShouldReturnEnabledUsers() {
-        List<UserEntity> userEntities = Arrays.asList(userEntity);
-        when(userRepository.findByEnabledTrue()).thenReturn(userEntities);
-        when(userMapper.toDto(userEntity)).thenReturn(userDto);
+        List<UserDto> userDtos = Arrays.asList(userDto);
+        when(userRepository.findEnabledDtos()).thenReturn(userDtos);
 
         List<UserDto> result = userService.getActiveUsers();
 
         assertEquals(1, result.size());
         assertTrue(result.get(0).isEnabled());
-        verify(userRepository).findByEnabledTrue();
+        verify(userRepository).findEnabledDtos();
     }
 
     @Test
     void searchUsersByName_ShouldReturnMatchingUsers() {
-        List<UserEntity> userEntities = Arrays.asList(userEntity);
-        when(userRepository.findByFirstNameContaining("Test")).thenReturn(userEntities);
-        when(userMapper.toDto(userEntity)).thenReturn(userDto);
+        List<UserDto> userDtos = Arrays.asList(userDto);
+        when(userRepository.findDtosByNameContaining("Test")).thenReturn(userDtos);
 
         List<UserDto> result = userService.searchUsersByName("Test");
 
         assertEquals(1, result.size());
         assertEquals("Test", result.get(0).getFirstName());
-        verify(userRepository).findByFirstNameContaining("Test");
+        verify(userRepository).findDtosByNameContaining("Test");
     }
 
     @Test
     void getActiveUsersByRole_ShouldReturnPagedResults() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<UserEntity> userEntityPage = new PageImpl<>(Arrays.asList(userEntity));
-        when(userRepository.findActiveUsersByRole(Role.USER, pageable)).thenReturn(userEntityPage);
-        when(userMapper.toDto(userEntity)).thenReturn(userDto);
+        Page<UserDto> userDtoPage = new PageImpl<>(Arrays.asList(userDto));
+        when(userRepository.findActiveDtosByRole(Role.USER, pageable)).thenReturn(userDtoPage);
 
         Page<UserDto> result = userService.getActiveUsersByRole(Role.USER, pageable);
 
         assertEquals(1, result.getContent().size());
         assertEquals(Role.USER, result.getContent().get(0).getRole());
-        verify(userRepository).findActiveUsersByRole(Role.USER, pageable);
+        verify(userRepository).findActiveDtosByRole(Role.USER, pageable);
     }
 
     @Test
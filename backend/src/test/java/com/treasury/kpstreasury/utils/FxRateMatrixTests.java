@@ -0,0 +1,55 @@
+package com.treasury.kpstreasury.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FxRateMatrixTests {
+
+    private final FxRateMatrix matrix = FxRateMatrix.of("EUR", Map.of(
+            "USD", new BigDecimal("1.2500"),
+            "GBP", new BigDecimal("0.8000")));
+
+    @Test
+    void testPivotIsAlwaysPresentAndCurrenciesAreOrderedByCode() {
+        assertEquals(List.of("EUR", "GBP", "USD"), matrix.currencies());
+        assertEquals(0, matrix.ordinal("EUR"));
+        assertEquals(2, matrix.ordinal("USD"));
+        assertEquals(BigDecimal.ONE, matrix.unitsPerPivot("EUR"));
+    }
+
+    @Test
+    void testCrossRatesGoThroughThePivot() {
+        assertEquals(0, new BigDecimal("1.25").compareTo(matrix.rate("EUR", "USD")));
+        assertEquals(0, new BigDecimal("0.8").compareTo(matrix.rate("USD", "EUR")));
+        assertEquals(0, new BigDecimal("0.64").compareTo(matrix.rate("USD", "GBP")));
+        assertEquals(0, new BigDecimal("1.5625").compareTo(matrix.rate("GBP", "USD")));
+        assertSame(BigDecimal.ONE, matrix.rate("GBP", "GBP"));
+    }
+
+    @Test
+    void testLookupsReturnTheSameInstances() {
+        assertSame(matrix.rate("USD", "GBP"), matrix.rate("USD", "GBP"));
+    }
+
+    @Test
+    void testUnknownCurrenciesHaveNoRate() {
+        assertNull(matrix.rate("EUR", "JPY"));
+        assertNull(matrix.rate("eur", "USD"));
+        assertNull(matrix.rate(null, "USD"));
+        assertEquals(-1, matrix.ordinal("EURO"));
+        assertFalse(matrix.contains("CHF"));
+    }
+
+    @Test
+    void testInvalidInputIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> FxRateMatrix.of("EUR", Map.of("US1", BigDecimal.ONE)));
+        assertThrows(IllegalArgumentException.class,
+                () -> FxRateMatrix.of("EUR", Map.of("USD", BigDecimal.ZERO)));
+    }
+}
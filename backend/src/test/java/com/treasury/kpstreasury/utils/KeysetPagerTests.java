@@ -0,0 +1,130 @@
+package com.treasury.kpstreasury.utils;
+
+import com.treasury.kpstreasury.enums.TreasurySortKey;
+import com.treasury.kpstreasury.models.dto.CursorPageDto;
+import com.treasury.kpstreasury.models.dto.CursorPageRequest;
+import com.treasury.kpstreasury.models.entity.TreasuryEntity;
+import com.treasury.kpstreasury.repositories.TreasuryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import(KeysetPager.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class KeysetPagerTests {
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private TreasuryRepository treasuryRepository;
+
+    private List<TreasuryEntity> accounts;
+
+    @BeforeEach
+    void setUp() {
+        accounts = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            // only 5 distinct balances, so most pages split a run of equal sort values
+            accounts.add(treasuryRepository.save(TestsUtil.account("KS-" + i, String.valueOf((i % 5) * 100))
+                    .currency(i % 2 == 0 ? "EUR" : "USD")
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        treasuryRepository.deleteAll();
+    }
+
+    @Test
+    void page_ShouldVisitEveryRowOnce_InSortOrder_WhenFollowingTheCursors() {
+        List<Long> expected = accounts.stream()
+                .sorted(Comparator.comparing(TreasuryEntity::getBalance).thenComparing(TreasuryEntity::getId))
+                .map(TreasuryEntity::getId)
+                .toList();
+
+        List<Long> visited = readAll(null, TreasurySortKey.BALANCE, false, 4);
+
+        assertThat(visited).isEqualTo(expected);
+    }
+
+    @Test
+    void page_ShouldSeekBackwards_AndApplyTheFilter_WhenDescending() {
+        List<Long> expected = accounts.stream()
+                .filter(account -> account.getCurrency().equals("EUR"))
+                .sorted(Comparator.comparing(TreasuryEntity::getBalance).thenComparing(TreasuryEntity::getId).reversed())
+                .map(TreasuryEntity::getId)
+                .toList();
+
+        List<Long> visited = readAll(FilterSpecifications.equalTo("currency", "EUR"), TreasurySortKey.BALANCE, true, 5);
+
+        assertThat(visited).isEqualTo(expected);
+        assertThat(readAll(null, TreasurySortKey.ID, true, 10))
+                .isEqualTo(accounts.stream().map(TreasuryEntity::getId).sorted(Comparator.reverseOrder()).toList());
+    }
+
+    @Test
+    void page_ShouldCountOnlyWhenAsked_AndEndWithoutCursor() {
+        CursorPageDto<TreasuryEntity> first = keysetPager.page(TreasuryEntity.class,
+                FilterSpecifications.equalTo("currency", "USD"), TreasurySortKey.ACCOUNT_NUMBER,
+                new CursorPageRequest(null, 50, false, true));
+        CursorPageDto<TreasuryEntity> uncounted = keysetPager.page(TreasuryEntity.class, null,
+                TreasurySortKey.ID, new CursorPageRequest(null, 20, false, false));
+
+        assertThat(first.getItems()).hasSize(11);
+        assertThat(first.getTotalCount()).isEqualTo(11);
+        assertThat(first.isHasMore()).isFalse();
+        assertThat(first.getNextCursor()).isNull();
+        assertThat(uncounted.getTotalCount()).isNull();
+        assertThat(uncounted.isHasMore()).isTrue();
+    }
+
+    @Test
+    void page_ShouldRejectCursorsOfAnotherSort_AndTamperedOnes() {
+        String cursor = keysetPager.page(TreasuryEntity.class, null, TreasurySortKey.BALANCE,
+                new CursorPageRequest(null, 3, false, false)).getNextCursor();
+
+        assertThatThrownBy(() -> keysetPager.page(TreasuryEntity.class, null, TreasurySortKey.CREATED_AT,
+                new CursorPageRequest(cursor, 3, false, false)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("another sort order");
+        assertThatThrownBy(() -> keysetPager.page(TreasuryEntity.class, null, TreasurySortKey.BALANCE,
+                new CursorPageRequest(cursor, 3, true, false)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> keysetPager.page(TreasuryEntity.class, null, TreasurySortKey.BALANCE,
+                new CursorPageRequest("not*a*cursor", 3, false, false)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed cursor");
+        assertThatThrownBy(() -> keysetPager.page(TreasuryEntity.class, null, TreasurySortKey.BALANCE,
+                new CursorPageRequest(null, 0, false, false)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<Long> readAll(Specification<TreasuryEntity> filter, TreasurySortKey sort, boolean descending, int size) {
+        List<Long> visited = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageDto<TreasuryEntity> page = keysetPager.page(TreasuryEntity.class, filter, sort,
+                    new CursorPageRequest(cursor, size, descending, false));
+            assertThat(page.getItems().size()).isLessThanOrEqualTo(size);
+            page.getItems().forEach(account -> visited.add(account.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return visited;
+    }
+}
@@ -0,0 +1,60 @@
+package com.treasury.kpstreasury.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongLongHashMapTests {
+
+    @Test
+    void testAgreesWithAHashMapWhileGrowing() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(20_000) - 10_000L;
+            long delta = random.nextInt(1_000);
+            map.addTo(key, delta);
+            expected.merge(key, delta, Long::sum);
+        }
+
+        assertEquals(expected.size(), map.size());
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), map.get(entry.getKey(), -1L));
+        }
+    }
+
+    @Test
+    void testKeepsTheZeroKeyApart() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        assertFalse(map.containsKey(0L));
+        assertEquals(-1L, map.get(0L, -1L));
+
+        map.put(0L, 7L);
+        map.put(Long.MIN_VALUE, 3L);
+        assertEquals(9L, map.addTo(0L, 2L));
+
+        assertEquals(2, map.size());
+        assertEquals(9L, map.get(0L, -1L));
+        assertEquals(3L, map.get(Long.MIN_VALUE, -1L));
+        assertEquals(-1L, map.get(1L, -1L));
+    }
+
+    @Test
+    void testRejectsOverflowAndNegativeSizes() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        map.put(1L, Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> map.addTo(1L, 1L));
+        assertEquals(Long.MAX_VALUE, map.get(1L, 0L));
+        assertThrows(IllegalArgumentException.class, () -> new LongLongHashMap(-1));
+    }
+}
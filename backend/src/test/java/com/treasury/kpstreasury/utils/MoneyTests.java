@@ -0,0 +1,97 @@
+package com.treasury.kpstreasury.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTests {
+
+    @Test
+    void testConversionFromAndToBigDecimalIsExact() {
+        Money money = Money.of(new BigDecimal("1234.5"), "EUR");
+
+        assertEquals(123450L, money.minorUnits());
+        assertEquals(new BigDecimal("1234.50"), money.toBigDecimal());
+    }
+
+    @Test
+    void testOfRejectsSubMinorAmounts() {
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.001"), "EUR"));
+        assertEquals(1L, Money.rounded(new BigDecimal("0.005"), "EUR").minorUnits());
+    }
+
+    @Test
+    void testArithmeticIsOverflowChecked() {
+        Money max = Money.ofMinor(Long.MAX_VALUE, "EUR");
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1L, "EUR")));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e20"), "EUR"));
+    }
+
+    @Test
+    void testArithmeticRejectsCurrencyMismatch() {
+        Money euros = Money.of(new BigDecimal("10.00"), "EUR");
+        Money dollars = Money.of(new BigDecimal("10.00"), "USD");
+
+        assertThrows(IllegalArgumentException.class, () -> euros.plus(dollars));
+        assertThrows(IllegalArgumentException.class, () -> euros.compareTo(dollars));
+    }
+
+    @Test
+    void testDividedByRoundsHalfUp() {
+        Money total = Money.of(new BigDecimal("100.00"), "EUR");
+
+        assertEquals(new BigDecimal("33.33"), total.dividedBy(3).toBigDecimal());
+        assertEquals(new BigDecimal("0.02"), Money.ofMinor(5, "EUR").dividedBy(3).toBigDecimal());
+        assertEquals(new BigDecimal("-0.02"), Money.ofMinor(-5, "EUR").dividedBy(3).toBigDecimal());
+    }
+
+    @Test
+    void testAfterHaircutMatchesBigDecimalCalculation() {
+        BigDecimal marketValue = new BigDecimal("123456.78");
+        BigDecimal haircut = new BigDecimal("0.1275");
+
+        BigDecimal expected = marketValue.multiply(BigDecimal.ONE.subtract(haircut))
+                .setScale(2, RoundingMode.HALF_UP);
+
+        assertEquals(expected, Money.of(marketValue, "EUR").afterHaircut(haircut).toBigDecimal());
+    }
+
+    @Test
+    void testAfterHaircutDoesNotOverflowForLargeAmounts() {
+        Money large = Money.ofMinor(Long.MAX_VALUE / 2, "EUR");
+
+        assertEquals(large, large.afterHaircut(BigDecimal.ZERO));
+        assertEquals(Money.ofMinor(0L, "EUR"), large.afterHaircut(BigDecimal.ONE));
+    }
+
+    @Test
+    void testConverterRoundTrip() {
+        MoneyConverter converter = new MoneyConverter();
+
+        Money money = converter.convertToEntityAttribute(new BigDecimal("99.90"));
+
+        assertEquals(9990L, money.minorUnits());
+        assertEquals(new BigDecimal("99.90"), converter.convertToDatabaseColumn(money));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void testJsonUsesPlainNumbers() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new SimpleModule()
+                .addSerializer(Money.class, new MoneyJsonComponent.Serializer())
+                .addDeserializer(Money.class, new MoneyJsonComponent.Deserializer()));
+
+        assertEquals("100.50", mapper.writeValueAsString(Money.of(new BigDecimal("100.5"), "EUR")));
+        assertEquals(10050L, mapper.readValue("100.50", Money.class).minorUnits());
+        assertThrows(InvalidFormatException.class, () -> mapper.readValue("1.005", Money.class));
+    }
+}
@@ -0,0 +1,91 @@
+package com.treasury.kpstreasury.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentNettingTests {
+
+    @Test
+    void testNetsEachAccountAndPair() {
+        PaymentNetting netting = new PaymentNetting(8);
+        netting.add(1L, 2L, 100L, "EUR");
+        netting.add(2L, 1L, 30L, "EUR");
+        netting.add(2L, 3L, 50L, "EUR");
+        netting.add(3L, 1L, 50L, "EUR");
+
+        assertEquals(4, netting.instructionCount());
+        assertEquals(3, netting.accountCount());
+        int first = netting.indexOf(1L);
+        assertEquals(100L, netting.paid(first));
+        assertEquals(80L, netting.received(first));
+        assertEquals(-20L, netting.net(first));
+        assertEquals(20L, netting.net(netting.indexOf(2L)));
+        assertEquals(0L, netting.net(netting.indexOf(3L)));
+        assertEquals(-1, netting.indexOf(4L));
+
+        List<PaymentNetting.Leg> bilateral = new ArrayList<>();
+        netting.forEachBilateralNet((from, to, amount, currency) ->
+                bilateral.add(new PaymentNetting.Leg(from, to, amount, currency)));
+        assertEquals(3, bilateral.size());
+        assertTrue(bilateral.contains(new PaymentNetting.Leg(1L, 2L, 70L, "EUR")));
+        assertTrue(bilateral.contains(new PaymentNetting.Leg(2L, 3L, 50L, "EUR")));
+        assertTrue(bilateral.contains(new PaymentNetting.Leg(3L, 1L, 50L, "EUR")));
+
+        // the cycle 1 -> 2 -> 3 -> 1 cancels out, only 1 owing 2 is left
+        assertEquals(List.of(new PaymentNetting.Leg(1L, 2L, 20L, "EUR")), netting.residualLegs());
+    }
+
+    @Test
+    void testResidualLegsSettleEveryNetPositionPerCurrency() {
+        PaymentNetting netting = new PaymentNetting(16);
+        Random random = new Random(7);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            long from = 1 + random.nextInt(20);
+            long to = 1 + random.nextInt(20);
+            if (from == to || (from <= 10) != (to <= 10)) {
+                continue;
+            }
+            long amount = 1 + random.nextInt(100_000);
+            netting.add(from, to, amount, from <= 10 ? "EUR" : "USD");
+            expected.merge(from, -amount, Long::sum);
+            expected.merge(to, amount, Long::sum);
+        }
+
+        List<PaymentNetting.Leg> legs = netting.residualLegs();
+        Map<Long, Long> settled = new HashMap<>();
+        for (PaymentNetting.Leg leg : legs) {
+            assertTrue(leg.amount() > 0);
+            assertEquals(leg.fromAccountId() <= 10 ? "EUR" : "USD", leg.currency());
+            assertEquals(leg.fromAccountId() <= 10, leg.toAccountId() <= 10);
+            settled.merge(leg.fromAccountId(), -leg.amount(), Long::sum);
+            settled.merge(leg.toAccountId(), leg.amount(), Long::sum);
+        }
+        expected.values().removeIf(net -> net == 0);
+        assertEquals(expected, settled);
+        // at most payers + receivers - 1 legs per currency
+        assertTrue(legs.size() <= 18, "legs: " + legs.size());
+        assertTrue(netting.instructionCount() > 100 * legs.size());
+        assertEquals(legs, netting.residualLegs());
+    }
+
+    @Test
+    void testRejectsInstructionsItCannotNet() {
+        PaymentNetting netting = new PaymentNetting(4);
+        netting.add(1L, 2L, 10L, "EUR");
+
+        assertThrows(IllegalArgumentException.class, () -> netting.add(1L, 2L, 0L, "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> netting.add(1L, 1L, 10L, "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> netting.add(3L, 2L, 10L, "USD"));
+        assertEquals(1, netting.instructionCount());
+        assertEquals(2, netting.accountCount());
+        assertEquals(1, netting.residualLegs().size());
+    }
+}
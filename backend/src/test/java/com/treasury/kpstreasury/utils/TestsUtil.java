@@ -10,6 +10,22 @@ import java.time.LocalDate;
 @Component
 public class TestsUtil {
 
+    /**
+     * An ACTIVE EUR checking account whose whole balance is available, as a builder so that a test
+     * sets only what it is about before build().
+     */
+    public static TreasuryEntity.TreasuryEntityBuilder account(String accountNumber, String balance) {
+        return TreasuryEntity.builder()
+                .accountNumber(accountNumber)
+                .currency("EUR")
+                .balance(new BigDecimal(balance))
+                .availableBalance(new BigDecimal(balance))
+                .accountType(AccountType.CHECKING)
+                .status(AccountStatus.ACTIVE)
+                .bankName("Test Bank")
+                .branchCode("TB001");
+    }
+
     public TreasuryEntity createTreasuryEntityA() {
         TreasuryEntity treasury = TreasuryEntity.builder()
                 .accountNumber("ACC-001")